@@ -0,0 +1,96 @@
+package com.smartdevicelink.managers.file;
+
+import com.smartdevicelink.AndroidTestCase2;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.file.FileContentIndex}
+ */
+public class FileContentIndexTests extends AndroidTestCase2 {
+
+	private File indexFile;
+
+	@Override
+	public void setUp() throws Exception{
+		super.setUp();
+		indexFile = new File(getContext().getCacheDir(), FileContentIndex.buildFileName("appId", "headUnit"));
+		indexFile.delete();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		indexFile.delete();
+		super.tearDown();
+	}
+
+	public void testHash(){
+		String hash = FileContentIndex.hash(new byte[]{1, 2, 3});
+		assertEquals(64, hash.length());
+		assertEquals(hash, FileContentIndex.hash(new byte[]{1, 2, 3}));
+		assertFalse(hash.equals(FileContentIndex.hash(new byte[]{1, 2, 4})));
+	}
+
+	public void testFileNamePerHeadUnit(){
+		assertEquals(FileContentIndex.buildFileName("appId", "headUnit"), FileContentIndex.buildFileName("appId", "headUnit"));
+		assertFalse(FileContentIndex.buildFileName("appId", "headUnit").equals(FileContentIndex.buildFileName("appId", "otherHeadUnit")));
+		assertFalse(FileContentIndex.buildFileName("appId", "headUnit").equals(FileContentIndex.buildFileName("otherAppId", "headUnit")));
+	}
+
+	public void testPersistentEntriesReloaded(){
+		FileContentIndex index = new FileContentIndex();
+		index.load(indexFile);
+		index.put("persistent", "hash1", true);
+		index.put("ephemeral", "hash2", false);
+
+		FileContentIndex reloaded = new FileContentIndex();
+		reloaded.load(indexFile);
+		assertEquals("hash1", reloaded.getHash("persistent"));
+		assertEquals("persistent", reloaded.findName("hash1", true));
+		assertNull(reloaded.getHash("ephemeral"));
+		assertNull(reloaded.findName("hash2", false));
+	}
+
+	public void testFindName(){
+		FileContentIndex index = new FileContentIndex();
+		index.load(null);
+		index.put("ephemeral", "hash", false);
+		assertEquals("ephemeral", index.findName("hash", false));
+		//A file deleted on disconnect can't stand in for a persistent one
+		assertNull(index.findName("hash", true));
+
+		index.put("persistent", "hash", true);
+		assertEquals("persistent", index.findName("hash", true));
+
+		index.remove("persistent");
+		assertEquals("ephemeral", index.findName("hash", false));
+	}
+
+	public void testReplacedContents(){
+		FileContentIndex index = new FileContentIndex();
+		index.load(indexFile);
+		index.put("file", "hash1", true);
+		index.put("file", "hash2", true);
+		assertEquals("hash2", index.getHash("file"));
+		assertNull(index.findName("hash1", false));
+	}
+
+	public void testRetainAll(){
+		FileContentIndex index = new FileContentIndex();
+		index.load(indexFile);
+		index.put("kept", "hash1", true);
+		index.put("deleted", "hash2", true);
+		index.retainAll(Collections.singletonList("kept"));
+		assertNull(index.getHash("deleted"));
+
+		FileContentIndex reloaded = new FileContentIndex();
+		reloaded.load(indexFile);
+		assertEquals("hash1", reloaded.getHash("kept"));
+		assertNull(reloaded.getHash("deleted"));
+		reloaded.retainAll(Arrays.asList("kept", "other"));
+		assertEquals("kept", reloaded.findName("hash1", true));
+	}
+}
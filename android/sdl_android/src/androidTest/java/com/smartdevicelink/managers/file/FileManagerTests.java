@@ -197,6 +197,77 @@ public class FileManagerTests extends AndroidTestCase2 {
 		});
 	}
 
+	public void testChangedFileUploadedAgain(){
+		ISdl internalInterface = mock(ISdl.class);
+
+		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
+		doAnswer(onPutFileSuccess).when(internalInterface).sendRPCRequest(any(PutFile.class));
+
+		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
+		fileManager.start(new CompletionListener() {
+			@Override
+			public void onComplete(boolean success) {
+				assertTrue(success);
+				fileManager.uploadFile(validFile, new CompletionListener() {
+					@Override
+					public void onComplete(boolean success) {
+						assertTrue(success);
+						assertTrue(fileManager.hasUploadedFile(validFile));
+						validFile.setFileData(new byte[]{1, 2, 3});
+						assertFalse(fileManager.hasUploadedFile(validFile));
+					}
+				});
+			}
+		});
+	}
+
+	public void testIdenticalFileReused(){
+		ISdl internalInterface = mock(ISdl.class);
+
+		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
+		final List<String> sentFileNames = new ArrayList<>();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				RPCRequest message = (RPCRequest) invocation.getArguments()[0];
+				if(message instanceof PutFile){
+					sentFileNames.add(((PutFile) message).getSdlFileName());
+				}
+				return onPutFileSuccess.answer(invocation);
+			}
+		}).when(internalInterface).sendRPCRequest(any(PutFile.class));
+
+		final SdlFile copy = new SdlFile();
+		copy.setName("copy");
+		copy.setFileData(Test.GENERAL_BYTE_ARRAY);
+		copy.setPersistent(false);
+
+		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
+		fileManager.start(new CompletionListener() {
+			@Override
+			public void onComplete(boolean success) {
+				assertTrue(success);
+				fileManager.uploadFile(validFile, new CompletionListener() {
+					@Override
+					public void onComplete(boolean success) {
+						assertTrue(success);
+						fileManager.uploadFile(copy, new CompletionListener() {
+							@Override
+							public void onComplete(boolean success) {
+								assertTrue(success);
+								//The copy keeps its name but refers to the file that holds the same bytes
+								assertEquals("copy", copy.getName());
+								assertEquals(validFile.getName(), fileManager.getRemoteFileName(copy));
+								assertEquals(1, sentFileNames.size());
+								assertTrue(fileManager.hasUploadedFile(copy));
+							}
+						});
+					}
+				});
+			}
+		});
+	}
+
 	public void testFileUploadFailure(){
 		ISdl internalInterface = mock(ISdl.class);
 
@@ -314,6 +385,7 @@ public class FileManagerTests extends AndroidTestCase2 {
 		ISdl internalInterface = mock(ISdl.class);
 
 		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
+		doAnswer(onPutFileSuccess).when(internalInterface).sendRPCRequest(any(PutFile.class));
 		doAnswer(onSendRequestsSuccess).when(internalInterface).sendRequests(any(List.class), any(OnMultipleRequestListener.class));
 
 		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
@@ -366,30 +438,27 @@ public class FileManagerTests extends AndroidTestCase2 {
 
 		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
 
-		Answer<Void> onSendRequestsFailure = new Answer<Void>() {
-			private int responseNum = 0;
+		Answer<Void> onPutFilePartialFailure = new Answer<Void>() {
 			@Override
 			public Void answer(InvocationOnMock invocation) {
 				Object[] args = invocation.getArguments();
-				List<RPCRequest> rpcs = (List<RPCRequest>) args[0];
-				OnMultipleRequestListener listener = (OnMultipleRequestListener) args[1];
-				if(rpcs.get(0) instanceof PutFile){
-					for(RPCRequest message : rpcs){
-						int correlationId = message.getCorrelationID();
-						listener.addCorrelationId(correlationId);
+				RPCRequest message = (RPCRequest) args[0];
+				if(message instanceof PutFile){
+					int correlationId = message.getCorrelationID();
+					String fileName = ((PutFile) message).getSdlFileName();
+					//Files are sent smallest first, so fail them by name rather than by order
+					if(fileName.equals("file0") || fileName.equals("file2")){
+						message.getOnRPCResponseListener().onError(correlationId, Result.OUT_OF_MEMORY, failureReason);
+					}else{
 						PutFileResponse putFileResponse = new PutFileResponse();
-						if(responseNum++ % 2 == 0){
-							listener.onError(correlationId, Result.OUT_OF_MEMORY, failureReason);
-						}else{
-							putFileResponse.setSuccess(true);
-							listener.onResponse(correlationId, putFileResponse);
-						}
+						putFileResponse.setSuccess(true);
+						message.getOnRPCResponseListener().onResponse(correlationId, putFileResponse);
 					}
 				}
 				return null;
 			}
 		};
-		doAnswer(onSendRequestsFailure).when(internalInterface).sendRequests(any(List.class), any(OnMultipleRequestListener.class));
+		doAnswer(onPutFilePartialFailure).when(internalInterface).sendRPCRequest(any(PutFile.class));
 
 		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
 		fileManager.start(new CompletionListener() {
@@ -449,6 +518,7 @@ public class FileManagerTests extends AndroidTestCase2 {
 		ISdl internalInterface = mock(ISdl.class);
 
 		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
+		doAnswer(onPutFileSuccess).when(internalInterface).sendRPCRequest(any(PutFile.class));
 		doAnswer(onSendRequestsSuccess).when(internalInterface).sendRequests(any(List.class), any(OnMultipleRequestListener.class));
 
 		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
@@ -487,6 +557,69 @@ public class FileManagerTests extends AndroidTestCase2 {
 		});
 	}
 
+	public void testMultipleFileUploadTooManyPendingRetried(){
+		ISdl internalInterface = mock(ISdl.class);
+
+		doAnswer(onListFilesSuccess).when(internalInterface).sendRPCRequest(any(ListFiles.class));
+
+		Answer<Void> onPutFileTooManyPending = new Answer<Void>() {
+			private int responseNum = 0;
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				RPCRequest message = (RPCRequest) args[0];
+				if(message instanceof PutFile){
+					int correlationId = message.getCorrelationID();
+					//Turn away the first request, it should be sent again
+					if(responseNum++ == 0){
+						message.getOnRPCResponseListener().onError(correlationId, Result.TOO_MANY_PENDING_REQUESTS, null);
+					}else{
+						PutFileResponse putFileResponse = new PutFileResponse();
+						putFileResponse.setSuccess(true);
+						message.getOnRPCResponseListener().onResponse(correlationId, putFileResponse);
+					}
+				}
+				return null;
+			}
+		};
+		doAnswer(onPutFileTooManyPending).when(internalInterface).sendRPCRequest(any(PutFile.class));
+
+		final FileManager fileManager = new FileManager(internalInterface, mTestContext);
+		fileManager.start(new CompletionListener() {
+			@Override
+			public void onComplete(boolean success) {
+				assertTrue(success);
+				final List<SdlFile> filesToUpload = new ArrayList<>();
+				for(int i = 0; i < 5; i++){
+					SdlFile sdlFile = new SdlFile();
+					sdlFile.setName("file" + i);
+					sdlFile.setFileData(Test.GENERAL_BYTE_ARRAY);
+					filesToUpload.add(sdlFile);
+				}
+				final List<String> completedFileNames = new ArrayList<>();
+
+				fileManager.uploadFiles(filesToUpload,
+						new MultipleFileUpdateListener() {
+							@Override
+							public void onFileComplete(String fileName, boolean success) {
+								assertTrue(success);
+								completedFileNames.add(fileName);
+							}
+
+							@Override
+							public void onComplete(Map<String, String> errors) {
+								assertNull(errors);
+								assertEquals(filesToUpload.size(), completedFileNames.size());
+								List <String> uploadedFileNames = fileManager.getRemoteFileNames();
+								for(SdlFile file : filesToUpload){
+									assertTrue(uploadedFileNames.contains(file.getName()));
+								}
+							}
+						});
+			}
+		});
+	}
+
 	public void testPersistentFileUploaded(){
 		ISdl internalInterface = mock(ISdl.class);
 
@@ -123,6 +123,7 @@ public class RpcConverterTest extends AndroidTestCase2 {
         RPCMessage newMessage = RpcConverter.extractRpc(protocolMessage,MAX_RPC_VERSION);
         assertNotNull(newMessage);
 
+        assertEquals(rpcClass, newMessage.getClass());
         assertEquals(message.getMessageType(), newMessage.getMessageType());
         assertEquals(message.getFunctionID(), newMessage.getFunctionID());
     }
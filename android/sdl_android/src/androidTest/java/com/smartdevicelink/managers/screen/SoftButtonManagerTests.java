@@ -80,6 +80,12 @@ public class SoftButtonManagerTests extends AndroidTestCase2 {
             }
         };
         doAnswer(onFileManagerUploadAnswer).when(fileManager).uploadArtworks(any(List.class), any(MultipleFileCompletionListener.class));
+        doAnswer(new Answer<Image>() {
+            @Override
+            public Image answer(InvocationOnMock invocation) {
+                return ((SdlArtwork) invocation.getArguments()[0]).getImageRPC();
+            }
+        }).when(fileManager).getImageRPC(any(SdlArtwork.class));
 
 
         // Create softButtonManager
@@ -9,20 +9,27 @@ import com.smartdevicelink.managers.file.FileManager;
 import com.smartdevicelink.managers.file.filetypes.SdlArtwork;
 import com.smartdevicelink.proxy.interfaces.ISdl;
 import com.smartdevicelink.proxy.rpc.DisplayCapabilities;
+import com.smartdevicelink.proxy.rpc.Image;
 import com.smartdevicelink.proxy.rpc.MetadataTags;
 import com.smartdevicelink.proxy.rpc.Show;
+import com.smartdevicelink.proxy.rpc.ShowResponse;
 import com.smartdevicelink.proxy.rpc.TextField;
 import com.smartdevicelink.proxy.rpc.enums.FileType;
 import com.smartdevicelink.proxy.rpc.enums.HMILevel;
 import com.smartdevicelink.proxy.rpc.enums.MetadataType;
+import com.smartdevicelink.proxy.rpc.enums.Result;
 import com.smartdevicelink.proxy.rpc.enums.TextAlignment;
 import com.smartdevicelink.proxy.rpc.enums.TextFieldName;
 
 import org.json.JSONException;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -34,15 +41,23 @@ public class TextAndGraphicManagerTests extends AndroidTestCase2 {
 	// SETUP / HELPERS
 	private TextAndGraphicManager textAndGraphicManager;
 	private SdlArtwork testArtwork;
+	private ISdl internalInterface;
+	private List<Show> sentShows;
 
 	@Override
 	public void setUp() throws Exception{
 		super.setUp();
 		Context mTestContext = this.getContext();
 		// mock things
-		ISdl internalInterface = mock(ISdl.class);
+		internalInterface = mock(ISdl.class);
 		FileManager fileManager = mock(FileManager.class);
 		SoftButtonManager softButtonManager = mock(SoftButtonManager.class);
+		doAnswer(new Answer<Image>() {
+			@Override
+			public Image answer(InvocationOnMock invocation) {
+				return ((SdlArtwork) invocation.getArguments()[0]).getImageRPC();
+			}
+		}).when(fileManager).getImageRPC(any(SdlArtwork.class));
 
 		testArtwork = new SdlArtwork();
 		testArtwork.setName("testFile");
@@ -51,6 +66,19 @@ public class TextAndGraphicManagerTests extends AndroidTestCase2 {
 		testArtwork.setType(FileType.GRAPHIC_PNG);
 
 		textAndGraphicManager = new TextAndGraphicManager(internalInterface, fileManager, softButtonManager);
+
+		sentShows = new ArrayList<>();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				sentShows.add((Show) invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(internalInterface).sendRPCRequest(any(Show.class));
+	}
+
+	private void respondToShow(Show show){
+		show.getOnRPCResponseListener().onResponse(show.getCorrelationID(), new ShowResponse(true, Result.SUCCESS));
 	}
 
 	@Override
@@ -505,6 +533,92 @@ public class TextAndGraphicManagerTests extends AndroidTestCase2 {
 		assertNull(newShow.getMainField2());
 	}
 
+	public void testCreateShowDiff(){
+
+		textAndGraphicManager.currentScreenData.setMainField1("Track");
+		textAndGraphicManager.currentScreenData.setMainField2("Artist");
+		textAndGraphicManager.currentScreenData.setMediaTrack("0:01");
+		textAndGraphicManager.currentScreenData.setAlignment(TextAlignment.CENTERED);
+
+		Show show = new Show();
+		show.setMainField1("Track");
+		show.setMainField2("Artist");
+		show.setMediaTrack("0:02");
+		show.setAlignment(TextAlignment.CENTERED);
+
+		Show diff = textAndGraphicManager.createShowDiff(show);
+		assertNotNull(diff);
+		assertNull(diff.getMainField1());
+		assertNull(diff.getMainField2());
+		assertNull(diff.getAlignment());
+		assertEquals(diff.getMediaTrack(), "0:02");
+
+		show.setMediaTrack("0:01");
+		assertNull(textAndGraphicManager.createShowDiff(show));
+
+		// The alignment is always sent with mainField1 or mainField2, since leaving it out centers them
+		show.setMainField2("Album");
+		diff = textAndGraphicManager.createShowDiff(show);
+		assertNotNull(diff);
+		assertEquals(diff.getMainField2(), "Album");
+		assertEquals(diff.getAlignment(), TextAlignment.CENTERED);
+		assertNull(diff.getMediaTrack());
+
+		show.setMainField2("Artist");
+		show.setAlignment(TextAlignment.LEFT_ALIGNED);
+		diff = textAndGraphicManager.createShowDiff(show);
+		assertNotNull(diff);
+		assertNull(diff.getMainField2());
+		assertEquals(diff.getAlignment(), TextAlignment.LEFT_ALIGNED);
+	}
+
+	public void testUpdatesCoalesced(){
+
+		textAndGraphicManager.currentHMILevel = HMILevel.HMI_FULL;
+		textAndGraphicManager.setUpdateInterval(0);
+
+		textAndGraphicManager.setTextField1("Track");
+		assertEquals(1, sentShows.size());
+		assertEquals(sentShows.get(0).getMainField1(), "Track");
+
+		// Changes made while a Show is in progress are combined into the next one
+		textAndGraphicManager.setTextField2("Artist");
+		textAndGraphicManager.setMediaTrackTextField("0:01");
+		textAndGraphicManager.setMediaTrackTextField("0:02");
+		assertEquals(1, sentShows.size());
+		assertTrue(textAndGraphicManager.hasQueuedUpdate);
+
+		respondToShow(sentShows.get(0));
+		assertEquals(2, sentShows.size());
+		Show update = sentShows.get(1);
+		assertNull(update.getMainField1());
+		assertEquals(update.getAlignment(), TextAlignment.CENTERED);
+		assertEquals(update.getMainField2(), "Artist");
+		assertEquals(update.getMediaTrack(), "0:02");
+
+		// Nothing is sent when the screen already shows the same text
+		respondToShow(update);
+		textAndGraphicManager.setTextField2("Artist");
+		assertEquals(2, sentShows.size());
+		assertNull(textAndGraphicManager.inProgressUpdate);
+	}
+
+	public void testFailedShowIsResent(){
+
+		textAndGraphicManager.currentHMILevel = HMILevel.HMI_FULL;
+		textAndGraphicManager.setUpdateInterval(0);
+
+		textAndGraphicManager.setTextField1("Track");
+		Show show = sentShows.get(0);
+		show.getOnRPCResponseListener().onError(show.getCorrelationID(), Result.GENERIC_ERROR, null);
+
+		// The head unit never showed the text, so it is part of the next Show
+		textAndGraphicManager.setTextField2("Artist");
+		assertEquals(2, sentShows.size());
+		assertEquals(sentShows.get(1).getMainField1(), "Track");
+		assertEquals(sentShows.get(1).getMainField2(), "Artist");
+	}
+
 	// TEST IMAGES
 
 	public void testSetPrimaryGraphic() {
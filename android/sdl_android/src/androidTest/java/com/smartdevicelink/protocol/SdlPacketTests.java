@@ -4,6 +4,8 @@ import com.livio.BSON.BsonEncoder;
 import com.smartdevicelink.AndroidTestCase2;
 import com.smartdevicelink.protocol.enums.ControlFrameTags;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 
 public class SdlPacketTests extends AndroidTestCase2 {
@@ -60,6 +62,29 @@ public class SdlPacketTests extends AndroidTestCase2 {
 		}
 	}
 
+	public void testConstructPacketBuffers(){
+		byte[] first = new byte[]{0x01, 0x02, 0x03, 0x04};
+		byte[] second = new byte[]{0x05, 0x06, 0x07, 0x08, 0x09};
+		ByteBuffer[] payloadBuffers = new ByteBuffer[]{ByteBuffer.wrap(first), ByteBuffer.wrap(second, 1, 3)};
+		byte[] expectedPayload = new byte[]{0x01, 0x02, 0x03, 0x04, 0x06, 0x07, 0x08};
+
+		SdlPacket bufferPacket = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_RPC, 0, 1, 2, payloadBuffers);
+		SdlPacket arrayPacket = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_RPC, 0, 1, expectedPayload.length, 2, expectedPayload);
+		assertEquals(expectedPayload.length, bufferPacket.getDataSize());
+
+		ByteBuffer[] buffers = bufferPacket.constructPacketBuffers();
+		assertEquals(3, buffers.length);
+		ByteBuffer gathered = ByteBuffer.allocate(SdlPacket.HEADER_SIZE + expectedPayload.length);
+		for(ByteBuffer buffer : buffers){
+			gathered.put(buffer);
+		}
+		assertTrue(Arrays.equals(arrayPacket.constructPacket(), gathered.array()));
+
+		//The packet's own buffers should not have been consumed by the write
+		assertTrue(Arrays.equals(expectedPayload, bufferPacket.getPayload()));
+		assertTrue(Arrays.equals(arrayPacket.constructPacket(), bufferPacket.constructPacket()));
+	}
+
 	// Helper method for converting String to Byte Array
 	private static byte[] hexStringToByteArray(String s) {
 		int len = s.length();
@@ -0,0 +1,52 @@
+package com.smartdevicelink.test.marshal;
+
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.marshal.JsonRPCParser;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Hashtable;
+
+public class JsonRPCParserTests extends TestCase {
+
+    private static final String TEST_JSON = "{\"speed\":72.5,\"rpm\":3000,\"odometer\":4294967296,"
+            + "\"gps\":{\"longitudeDegrees\":-83.04,\"latitudeDegrees\":42.33,\"utcYear\":2019,\"actual\":true},"
+            + "\"prndl\":\"DRIVE\",\"headLampStatus\":null,"
+            + "\"tirePressure\":[{\"status\":\"NORMAL\"},{\"status\":\"LOW\"}],"
+            + "\"text\":\"caf\\u00e9 \\\"quoted\\\"\\n\u00fcber \ud83d\ude97\",\"empty\":{},\"list\":[]}";
+
+    public void testMatchesJsonObject() throws Exception {
+        Hashtable<String, Object> expected = JsonRPCMarshaller.deserializeJSONObject(new JSONObject(TEST_JSON));
+        Hashtable<String, Object> parsed = JsonRPCParser.parse(TEST_JSON.getBytes("UTF-8"));
+        assertEquals(expected, parsed);
+
+        assertEquals(3000, parsed.get("rpm"));
+        assertEquals(4294967296L, parsed.get("odometer"));
+        assertEquals(72.5, parsed.get("speed"));
+        assertEquals(JSONObject.NULL, parsed.get("headLampStatus"));
+        assertEquals("caf\u00e9 \"quoted\"\n\u00fcber \ud83d\ude97", parsed.get("text"));
+    }
+
+    public void testRange() throws Exception {
+        byte[] json = TEST_JSON.getBytes("UTF-8");
+        byte[] padded = new byte[json.length + 10];
+        System.arraycopy(json, 0, padded, 5, json.length);
+        assertEquals(JsonRPCParser.parse(json), JsonRPCParser.parse(padded, 5, json.length));
+    }
+
+    public void testInvalidJson() throws Exception {
+        String[] invalid = {"", "[1]", "{", "{\"a\":}", "{\"a\" 1}", "{\"a\":1}x", "{\"a\":\"\\q\"}", "{\"a\":tru}"};
+        for (String json : invalid) {
+            try {
+                JsonRPCParser.parse(json.getBytes("UTF-8"));
+                fail("Expected an exception for " + json);
+            } catch (JSONException e) {
+                // Expected
+            }
+        }
+        assertNull(JsonRPCMarshaller.unmarshall("{".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,73 @@
+package com.smartdevicelink.test.marshal;
+
+import com.smartdevicelink.marshal.JsonRPCSerializer;
+import com.smartdevicelink.proxy.RPCMessage;
+import com.smartdevicelink.proxy.rpc.AddCommand;
+import com.smartdevicelink.proxy.rpc.Image;
+import com.smartdevicelink.proxy.rpc.MenuParams;
+import com.smartdevicelink.proxy.rpc.Show;
+import com.smartdevicelink.proxy.rpc.SoftButton;
+import com.smartdevicelink.proxy.rpc.enums.ImageType;
+import com.smartdevicelink.proxy.rpc.enums.SoftButtonType;
+import com.smartdevicelink.proxy.rpc.enums.TextAlignment;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+public class JsonRPCSerializerTests extends TestCase {
+
+    public void testMatchesJsonObject() throws Exception {
+        Image image = new Image();
+        image.setValue("icon.png");
+        image.setImageType(ImageType.DYNAMIC);
+
+        SoftButton softButton = new SoftButton();
+        softButton.setSoftButtonID(1);
+        softButton.setText("Caf\u00e9 \"1\"/\ud83d\ude97");
+        softButton.setType(SoftButtonType.SBT_BOTH);
+        softButton.setImage(image);
+
+        Show show = new Show();
+        show.setCorrelationID(65535);
+        show.setMainField1("Line\n1\u0001");
+        show.setAlignment(TextAlignment.CENTERED);
+        show.setSoftButtons(Arrays.asList(softButton, softButton));
+        show.setCustomPresets(Arrays.asList("one", "two"));
+
+        MenuParams menuParams = new MenuParams();
+        menuParams.setMenuName("\u6f22\u5b57");
+        menuParams.setPosition(0);
+        AddCommand addCommand = new AddCommand(100);
+        addCommand.setCorrelationID(12);
+        addCommand.setMenuParams(menuParams);
+        addCommand.setVrCommands(Arrays.asList("a", "b"));
+        addCommand.setParameters("double", 1.25);
+        addCommand.setParameters("wholeDouble", 3.0);
+        addCommand.setParameters("long", 4294967296L);
+
+        assertSerialization(show);
+        assertSerialization(addCommand);
+    }
+
+    public void testInvalidNumber() {
+        Hashtable<String, Object> hash = new Hashtable<>();
+        hash.put("nan", Double.NaN);
+        try {
+            JsonRPCSerializer.serialize(hash);
+            fail("Expected an exception for NaN");
+        } catch (JSONException e) {
+            // Expected
+        }
+    }
+
+    private void assertSerialization(RPCMessage message) throws Exception {
+        for (byte version = 1; version <= 5; version++) {
+            byte[] expected = message.serializeJSON(version).toString().getBytes("UTF-8");
+            assertTrue(Arrays.equals(expected, JsonRPCSerializer.serialize(message, version)));
+        }
+    }
+}
@@ -142,6 +142,31 @@ public class RPCStructTests extends TestCase {
         assertNull(testStruct.getObject(Image.class, keyAirbag)); // Test incorrect class
     }
 
+    public void testGetObjectDecodesOnce(){
+        String keyImage = Choice.KEY_IMAGE;
+        testStruct.setValue(keyImage, Test.GENERAL_IMAGE.getStore());
+        Object image = testStruct.getObject(Image.class, keyImage);
+        assertTrue(image instanceof Image);
+        assertSame(image, testStruct.getValue(keyImage));
+        assertSame(image, testStruct.getObject(Image.class, keyImage));
+
+        String keyImageFields = DisplayCapabilities.KEY_IMAGE_FIELDS;
+        List<Hashtable<String, Object>> testListImageFields = new ArrayList<>();
+        for(ImageField imgField : Test.GENERAL_IMAGEFIELD_LIST){
+            testListImageFields.add(imgField.getStore());
+        }
+        testStruct.setValue(keyImageFields, testListImageFields);
+        Object imageFields = testStruct.getObject(ImageField.class, keyImageFields);
+        assertSame(imageFields, testStruct.getValue(keyImageFields));
+        assertSame(imageFields, testStruct.getObject(ImageField.class, keyImageFields));
+
+        // Enum values should still be stored as strings
+        String keyAirbag = AirbagStatus.KEY_DRIVER_AIRBAG_DEPLOYED;
+        testStruct.setValue(keyAirbag, VehicleDataEventStatus.FAULT.toString());
+        assertEquals(VehicleDataEventStatus.FAULT, testStruct.getObject(VehicleDataEventStatus.class, keyAirbag));
+        assertEquals(VehicleDataEventStatus.FAULT.toString(), testStruct.getString(keyAirbag));
+    }
+
     public void testGetObjectExceptions(){
         String invalidKey = "invalid";
         testStruct.setValue(invalidKey, new Hashtable<>());
@@ -10,7 +10,9 @@ import com.smartdevicelink.test.Test;
 import com.smartdevicelink.transport.BTTransportConfig;
 import com.smartdevicelink.transport.BaseTransportConfig;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SdlSecurityBaseTest extends AndroidTestCase2 {
@@ -57,6 +59,35 @@ public class SdlSecurityBaseTest extends AndroidTestCase2 {
 	    }
 	}
 	
+	/**
+	 * Wraps the plain data in a TLS application data record header and flips its bits
+	 */
+	private class MockRecordSdlSecurityBase extends MockSdlSecurityBase {
+		int encryptCalls = 0;
+
+		@Override
+		public Integer encryptData(byte[] inputData, byte[] outputData) {
+			encryptCalls++;
+			outputData[0] = 23;
+			outputData[1] = 3;
+			outputData[2] = 3;
+			outputData[3] = (byte) (inputData.length >> 8);
+			outputData[4] = (byte) inputData.length;
+			for (int i = 0; i < inputData.length; i++) {
+				outputData[5 + i] = (byte) ~inputData[i];
+			}
+			return inputData.length + 5;
+		}
+
+		@Override
+		public Integer decryptData(byte[] inputData, byte[] outputData) {
+			for (int i = 5; i < inputData.length; i++) {
+				outputData[i - 5] = (byte) ~inputData[i];
+			}
+			return inputData.length - 5;
+		}
+	}
+
 	class MockInterfaceBroker implements ISdlConnectionListener {
 		public MockInterfaceBroker () { }
 		@Override
@@ -171,4 +202,34 @@ public class SdlSecurityBaseTest extends AndroidTestCase2 {
     	assertEquals(Test.MATCH, startServiceList, mockSdlSecurityBase.getServiceList());		
 	}
 
+	public void testMultiRecordBufferEncryption() {
+		MockRecordSdlSecurityBase mockSdlSecurityBase = new MockRecordSdlSecurityBase();
+		byte[] plainData = new byte[40000];
+		for (int i = 0; i < plainData.length; i++) {
+			plainData[i] = (byte) i;
+		}
+		ByteBuffer[] input = new ByteBuffer[]{ByteBuffer.wrap(plainData, 0, 1000), ByteBuffer.wrap(plainData, 1000, plainData.length - 1000)};
+
+		ByteBuffer encrypted = ByteBuffer.allocate(mockSdlSecurityBase.getMaxEncryptedSize(plainData.length));
+		Integer encryptedSize = mockSdlSecurityBase.encryptData(input, encrypted);
+		assertEquals(Test.MATCH, 3, mockSdlSecurityBase.encryptCalls);
+		assertEquals(Test.MATCH, Integer.valueOf(plainData.length + 3 * 5), encryptedSize);
+		assertEquals(Test.MATCH, 1000, input[0].remaining());
+
+		encrypted.flip();
+		ByteBuffer decrypted = ByteBuffer.allocate(encrypted.remaining());
+		Integer decryptedSize = mockSdlSecurityBase.decryptData(encrypted, decrypted);
+		assertEquals(Test.MATCH, Integer.valueOf(plainData.length), decryptedSize);
+		byte[] observed = new byte[decryptedSize];
+		System.arraycopy(decrypted.array(), 0, observed, 0, decryptedSize);
+		assertTrue(Test.TRUE, Arrays.equals(plainData, observed));
+	}
+
+	public void testBufferEncryptionFailure() {
+		MockSdlSecurityBase mockSdlSecurityBase = new MockSdlSecurityBase();
+		ByteBuffer output = ByteBuffer.allocate(100);
+		assertNull(Test.NULL, mockSdlSecurityBase.encryptData(ByteBuffer.wrap(new byte[10]), output));
+		assertEquals(Test.MATCH, 0, output.position());
+	}
+
 }
@@ -0,0 +1,99 @@
+package com.smartdevicelink.test.streaming;
+
+import com.smartdevicelink.streaming.FrameRingBuffer;
+import com.smartdevicelink.streaming.FrameRingBuffer.OverflowPolicy;
+
+import junit.framework.TestCase;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.streaming.FrameRingBuffer}
+ */
+public class FrameRingBufferTests extends TestCase {
+
+	private static final int CAPACITY = 4;
+
+	public void testCapacity() {
+		assertEquals(4, new FrameRingBuffer(4, OverflowPolicy.BLOCK).getCapacity());
+		assertEquals(8, new FrameRingBuffer(5, OverflowPolicy.BLOCK).getCapacity());
+
+		try {
+			new FrameRingBuffer(0, OverflowPolicy.BLOCK);
+			fail("Capacity of 0 should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testWriteAndTake() throws InterruptedException {
+		FrameRingBuffer ring = new FrameRingBuffer(CAPACITY, OverflowPolicy.BLOCK);
+		byte[] data = new byte[]{0x01, 0x02, 0x03, 0x04, 0x05};
+
+		assertNull(ring.poll());
+		assertTrue(ring.write(data, 1, 3, true));
+		assertEquals(1, ring.getQueuedFrames());
+
+		FrameRingBuffer.Frame frame = ring.take();
+		assertEquals(3, frame.getLength());
+		assertEquals(3, frame.getBuffer().remaining());
+		assertTrue(frame.isKeyFrame());
+		assertEquals(0x02, frame.getData()[0]);
+		assertEquals(0x04, frame.getData()[2]);
+		assertEquals(0, ring.getQueuedFrames());
+
+		try {
+			ring.poll();
+			fail("A frame can't be taken before the previous one is released");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		ring.release(frame);
+		assertNull(ring.poll());
+	}
+
+	public void testDropOldestNonIdr() throws InterruptedException {
+		FrameRingBuffer ring = new FrameRingBuffer(CAPACITY, OverflowPolicy.DROP_OLDEST_NON_IDR);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(ring.write(new byte[]{(byte) i}, 0, 1, i % 5 == 0));
+		}
+
+		// Key frames 0 and 5 are kept, the other frames are replaced by newer ones
+		assertEquals(6, ring.getDroppedFrames());
+		assertEquals(CAPACITY, ring.getMaxQueuedFrames());
+		assertTakenFrames(ring, new byte[]{0, 5, 8, 9});
+	}
+
+	public void testDropUntilIdr() throws InterruptedException {
+		FrameRingBuffer ring = new FrameRingBuffer(CAPACITY, OverflowPolicy.DROP_UNTIL_IDR);
+		for (int i = 0; i < 12; i++) {
+			ring.write(new byte[]{(byte) i}, 0, 1, i % 8 == 0);
+		}
+
+		// Frame 4 overflows the ring, so everything before key frame 8 is dropped
+		assertEquals(8, ring.getDroppedFrames());
+		assertTakenFrames(ring, new byte[]{8, 9, 10, 11});
+	}
+
+	public void testClear() throws InterruptedException {
+		FrameRingBuffer ring = new FrameRingBuffer(CAPACITY, OverflowPolicy.BLOCK);
+		for (int i = 0; i < CAPACITY; i++) {
+			ring.write(new byte[]{(byte) i}, 0, 1, false);
+		}
+		ring.clear();
+		assertEquals(0, ring.getQueuedFrames());
+
+		// Writing must not block once the ring has been cleared
+		assertTrue(ring.write(new byte[]{0x10}, 0, 1, false));
+		assertTakenFrames(ring, new byte[]{0x10});
+	}
+
+	private void assertTakenFrames(FrameRingBuffer ring, byte[] expected) {
+		for (byte value : expected) {
+			FrameRingBuffer.Frame frame = ring.poll();
+			assertNotNull(frame);
+			assertEquals(value, frame.getData()[0]);
+			ring.release(frame);
+		}
+		assertNull(ring.poll());
+	}
+}
@@ -637,10 +637,14 @@ public class RTPH264PacketizerTest extends TestCase {
 		private void verifyRTPPacket(byte[] packet, byte payloadType, int expectedPTSDelta,
 		                             boolean verifySSRC, int expectedSSRC, boolean isLast) {
 			assertTrue(packet.length > RTP_HEADER_LEN);
+			byte type = (byte)(packet[RTP_HEADER_LEN] & 0x1F);
+			if (type == 28) {
+				// only the last fragmentation unit of the frame carries the marker
+				isLast &= ((packet[RTP_HEADER_LEN+1] >> 6) & 1) == 1;
+			}
 			verifyRTPHeader(packet, false, isLast, payloadType, (short)(mTotalPacketCount % 65536),
 			                expectedPTSDelta, verifySSRC, expectedSSRC);
 
-			byte type = (byte)(packet[RTP_HEADER_LEN] & 0x1F);
 			if (type == 28) { // FU-A frame
 				boolean fuEnd = verifyFUTypeA(packet);
 				if (fuEnd) {
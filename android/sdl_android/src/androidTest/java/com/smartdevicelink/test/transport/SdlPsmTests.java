@@ -11,6 +11,8 @@ import junit.framework.TestCase;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This is a unit test class for the SmartDeviceLink library project class : 
@@ -92,6 +94,51 @@ public class SdlPsmTests extends TestCase {
 		}
 	}
 	
+	/**
+	 * These are unit tests for the following methods :
+	 * {@link com.smartdevicelink.transport.SdlPsm#handleBytes(byte[], int, int)}
+	 * {@link com.smartdevicelink.transport.SdlPsm#handleBytes(ByteBuffer)}
+	 */
+
+	public void testHandleBytes(){
+		byte[] payload = new byte[2000];
+		for(int i = 0; i < payload.length; i++){
+			payload[i] = (byte) i;
+		}
+		SdlPacket packet = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, 7, 0, 1, payload.length, 5, payload);
+		byte[] bytes = packet.constructPacket();
+
+		//Feed the packet through in uneven chunks to cross the header and payload boundaries
+		int offset = 0, chunk = 5, consumed;
+		while(offset < bytes.length){
+			int length = Math.min(chunk, bytes.length - offset);
+			consumed = sdlPsm.handleBytes(bytes, offset, length);
+			assertEquals(Test.MATCH, length, consumed);
+			offset += consumed;
+			chunk *= 3;
+		}
+		assertEquals(Test.MATCH, SdlPsm.FINISHED_STATE, sdlPsm.getState());
+		SdlPacket formed = sdlPsm.getFormedPacket();
+		assertEquals(Test.MATCH, 5, formed.getMessageId());
+		assertTrue(Test.ARRAY, Arrays.equals(payload, formed.getPayload()));
+
+		//Two packets back to back in a direct buffer should stop after the first one
+		sdlPsm.reset();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length * 2);
+		buffer.put(bytes).put(bytes);
+		buffer.flip();
+		assertEquals(Test.MATCH, bytes.length, sdlPsm.handleBytes(buffer));
+		assertEquals(Test.MATCH, SdlPsm.FINISHED_STATE, sdlPsm.getState());
+		sdlPsm.reset();
+		assertEquals(Test.MATCH, bytes.length, sdlPsm.handleBytes(buffer));
+		assertTrue(Test.ARRAY, Arrays.equals(payload, sdlPsm.getFormedPacket().getPayload()));
+
+		//A bad first byte should stop processing in the error state
+		sdlPsm.reset();
+		assertEquals(Test.MATCH, 1, sdlPsm.handleBytes(new byte[]{0x00, 0x00}, 0, 2));
+		assertEquals(Test.MATCH, SdlPsm.ERROR_STATE, sdlPsm.getState());
+	}
+
 	protected void tearDown() throws Exception{
 		super.tearDown();
 	}
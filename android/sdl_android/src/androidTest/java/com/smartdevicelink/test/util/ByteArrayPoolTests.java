@@ -0,0 +1,81 @@
+package com.smartdevicelink.test.util;
+
+import com.smartdevicelink.util.ByteArrayPool;
+
+import junit.framework.TestCase;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class : 
+ * {@link com.smartdevicelink.util.ByteArrayPool}
+ */
+public class ByteArrayPoolTests extends TestCase {
+
+	/**
+	 * This is a unit test for the following methods : 
+	 * {@link com.smartdevicelink.util.ByteArrayPool#acquire(int)}
+	 * {@link com.smartdevicelink.util.ByteArrayPool#release(byte[])}
+	 */
+	public void testAcquireAndRelease () {
+		ByteArrayPool pool = new ByteArrayPool(1024 * 1024);
+
+		// Sizes are rounded up to their size class
+		byte[] array = pool.acquire(5000);
+		assertEquals("Values should match.", 8192, array.length);
+		assertEquals("Values should match.", 0, pool.getPooledBytes());
+
+		// A released array is handed out again for any size in its class
+		pool.release(array);
+		assertEquals("Values should match.", 8192, pool.getPooledBytes());
+		assertSame("Arrays should be the same.", array, pool.acquire(8000));
+		assertEquals("Values should match.", 1, pool.getHitCount());
+		assertEquals("Values should match.", 1, pool.getMissCount());
+		assertEquals("Values should match.", 0, pool.getPooledBytes());
+
+		// Sizes outside of the size classes are exact and never pooled
+		assertEquals("Values should match.", 10, pool.acquire(10).length);
+		pool.release(new byte[10]);
+		pool.release(new byte[5000]);
+		assertEquals("Values should match.", 0, pool.getPooledBytes());
+	}
+
+	/**
+	 * This is a unit test for the following methods : 
+	 * {@link com.smartdevicelink.util.ByteArrayPool#release(byte[])}
+	 */
+	public void testPoolLimit () {
+		ByteArrayPool pool = new ByteArrayPool(8192);
+
+		pool.release(pool.acquire(8192));
+		pool.release(new byte[8192]);
+		assertEquals("Values should match.", 8192, pool.getPooledBytes());
+	}
+
+	/**
+	 * This is a unit test for the following methods : 
+	 * {@link com.smartdevicelink.util.ByteArrayPool#ByteArrayPool(int, int, long)}
+	 */
+	public void testCustomSizeClasses () {
+		ByteArrayPool pool = new ByteArrayPool(256, 1024, 1024 * 1024);
+
+		assertEquals("Values should match.", 512, pool.acquire(300).length);
+		assertEquals("Values should match.", 1024, pool.acquire(1024).length);
+		assertEquals("Values should match.", 100, pool.acquire(100).length);
+		assertEquals("Values should match.", 2000, pool.acquire(2000).length);
+		assertEquals("Values should match.", 2, pool.getMissCount());
+
+		pool.release(new byte[256]);
+		pool.release(new byte[2048]);
+		assertEquals("Values should match.", 256, pool.getPooledBytes());
+
+		try {
+			new ByteArrayPool(300, 1024, 1024);
+			fail("Size classes must be powers of two");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new ByteArrayPool(2048, 1024, 1024);
+			fail("The smallest class can't be larger than the largest");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
@@ -213,13 +213,15 @@ public class SdlManager extends BaseSdlManager{
 					@Override
 					public void onComplete(boolean success) {
 						if (success) {
-							SetAppIcon msg = new SetAppIcon(SdlManager.this.appIcon.getName());
+							SetAppIcon msg = new SetAppIcon(fileManager.getRemoteFileName(SdlManager.this.appIcon));
 							_internalInterface.sendRPCRequest(msg);
 						}
 					}
 				});
 			} else {
-				SetAppIcon msg = new SetAppIcon(SdlManager.this.appIcon.getName());
+				// The icon's contents may be on the head unit under another name
+				String iconName = fileManager != null ? fileManager.getRemoteFileName(SdlManager.this.appIcon) : SdlManager.this.appIcon.getName();
+				SetAppIcon msg = new SetAppIcon(iconName);
 				_internalInterface.sendRPCRequest(msg);
 			}
 		}
@@ -230,6 +232,7 @@ public class SdlManager extends BaseSdlManager{
 		// Instantiate sub managers
 		this.permissionManager = new PermissionManager(_internalInterface);
 		this.fileManager = new FileManager(_internalInterface, context);
+		this.fileManager.setContentIndexDirectory(context.getFilesDir(), getAppId(), getHeadUnitId());
 		if (lockScreenConfig.isEnabled()) {
 			this.lockScreenManager = new LockScreenManager(lockScreenConfig, context, _internalInterface);
 		}
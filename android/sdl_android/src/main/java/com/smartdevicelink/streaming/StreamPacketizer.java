@@ -37,12 +37,11 @@ import com.smartdevicelink.protocol.ProtocolMessage;
 import com.smartdevicelink.protocol.enums.SessionType;
 import com.smartdevicelink.proxy.interfaces.IAudioStreamListener;
 import com.smartdevicelink.proxy.interfaces.IVideoStreamListener;
+import com.smartdevicelink.streaming.FrameRingBuffer.OverflowPolicy;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 public class StreamPacketizer extends AbstractPacketizer implements IVideoStreamListener, IAudioStreamListener, Runnable{
 
@@ -63,12 +62,14 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 	// By adding a buffer, we accept underlying transport being stuck for a short time. By setting
 	// a limit of the buffer size, we avoid buffer overflows when underlying transport is too slow.
 	private static final int MAX_QUEUE_SIZE = 256 * 1024;
+	// Number of frames mOutputQueue holds at least, regardless of the buffer size
+	private static final int MIN_QUEUE_FRAMES = 4;
 
 	public SdlConnection sdlConnection = null;	//TODO remove completely
     private Object mPauseLock;
     private boolean mPaused;
     private boolean isServiceProtected = false;
-    private BlockingQueue<ByteBuffer> mOutputQueue;
+    private FrameRingBuffer mOutputQueue;
 
 	public StreamPacketizer(IStreamListener streamListener, InputStream is, SessionType sType, byte rpcSessionID, SdlSession session) throws IOException {
 		super(streamListener, is, sType, rpcSessionID, session);
@@ -83,7 +84,7 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 			bufferSize = BUFF_READ_SIZE;
 			buffer = new byte[bufferSize];
 		}
-		mOutputQueue = new LinkedBlockingQueue<ByteBuffer>(MAX_QUEUE_SIZE / bufferSize);
+		mOutputQueue = new FrameRingBuffer(Math.max(MIN_QUEUE_FRAMES, MAX_QUEUE_SIZE / bufferSize), OverflowPolicy.BLOCK);
 	}
 
 	public void start() throws IOException {
@@ -100,7 +101,32 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 			t.interrupt();
 			t = null;
 		}
+		mOutputQueue.clear();
+	}
+
+	/**
+	 * Sets what happens to frames that arrive while the output queue is full.
+	 *
+	 * By default the calling thread is blocked until the queue has room.
+	 *
+	 * @param policy The overflow policy
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		mOutputQueue.setOverflowPolicy(policy);
+	}
 
+	/**
+	 * @return The number of frames waiting to be sent
+	 */
+	public int getQueuedFrameCount() {
+		return mOutputQueue.getQueuedFrames();
+	}
+
+	/**
+	 * @return The number of frames dropped by the overflow policy
+	 */
+	public long getDroppedFrameCount() {
+		return mOutputQueue.getDroppedFrames();
 	}
 
 	public void run() {
@@ -138,13 +164,14 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 						}
 					}
 				} else { // using sendFrame interface
-					ByteBuffer frame;
+					FrameRingBuffer.Frame slot;
 					try {
-						frame = mOutputQueue.take();
+						slot = mOutputQueue.take();
 					} catch (InterruptedException e) {
 						Thread.currentThread().interrupt();
 						break;
 					}
+					ByteBuffer frame = slot.getBuffer();
 
 					while (frame.hasRemaining()) {
 						int len = frame.remaining() > bufferSize ? bufferSize : frame.remaining();
@@ -163,6 +190,9 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 
 						frame.position(frame.position() + len);
 					}
+
+					// The messages hold copies of the data, so the slot can be reused right away
+					mOutputQueue.release(slot);
 				}
 			}
 		} catch (IOException e) 
@@ -247,12 +277,8 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 		}
 
 		// StreamPacketizer does not need to split a video frame into NAL units
-		ByteBuffer buffer = ByteBuffer.allocate(length);
-		buffer.put(data, offset, length);
-		buffer.flip();
-
 		try {
-			mOutputQueue.put(buffer);
+			mOutputQueue.write(data, offset, length, isKeyFrame(data, offset, length));
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 		}
@@ -265,14 +291,47 @@ public class StreamPacketizer extends AbstractPacketizer implements IVideoStream
 
 		// copy the whole buffer, so that even if the app modifies original ByteBuffer after
 		// sendFrame() or sendAudio() call, our buffer will stay intact
-		ByteBuffer buffer = ByteBuffer.allocate(data.remaining());
-		buffer.put(data);
-		buffer.flip();
+		int length = data.remaining();
+		boolean keyFrame;
+		if (data.hasArray()) {
+			keyFrame = isKeyFrame(data.array(), data.arrayOffset() + data.position(), length);
+		} else {
+			keyFrame = _serviceType != SessionType.NAV;
+		}
 
+		FrameRingBuffer.Frame slot;
 		try {
-			mOutputQueue.put(buffer);
+			slot = mOutputQueue.beginWrite(length, keyFrame);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
+			return;
+		}
+		if (slot != null) {
+			data.get(slot.getData(), 0, length);
+			mOutputQueue.commitWrite();
+		} else {
+			data.position(data.limit());
+		}
+	}
+
+	/**
+	 * Audio frames can be decoded on their own, so only video frames are checked for an IDR
+	 * picture or parameter sets in their Annex-B start codes.
+	 */
+	private boolean isKeyFrame(byte[] data, int offset, int length) {
+		if (_serviceType != SessionType.NAV) {
+			return true;
+		}
+		int end = offset + length;
+		for (int i = offset; i + 3 < end; i++) {
+			if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+				int nalUnitType = data[i + 3] & 0x1F;
+				if (nalUnitType == 5 || nalUnitType == 7 || nalUnitType == 8) {
+					return true;
+				}
+				i += 2;
+			}
 		}
+		return false;
 	}
 }
@@ -20,49 +20,65 @@
 
 public class Log {
 
+    private static volatile boolean enabled = true;
+
+    /**
+     * Turns the output of this shim on or off. Tests and benchmarks turn it off, since every log
+     * line would otherwise be written to System.out.
+     * @param enabled false to drop all log lines
+     */
+    public static void setEnabled(boolean enabled){
+        Log.enabled = enabled;
+    }
+
+    private static void print(String line){
+        if(enabled){
+            System.out.print(line);
+        }
+    }
 
     public static int i(String tag, String message){
-        System.out.print("\r\nINFO: " + tag+ " - " + message);
+        print("\r\nINFO: " + tag+ " - " + message);
         return 10;
 
 
     }
     public static int v(String tag, String message){
-        System.out.print("\r\nVERBOSE: " + tag+ " - " + message);
+        print("\r\nVERBOSE: " + tag+ " - " + message);
         return 10;
 
 
     }
     public static int d(String tag, String message){
-        System.out.print("\r\nDEBUG: " + tag+ " - " + message);
+        print("\r\nDEBUG: " + tag+ " - " + message);
         return 10;
 
 
     }
     public static int w(String tag, String message){
-        System.out.print("\r\nWARN: " + tag+ " - " + message);
+        print("\r\nWARN: " + tag+ " - " + message);
         return 10;
 
 
     }
     public static int e(String tag, String message){
-        System.out.print("\r\nERROR: " + tag+ " - " + message);
+        print("\r\nERROR: " + tag+ " - " + message);
         return 10;
 
     }
     public static int e(String tag, String message, Exception e){
         if(e != null){
-            System.out.print("\r\nERROR: " + tag+ " - " + message + " - " + e.getMessage());
+            print("\r\nERROR: " + tag+ " - " + message + " - " + e.getMessage());
         }else{
-            System.out.print("\r\nERROR: " + tag+ " - " + message);
+            print("\r\nERROR: " + tag+ " - " + message);
         }
         return 10;
     }
     public static int e(String tag, String message, Throwable t){
         if(t != null){
-            System.out.print("\r\nERROR: " + tag+ " - " + message + " - " + t.getMessage());
+            print("\r\nERROR: " + tag+ " - " + message + " - " + t.getMessage());
         }else{
-            System.out.print("\r\nERROR: " + tag+ " - " + message);
+            print("\r\nERROR: " + tag+ " - " + message);
         }
         return 10;
     }
@@ -40,24 +40,35 @@ import com.smartdevicelink.protocol.ProtocolMessage;
 import com.smartdevicelink.protocol.SdlPacket;
 import com.smartdevicelink.protocol.enums.SessionType;
 import com.smartdevicelink.protocol.SdlProtocol;
+import com.smartdevicelink.proxy.interfaces.IAudioStreamListener;
 import com.smartdevicelink.proxy.interfaces.ISdlServiceListener;
+import com.smartdevicelink.proxy.interfaces.IVideoStreamListener;
 import com.smartdevicelink.proxy.rpc.VideoStreamingFormat;
 import com.smartdevicelink.proxy.rpc.enums.VideoStreamingProtocol;
 import com.smartdevicelink.security.ISecurityInitializedListener;
 import com.smartdevicelink.security.SdlSecurityBase;
+import com.smartdevicelink.streaming.AbstractPacketizer;
+import com.smartdevicelink.streaming.FrameRingBuffer.OverflowPolicy;
+import com.smartdevicelink.streaming.IStreamListener;
+import com.smartdevicelink.streaming.StreamPacketizer;
+import com.smartdevicelink.streaming.video.RTPH264Packetizer;
+import com.smartdevicelink.streaming.video.VideoBitrateController;
 import com.smartdevicelink.streaming.video.VideoStreamingParameters;
 import com.smartdevicelink.transport.BaseTransportConfig;
+import com.smartdevicelink.transport.PacketScheduler;
 import com.smartdevicelink.transport.enums.TransportType;
 import com.smartdevicelink.util.Version;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecurityInitializedListener {
+public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecurityInitializedListener, IStreamListener {
 
     private static final String TAG = "SdlSession";
+    private static final int HANDSHAKE_BUFFER_SIZE = 32768;
 
     final protected SdlProtocol sdlProtocol;
 
@@ -66,6 +77,10 @@ public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecuri
 	protected SdlSecurityBase sdlSecurity = null;
 	protected VideoStreamingParameters desiredVideoParams = null;
 	protected VideoStreamingParameters acceptedVideoParams = null;
+	protected AbstractPacketizer videoPacketizer = null;
+	protected AbstractPacketizer audioPacketizer = null;
+	protected VideoBitrateController videoBitrateController = null;
+	private PacketScheduler.CongestionListener videoCongestionListener = null;
 
 	protected byte sessionId;
 	protected int sessionHashId = 0;
@@ -98,6 +113,8 @@ public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecuri
     }
 
     public void close() {
+        stopVideoStream();
+        stopAudioStream();
         if (sdlSecurity != null)
         {
             sdlSecurity.resetParams();
@@ -203,7 +220,8 @@ public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecuri
         byte[] data = new byte[ilen];
         System.arraycopy(msg.getData(), 12, data, 0, ilen);
 
-        byte[] dataToRead = new byte[4096];
+        //A handshake flight can carry a full certificate chain, so leave room for several records
+        byte[] dataToRead = new byte[HANDSHAKE_BUFFER_SIZE];
 
         Integer iNumBytes = sdlSecurity.runHandshake(data, dataToRead);
 
@@ -315,6 +333,10 @@ public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecuri
 
     @Override
     public void onProtocolServiceDataACK(SessionType sessionType, int dataSize, byte sessionID) {
+        VideoBitrateController controller = videoBitrateController;
+        if (SessionType.NAV.equals(sessionType) && controller != null) {
+            controller.onServiceDataAck(dataSize);
+        }
         this.sessionListener.onProtocolServiceDataACK(sessionType, dataSize, sessionID);
     }
 
@@ -455,7 +477,165 @@ public class SdlSession implements ISdlProtocol, ISdlConnectionListener, ISecuri
 
     @Override
     public void stopStream(SessionType serviceType) {
-        //Currently does nothing as streaming is not available. Also should only be managed through managers
+        if (SessionType.NAV.equals(serviceType)) {
+            stopVideoStream();
+        } else if (SessionType.PCM.equals(serviceType)) {
+            stopAudioStream();
+        }
+    }
+
+    /* ***********************************************************************************************************************************************************************
+     * *****************************************************************  Streaming  *****************************************************************************************
+     *************************************************************************************************************************************************************************/
+
+    /**
+     * Starts a packetizer that sends encoded video over the NAV service using the protocol that
+     * was accepted when the service was started. The NAV service must already be started.
+     * @return the listener the app sends its H.264 frames to, or null if the stream couldn't be started
+     */
+    public IVideoStreamListener startVideoStream() {
+        stopVideoStream();
+        if (videoBitrateController != null) {
+            videoBitrateController.reset();
+        }
+        byte rpcSessionID = getSessionId();
+        VideoStreamingProtocol protocol = getAcceptedProtocol();
+        try {
+            switch (protocol) {
+                case RAW: {
+                    StreamPacketizer packetizer = new StreamPacketizer(this, null, SessionType.NAV, rpcSessionID, this);
+                    packetizer.setBitrateController(videoBitrateController);
+                    videoPacketizer = packetizer;
+                    videoPacketizer.start();
+                    return packetizer;
+                }
+                case RTP: {
+                    RTPH264Packetizer packetizer = new RTPH264Packetizer(this, SessionType.NAV, rpcSessionID, this);
+                    packetizer.setBitrateController(videoBitrateController);
+                    videoPacketizer = packetizer;
+                    videoPacketizer.start();
+                    return packetizer;
+                }
+                default:
+                    Log.e(TAG, "Protocol " + protocol + " is not supported.");
+                    return null;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to start video stream", e);
+            return null;
+        }
+    }
+
+    /**
+     * Sets the controller that adapts the video stream to the available bandwidth. It is given the
+     * frames sent by video packetizers started afterwards, the service data ACKs of the video
+     * service and the congestion reports of the transport's packet scheduler.
+     * @param controller the controller, or null to stop adapting the stream
+     */
+    public synchronized void setVideoBitrateController(final VideoBitrateController controller) {
+        this.videoBitrateController = controller;
+        PacketScheduler scheduler = sdlProtocol.getPacketScheduler();
+        if (scheduler == null) {
+            return;
+        }
+        // Only the listener of the previous controller is replaced, others stay registered
+        if (videoCongestionListener != null) {
+            scheduler.removeCongestionListener(videoCongestionListener);
+            videoCongestionListener = null;
+        }
+        if (controller != null) {
+            videoCongestionListener = new PacketScheduler.CongestionListener() {
+                @Override
+                public void onCongestionChanged(SessionType serviceType, boolean congested) {
+                    if (SessionType.NAV.equals(serviceType)) {
+                        controller.onCongestionChanged(congested);
+                    }
+                }
+            };
+            scheduler.addCongestionListener(videoCongestionListener);
+        }
+    }
+
+    public VideoBitrateController getVideoBitrateController() {
+        return videoBitrateController;
+    }
+
+    public boolean stopVideoStream() {
+        AbstractPacketizer packetizer = videoPacketizer;
+        if (packetizer != null) {
+            videoPacketizer = null;
+            packetizer.stop();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean pauseVideoStream() {
+        if (videoPacketizer != null) {
+            videoPacketizer.pause();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean resumeVideoStream() {
+        if (videoPacketizer != null) {
+            videoPacketizer.resume();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts a packetizer that sends PCM data over the audio service. The PCM service must already
+     * be started. When the transport falls behind, the oldest queued audio is dropped instead of
+     * blocking the caller.
+     * @return the listener the app sends its audio data to, or null if the stream couldn't be started
+     */
+    public IAudioStreamListener startAudioStream() {
+        stopAudioStream();
+        try {
+            StreamPacketizer packetizer = new StreamPacketizer(this, null, SessionType.PCM, getSessionId(), this);
+            // Every audio frame is a key frame, so this drops the oldest one
+            packetizer.setOverflowPolicy(OverflowPolicy.DROP_OLDEST_NON_IDR);
+            audioPacketizer = packetizer;
+            audioPacketizer.start();
+            return packetizer;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to start audio stream", e);
+            return null;
+        }
+    }
+
+    public boolean stopAudioStream() {
+        AbstractPacketizer packetizer = audioPacketizer;
+        if (packetizer != null) {
+            audioPacketizer = null;
+            packetizer.stop();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean pauseAudioStream() {
+        if (audioPacketizer != null) {
+            audioPacketizer.pause();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean resumeAudioStream() {
+        if (audioPacketizer != null) {
+            audioPacketizer.resume();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void sendStreamPacket(ProtocolMessage pm) {
+        sendMessage(pm);
     }
 
 
@@ -40,6 +40,7 @@ import com.smartdevicelink.proxy.rpc.OnHMIStatus;
 import com.smartdevicelink.proxy.rpc.RegisterAppInterfaceResponse;
 import com.smartdevicelink.proxy.rpc.TTSChunk;
 import com.smartdevicelink.proxy.rpc.TemplateColorScheme;
+import com.smartdevicelink.proxy.rpc.VehicleType;
 import com.smartdevicelink.proxy.rpc.enums.AppHMIType;
 import com.smartdevicelink.proxy.rpc.enums.Language;
 import com.smartdevicelink.proxy.rpc.listeners.OnMultipleRequestListener;
@@ -99,6 +100,20 @@ abstract class BaseSdlManager {
 
     protected Vector<String> getVrSynonyms() { return vrSynonyms; }
 
+    /**
+     * @return a string identifying the connected head unit, made up of the vehicle type and system
+     * software version it reported, or null if it hasn't registered the app yet
+     */
+    protected String getHeadUnitId() {
+        RegisterAppInterfaceResponse raiResponse = getRegisterAppInterfaceResponse();
+        if (raiResponse == null || raiResponse.getVehicleType() == null) {
+            return null;
+        }
+        VehicleType vehicleType = raiResponse.getVehicleType();
+        return vehicleType.getMake() + "/" + vehicleType.getModel() + "/" + vehicleType.getModelYear()
+                + "/" + vehicleType.getTrim() + "/" + raiResponse.getSystemSoftwareVersion();
+    }
+
     protected Vector<TTSChunk> getTtsChunks() { return ttsChunks; }
 
     protected BaseTransportConfig getTransport() { return transport; }
@@ -44,6 +44,7 @@ import com.smartdevicelink.proxy.RPCRequest;
 import com.smartdevicelink.proxy.RPCResponse;
 import com.smartdevicelink.proxy.interfaces.ISdl;
 import com.smartdevicelink.proxy.rpc.DeleteFile;
+import com.smartdevicelink.proxy.rpc.Image;
 import com.smartdevicelink.proxy.rpc.ListFiles;
 import com.smartdevicelink.proxy.rpc.ListFilesResponse;
 import com.smartdevicelink.proxy.rpc.PutFile;
@@ -52,12 +53,17 @@ import com.smartdevicelink.proxy.rpc.listeners.OnMultipleRequestListener;
 import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * <strong>FileManager</strong> <br>
@@ -77,22 +83,50 @@ import java.util.Map;
 abstract class BaseFileManager extends BaseSubManager {
 
 	final static String TAG = "FileManager";
-	private List<String> remoteFiles, uploadedEphemeralFileNames;
+	private Set<String> remoteFiles, uploadedEphemeralFileNames;
+	private final PutFileScheduler putFileScheduler;
+	private final FileContentIndex contentIndex;
+	private final Map<String, String> remoteNames;
+	private final Map<SdlFile, HashedContents> contentHashes;
+	private File contentIndexFile;
 
 	BaseFileManager(ISdl internalInterface) {
 
 		// setup
 		super(internalInterface);
-		uploadedEphemeralFileNames = new ArrayList<>();
+		uploadedEphemeralFileNames = new HashSet<>();
+		putFileScheduler = new PutFileScheduler(this);
+		contentIndex = new FileContentIndex();
+		remoteNames = new HashMap<>();
+		contentHashes = new WeakHashMap<>();
 	}
 
 	@Override
 	public void start(CompletionListener listener) {
+		contentIndex.load(contentIndexFile);
 		// prepare manager - don't set state to ready until we have list of files
 		retrieveRemoteFiles();
 		super.start(listener);
 	}
 
+	/**
+	 * Keeps track of the contents of the persistent files on the head unit in a local file, so that
+	 * after reconnecting, files that changed are uploaded again and files whose contents the head
+	 * unit already holds are not. Must be called before the manager is started.
+	 * @param directory the directory the index file is stored in
+	 * @param appId the app's ID
+	 * @param headUnitId a string identifying the head unit, each head unit gets its own index
+	 */
+	public void setContentIndexDirectory(@NonNull File directory, String appId, String headUnitId){
+		contentIndexFile = new File(directory, FileContentIndex.buildFileName(appId, headUnitId));
+	}
+
+	@Override
+	public void dispose(){
+		putFileScheduler.clear();
+		super.dispose();
+	}
+
 	// GETTERS
 
 	/**
@@ -105,11 +139,11 @@ abstract class BaseFileManager extends BaseSubManager {
 			throw new IllegalArgumentException("FileManager is not READY");
 		}
 		// return list (this is synchronous at this point)
-		return remoteFiles;
+		return new ArrayList<>(remoteFiles);
 	}
 
 	private void retrieveRemoteFiles(){
-		remoteFiles = new ArrayList<>();
+		remoteFiles = new LinkedHashSet<>();
 		// hold list in remoteFiles class var
 		ListFiles listFiles = new ListFiles();
 		listFiles.setOnRPCResponseListener(new OnRPCResponseListener() {
@@ -119,6 +153,7 @@ abstract class BaseFileManager extends BaseSubManager {
 					if(((ListFilesResponse) response).getFilenames() != null){
 						remoteFiles.addAll(((ListFilesResponse) response).getFilenames());
 					}
+					contentIndex.retainAll(remoteFiles);
 					// on callback set manager to ready state
 					transitionToState(BaseSubManager.READY);
 				}
@@ -149,6 +184,7 @@ abstract class BaseFileManager extends BaseSubManager {
 				if(response.getSuccess()){
 					remoteFiles.remove(fileName);
 					uploadedEphemeralFileNames.remove(fileName);
+					contentIndex.remove(fileName);
 				}
 				if(listener != null){
 					listener.onComplete(response.getSuccess());
@@ -243,6 +279,7 @@ abstract class BaseFileManager extends BaseSubManager {
 						if(deletionOperation){
 							remoteFiles.remove(fileNameMap.get(correlationId));
 							uploadedEphemeralFileNames.remove(fileNameMap.get(correlationId));
+							contentIndex.remove(fileNameMap.get(correlationId));
 						}else{
 							remoteFiles.add(fileNameMap.get(correlationId));
 							uploadedEphemeralFileNames.add(fileNameMap.get(correlationId));
@@ -264,14 +301,17 @@ abstract class BaseFileManager extends BaseSubManager {
 			listener.onComplete(true);
 			return;
 		}
-		PutFile putFile = createPutFile(file);
-
-		putFile.setOnRPCResponseListener(new OnRPCResponseListener() {
+		if(reuseRemoteCopy(file)){
+			if(listener != null){
+				listener.onComplete(true);
+			}
+			return;
+		}
+		sendPutFile(file, new OnRPCResponseListener() {
 			@Override
 			public void onResponse(int correlationId, RPCResponse response) {
 				if(response.getSuccess()){
-					remoteFiles.add(file.getName());
-					uploadedEphemeralFileNames.add(file.getName());
+					onFileUploaded(file);
 				}
 				if(listener != null){
 					listener.onComplete(response.getSuccess());
@@ -286,24 +326,153 @@ abstract class BaseFileManager extends BaseSubManager {
 				}
 			}
 		});
+	}
 
+	/**
+	 * Sends the request(s) that upload a single file to core
+	 * @param file SdlFile with file name and one of A) fileData, B) Uri, or C) resourceID set
+	 * @param listener called with core's response once the whole file has been accepted or rejected
+	 */
+	void sendPutFile(@NonNull SdlFile file, OnRPCResponseListener listener){
+		PutFile putFile = createPutFile(file);
+		putFile.setOnRPCResponseListener(listener);
 		internalInterface.sendRPCRequest(putFile);
 	}
 
 	/**
-	 * Attempts to upload a list of SdlFiles to core
+	 * Estimates how many bytes uploading a file will send, which is used to send small files first
+	 * @param file SdlFile to be uploaded
+	 * @return the size of the file or -1 if it isn't known without reading the file
+	 */
+	long getFileSize(@NonNull SdlFile file){
+		if(file.getFileData() != null){
+			return file.getFileData().length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Hashes the contents of a file, which is used to recognize files the head unit already holds.
+	 * The hash is kept for each SdlFile until the version of its contents changes, so the contents
+	 * are not read again every time the file is checked.
+	 * @param file SdlFile to be uploaded
+	 * @return the hash of the file's contents or null if they can't be read without uploading them
+	 */
+	String getContentHash(@NonNull SdlFile file){
+		Object version = getContentVersion(file);
+		if(version == null){
+			return null;
+		}
+		synchronized (contentHashes){
+			HashedContents hashedContents = contentHashes.get(file);
+			if(hashedContents != null && hashedContents.version.equals(version)){
+				return hashedContents.hash;
+			}
+		}
+		String hash = computeContentHash(file);
+		if(hash != null){
+			synchronized (contentHashes){
+				contentHashes.put(file, new HashedContents(version, hash));
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Identifies the current contents of a file without reading them
+	 * @param file SdlFile to be uploaded
+	 * @return a value that is no longer equal once the contents change, or null if the contents
+	 * can't be hashed
+	 */
+	Object getContentVersion(@NonNull SdlFile file){
+		//Arrays are compared by identity, so setting new data changes the version
+		return file.getFileData();
+	}
+
+	/**
+	 * Reads and hashes the contents of a file, see {@link #getContentHash(SdlFile)}
+	 * @param file SdlFile to be uploaded
+	 * @return the hash of the file's contents or null if they can't be read
+	 */
+	String computeContentHash(@NonNull SdlFile file){
+		if(file.getFileData() != null){
+			return FileContentIndex.hash(file.getFileData());
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the head unit already holds the contents of a file under another name. If it
+	 * does, that copy is used in place of the file without being uploaded. The SdlFile keeps its
+	 * name, see {@link #getRemoteFileName(SdlFile)}.
+	 * @param file SdlFile to be uploaded
+	 * @return true if the file does not need to be uploaded
+	 */
+	boolean reuseRemoteCopy(@NonNull SdlFile file){
+		if(remoteFiles == null || file.isStaticIcon()){
+			return false;
+		}
+		String hash = getContentHash(file);
+		if(hash == null){
+			return false;
+		}
+		String remoteName = contentIndex.findName(hash, file.isPersistent());
+		if(remoteName == null || !remoteFiles.contains(remoteName)){
+			return false;
+		}
+		if(!remoteName.equals(file.getName())){
+			Log.i(TAG, "Using " + remoteName + " in place of " + file.getName() + ", they hold the same contents");
+			remoteNames.put(file.getName(), remoteName);
+		}else{
+			remoteNames.remove(file.getName());
+		}
+		uploadedEphemeralFileNames.add(remoteName);
+		return true;
+	}
+
+	/**
+	 * Records a file that core has accepted so that it is tracked as uploaded during this session
+	 * @param file the file that was uploaded
+	 */
+	void onFileUploaded(@NonNull SdlFile file){
+		String fileName = file.getName();
+		remoteFiles.add(fileName);
+		uploadedEphemeralFileNames.add(fileName);
+		remoteNames.remove(fileName);
+		String hash = getContentHash(file);
+		if(hash != null){
+			contentIndex.put(fileName, hash, file.isPersistent());
+		}else{
+			//The contents that were uploaded are unknown, so don't vouch for an older hash
+			contentIndex.remove(fileName);
+		}
+	}
+
+	/**
+	 * Attempts to upload a list of SdlFiles to core. Only a few PutFile requests wait on a response
+	 * at once, smaller files are sent first, and the number of requests in flight adapts to how
+	 * quickly core responds.
 	 * @param files list of SdlFiles with file name and one of A) fileData, B) Uri, or C) resourceID set
-	 * @param listener callback that is called once core responds to all upload requests
+	 * @param listener callback that is called once core responds to all upload requests. If it is a
+	 *                 {@link MultipleFileUpdateListener} it is also called as each file completes.
 	 */
 	public void uploadFiles(@NonNull List<? extends SdlFile> files, final MultipleFileCompletionListener listener){
+		uploadFiles(files, 0, listener);
+	}
+
+	/**
+	 * Attempts to upload a list of SdlFiles to core, ahead of any queued files that were given a
+	 * lower priority
+	 * @param files list of SdlFiles with file name and one of A) fileData, B) Uri, or C) resourceID set
+	 * @param priority files with a higher priority are sent first. {@link #uploadFiles(List, MultipleFileCompletionListener)}
+	 *                 uses a priority of 0.
+	 * @param listener callback that is called once core responds to all upload requests
+	 */
+	public void uploadFiles(@NonNull List<? extends SdlFile> files, int priority, final MultipleFileCompletionListener listener){
 		if(files.isEmpty()){
 			return;
 		}
-		final List<PutFile> putFileRequests = new ArrayList<>();
-		for(SdlFile file : files){
-			putFileRequests.add(createPutFile(file));
-		}
-		sendMultipleFileOperations(putFileRequests, listener);
+		putFileScheduler.upload(files, priority, listener);
 	}
 
 	/**
@@ -330,13 +499,48 @@ abstract class BaseFileManager extends BaseSubManager {
 	 * @return boolean that tells whether file has been uploaded to core (true) or not (false)
 	 */
 	public boolean hasUploadedFile(@NonNull SdlFile file){
-		if(file.isPersistent() && remoteFiles != null && remoteFiles.contains(file.getName())){
-			return true;
-		}else if(!file.isPersistent() && remoteFiles != null && remoteFiles.contains(file.getName())
-				&& uploadedEphemeralFileNames.contains(file.getName())){
-			return true;
+		String remoteName = getRemoteFileName(file);
+		if(remoteFiles == null || !remoteFiles.contains(remoteName)){
+			return false;
+		}
+		if(!file.isPersistent() && !uploadedEphemeralFileNames.contains(remoteName)){
+			return false;
 		}
-		return false;
+		//A file whose contents changed since they were uploaded has to be uploaded again
+		String uploadedHash = contentIndex.getHash(remoteName);
+		if(uploadedHash != null){
+			String hash = getContentHash(file);
+			return hash == null || hash.equals(uploadedHash);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the name core holds a file's contents under. This is the file's own name, unless the
+	 * contents were already on core under another name when the file was uploaded.
+	 * @param file SdlFile
+	 * @return the name to refer to the file by in RPCs
+	 */
+	public String getRemoteFileName(@NonNull SdlFile file){
+		String remoteName = remoteNames.get(file.getName());
+		return remoteName != null ? remoteName : file.getName();
+	}
+
+	/**
+	 * Returns the Image RPC representing an artwork, referring to it by the name core holds its
+	 * contents under
+	 * @param artwork SdlArtwork
+	 * @return the Image RPC for the artwork
+	 */
+	public Image getImageRPC(@NonNull SdlArtwork artwork){
+		Image image = artwork.getImageRPC();
+		String remoteName = remoteNames.get(artwork.getName());
+		if(remoteName == null || image == null){
+			return image;
+		}
+		Image remoteImage = new Image(remoteName, image.getImageType());
+		remoteImage.setIsTemplate(image.getIsTemplate());
+		return remoteImage;
 	}
 
 	// HELPERS
@@ -375,4 +579,13 @@ abstract class BaseFileManager extends BaseSubManager {
 		}
 	}
 
+	private static class HashedContents {
+		final Object version;
+		final String hash;
+
+		HashedContents(Object version, String hash){
+			this.version = version;
+			this.hash = hash;
+		}
+	}
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.file;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers the contents of the files held by a head unit, keyed by a hash of their bytes. This
+ * allows the file manager to tell a file that changed under the same name from one that is
+ * already on the head unit, and to reuse a copy of the same bytes stored under a different name.
+ * <p>
+ * Entries for persistent files are written to a local file, so they survive reconnecting to the
+ * same head unit. Entries for other files only last for the current connection.
+ */
+class FileContentIndex {
+
+	private static final String TAG = "FileContentIndex";
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String INDEX_VERSION = "1";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Map<String, Entry> entriesByName = new HashMap<>();
+	private final Map<String, Entry> entriesByHash = new HashMap<>();
+	private File indexFile;
+
+	/**
+	 * Builds the name of the index file for an app connected to a head unit
+	 * @param appId the app's ID
+	 * @param headUnitId a string identifying the head unit
+	 * @return a file name that is unique to the app and head unit
+	 */
+	static String buildFileName(String appId, String headUnitId){
+		String key = appId + "|" + headUnitId;
+		String hash = null;
+		try{
+			hash = hash(key.getBytes("UTF-8"));
+		}catch (IOException ignore){}
+		return "sdl_file_index_" + (hash != null ? hash.substring(0, 16) : Integer.toHexString(key.hashCode()));
+	}
+
+	/**
+	 * Sets the file the index is stored in and loads the entries it holds, replacing any current ones
+	 * @param indexFile the file to read from and write to, or null to only keep entries in memory
+	 */
+	synchronized void load(File indexFile){
+		this.indexFile = indexFile;
+		entriesByName.clear();
+		entriesByHash.clear();
+		if(indexFile == null || !indexFile.exists()){
+			return;
+		}
+		BufferedReader reader = null;
+		try{
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), "UTF-8"));
+			if(!INDEX_VERSION.equals(reader.readLine())){
+				return;
+			}
+			String line;
+			while((line = reader.readLine()) != null){
+				int separator = line.indexOf('\t');
+				if(separator > 0){
+					add(new Entry(line.substring(separator + 1), line.substring(0, separator), true));
+				}
+			}
+		}catch (IOException e){
+			Log.e(TAG, "Unable to read file index", e);
+		}finally {
+			close(reader);
+		}
+	}
+
+	/**
+	 * Drops the entries of files the head unit no longer holds
+	 * @param remoteFileNames the names of every file on the head unit
+	 */
+	synchronized void retainAll(Collection<String> remoteFileNames){
+		boolean changed = false;
+		Iterator<Entry> iterator = entriesByName.values().iterator();
+		while(iterator.hasNext()){
+			Entry entry = iterator.next();
+			if(!remoteFileNames.contains(entry.name)){
+				iterator.remove();
+				removeHash(entry);
+				changed = true;
+			}
+		}
+		if(changed){
+			save();
+		}
+	}
+
+	/**
+	 * @return the hash of the contents last uploaded under the name or null if they aren't known
+	 */
+	synchronized String getHash(String fileName){
+		Entry entry = entriesByName.get(fileName);
+		return entry != null ? entry.hash : null;
+	}
+
+	/**
+	 * Finds a file on the head unit that holds the given contents
+	 * @param hash the hash of the contents
+	 * @param persistent if true only persistent files are returned, as a file that is deleted on
+	 *                   disconnect can't stand in for a persistent one
+	 * @return the name of the file or null if none holds the contents
+	 */
+	synchronized String findName(String hash, boolean persistent){
+		Entry entry = entriesByHash.get(hash);
+		if(entry == null || (persistent && !entry.persistent)){
+			return null;
+		}
+		return entry.name;
+	}
+
+	/**
+	 * Records the contents of a file that was uploaded to the head unit
+	 */
+	synchronized void put(String fileName, String hash, boolean persistent){
+		Entry previous = entriesByName.remove(fileName);
+		if(previous != null){
+			removeHash(previous);
+		}
+		add(new Entry(fileName, hash, persistent));
+		if(persistent || (previous != null && previous.persistent)){
+			save();
+		}
+	}
+
+	/**
+	 * Forgets a file that was deleted from the head unit
+	 */
+	synchronized void remove(String fileName){
+		Entry entry = entriesByName.remove(fileName);
+		if(entry != null){
+			removeHash(entry);
+			if(entry.persistent){
+				save();
+			}
+		}
+	}
+
+	/**
+	 * @return the hex encoded hash of the bytes
+	 */
+	static String hash(byte[] data){
+		MessageDigest digest = getDigest();
+		if(digest == null){
+			return null;
+		}
+		return toHex(digest.digest(data));
+	}
+
+	/**
+	 * Hashes everything that is left in a stream. The stream is not closed.
+	 * @return the hex encoded hash of the stream's contents or null if it couldn't be read
+	 */
+	static String hash(InputStream inputStream){
+		MessageDigest digest = getDigest();
+		if(digest == null){
+			return null;
+		}
+		try{
+			byte[] buffer = new byte[8192];
+			int read;
+			while((read = inputStream.read(buffer)) >= 0){
+				digest.update(buffer, 0, read);
+			}
+			return toHex(digest.digest());
+		}catch (IOException e){
+			Log.e(TAG, "Unable to hash file contents", e);
+			return null;
+		}
+	}
+
+	private void add(Entry entry){
+		entriesByName.put(entry.name, entry);
+		Entry existing = entriesByHash.get(entry.hash);
+		//Prefer a persistent copy, as it can stand in for any file
+		if(existing == null || (!existing.persistent && entry.persistent)){
+			entriesByHash.put(entry.hash, entry);
+		}
+	}
+
+	private void removeHash(Entry entry){
+		if(entriesByHash.get(entry.hash) != entry){
+			return;
+		}
+		entriesByHash.remove(entry.hash);
+		//Another file may hold the same contents
+		for(Entry other : entriesByName.values()){
+			if(other.hash.equals(entry.hash)){
+				add(other);
+			}
+		}
+	}
+
+	/**
+	 * Writes the persistent entries to a temporary file that then replaces the index file, so a
+	 * failed write never leaves a partial index behind
+	 */
+	private void save(){
+		if(indexFile == null){
+			return;
+		}
+		File parent = indexFile.getParentFile();
+		if(parent != null && !parent.exists() && !parent.mkdirs()){
+			Log.e(TAG, "Unable to create directory for file index: " + parent);
+			return;
+		}
+		File tempFile = new File(indexFile.getPath() + ".tmp");
+		BufferedWriter writer = null;
+		try{
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+			writer.write(INDEX_VERSION);
+			writer.newLine();
+			for(Entry entry : entriesByName.values()){
+				if(entry.persistent){
+					writer.write(entry.hash);
+					writer.write('\t');
+					writer.write(entry.name);
+					writer.newLine();
+				}
+			}
+			writer.close();
+			writer = null;
+			if(!tempFile.renameTo(indexFile) && (!indexFile.delete() || !tempFile.renameTo(indexFile))){
+				Log.e(TAG, "Unable to replace file index: " + indexFile);
+			}
+		}catch (IOException e){
+			Log.e(TAG, "Unable to write file index", e);
+		}finally {
+			close(writer);
+		}
+	}
+
+	private static MessageDigest getDigest(){
+		try{
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		}catch (NoSuchAlgorithmException e){
+			Log.e(TAG, HASH_ALGORITHM + " is not available", e);
+			return null;
+		}
+	}
+
+	private static String toHex(byte[] bytes){
+		char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+
+	private static void close(Closeable closeable){
+		if(closeable != null){
+			try{
+				closeable.close();
+			}catch (IOException ignore){}
+		}
+	}
+
+	private static class Entry {
+		final String name, hash;
+		final boolean persistent;
+
+		Entry(String name, String hash, boolean persistent){
+			this.name = name;
+			this.hash = hash;
+			this.persistent = persistent;
+		}
+	}
+}
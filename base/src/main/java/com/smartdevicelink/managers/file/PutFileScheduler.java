@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.file;
+
+import com.smartdevicelink.managers.file.filetypes.SdlFile;
+import com.smartdevicelink.proxy.RPCResponse;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Uploads files with a limited number of PutFile requests waiting on a response at once. The size
+ * of that window adapts to the head unit: it grows by one for every window's worth of quick
+ * responses and is halved when the head unit reports it has too many pending requests, rejects a
+ * request, or takes too long to respond. Queued files are sent by priority, then smallest first.
+ */
+class PutFileScheduler {
+
+	static final int INITIAL_WINDOW = 2;
+	static final int MAX_WINDOW = 16;
+	// Responses slower than this are treated as a sign that the head unit is falling behind
+	static final long LATENCY_TARGET = 2000;
+	// Number of times a file is queued again after the head unit turned it away
+	static final int MAX_RETRIES = 3;
+
+	private final BaseFileManager fileManager;
+	private final PriorityQueue<QueuedFile> queue = new PriorityQueue<>();
+	private int window = INITIAL_WINDOW, inFlight = 0;
+	private double windowCredit = 0;
+	private long sequence = 0, lastDecreaseTime = 0;
+
+	PutFileScheduler(BaseFileManager fileManager){
+		this.fileManager = fileManager;
+	}
+
+	/**
+	 * Queues a batch of files to be uploaded
+	 * @param files the files to upload
+	 * @param priority batches with a higher priority are sent before those with a lower one
+	 * @param listener called as each file completes, if it is a {@link MultipleFileUpdateListener},
+	 *                 and once every file of the batch has completed
+	 */
+	void upload(List<? extends SdlFile> files, int priority, MultipleFileCompletionListener listener){
+		Batch batch = new Batch(files.size(), listener);
+		synchronized (this){
+			for(SdlFile file : files){
+				queue.add(new QueuedFile(file, batch, priority, fileManager.getFileSize(file), sequence++));
+			}
+		}
+		sendQueuedFiles();
+	}
+
+	/**
+	 * @return the number of PutFile requests currently allowed to wait on a response at once
+	 */
+	synchronized int getWindow(){
+		return window;
+	}
+
+	/**
+	 * @return the number of files that haven't been sent yet
+	 */
+	synchronized int getQueuedCount(){
+		return queue.size();
+	}
+
+	/**
+	 * Drops every queued file. Files that were already sent still report their result.
+	 */
+	void clear(){
+		List<QueuedFile> dropped;
+		synchronized (this){
+			dropped = new ArrayList<>(queue);
+			queue.clear();
+		}
+		for(QueuedFile queuedFile : dropped){
+			queuedFile.batch.onFileComplete(queuedFile.file.getName(), "Upload was cancelled");
+		}
+	}
+
+	/**
+	 * Sends queued files until the window is full. Requests are sent outside of the lock since
+	 * responses may be delivered on the same thread.
+	 */
+	private void sendQueuedFiles(){
+		while(true){
+			QueuedFile next;
+			synchronized (this){
+				if(inFlight >= window || queue.isEmpty()){
+					return;
+				}
+				next = queue.poll();
+				inFlight++;
+			}
+			send(next);
+		}
+	}
+
+	private void send(final QueuedFile queuedFile){
+		final SdlFile file = queuedFile.file;
+		if(file.isStaticIcon() || fileManager.reuseRemoteCopy(file)){
+			onSendComplete(queuedFile, null);
+			return;
+		}
+		queuedFile.sentTime = System.currentTimeMillis();
+		try{
+			fileManager.sendPutFile(file, new OnRPCResponseListener() {
+				@Override
+				public void onResponse(int correlationId, RPCResponse response) {
+					if(response.getSuccess()){
+						onSuccess(queuedFile);
+					}else{
+						onFailure(queuedFile, response.getResultCode(), response.getInfo());
+					}
+				}
+
+				@Override
+				public void onError(int correlationId, Result resultCode, String info) {
+					onFailure(queuedFile, resultCode, info);
+				}
+			});
+		}catch (IllegalArgumentException e){
+			//The file can't be turned into a PutFile, so there is nothing to send
+			onSendComplete(queuedFile, e.getMessage());
+		}
+	}
+
+	private void onSuccess(QueuedFile queuedFile){
+		long latency = System.currentTimeMillis() - queuedFile.sentTime;
+		synchronized (this){
+			if(latency > LATENCY_TARGET){
+				decreaseWindow(queuedFile);
+			}else{
+				//Additive increase: one more slot once a full window has been answered quickly
+				windowCredit += 1.0 / window;
+				if(windowCredit >= 1){
+					windowCredit = 0;
+					window = Math.min(window + 1, MAX_WINDOW);
+				}
+			}
+		}
+		fileManager.onFileUploaded(queuedFile.file);
+		onSendComplete(queuedFile, null);
+	}
+
+	private void onFailure(QueuedFile queuedFile, Result resultCode, String info){
+		if(resultCode == Result.TOO_MANY_PENDING_REQUESTS || resultCode == Result.REJECTED || resultCode == Result.TIMED_OUT){
+			boolean retry;
+			synchronized (this){
+				decreaseWindow(queuedFile);
+				//A request that timed out may still have been stored, so it isn't sent again
+				retry = resultCode != Result.TIMED_OUT && queuedFile.retries++ < MAX_RETRIES;
+				if(retry){
+					inFlight--;
+					queue.add(queuedFile);
+				}
+			}
+			if(retry){
+				sendQueuedFiles();
+				return;
+			}
+		}
+		onSendComplete(queuedFile, BaseFileManager.buildErrorString(resultCode, info));
+	}
+
+	/**
+	 * Multiplicative decrease. Only requests sent after the last decrease may shrink the window
+	 * again, so a burst of slow responses to the same window only halves it once.
+	 */
+	private void decreaseWindow(QueuedFile queuedFile){
+		if(queuedFile.sentTime >= lastDecreaseTime){
+			window = Math.max(1, window / 2);
+			windowCredit = 0;
+			lastDecreaseTime = System.currentTimeMillis();
+		}
+	}
+
+	private void onSendComplete(QueuedFile queuedFile, String error){
+		synchronized (this){
+			inFlight--;
+		}
+		queuedFile.batch.onFileComplete(queuedFile.file.getName(), error);
+		sendQueuedFiles();
+	}
+
+	private static class QueuedFile implements Comparable<QueuedFile> {
+		final SdlFile file;
+		final Batch batch;
+		final int priority;
+		final long size, sequence;
+		long sentTime;
+		int retries = 0;
+
+		QueuedFile(SdlFile file, Batch batch, int priority, long size, long sequence){
+			this.file = file;
+			this.batch = batch;
+			this.priority = priority;
+			this.size = size;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(QueuedFile other) {
+			if(priority != other.priority){
+				return priority > other.priority ? -1 : 1;
+			}
+			//Files of an unknown size go after those of a known size
+			if(size != other.size){
+				if(size < 0 || other.size < 0){
+					return size < 0 ? 1 : -1;
+				}
+				return size < other.size ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Collects the results of the files that were queued together
+	 */
+	private static class Batch {
+		final MultipleFileCompletionListener listener;
+		final Map<String, String> errors = new HashMap<>();
+		int remaining;
+
+		Batch(int count, MultipleFileCompletionListener listener){
+			this.remaining = count;
+			this.listener = listener;
+		}
+
+		void onFileComplete(String fileName, String error){
+			boolean finished;
+			synchronized (this){
+				if(error != null){
+					errors.put(fileName, error);
+				}
+				finished = --remaining == 0;
+			}
+			if(listener == null){
+				return;
+			}
+			if(listener instanceof MultipleFileUpdateListener){
+				((MultipleFileUpdateListener) listener).onFileComplete(fileName, error == null);
+			}
+			if(finished){
+				listener.onComplete(errors.isEmpty() ? null : errors);
+			}
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.lifecycle;
+
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
+import com.smartdevicelink.util.DebugTool;
+import com.smartdevicelink.util.SharedTimer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the requests of a single session that are waiting on a response and hands out the
+ * session's correlation ids, so sessions never share an id space. Each request is given a deadline
+ * based on its function id. If no response has arrived by then, the request is dropped and its
+ * listener is told it timed out, so listeners never outlive a lost response.
+ * <br><br>
+ * Deadlines are kept in a hashed timing wheel: a ring of slots that is advanced one slot per tick.
+ * Adding a request only appends it to the slot its deadline falls in and a response only removes it
+ * from the pending table, so neither depends on how many requests are in flight. Requests whose
+ * deadline is more than a full turn of the wheel away wait in their slot for the extra rounds.
+ * <br><br>
+ * The wheels of all sessions are advanced by a single timer thread.
+ */
+class PendingRequestTracker {
+    private static final String TAG = "PendingRequestTracker";
+
+    static final long DEFAULT_TIMEOUT = 10000;
+    /**
+     * Requests that wait on the user, or that carry large amounts of data, are given longer to respond
+     */
+    static final long EXTENDED_TIMEOUT = 100000;
+
+    private static final int MAX_CORRELATION_ID = 0x00FFFFFF;
+    private static final long TICK_DURATION = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    private final ConcurrentHashMap<Integer, PendingRequest> pendingRequests;
+    private final ConcurrentHashMap<FunctionID, Long> timeouts;
+    private final AtomicInteger nextCorrelationId;
+    private final AtomicLong timedOutCount;
+    private volatile long defaultTimeout = DEFAULT_TIMEOUT;
+
+    private final Object WHEEL_LOCK = new Object();
+    private final List<List<PendingRequest>> wheel;
+    private long currentTick;
+    private TimerTask tickTask;
+
+    private static final SharedTimer TIMEOUT_TIMER = new SharedTimer("SdlRequestTimeout");
+
+    PendingRequestTracker(){
+        pendingRequests = new ConcurrentHashMap<>();
+        timeouts = new ConcurrentHashMap<>();
+        nextCorrelationId = new AtomicInteger(0);
+        timedOutCount = new AtomicLong(0);
+        wheel = new ArrayList<>(WHEEL_SIZE);
+        for(int i = 0; i < WHEEL_SIZE; i++){
+            wheel.add(new ArrayList<PendingRequest>());
+        }
+
+        FunctionID[] extended = {FunctionID.ALERT, FunctionID.ALERT_MANEUVER, FunctionID.DIAL_NUMBER,
+                FunctionID.PERFORM_AUDIO_PASS_THRU, FunctionID.PERFORM_INTERACTION, FunctionID.PUT_FILE,
+                FunctionID.SCROLLABLE_MESSAGE, FunctionID.SLIDER, FunctionID.SPEAK, FunctionID.SYSTEM_REQUEST};
+        for(FunctionID functionID : extended){
+            timeouts.put(functionID, EXTENDED_TIMEOUT);
+        }
+    }
+
+    /**
+     * Generates the next correlation id for this session. Ids that are still waiting on a response
+     * are skipped so a wrapped id can never be confused with an older request.
+     * @return a correlation id that isn't currently in use
+     */
+    int nextCorrelationId(){
+        while(true){
+            int id = nextCorrelationId.getAndIncrement() & MAX_CORRELATION_ID;
+            if(!pendingRequests.containsKey(id)){
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @param correlationId the correlation id to check
+     * @return true if a request with the correlation id is still waiting on a response
+     */
+    boolean isPending(int correlationId){
+        return pendingRequests.containsKey(correlationId);
+    }
+
+    /**
+     * Sets how long requests with the supplied function id wait on a response before timing out
+     * @param functionID the function id of the requests
+     * @param timeout timeout in milliseconds, or a value of 0 or less to never time out
+     */
+    void setTimeout(FunctionID functionID, long timeout){
+        if(functionID != null){
+            timeouts.put(functionID, timeout);
+        }
+    }
+
+    /**
+     * Sets how long requests without a timeout of their own wait on a response
+     * @param timeout timeout in milliseconds, or a value of 0 or less to never time out
+     */
+    void setDefaultTimeout(long timeout){
+        this.defaultTimeout = timeout;
+    }
+
+    long getTimeout(FunctionID functionID){
+        Long timeout = functionID != null ? timeouts.get(functionID) : null;
+        return timeout != null ? timeout : defaultTimeout;
+    }
+
+    /**
+     * Starts tracking a request that was sent
+     * @param correlationId correlation id of the request
+     * @param functionID function id of the request, used to pick its timeout
+     * @param listener listener to be given the response
+     */
+    void add(int correlationId, FunctionID functionID, OnRPCResponseListener listener){
+        long timeout = getTimeout(functionID);
+        PendingRequest request = new PendingRequest(correlationId, listener);
+        PendingRequest previous = pendingRequests.put(correlationId, request);
+        if(previous != null){
+            previous.listener = null;
+            DebugTool.logWarning(TAG + ": Replaced a pending request with the same correlation id " + correlationId);
+        }
+        if(timeout > 0){
+            long ticks = Math.max(1, (timeout + TICK_DURATION - 1) / TICK_DURATION);
+            synchronized (WHEEL_LOCK){
+                request.rounds = (ticks - 1) / WHEEL_SIZE;
+                wheel.get((int) ((currentTick + ticks) % WHEEL_SIZE)).add(request);
+                if(tickTask == null){
+                    tickTask = new TimerTask() {
+                        @Override
+                        public void run() {
+                            tick();
+                        }
+                    };
+                    TIMEOUT_TIMER.get().scheduleAtFixedRate(tickTask, TICK_DURATION, TICK_DURATION);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param correlationId correlation id of the request
+     * @return the listener of the request if it is still waiting on a response
+     */
+    OnRPCResponseListener get(int correlationId){
+        PendingRequest request = pendingRequests.get(correlationId);
+        return request != null ? request.listener : null;
+    }
+
+    /**
+     * Stops tracking a request. Only one caller will ever receive the listener for a request, so
+     * a response and a timeout can't both be delivered.
+     * @param correlationId correlation id of the request
+     * @return the listener of the request or null if it had already been completed or timed out
+     */
+    OnRPCResponseListener remove(int correlationId){
+        PendingRequest request = pendingRequests.remove(correlationId);
+        if(request == null){
+            return null;
+        }
+        OnRPCResponseListener listener = request.listener;
+        //The request stays in its wheel slot until the slot comes up, so drop what it references now
+        request.listener = null;
+        return listener;
+    }
+
+    /**
+     * Drops all pending requests without notifying their listeners and stops advancing the wheel
+     */
+    void clear(){
+        pendingRequests.clear();
+        synchronized (WHEEL_LOCK){
+            for(List<PendingRequest> slot : wheel){
+                slot.clear();
+            }
+            if(tickTask != null){
+                tickTask.cancel();
+                tickTask = null;
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the listeners that are waiting on a response, keyed by correlation id
+     */
+    Map<Integer, OnRPCResponseListener> getListeners(){
+        Map<Integer, OnRPCResponseListener> listeners = new HashMap<>();
+        for(PendingRequest request : pendingRequests.values()){
+            OnRPCResponseListener listener = request.listener;
+            if(listener != null){
+                listeners.put(request.correlationId, listener);
+            }
+        }
+        return listeners;
+    }
+
+    /**
+     * @return the number of requests currently waiting on a response
+     */
+    int getPendingCount(){
+        return pendingRequests.size();
+    }
+
+    /**
+     * @return how long in milliseconds the oldest pending request has been waiting, or 0 if there are none
+     */
+    long getOldestPendingAge(){
+        long oldest = Long.MAX_VALUE;
+        for(PendingRequest request : pendingRequests.values()){
+            oldest = Math.min(oldest, request.sentTime);
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    /**
+     * @return the number of requests that have timed out since this tracker was created
+     */
+    long getTimedOutCount(){
+        return timedOutCount.get();
+    }
+
+    private void tick(){
+        List<PendingRequest> expired = null;
+        synchronized (WHEEL_LOCK){
+            currentTick++;
+            List<PendingRequest> slot = wheel.get((int) (currentTick % WHEEL_SIZE));
+            Iterator<PendingRequest> iterator = slot.iterator();
+            while(iterator.hasNext()){
+                PendingRequest request = iterator.next();
+                if(request.listener == null){
+                    //Already completed
+                    iterator.remove();
+                }else if(request.rounds > 0){
+                    request.rounds--;
+                }else{
+                    iterator.remove();
+                    if(expired == null){
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(request);
+                }
+            }
+        }
+        if(expired != null){
+            for(PendingRequest request : expired){
+                //Only time the request out if a response didn't claim it first
+                if(pendingRequests.remove(request.correlationId, request)){
+                    OnRPCResponseListener listener = request.listener;
+                    request.listener = null;
+                    timedOutCount.incrementAndGet();
+                    DebugTool.logWarning(TAG + ": Request timed out waiting on a response, correlation id " + request.correlationId);
+                    if(listener != null){
+                        try{
+                            listener.onError(request.correlationId, Result.TIMED_OUT, "No response was received before the request timed out");
+                        }catch (Exception e){
+                            //Keep the timer alive for the rest of the requests
+                            DebugTool.logError(TAG + ": Error notifying listener of timeout", e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class PendingRequest {
+        final int correlationId;
+        final long sentTime;
+        volatile OnRPCResponseListener listener;
+        long rounds;
+
+        PendingRequest(int correlationId, OnRPCResponseListener listener){
+            this.correlationId = correlationId;
+            this.listener = listener;
+            this.sentTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -38,6 +38,7 @@ import com.smartdevicelink.protocol.ProtocolMessage;
 import com.smartdevicelink.protocol.enums.FunctionID;
 import com.smartdevicelink.proxy.RPCMessage;
 import com.smartdevicelink.proxy.RPCStruct;
+import com.smartdevicelink.proxy.rpc.*;
 import com.smartdevicelink.util.DebugTool;
 import com.smartdevicelink.util.Version;
 
@@ -81,7 +82,7 @@ public class RpcConverter {
             Hashtable<String, Object> hashTemp = new Hashtable<>();
             hashTemp.put(RPCMessage.KEY_CORRELATION_ID, message.getCorrID());
             if (message.getJsonSize() > 0) {
-                final Hashtable<String, Object> mhash = JsonRPCMarshaller.unmarshall(message.getData());
+                final Hashtable<String, Object> mhash = JsonRPCMarshaller.unmarshall(message.getDataBuffer(), message.getDataOffset(), message.getJsonSize());
                 if (mhash != null) {
                     hashTemp.put(RPCMessage.KEY_PARAMETERS, mhash);
                 }
@@ -138,20 +139,32 @@ public class RpcConverter {
         }
 
         if(params.containsKey(RPCMessage.KEY_FUNCTION_NAME)){
-            StringBuilder rpcClassName = new StringBuilder();
             String functionName = (String)params.get(RPCMessage.KEY_FUNCTION_NAME);
+            boolean isResponse = rpcHashTable.containsKey(RPCMessage.KEY_RESPONSE);
+
+            FunctionID functionID = FunctionID.getEnumForString(functionName);
+            if(functionID != null){
+                RPCMessage rpc = createRpc(functionID, isResponse, rpcHashTable);
+                if(rpc != null){
+                    return rpc;
+                }
+            }
+
+            //Fall back to finding the class by name for anything unknown to the factory
+            StringBuilder rpcClassName = new StringBuilder();
             if(FunctionID.SHOW_CONSTANT_TBT.toString().equals(functionName)) {
                     functionName = "ShowConstantTbt";
             }
             rpcClassName.append(RPC_PACKAGE);
             rpcClassName.append (functionName);
 
-            if(rpcHashTable.containsKey(RPCMessage.KEY_RESPONSE)
-                    && !GENERIC_RESPONSE_STRING.equals(functionName)){
+            if(isResponse && !GENERIC_RESPONSE_STRING.equals(functionName)){
                 rpcClassName.append(RESPONSE_KEY);
             }
 
-            DebugTool.logInfo(TAG + " Attempting to create " + rpcClassName.toString());
+            if(DebugTool.isDebugEnabled()) {
+                DebugTool.logInfo(TAG + " Attempting to create " + rpcClassName.toString());
+            }
             try {
                 Class rpcClass = Class.forName(rpcClassName.toString());
                 if(rpcClass != null){
@@ -172,6 +185,168 @@ public class RpcConverter {
         return null;
     }
 
+    /**
+     * Creates the RPC for the given function without the use of reflection. Messages for functions
+     * that are not sent from the head unit will not be created here.
+     * @param functionID the function the RPC belongs to
+     * @param isResponse if the RPC is a response rather than a request or notification
+     * @param hash the hashtable to create the RPC from
+     * @return the created RPC or null if the function is not known
+     */
+    private static RPCMessage createRpc(FunctionID functionID, boolean isResponse, Hashtable<String, Object> hash){
+        switch (functionID){
+            case REGISTER_APP_INTERFACE:
+                return isResponse ? new RegisterAppInterfaceResponse(hash) : new RegisterAppInterface(hash);
+            case UNREGISTER_APP_INTERFACE:
+                return isResponse ? new UnregisterAppInterfaceResponse(hash) : new UnregisterAppInterface(hash);
+            case SET_GLOBAL_PROPERTIES:
+                return isResponse ? new SetGlobalPropertiesResponse(hash) : new SetGlobalProperties(hash);
+            case RESET_GLOBAL_PROPERTIES:
+                return isResponse ? new ResetGlobalPropertiesResponse(hash) : new ResetGlobalProperties(hash);
+            case ADD_COMMAND:
+                return isResponse ? new AddCommandResponse(hash) : new AddCommand(hash);
+            case DELETE_COMMAND:
+                return isResponse ? new DeleteCommandResponse(hash) : new DeleteCommand(hash);
+            case ADD_SUB_MENU:
+                return isResponse ? new AddSubMenuResponse(hash) : new AddSubMenu(hash);
+            case DELETE_SUB_MENU:
+                return isResponse ? new DeleteSubMenuResponse(hash) : new DeleteSubMenu(hash);
+            case CREATE_INTERACTION_CHOICE_SET:
+                return isResponse ? new CreateInteractionChoiceSetResponse(hash) : new CreateInteractionChoiceSet(hash);
+            case PERFORM_INTERACTION:
+                return isResponse ? new PerformInteractionResponse(hash) : new PerformInteraction(hash);
+            case DELETE_INTERACTION_CHOICE_SET:
+                return isResponse ? new DeleteInteractionChoiceSetResponse(hash) : new DeleteInteractionChoiceSet(hash);
+            case ALERT:
+                return isResponse ? new AlertResponse(hash) : new Alert(hash);
+            case SHOW:
+                return isResponse ? new ShowResponse(hash) : new Show(hash);
+            case SPEAK:
+                return isResponse ? new SpeakResponse(hash) : new Speak(hash);
+            case SET_MEDIA_CLOCK_TIMER:
+                return isResponse ? new SetMediaClockTimerResponse(hash) : new SetMediaClockTimer(hash);
+            case PERFORM_AUDIO_PASS_THRU:
+                return isResponse ? new PerformAudioPassThruResponse(hash) : new PerformAudioPassThru(hash);
+            case END_AUDIO_PASS_THRU:
+                return isResponse ? new EndAudioPassThruResponse(hash) : new EndAudioPassThru(hash);
+            case SUBSCRIBE_BUTTON:
+                return isResponse ? new SubscribeButtonResponse(hash) : new SubscribeButton(hash);
+            case UNSUBSCRIBE_BUTTON:
+                return isResponse ? new UnsubscribeButtonResponse(hash) : new UnsubscribeButton(hash);
+            case SUBSCRIBE_VEHICLE_DATA:
+                return isResponse ? new SubscribeVehicleDataResponse(hash) : new SubscribeVehicleData(hash);
+            case UNSUBSCRIBE_VEHICLE_DATA:
+                return isResponse ? new UnsubscribeVehicleDataResponse(hash) : new UnsubscribeVehicleData(hash);
+            case GET_VEHICLE_DATA:
+                return isResponse ? new GetVehicleDataResponse(hash) : new GetVehicleData(hash);
+            case READ_DID:
+                return isResponse ? new ReadDIDResponse(hash) : new ReadDID(hash);
+            case GET_DTCS:
+                return isResponse ? new GetDTCsResponse(hash) : new GetDTCs(hash);
+            case SCROLLABLE_MESSAGE:
+                return isResponse ? new ScrollableMessageResponse(hash) : new ScrollableMessage(hash);
+            case SLIDER:
+                return isResponse ? new SliderResponse(hash) : new Slider(hash);
+            case SHOW_CONSTANT_TBT:
+                return isResponse ? new ShowConstantTbtResponse(hash) : new ShowConstantTbt(hash);
+            case ALERT_MANEUVER:
+                return isResponse ? new AlertManeuverResponse(hash) : new AlertManeuver(hash);
+            case UPDATE_TURN_LIST:
+                return isResponse ? new UpdateTurnListResponse(hash) : new UpdateTurnList(hash);
+            case CHANGE_REGISTRATION:
+                return isResponse ? new ChangeRegistrationResponse(hash) : new ChangeRegistration(hash);
+            case GENERIC_RESPONSE:
+                return new GenericResponse(hash);
+            case PUT_FILE:
+                return isResponse ? new PutFileResponse(hash) : new PutFile(hash);
+            case DELETE_FILE:
+                return isResponse ? new DeleteFileResponse(hash) : new DeleteFile(hash);
+            case LIST_FILES:
+                return isResponse ? new ListFilesResponse(hash) : new ListFiles(hash);
+            case SET_APP_ICON:
+                return isResponse ? new SetAppIconResponse(hash) : new SetAppIcon(hash);
+            case SET_DISPLAY_LAYOUT:
+                return isResponse ? new SetDisplayLayoutResponse(hash) : new SetDisplayLayout(hash);
+            case DIAGNOSTIC_MESSAGE:
+                return isResponse ? new DiagnosticMessageResponse(hash) : new DiagnosticMessage(hash);
+            case SYSTEM_REQUEST:
+                return isResponse ? new SystemRequestResponse(hash) : new SystemRequest(hash);
+            case SEND_LOCATION:
+                return isResponse ? new SendLocationResponse(hash) : new SendLocation(hash);
+            case DIAL_NUMBER:
+                return isResponse ? new DialNumberResponse(hash) : new DialNumber(hash);
+            case BUTTON_PRESS:
+                return isResponse ? new ButtonPressResponse(hash) : new ButtonPress(hash);
+            case GET_INTERIOR_VEHICLE_DATA:
+                return isResponse ? new GetInteriorVehicleDataResponse(hash) : new GetInteriorVehicleData(hash);
+            case SET_INTERIOR_VEHICLE_DATA:
+                return isResponse ? new SetInteriorVehicleDataResponse(hash) : new SetInteriorVehicleData(hash);
+            case GET_WAY_POINTS:
+                return isResponse ? new GetWayPointsResponse(hash) : new GetWayPoints(hash);
+            case SUBSCRIBE_WAY_POINTS:
+                return isResponse ? new SubscribeWayPointsResponse(hash) : new SubscribeWayPoints(hash);
+            case UNSUBSCRIBE_WAY_POINTS:
+                return isResponse ? new UnsubscribeWayPointsResponse(hash) : new UnsubscribeWayPoints(hash);
+            case GET_SYSTEM_CAPABILITY:
+                return isResponse ? new GetSystemCapabilityResponse(hash) : new GetSystemCapability(hash);
+            case SEND_HAPTIC_DATA:
+                return isResponse ? new SendHapticDataResponse(hash) : new SendHapticData(hash);
+            case SET_CLOUD_APP_PROPERTIES:
+                return isResponse ? new SetCloudAppPropertiesResponse(hash) : new SetCloudAppProperties(hash);
+            case GET_CLOUD_APP_PROPERTIES:
+                return isResponse ? new GetCloudAppPropertiesResponse(hash) : new GetCloudAppProperties(hash);
+            case PUBLISH_APP_SERVICE:
+                return isResponse ? new PublishAppServiceResponse(hash) : new PublishAppService(hash);
+            case GET_APP_SERVICE_DATA:
+                return isResponse ? new GetAppServiceDataResponse(hash) : new GetAppServiceData(hash);
+            case GET_FILE:
+                return isResponse ? new GetFileResponse(hash) : new GetFile(hash);
+            case PERFORM_APP_SERVICES_INTERACTION:
+                return isResponse ? new PerformAppServiceInteractionResponse(hash) : new PerformAppServiceInteraction(hash);
+            case ON_HMI_STATUS:
+                return isResponse ? null : new OnHMIStatus(hash);
+            case ON_APP_INTERFACE_UNREGISTERED:
+                return isResponse ? null : new OnAppInterfaceUnregistered(hash);
+            case ON_BUTTON_EVENT:
+                return isResponse ? null : new OnButtonEvent(hash);
+            case ON_BUTTON_PRESS:
+                return isResponse ? null : new OnButtonPress(hash);
+            case ON_VEHICLE_DATA:
+                return isResponse ? null : new OnVehicleData(hash);
+            case ON_COMMAND:
+                return isResponse ? null : new OnCommand(hash);
+            case ON_TBT_CLIENT_STATE:
+                return isResponse ? null : new OnTBTClientState(hash);
+            case ON_DRIVER_DISTRACTION:
+                return isResponse ? null : new OnDriverDistraction(hash);
+            case ON_PERMISSIONS_CHANGE:
+                return isResponse ? null : new OnPermissionsChange(hash);
+            case ON_AUDIO_PASS_THRU:
+                return isResponse ? null : new OnAudioPassThru(hash);
+            case ON_LANGUAGE_CHANGE:
+                return isResponse ? null : new OnLanguageChange(hash);
+            case ON_KEYBOARD_INPUT:
+                return isResponse ? null : new OnKeyboardInput(hash);
+            case ON_TOUCH_EVENT:
+                return isResponse ? null : new OnTouchEvent(hash);
+            case ON_SYSTEM_REQUEST:
+                return isResponse ? null : new OnSystemRequest(hash);
+            case ON_HASH_CHANGE:
+                return isResponse ? null : new OnHashChange(hash);
+            case ON_INTERIOR_VEHICLE_DATA:
+                return isResponse ? null : new OnInteriorVehicleData(hash);
+            case ON_WAY_POINT_CHANGE:
+                return isResponse ? null : new OnWayPointChange(hash);
+            case ON_RC_STATUS:
+                return isResponse ? null : new OnRCStatus(hash);
+            case ON_APP_SERVICE_DATA:
+                return isResponse ? null : new OnAppServiceData(hash);
+            case ON_SYSTEM_CAPABILITY_UPDATED:
+                return isResponse ? null : new OnSystemCapabilityUpdated(hash);
+            default:
+                return null;
+        }
+    }
 
 }
 
@@ -351,6 +351,24 @@ abstract class BaseScreenManager extends BaseSubManager {
 		return softButtonManager.getSoftButtonObjectById(buttonId);
 	}
 
+	/**
+	 * Set the minimum time between two updates of the text and graphics on the head unit screen.
+	 * Changes made in between are combined into a single update, and only the fields that changed
+	 * are sent.
+	 * @param updateInterval an int value that represents the time in milliseconds
+	 */
+	public void setTextAndGraphicUpdateInterval(int updateInterval) {
+		this.textAndGraphicManager.setUpdateInterval(updateInterval);
+	}
+
+	/**
+	 * Get the minimum time between two updates of the text and graphics on the head unit screen
+	 * @return an int value that represents the time in milliseconds
+	 */
+	public int getTextAndGraphicUpdateInterval() {
+		return this.textAndGraphicManager.getUpdateInterval();
+	}
+
 	/**
 	 * Begin a multiple updates transaction. The updates will be applied when commit() is called<br>
 	 * Note: if we don't use beginTransaction & commit, every update will be sent individually.
@@ -45,6 +45,7 @@ import com.smartdevicelink.proxy.RPCResponse;
 import com.smartdevicelink.proxy.interfaces.ISdl;
 import com.smartdevicelink.proxy.interfaces.OnSystemCapabilityListener;
 import com.smartdevicelink.proxy.rpc.DisplayCapabilities;
+import com.smartdevicelink.proxy.rpc.Image;
 import com.smartdevicelink.proxy.rpc.OnButtonEvent;
 import com.smartdevicelink.proxy.rpc.OnButtonPress;
 import com.smartdevicelink.proxy.rpc.OnHMIStatus;
@@ -600,7 +601,21 @@ abstract class BaseSoftButtonManager extends BaseSubManager {
     protected List<SoftButton> createSoftButtonsForCurrentState() {
         List<SoftButton> softButtons = new ArrayList<>();
         for (SoftButtonObject softButtonObject : softButtonObjects) {
-            softButtons.add(softButtonObject.getCurrentStateSoftButton());
+            SoftButton softButton = softButtonObject.getCurrentStateSoftButton();
+            SoftButtonState state = softButtonObject.getCurrentState();
+            if (softButton != null && state != null && state.getArtwork() != null && fileManager.get() != null) {
+                Image image = fileManager.get().getImageRPC(state.getArtwork());
+                if (!image.getValue().equals(state.getArtwork().getName())) {
+                    // The artwork's contents are on the head unit under another name, so send a copy of the button that refers to it by that name
+                    SoftButton remoteSoftButton = new SoftButton(softButton.getType(), softButton.getSoftButtonID());
+                    remoteSoftButton.setText(softButton.getText());
+                    remoteSoftButton.setImage(image);
+                    remoteSoftButton.setIsHighlighted(softButton.getIsHighlighted());
+                    remoteSoftButton.setSystemAction(softButton.getSystemAction());
+                    softButton = remoteSoftButton;
+                }
+            }
+            softButtons.add(softButton);
         }
         return softButtons;
     }
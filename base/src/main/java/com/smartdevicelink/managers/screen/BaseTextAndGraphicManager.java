@@ -45,6 +45,7 @@ import com.smartdevicelink.proxy.RPCResponse;
 import com.smartdevicelink.proxy.interfaces.ISdl;
 import com.smartdevicelink.proxy.interfaces.OnSystemCapabilityListener;
 import com.smartdevicelink.proxy.rpc.DisplayCapabilities;
+import com.smartdevicelink.proxy.rpc.Image;
 import com.smartdevicelink.proxy.rpc.MetadataTags;
 import com.smartdevicelink.proxy.rpc.OnHMIStatus;
 import com.smartdevicelink.proxy.rpc.Show;
@@ -58,11 +59,15 @@ import com.smartdevicelink.proxy.rpc.enums.TextFieldName;
 import com.smartdevicelink.proxy.rpc.listeners.OnRPCNotificationListener;
 import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
 import com.smartdevicelink.util.DebugTool;
+import com.smartdevicelink.util.SharedTimer;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimerTask;
 
 import static com.smartdevicelink.proxy.rpc.enums.TextAlignment.CENTERED;
 
@@ -75,6 +80,11 @@ import static com.smartdevicelink.proxy.rpc.enums.TextAlignment.CENTERED;
 abstract class BaseTextAndGraphicManager extends BaseSubManager {
 
 	private static final String TAG = "TextAndGraphicManager";
+	/**
+	 * The default minimum time in milliseconds between two Show requests
+	 */
+	static final int DEFAULT_UPDATE_INTERVAL = 200;
+	private static final SharedTimer UPDATE_TIMER = new SharedTimer("SdlTextAndGraphicUpdate");
 
 	boolean isDirty, hasQueuedUpdate;
 	volatile Show inProgressUpdate;
@@ -84,7 +94,11 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 	private boolean pendingHMIFull, batchingUpdates;
 	private final WeakReference<FileManager> fileManager;
 	private final WeakReference<SoftButtonManager> softButtonManager;
-	private CompletionListener queuedUpdateListener, inProgressListener, pendingHMIListener;
+	private final List<CompletionListener> queuedUpdateListeners, inProgressListeners, imageUpdateListeners;
+	private final Set<String> uploadingArtworkNames;
+	private int updateInterval;
+	private long lastUpdateTime;
+	private TimerTask scheduledUpdate;
 	SdlArtwork blankArtwork;
 	private OnRPCNotificationListener hmiListener;
 	private OnSystemCapabilityListener onDisplayCapabilitiesListener;
@@ -103,6 +117,11 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 		batchingUpdates = false;
 		isDirty = false;
 		pendingHMIFull = false;
+		queuedUpdateListeners = new ArrayList<>();
+		inProgressListeners = new ArrayList<>();
+		imageUpdateListeners = new ArrayList<>();
+		uploadingArtworkNames = new HashSet<>();
+		updateInterval = DEFAULT_UPDATE_INTERVAL;
 		textAlignment = CENTERED;
 		currentHMILevel = HMILevel.HMI_NONE;
 		currentScreenData = new Show();
@@ -117,7 +136,7 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 	}
 
 	@Override
-	public void dispose(){
+	public synchronized void dispose(){
 
 		textField1 = null;
 		textField1Type = null;
@@ -136,9 +155,14 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 		inProgressUpdate = null;
 		queuedImageUpdate = null;
 		currentScreenData = null;
-		queuedUpdateListener = null;
-		pendingHMIListener = null;
-		inProgressListener = null;
+		queuedUpdateListeners.clear();
+		inProgressListeners.clear();
+		imageUpdateListeners.clear();
+		uploadingArtworkNames.clear();
+		if (scheduledUpdate != null){
+			scheduledUpdate.cancel();
+			scheduledUpdate = null;
+		}
 		hasQueuedUpdate = false;
 		isDirty = false;
 		pendingHMIFull = false;
@@ -160,8 +184,7 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 					if (pendingHMIFull){
 						DebugTool.logInfo( "Acquired HMI_FULL with pending update. Sending now");
 						pendingHMIFull = false;
-						sdlUpdate(pendingHMIListener);
-						pendingHMIListener = null;
+						sdlUpdate(null);
 					}
 				}
 			}
@@ -203,141 +226,159 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 
 	private synchronized void sdlUpdate(CompletionListener listener){
 
+		if (listener != null){
+			queuedUpdateListeners.add(listener);
+		}
+		hasQueuedUpdate = true;
+
 		// make sure hmi is not none
 		if (currentHMILevel == null || currentHMILevel == HMILevel.HMI_NONE){
 			//Trying to send show on HMI_NONE, waiting for full
 			pendingHMIFull = true;
-			if (listener != null){
-				pendingHMIListener = listener;
-			}
 			return;
 		}
 
 		//Updating Text and Graphics
-		if (inProgressUpdate != null){
+		if (inProgressUpdate != null || scheduledUpdate != null){
+			//An update is in progress or scheduled, these changes will be sent once it is done
+			return;
+		}
 
-			//In progress update exists, queueing update
-			if (queuedUpdateListener != null){
+		long delay = lastUpdateTime + updateInterval - System.currentTimeMillis();
+		if (delay > 0){
+			//A Show was sent recently, changes made until the interval is over are combined into one Show
+			scheduleUpdate(delay);
+			return;
+		}
 
-				//Queued update already exists, superseding previous queued update
-				queuedUpdateListener.onComplete(false);
-				queuedUpdateListener = null;
-			}
+		sendQueuedUpdate();
+	}
 
-			if (listener != null){
-				queuedUpdateListener = listener;
+	private void scheduleUpdate(long delay){
+		scheduledUpdate = new TimerTask() {
+			@Override
+			public void run() {
+				synchronized (BaseTextAndGraphicManager.this) {
+					if (scheduledUpdate != this){
+						return;
+					}
+					scheduledUpdate = null;
+					if (hasQueuedUpdate && inProgressUpdate == null && currentScreenData != null){
+						sendQueuedUpdate();
+					}
+				}
 			}
+		};
+		UPDATE_TIMER.get().schedule(scheduledUpdate, delay);
+	}
 
-			hasQueuedUpdate = true;
-
-			return;
-		}
+	/**
+	 * Sends one Show holding every change made since the last one. Only the fields that differ
+	 * from what the head unit is showing are sent. Images that still have to be uploaded are
+	 * uploaded while the text is sent, they are sent in a following Show once they are uploaded.
+	 */
+	private void sendQueuedUpdate(){
+		hasQueuedUpdate = false;
+		List<CompletionListener> listeners = new ArrayList<>(queuedUpdateListeners);
+		queuedUpdateListeners.clear();
 
 		Show fullShow = new Show();
 		fullShow.setAlignment(textAlignment);
 		fullShow = assembleShowText(fullShow);
 		fullShow = assembleShowImages(fullShow);
 
-		inProgressListener = listener;
-
-		if (!shouldUpdatePrimaryImage() && !shouldUpdateSecondaryImage()){
-
-			//No Images to send, only sending text
-			inProgressUpdate = extractTextFromShow(fullShow);
-			sendShow();
+		List<SdlArtwork> artworksToUpload = new ArrayList<>();
+		boolean waitingOnImages = false;
+		if (fullShow.getGraphic() != null && sdlArtworkNeedsUpload(primaryGraphic)){
+			fullShow.setGraphic(null);
+			waitingOnImages = true;
+			if (!uploadingArtworkNames.contains(primaryGraphic.getName())){
+				artworksToUpload.add(primaryGraphic);
+			}
+		}
+		if (fullShow.getSecondaryGraphic() != null && sdlArtworkNeedsUpload(secondaryGraphic)){
+			fullShow.setSecondaryGraphic(null);
+			waitingOnImages = true;
+			if (!uploadingArtworkNames.contains(secondaryGraphic.getName()) && !artworksToUpload.contains(secondaryGraphic)){
+				artworksToUpload.add(secondaryGraphic);
+			}
+		}
 
-		}else if (!sdlArtworkNeedsUpload(primaryGraphic) && (secondaryGraphic == blankArtwork || !sdlArtworkNeedsUpload(secondaryGraphic))){
+		if (waitingOnImages){
+			// Images need to be uploaded, sending text and uploading images
+			queuedImageUpdate = assembleShowImages(new Show());
+			imageUpdateListeners.addAll(listeners);
+			listeners.clear();
+		}
 
-			//Images already uploaded, sending full update
-			// The files to be updated are already uploaded, send the full show immediately
-			inProgressUpdate = fullShow;
+		Show update = createShowDiff(fullShow);
+		if (update == null){
+			//The head unit is already showing everything
+			for (CompletionListener listener : listeners){
+				listener.onComplete(true);
+			}
+		} else {
+			inProgressUpdate = update;
+			inProgressListeners.addAll(listeners);
+			lastUpdateTime = System.currentTimeMillis();
 			sendShow();
-		} else{
-
-			// Images need to be uploaded, sending text and uploading images
-			inProgressUpdate = fullShow;
-			final Show thisUpdate = fullShow;
+		}
 
-			uploadImages(new CompletionListener() {
-				@Override
-				public void onComplete(boolean success) {
-					if (!success){
-						Log.e(TAG, "Error uploading image");
-						inProgressUpdate = extractTextFromShow(inProgressUpdate);
-						sendShow();
-					}
-					// Check if queued image update still matches our images (there could have been a new Show in the meantime)
-					// and send a new update if it does. Since the images will already be on the head unit, the whole show will be sent
-					if (thisUpdate.getGraphic() != null && thisUpdate.getGraphic().equals(queuedImageUpdate.getGraphic()) ||
-							(thisUpdate.getSecondaryGraphic() != null && queuedImageUpdate.getSecondaryGraphic() != null) && thisUpdate.getSecondaryGraphic().equals(queuedImageUpdate.getSecondaryGraphic())){
-						// Queued image update matches the images we need, sending update
-						sendShow();
-					}
-					// Else, Queued image update does not match the images we need, skipping update
-				}
-			});
-			queuedImageUpdate = fullShow;
+		//Started last, an upload that completes right away sends its images after the text
+		if (!artworksToUpload.isEmpty()){
+			uploadImages(artworksToUpload);
 		}
 	}
 
 	private void sendShow(){
-		inProgressUpdate.setOnRPCResponseListener(new OnRPCResponseListener() {
+		final Show show = inProgressUpdate;
+		show.setOnRPCResponseListener(new OnRPCResponseListener() {
 			@Override
 			public void onResponse(int correlationId, RPCResponse response) {
-				handleResponse(response.getSuccess());
+				handleResponse(show, response.getSuccess());
 			}
 
 			@Override
 			public void onError(int correlationId, Result resultCode, String info) {
-				handleResponse(false);
-			}
-
-			private void handleResponse(boolean success){
-				if (success){
-					updateCurrentScreenDataState(inProgressUpdate);
-				}
-
-				inProgressUpdate = null;
-				if (inProgressListener != null){
-					inProgressListener.onComplete(success);
-					inProgressListener = null;
-				}
-
-				if (hasQueuedUpdate){
-					//Queued update exists, sending another update
-					hasQueuedUpdate = false;
-					CompletionListener temp = queuedUpdateListener;
-					queuedUpdateListener = null;
-					sdlUpdate(temp);
-				}
+				handleResponse(show, false);
 			}
 		});
 
-		if (this.softButtonManager.get() != null) {
-			this.softButtonManager.get().setCurrentMainField1(inProgressUpdate.getMainField1());
+		if (this.softButtonManager.get() != null && show.getMainField1() != null) {
+			this.softButtonManager.get().setCurrentMainField1(show.getMainField1());
 		}
-		internalInterface.sendRPCRequest(inProgressUpdate);
+		internalInterface.sendRPCRequest(show);
 	}
 
-	// Images
-
-	private void uploadImages(final CompletionListener listener) {
+	private synchronized void handleResponse(Show show, boolean success){
+		if (show != inProgressUpdate){
+			//The manager was disposed while the Show was in progress
+			return;
+		}
 
-		List<SdlArtwork> artworksToUpload = new ArrayList<>();
+		if (success){
+			updateCurrentScreenDataState(show);
+		}
 
-		// add primary image
-		if (shouldUpdatePrimaryImage() && !primaryGraphic.isStaticIcon()){
-			artworksToUpload.add(primaryGraphic);
+		inProgressUpdate = null;
+		List<CompletionListener> listeners = new ArrayList<>(inProgressListeners);
+		inProgressListeners.clear();
+		for (CompletionListener listener : listeners){
+			listener.onComplete(success);
 		}
 
-		// add secondary image
-		if (shouldUpdateSecondaryImage() && !secondaryGraphic.isStaticIcon()){
-			artworksToUpload.add(secondaryGraphic);
+		if (hasQueuedUpdate){
+			//Queued update exists, sending another update
+			sdlUpdate(null);
 		}
+	}
 
-		if (artworksToUpload.size() == 0 && (primaryGraphic.isStaticIcon() || secondaryGraphic.isStaticIcon())){
-			DebugTool.logInfo("Upload attempted on static icons, sending them without upload instead");
-			listener.onComplete(true);
+	// Images
+
+	private void uploadImages(final List<SdlArtwork> artworksToUpload) {
+
+		for (SdlArtwork artwork : artworksToUpload){
+			uploadingArtworkNames.add(artwork.getName());
 		}
 
 		// use file manager to upload art
@@ -347,23 +388,53 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 				public void onComplete(Map<String, String> errors) {
 					if (errors != null) {
 						Log.e(TAG, "Error Uploading Artworks. Error: " + errors.toString());
-						listener.onComplete(false);
-					} else {
-						listener.onComplete(true);
 					}
+					handleImagesUploaded(artworksToUpload, errors == null);
 				}
 			});
+		} else {
+			handleImagesUploaded(artworksToUpload, false);
+		}
+	}
+
+	private synchronized void handleImagesUploaded(List<SdlArtwork> artworks, boolean success){
+		if (currentScreenData == null){
+			return;
+		}
+		for (SdlArtwork artwork : artworks){
+			uploadingArtworkNames.remove(artwork.getName());
+		}
+		if (!uploadingArtworkNames.isEmpty()){
+			//The Show waits on the remaining images as well
+			if (!success){
+				Log.e(TAG, "Error uploading image");
+			}
+			return;
+		}
+
+		queuedImageUpdate = null;
+		List<CompletionListener> listeners = new ArrayList<>(imageUpdateListeners);
+		imageUpdateListeners.clear();
+		if (success){
+			// The images are on the head unit now, the next update sends them along with any newer changes
+			queuedUpdateListeners.addAll(listeners);
+			sdlUpdate(null);
+		} else {
+			Log.e(TAG, "Error uploading image");
+			for (CompletionListener listener : listeners){
+				listener.onComplete(false);
+			}
 		}
 	}
 
 	private Show assembleShowImages(Show show){
 
 		if (shouldUpdatePrimaryImage()){
-			show.setGraphic(primaryGraphic.getImageRPC());
+			show.setGraphic(getImageRPC(primaryGraphic));
 		}
 
 		if (shouldUpdateSecondaryImage()){
-			show.setSecondaryGraphic(secondaryGraphic.getImageRPC());
+			show.setSecondaryGraphic(getImageRPC(secondaryGraphic));
 		}
 
 		return show;
@@ -654,8 +725,76 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 		}
 	}
 
+	/**
+	 * Builds a Show that only holds the parts of a Show that differ from what the head unit was
+	 * last confirmed to be showing. Fields left out of a Show keep their current value, except the
+	 * alignment, which is sent whenever mainField1 or mainField2 is.
+	 * @param show a Show holding every field of the screen
+	 * @return a Show holding only the changed fields, or null if nothing changed
+	 */
+	Show createShowDiff(Show show){
+
+		Show diff = new Show();
+		boolean changed = false;
+
+		if (show.getMainField1() != null && !show.getMainField1().equals(currentScreenData.getMainField1())){
+			diff.setMainField1(show.getMainField1());
+			changed = true;
+		}
+		if (show.getMainField2() != null && !show.getMainField2().equals(currentScreenData.getMainField2())){
+			diff.setMainField2(show.getMainField2());
+			changed = true;
+		}
+		if (show.getMainField3() != null && !show.getMainField3().equals(currentScreenData.getMainField3())){
+			diff.setMainField3(show.getMainField3());
+			changed = true;
+		}
+		if (show.getMainField4() != null && !show.getMainField4().equals(currentScreenData.getMainField4())){
+			diff.setMainField4(show.getMainField4());
+			changed = true;
+		}
+		if (show.getMediaTrack() != null && !show.getMediaTrack().equals(currentScreenData.getMediaTrack())){
+			diff.setMediaTrack(show.getMediaTrack());
+			changed = true;
+		}
+		if (show.getMetadataTags() != null && !isSameMetadataTags(show.getMetadataTags(), currentScreenData.getMetadataTags())){
+			diff.setMetadataTags(show.getMetadataTags());
+			changed = true;
+		}
+		// A Show without an alignment centers mainField1 and mainField2, so the alignment is sent with
+		// either of them even when it has not changed
+		if (show.getAlignment() != null && (show.getAlignment() != currentScreenData.getAlignment()
+				|| diff.getMainField1() != null || diff.getMainField2() != null)){
+			diff.setAlignment(show.getAlignment());
+			changed = true;
+		}
+		// The graphics are only set on the Show when they differ from the current ones
+		if (show.getGraphic() != null){
+			diff.setGraphic(show.getGraphic());
+			changed = true;
+		}
+		if (show.getSecondaryGraphic() != null){
+			diff.setSecondaryGraphic(show.getSecondaryGraphic());
+			changed = true;
+		}
+
+		return changed ? diff : null;
+	}
+
 	// Helpers
 
+	private static boolean isSameMetadataTags(MetadataTags tags1, MetadataTags tags2){
+		if (tags1 == null || tags2 == null){
+			return tags1 == tags2;
+		}
+		return isEqual(tags1.getMainField1(), tags2.getMainField1()) && isEqual(tags1.getMainField2(), tags2.getMainField2())
+				&& isEqual(tags1.getMainField3(), tags2.getMainField3()) && isEqual(tags1.getMainField4(), tags2.getMainField4());
+	}
+
+	private static boolean isEqual(Object object1, Object object2){
+		return object1 == null ? object2 == null : object1.equals(object2);
+	}
+
 	private List<String> findValidMainTextFields(){
 		List<String> array = new ArrayList<>();
 
@@ -710,6 +849,14 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 		return false;
 	}
 
+	private Image getImageRPC(SdlArtwork artwork) {
+		// The file manager refers to the artwork by the name its contents are stored under on the head unit
+		if (fileManager.get() != null) {
+			return fileManager.get().getImageRPC(artwork);
+		}
+		return artwork.getImageRPC();
+	}
+
 	private boolean shouldUpdatePrimaryImage() {
 		if (displayCapabilities == null || displayCapabilities.getGraphicSupported()) {
 			if (currentScreenData.getGraphic() == null && primaryGraphic != null) {
@@ -717,7 +864,7 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 			} else if (currentScreenData.getGraphic() == null && primaryGraphic == null) {
 				return false;
 			}
-			return currentScreenData != null && (primaryGraphic != null && !currentScreenData.getGraphic().getValue().equalsIgnoreCase(primaryGraphic.getName()));
+			return currentScreenData != null && (primaryGraphic != null && !currentScreenData.getGraphic().getValue().equalsIgnoreCase(getImageRPC(primaryGraphic).getValue()));
 		}
 		return false;
 	}
@@ -725,12 +872,12 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 	private boolean shouldUpdateSecondaryImage() {
 		// Cannot detect if there is a secondary image, so we'll just try to detect if there's a primary image and allow it if there is.
 		if (displayCapabilities == null || displayCapabilities.getGraphicSupported()) {
-			if (currentScreenData.getGraphic() == null && secondaryGraphic != null) {
+			if (currentScreenData.getSecondaryGraphic() == null && secondaryGraphic != null) {
 				return true;
-			} else if (currentScreenData.getGraphic() == null && secondaryGraphic == null) {
+			} else if (currentScreenData.getSecondaryGraphic() == null && secondaryGraphic == null) {
 				return false;
 			}
-			return currentScreenData != null && (secondaryGraphic != null && !currentScreenData.getGraphic().getValue().equalsIgnoreCase(secondaryGraphic.getName()));
+			return currentScreenData != null && (secondaryGraphic != null && !currentScreenData.getSecondaryGraphic().getValue().equalsIgnoreCase(getImageRPC(secondaryGraphic).getValue()));
 		}
 		return false;
 	}
@@ -920,4 +1067,18 @@ abstract class BaseTextAndGraphicManager extends BaseSubManager {
 		this.batchingUpdates = batching;
 	}
 
+	/**
+	 * Sets the minimum time between two Show requests. Changes made while waiting are combined and
+	 * sent in a single Show.
+	 * @param updateInterval time in milliseconds, 0 sends each change as soon as the previous Show
+	 *                       is done
+	 */
+	void setUpdateInterval(int updateInterval){
+		this.updateInterval = Math.max(0, updateInterval);
+	}
+
+	int getUpdateInterval(){
+		return updateInterval;
+	}
+
 }
@@ -33,14 +33,18 @@ package com.smartdevicelink.marshal;
 
 import com.smartdevicelink.proxy.RPCMessage;
 import com.smartdevicelink.proxy.RPCStruct;
+import com.smartdevicelink.trace.DiagLevel;
 import com.smartdevicelink.trace.SdlTrace;
+import com.smartdevicelink.trace.enums.DetailLevel;
 import com.smartdevicelink.trace.enums.InterfaceActivityDirection;
+import com.smartdevicelink.trace.enums.Mod;
 import com.smartdevicelink.util.DebugTool;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -55,6 +59,9 @@ public class JsonRPCMarshaller {
 	
 	private static final String SDL_LIB_PRIVATE_KEY = "42baba60-eb57-11df-98cf-0800200c9a66";
 
+	private static volatile boolean useStreamingParser = true;
+	private static volatile boolean useStreamingSerializer = true;
+
 	/**
 	 * @param msg RPC message to be marshaled
 	 * @param version protocol version
@@ -63,29 +70,87 @@ public class JsonRPCMarshaller {
 	public static byte[] marshall(RPCMessage msg, byte version) {
 		byte[] jsonBytes = null;
 		try {
-			JSONObject jsonObject = msg.serializeJSON(version);
-			jsonBytes = jsonObject.toString().getBytes();
+			if (useStreamingSerializer) {
+				jsonBytes = JsonRPCSerializer.serialize(msg, version);
+			} else {
+				JSONObject jsonObject = msg.serializeJSON(version);
+				jsonBytes = jsonObject.toString().getBytes("UTF-8");
+			}
 			
 			SdlTrace.logMarshallingEvent(InterfaceActivityDirection.Transmit, jsonBytes, SDL_LIB_PRIVATE_KEY);
 		} catch (JSONException e) {
 			DebugTool.logError("Failed to encode messages to JSON.", e);
+		} catch (UnsupportedEncodingException e) {
+			DebugTool.logError("Failed to encode messages to UTF-8.", e);
 		}
 		return jsonBytes;
 	}
 	
+	/**
+	 * Selects how incoming messages are parsed by {@link #unmarshall(byte[])}. The streaming parser
+	 * reads the bytes straight into the resulting hashtable while the other parser builds a
+	 * JSONObject first. The streaming parser is used by default.
+	 * @param enabled true to use the streaming parser, false to parse through JSONObject
+	 */
+	public static void setStreamingParserEnabled(boolean enabled){
+		useStreamingParser = enabled;
+	}
+
+	/**
+	 * Selects how outgoing messages are serialized by {@link #marshall(RPCMessage, byte)}. The
+	 * streaming serializer writes the RPC straight into UTF-8 bytes while the other serializer builds
+	 * a JSONObject and String first. The streaming serializer is used by default.
+	 * @param enabled true to use the streaming serializer, false to serialize through JSONObject
+	 */
+	public static void setStreamingSerializerEnabled(boolean enabled){
+		useStreamingSerializer = enabled;
+	}
+
 	public static Hashtable<String, Object> unmarshall(byte[] message) {
 		SdlTrace.logMarshallingEvent(InterfaceActivityDirection.Receive, message, SDL_LIB_PRIVATE_KEY);
 		Hashtable<String, Object> ret = null;
 		try {
-			String jsonString = new String(message);
-			JSONObject jsonObject = new JSONObject(jsonString);
-			ret = deserializeJSONObject(jsonObject);
+			if (useStreamingParser) {
+				ret = JsonRPCParser.parse(message);
+			} else {
+				String jsonString = new String(message, "UTF-8");
+				JSONObject jsonObject = new JSONObject(jsonString);
+				ret = deserializeJSONObject(jsonObject);
+			}
 		} catch (JSONException e) {
 			DebugTool.logError("Failed to parse JSON", e);
+		} catch (UnsupportedEncodingException e) {
+			DebugTool.logError("Failed to decode JSON", e);
 		}
 		return ret;
 	}
 	
+	/**
+	 * Unmarshalls JSON that is held in a region of a larger buffer, without copying it out first
+	 * when the streaming parser is in use.
+	 * @param buffer the buffer that contains the JSON
+	 * @param offset where the JSON starts in the buffer
+	 * @param length the length of the JSON
+	 * @return the unmarshalled hashtable or null if the JSON couldn't be parsed
+	 */
+	public static Hashtable<String, Object> unmarshall(byte[] buffer, int offset, int length) {
+		if (offset == 0 && length == buffer.length) {
+			return unmarshall(buffer);
+		}
+		if (!useStreamingParser || DiagLevel.getLevel(Mod.mar) != DetailLevel.OFF) {
+			//Tracing and the JSONObject parser both need an array of their own
+			byte[] message = new byte[length];
+			System.arraycopy(buffer, offset, message, 0, length);
+			return unmarshall(message);
+		}
+		try {
+			return JsonRPCParser.parse(buffer, offset, length);
+		} catch (JSONException e) {
+			DebugTool.logError("Failed to parse JSON", e);
+		}
+		return null;
+	}
+
 	@SuppressWarnings("unchecked")
     public static Hashtable<String, Object> deserializeJSONObject(JSONObject jsonObject) 
 			throws JSONException {
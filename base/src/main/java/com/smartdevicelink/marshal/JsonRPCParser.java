@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2017 - 2019, SmartDeviceLink Consortium, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the SmartDeviceLink Consortium, Inc. nor the names of its
+ * contributors may be used to endorse or promote products derived from this 
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.marshal;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+/*
+ * Single pass JSON parser that reads a UTF-8 encoded payload straight into the Hashtable store used
+ * by RPCs. Values are represented the same way JSONObject would represent them so the result is
+ * interchangeable with JsonRPCMarshaller.deserializeJSONObject, except that arrays nested directly
+ * inside arrays also become lists. Keys are shared between messages through a small cache as the
+ * same parameter names are received over and over.
+ */
+
+public class JsonRPCParser {
+
+	private static final int KEY_CACHE_SIZE = 1024; //Must be a power of two
+	private static final int MAX_CACHED_KEY_LENGTH = 64;
+	private static final CachedKey[] keyCache = new CachedKey[KEY_CACHE_SIZE];
+	private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	private final byte[] data;
+	private final int end;
+	private int position;
+	private char[] chars = new char[64];
+
+	private JsonRPCParser(byte[] data, int offset, int length){
+		this.data = data;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * Parses a UTF-8 encoded JSON object
+	 * @param data the bytes that contain the JSON object
+	 * @return the hashtable representing the JSON object
+	 * @throws JSONException if the data is not a valid JSON object
+	 */
+	public static Hashtable<String, Object> parse(byte[] data) throws JSONException {
+		if(data == null){
+			throw new JSONException("No data to parse");
+		}
+		return parse(data, 0, data.length);
+	}
+
+	/**
+	 * Parses a UTF-8 encoded JSON object
+	 * @param data the bytes that contain the JSON object
+	 * @param offset index of the first byte of the JSON object
+	 * @param length number of bytes of the JSON object
+	 * @return the hashtable representing the JSON object
+	 * @throws JSONException if the data is not a valid JSON object
+	 */
+	public static Hashtable<String, Object> parse(byte[] data, int offset, int length) throws JSONException {
+		if(data == null || offset < 0 || length < 0 || offset + length > data.length){
+			throw new JSONException("Invalid range to parse");
+		}
+		JsonRPCParser parser = new JsonRPCParser(data, offset, length);
+		if(parser.nextToken() != '{'){
+			throw parser.syntaxError("A JSONObject text must begin with '{'");
+		}
+		Hashtable<String, Object> result = parser.readObject();
+		if(parser.position < parser.end && parser.nextToken() != 0){
+			throw parser.syntaxError("Unexpected data after JSONObject");
+		}
+		return result;
+	}
+
+	/**
+	 * Skips whitespace and returns the next byte, consuming it
+	 * @return the next byte that isn't whitespace or 0 if the end was reached
+	 */
+	private int nextToken(){
+		while(position < end){
+			int b = data[position++];
+			if(b != ' ' && b != '\n' && b != '\r' && b != '\t'){
+				return b;
+			}
+		}
+		return 0;
+	}
+
+	private Hashtable<String, Object> readObject() throws JSONException {
+		Hashtable<String, Object> object = new Hashtable<String, Object>();
+		int token = nextToken();
+		if(token == '}'){
+			return object;
+		}
+		while(true){
+			if(token != '"'){
+				throw syntaxError("Expected a key");
+			}
+			String key = readKey();
+			if(nextToken() != ':'){
+				throw syntaxError("Expected a ':' after a key");
+			}
+			Object value = readValue(nextToken());
+			object.put(key, value);
+
+			token = nextToken();
+			if(token == '}'){
+				return object;
+			}else if(token != ','){
+				throw syntaxError("Expected a ',' or '}'");
+			}
+			token = nextToken();
+		}
+	}
+
+	private List<Object> readArray() throws JSONException {
+		List<Object> array = new ArrayList<Object>();
+		int token = nextToken();
+		if(token == ']'){
+			return array;
+		}
+		while(true){
+			array.add(readValue(token));
+			token = nextToken();
+			if(token == ']'){
+				return array;
+			}else if(token != ','){
+				throw syntaxError("Expected a ',' or ']'");
+			}
+			token = nextToken();
+		}
+	}
+
+	/**
+	 * Reads the value that starts with the supplied token, which has already been consumed
+	 */
+	private Object readValue(int token) throws JSONException {
+		switch (token){
+			case '"':
+				return readString();
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case 't':
+				return readLiteral("rue", Boolean.TRUE);
+			case 'f':
+				return readLiteral("alse", Boolean.FALSE);
+			case 'n':
+				return readLiteral("ull", JSONObject.NULL);
+			default:
+				if(token == '-' || (token >= '0' && token <= '9')){
+					return readNumber();
+				}
+				throw syntaxError("Unexpected character");
+		}
+	}
+
+	private Object readLiteral(String remaining, Object value) throws JSONException {
+		int length = remaining.length();
+		if(position + length > end){
+			throw syntaxError("Unterminated literal");
+		}
+		for(int i = 0; i < length; i++){
+			if(data[position + i] != remaining.charAt(i)){
+				throw syntaxError("Unexpected literal");
+			}
+		}
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Reads a number whose first character has already been consumed. Whole numbers become an
+	 * Integer or a Long depending on their size, everything else becomes a Double.
+	 */
+	private Object readNumber() throws JSONException {
+		int start = position - 1;
+		boolean decimal = false;
+		while(position < end){
+			int b = data[position];
+			if(b >= '0' && b <= '9' || b == '-' || b == '+'){
+				position++;
+			}else if(b == '.' || b == 'e' || b == 'E'){
+				decimal = true;
+				position++;
+			}else{
+				break;
+			}
+		}
+		int length = position - start;
+		if(!decimal && length <= 18){
+			boolean negative = data[start] == '-';
+			int index = negative ? start + 1 : start;
+			if(index == position){
+				throw syntaxError("Invalid number");
+			}
+			long value = 0;
+			for(; index < position; index++){
+				int digit = data[index] - '0';
+				if(digit < 0 || digit > 9){
+					throw syntaxError("Invalid number");
+				}
+				value = value * 10 + digit;
+			}
+			if(negative){
+				value = -value;
+			}
+			if(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE){
+				return (int) value;
+			}
+			return value;
+		}
+		String literal = asciiString(start, length);
+		try{
+			if(!decimal){
+				return Long.parseLong(literal);
+			}
+		}catch (NumberFormatException e){
+			//Too large for a long, represent it as a double instead
+		}
+		try{
+			return Double.valueOf(literal);
+		}catch (NumberFormatException e){
+			throw syntaxError("Invalid number " + literal);
+		}
+	}
+
+	/**
+	 * Reads a key. Keys that are plain ASCII are looked up in the key cache before a new String is
+	 * created for them.
+	 */
+	private String readKey() throws JSONException {
+		int start = position;
+		int hash = 0;
+		while(position < end){
+			int b = data[position];
+			if(b == '"'){
+				int length = position - start;
+				position++;
+				if(length > MAX_CACHED_KEY_LENGTH){
+					return asciiString(start, length);
+				}
+				return getCachedKey(start, length, hash);
+			}else if(b == '\\' || b < 0){
+				//Escaped or non-ASCII keys are read as any other string
+				break;
+			}
+			hash = 31 * hash + b;
+			position++;
+		}
+		position = start;
+		return readString();
+	}
+
+	private String getCachedKey(int start, int length, int hash){
+		int index = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+		CachedKey cached = keyCache[index];
+		if(cached != null && cached.matches(data, start, length)){
+			return cached.key;
+		}
+		String key = asciiString(start, length);
+		//Entries are immutable so a racing write can only ever replace one valid entry with another
+		keyCache[index] = new CachedKey(key, data, start, length);
+		return key;
+	}
+
+	/**
+	 * Creates a string from a range of bytes that are known to only contain ASCII characters
+	 */
+	private String asciiString(int start, int length){
+		if(length > chars.length){
+			chars = new char[length];
+		}
+		for(int i = 0; i < length; i++){
+			chars[i] = (char) data[start + i];
+		}
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Reads a string whose opening quote has already been consumed, decoding UTF-8 and escapes
+	 */
+	private String readString() throws JSONException {
+		int count = 0;
+		while(position < end){
+			int b = data[position++] & 0xFF;
+			if(b == '"'){
+				return new String(chars, 0, count);
+			}
+			if(count + 2 > chars.length){
+				char[] larger = new char[chars.length * 2];
+				System.arraycopy(chars, 0, larger, 0, count);
+				chars = larger;
+			}
+			if(b == '\\'){
+				chars[count++] = readEscape();
+			}else if(b < 0x80){
+				chars[count++] = (char) b;
+			}else if(b >= 0xC2 && b < 0xE0){
+				chars[count++] = (char) (((b & 0x1F) << 6) | continuation());
+			}else if(b >= 0xE0 && b < 0xF0){
+				chars[count++] = (char) (((b & 0x0F) << 12) | (continuation() << 6) | continuation());
+			}else if(b >= 0xF0 && b < 0xF5){
+				int codePoint = ((b & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+				if(codePoint >= 0x10000 && codePoint <= 0x10FFFF){
+					chars[count++] = (char) (0xD800 + ((codePoint - 0x10000) >>> 10));
+					chars[count++] = (char) (0xDC00 + (codePoint & 0x3FF));
+				}else{
+					chars[count++] = REPLACEMENT_CHARACTER;
+				}
+			}else{
+				chars[count++] = REPLACEMENT_CHARACTER;
+			}
+		}
+		throw syntaxError("Unterminated string");
+	}
+
+	/**
+	 * @return the payload bits of the next UTF-8 continuation byte, consuming it only if it is valid
+	 */
+	private int continuation() throws JSONException {
+		if(position >= end){
+			throw syntaxError("Unterminated string");
+		}
+		int b = data[position] & 0xFF;
+		if((b & 0xC0) != 0x80){
+			//Malformed sequence, the replacement bits are folded into the decoded character
+			return 0x3F;
+		}
+		position++;
+		return b & 0x3F;
+	}
+
+	private char readEscape() throws JSONException {
+		if(position >= end){
+			throw syntaxError("Unterminated escape");
+		}
+		int b = data[position++];
+		switch (b){
+			case 'b':
+				return '\b';
+			case 't':
+				return '\t';
+			case 'n':
+				return '\n';
+			case 'f':
+				return '\f';
+			case 'r':
+				return '\r';
+			case 'u':
+				if(position + 4 > end){
+					throw syntaxError("Unterminated escape");
+				}
+				int value = 0;
+				for(int i = 0; i < 4; i++){
+					int digit = Character.digit(data[position++], 16);
+					if(digit < 0){
+						throw syntaxError("Illegal escape");
+					}
+					value = (value << 4) | digit;
+				}
+				return (char) value;
+			case '"':
+			case '\'':
+			case '\\':
+			case '/':
+				return (char) b;
+			default:
+				throw syntaxError("Illegal escape");
+		}
+	}
+
+	private JSONException syntaxError(String message){
+		return new JSONException(message + " at character " + position);
+	}
+
+	private static final class CachedKey {
+		final String key;
+		final byte[] bytes;
+
+		CachedKey(String key, byte[] data, int start, int length){
+			this.key = key;
+			this.bytes = new byte[length];
+			System.arraycopy(data, start, bytes, 0, length);
+		}
+
+		boolean matches(byte[] data, int start, int length){
+			if(bytes.length != length){
+				return false;
+			}
+			for(int i = 0; i < length; i++){
+				if(bytes[i] != data[start + i]){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
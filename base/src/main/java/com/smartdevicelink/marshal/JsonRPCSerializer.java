@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2017 - 2019, SmartDeviceLink Consortium, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the SmartDeviceLink Consortium, Inc. nor the names of its
+ * contributors may be used to endorse or promote products derived from this 
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.marshal;
+
+import com.smartdevicelink.proxy.RPCMessage;
+import com.smartdevicelink.proxy.RPCStruct;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Writes the store of an RPC straight into UTF-8 encoded JSON. The output is the same as serializing
+ * through JSONObject, but no intermediate JSONObjects or Strings are created. Each thread reuses its
+ * own growable buffer, so the only allocation per message is the resulting byte array.
+ */
+
+public class JsonRPCSerializer {
+
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+	private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+	private static final byte[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+	private static final byte[] TRUE = {'t','r','u','e'};
+	private static final byte[] FALSE = {'f','a','l','s','e'};
+	private static final byte[] NULL = {'n','u','l','l'};
+	private static final Double NEGATIVE_ZERO = -0d;
+
+	private static final ThreadLocal<JsonRPCSerializer> serializers = new ThreadLocal<JsonRPCSerializer>(){
+		@Override
+		protected JsonRPCSerializer initialValue() {
+			return new JsonRPCSerializer();
+		}
+	};
+
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+	private int size;
+
+	private JsonRPCSerializer(){}
+
+	/**
+	 * @param msg RPC message to be serialized
+	 * @param version protocol version
+	 * @return byte array of the UTF-8 encoded JSON for the message
+	 * @throws JSONException if a value can't be represented in JSON
+	 */
+	@SuppressWarnings("unchecked")
+	public static byte[] serialize(RPCMessage msg, byte version) throws JSONException {
+		Hashtable<String, Object> store = msg.getStore();
+		if (version > 1) {
+			String messageType = msg.getMessageType();
+			Hashtable<String, Object> function = (Hashtable<String, Object>) store.get(messageType);
+			store = (Hashtable<String, Object>) function.get(RPCMessage.KEY_PARAMETERS);
+		}
+		return serialize(store);
+	}
+
+	/**
+	 * @param hash the hashtable to be serialized
+	 * @return byte array of the UTF-8 encoded JSON for the hashtable
+	 * @throws JSONException if a value can't be represented in JSON
+	 */
+	public static byte[] serialize(Hashtable<String, Object> hash) throws JSONException {
+		JsonRPCSerializer serializer = serializers.get();
+		try {
+			serializer.writeHashtable(hash);
+			byte[] result = new byte[serializer.size];
+			System.arraycopy(serializer.buffer, 0, result, 0, serializer.size);
+			return result;
+		} finally {
+			serializer.size = 0;
+			if (serializer.buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+				//Don't hold onto the memory used by an unusually large message
+				serializer.buffer = new byte[INITIAL_BUFFER_SIZE];
+			}
+		}
+	}
+
+	private void writeHashtable(Hashtable<String, Object> hash) throws JSONException {
+		write('{');
+		boolean first = true;
+		for (Map.Entry<String, Object> entry : hash.entrySet()) {
+			if (!first) {
+				write(',');
+			}
+			first = false;
+			writeString(entry.getKey());
+			write(':');
+			writeValue(entry.getValue());
+		}
+		write('}');
+	}
+
+	private void writeList(List<?> list) throws JSONException {
+		write('[');
+		boolean first = true;
+		for (Object value : list) {
+			if (!first) {
+				write(',');
+			}
+			first = false;
+			if (value instanceof List<?>) {
+				//A list nested directly in a list is written the way a JSONArray would write it
+				writeString(value.toString());
+			} else {
+				writeValue(value);
+			}
+		}
+		write(']');
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeValue(Object value) throws JSONException {
+		if (value instanceof String) {
+			writeString((String) value);
+		} else if (value instanceof RPCStruct) {
+			writeHashtable(((RPCStruct) value).getStore());
+		} else if (value instanceof Hashtable) {
+			writeHashtable((Hashtable<String, Object>) value);
+		} else if (value instanceof List<?>) {
+			writeList((List<?>) value);
+		} else if (value instanceof Number) {
+			writeNumber((Number) value);
+		} else if (value instanceof Boolean) {
+			write((Boolean) value ? TRUE : FALSE);
+		} else if (value == null || value == JSONObject.NULL) {
+			write(NULL);
+		} else if (value instanceof JSONObject || value instanceof JSONArray) {
+			writeRaw(value.toString());
+		} else {
+			writeString(value.toString());
+		}
+	}
+
+	private void writeNumber(Number number) throws JSONException {
+		double doubleValue = number.doubleValue();
+		if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+			throw new JSONException("Forbidden numeric value: " + doubleValue);
+		}
+		if (number.equals(NEGATIVE_ZERO)) {
+			writeRaw("-0");
+			return;
+		}
+		long longValue = number.longValue();
+		if (doubleValue == (double) longValue) {
+			writeLong(longValue);
+		} else {
+			writeRaw(number.toString());
+		}
+	}
+
+	private void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeRaw(Long.toString(value));
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[size++] = '-';
+			value = -value;
+		}
+		int start = size;
+		do {
+			buffer[size++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+		//Digits were written in reverse order
+		for (int i = start, j = size - 1; i < j; i++, j--) {
+			byte digit = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = digit;
+		}
+	}
+
+	/**
+	 * Writes a quoted and escaped string, encoding it as UTF-8
+	 */
+	private void writeString(String value) {
+		int length = value.length();
+		//Each char takes at most 6 bytes, either as an escape or as part of a UTF-8 sequence
+		ensureCapacity(length * 6 + 2);
+		byte[] buffer = this.buffer;
+		int size = this.size;
+		buffer[size++] = '"';
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					buffer[size++] = (byte) (0xC0 | (c >> 6));
+					buffer[size++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+					buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+					//Unpaired surrogates can't be encoded
+					buffer[size++] = '?';
+				} else {
+					buffer[size++] = (byte) (0xE0 | (c >> 12));
+					buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					buffer[size++] = (byte) (0x80 | (c & 0x3F));
+				}
+				continue;
+			}
+			switch (c) {
+				case '"':
+				case '\\':
+				case '/':
+					buffer[size++] = '\\';
+					buffer[size++] = (byte) c;
+					break;
+				case '\t':
+					buffer[size++] = '\\';
+					buffer[size++] = 't';
+					break;
+				case '\b':
+					buffer[size++] = '\\';
+					buffer[size++] = 'b';
+					break;
+				case '\n':
+					buffer[size++] = '\\';
+					buffer[size++] = 'n';
+					break;
+				case '\r':
+					buffer[size++] = '\\';
+					buffer[size++] = 'r';
+					break;
+				case '\f':
+					buffer[size++] = '\\';
+					buffer[size++] = 'f';
+					break;
+				default:
+					if (c <= 0x1F) {
+						buffer[size++] = '\\';
+						buffer[size++] = 'u';
+						buffer[size++] = '0';
+						buffer[size++] = '0';
+						buffer[size++] = HEX[c >> 4];
+						buffer[size++] = HEX[c & 0xF];
+					} else {
+						buffer[size++] = (byte) c;
+					}
+					break;
+			}
+		}
+		buffer[size++] = '"';
+		this.size = size;
+	}
+
+	/**
+	 * Writes text that is already valid JSON, encoding it as UTF-8
+	 */
+	private void writeRaw(String value) {
+		int length = value.length();
+		boolean ascii = true;
+		for (int i = 0; i < length && ascii; i++) {
+			ascii = value.charAt(i) < 0x80;
+		}
+		if (!ascii) {
+			//Only possible for nested JSONObjects and JSONArrays
+			try {
+				write(value.getBytes("UTF-8"));
+			} catch (java.io.UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+			return;
+		}
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			buffer[size++] = (byte) value.charAt(i);
+		}
+	}
+
+	private void write(int b) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) b;
+	}
+
+	private void write(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	private void ensureCapacity(int additional) {
+		int required = size + additional;
+		if (required > buffer.length) {
+			int newLength = Math.max(buffer.length * 2, required);
+			byte[] larger = new byte[newLength];
+			System.arraycopy(buffer, 0, larger, 0, size);
+			buffer = larger;
+		}
+	}
+}
@@ -45,8 +45,47 @@ public class BinaryFrameHeader {
 	
 	private byte[] _jsonData;
 	private byte[] _bulkData;
+
+	private byte[] _buffer;
+	private int _jsonDataOffset;
+	private int _bulkDataOffset;
+	private int _bulkDataLength;
 	
 	public BinaryFrameHeader() {}
+
+	/**
+	 * Parses a binary header at the start of the supplied region without copying the JSON or bulk
+	 * data that follows it. Their locations in the buffer are available through
+	 * {@link #getJsonDataOffset()}, {@link #getBulkDataOffset()} and {@link #getBulkDataLength()}.
+	 * @param buffer the buffer that contains the binary header, JSON and bulk data
+	 * @param offset where the binary header starts in the buffer
+	 * @param length the combined length of the binary header, JSON and bulk data
+	 * @return the parsed header or null if the region doesn't contain a valid header
+	 */
+	public static BinaryFrameHeader parseBinaryHeader(byte[] buffer, int offset, int length) {
+		if (buffer == null || length < 12 || offset < 0 || offset + length > buffer.length) {
+			Log.e(TAG, "Unable to process data to form header");
+			return null;
+		}
+		BinaryFrameHeader msg = new BinaryFrameHeader();
+
+		msg.setRPCType((byte) (buffer[offset] >>> 4));
+		msg.setFunctionID(BitConverter.intFromByteArray(buffer, offset) & 0x0FFFFFFF);
+		msg.setCorrID(BitConverter.intFromByteArray(buffer, offset + 4));
+
+		int jsonSize = BitConverter.intFromByteArray(buffer, offset + 8);
+		if (jsonSize < 0 || jsonSize > length - 12) {
+			Log.e(TAG, "Unable to process data to form header");
+			return null;
+		}
+		msg.setJsonSize(jsonSize);
+
+		msg._buffer = buffer;
+		msg._jsonDataOffset = offset + 12;
+		msg._bulkDataOffset = offset + 12 + jsonSize;
+		msg._bulkDataLength = length - 12 - jsonSize;
+		return msg;
+	}
 	
 	public static BinaryFrameHeader parseBinaryHeader(byte[] binHeader) {
 		BinaryFrameHeader msg = new BinaryFrameHeader();
@@ -130,6 +169,10 @@ public class BinaryFrameHeader {
 	}
 	
 	public byte[] getJsonData() {
+		if (_jsonData == null && _buffer != null && _jsonSize > 0) {
+			_jsonData = new byte[_jsonSize];
+			System.arraycopy(_buffer, _jsonDataOffset, _jsonData, 0, _jsonSize);
+		}
 		return _jsonData;
 	}
 	
@@ -140,10 +183,34 @@ public class BinaryFrameHeader {
 	}
 	
 	public byte[] getBulkData() {
+		if (_bulkData == null && _buffer != null && _bulkDataLength > 0) {
+			_bulkData = new byte[_bulkDataLength];
+			System.arraycopy(_buffer, _bulkDataOffset, _bulkData, 0, _bulkDataLength);
+		}
 		return _bulkData;
 	}
 	
 	public void setBulkData(byte[] _bulkData) {
 		this._bulkData = _bulkData;
 	}
+
+	/**
+	 * @return the buffer this header was parsed from with {@link #parseBinaryHeader(byte[], int, int)},
+	 * or null if the data was copied out of the buffer it was parsed from
+	 */
+	public byte[] getBuffer() {
+		return _buffer;
+	}
+
+	public int getJsonDataOffset() {
+		return _jsonDataOffset;
+	}
+
+	public int getBulkDataOffset() {
+		return _bulkDataOffset;
+	}
+
+	public int getBulkDataLength() {
+		return _buffer != null ? _bulkDataLength : (_bulkData != null ? _bulkData.length : 0);
+	}
 }
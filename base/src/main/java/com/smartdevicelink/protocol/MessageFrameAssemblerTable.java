@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.protocol;
+
+import com.smartdevicelink.util.DebugTool;
+
+/**
+ * Holds the assemblers of multi-frame messages that are still being received, keyed by message id.
+ * Message ids are kept as primitive ints in an open addressing table so looking up the assembler for
+ * a frame never allocates.
+ * <br><br>
+ * Partially received messages are only removed when their final frame arrives. If that frame never
+ * comes, the table evicts the message once no frame has arrived for it in a while, or when the
+ * buffers of all in flight messages would go over the byte budget, oldest first. Stale messages are
+ * looked for at most once per sweep interval, whenever a frame is looked up or a message is added.
+ */
+class MessageFrameAssemblerTable {
+    private static final String TAG = "MessageFrameAssemblerTable";
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long SWEEP_INTERVAL = 1000;
+
+    private final long maxBytes;
+    private final long maxAge;
+    private final long sweepInterval;
+
+    private int[] keys;
+    private SdlProtocolBase.MessageFrameAssembler[] values;
+    private int[] sizes;
+    private int count;
+    private long reservedBytes;
+    private long lastSweepTime;
+
+    private long evictedMessages;
+    private long evictedBytes;
+
+    /**
+     * @param maxBytes the most bytes the buffers of all partially received messages can take up
+     * @param maxAge how long in milliseconds a message can go without receiving a frame before it is evicted
+     */
+    MessageFrameAssemblerTable(long maxBytes, long maxAge){
+        this(maxBytes, maxAge, SWEEP_INTERVAL);
+    }
+
+    /**
+     * @param maxBytes the most bytes the buffers of all partially received messages can take up
+     * @param maxAge how long in milliseconds a message can go without receiving a frame before it is evicted
+     * @param sweepInterval how often in milliseconds to look for messages that went over the max age
+     */
+    MessageFrameAssemblerTable(long maxBytes, long maxAge, long sweepInterval){
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.sweepInterval = sweepInterval;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Looks up the assembler of a message, evicting stale messages first if a sweep is due. A
+     * message that went too long without a frame is not returned even if its next frame just arrived.
+     * @param messageId the message id of the received frame
+     * @return the assembler of the message, or null if there is none
+     */
+    synchronized SdlProtocolBase.MessageFrameAssembler get(int messageId){
+        sweepIfDue();
+        int index = indexOf(messageId);
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * Adds the assembler for a new message, evicting stale messages or the oldest ones if there isn't
+     * enough room left in the byte budget. Any message already using the same id is replaced.
+     * @param messageId the message id of the frames the assembler will receive
+     * @param assembler the assembler for the message
+     * @param size the size of the buffer the message will need
+     * @return false if the message is larger than the entire byte budget and can't be added
+     */
+    synchronized boolean put(int messageId, SdlProtocolBase.MessageFrameAssembler assembler, int size){
+        if(size > maxBytes){
+            DebugTool.logWarning(TAG + ": Message of " + size + " bytes is larger than the limit of " + maxBytes);
+            evictedMessages++;
+            evictedBytes += size;
+            return false;
+        }
+
+        sweepIfDue();
+
+        int existing = indexOf(messageId);
+        if(existing >= 0){
+            evict(existing);
+        }
+
+        while(count > 0 && reservedBytes + size > maxBytes){
+            evict(indexOfOldest());
+        }
+
+        if((count + 1) * 2 > keys.length){
+            resize(keys.length * 2);
+        }
+        int index = slot(messageId);
+        while(values[index] != null){
+            index = (index + 1) & (keys.length - 1);
+        }
+        keys[index] = messageId;
+        values[index] = assembler;
+        sizes[index] = size;
+        count++;
+        reservedBytes += size;
+        return true;
+    }
+
+    /**
+     * Removes the assembler of a message if it is still the one registered for the message id
+     * @param messageId the message id the assembler was added with
+     * @param assembler the assembler to remove
+     */
+    synchronized void remove(int messageId, SdlProtocolBase.MessageFrameAssembler assembler){
+        int index = indexOf(messageId);
+        if(index >= 0 && values[index] == assembler){
+            delete(index);
+        }
+    }
+
+    synchronized void clear(){
+        allocate(INITIAL_CAPACITY);
+        count = 0;
+        reservedBytes = 0;
+    }
+
+    synchronized int size(){
+        return count;
+    }
+
+    /**
+     * @return the number of partially received messages that were dropped to stay within the limits
+     */
+    synchronized long getEvictedMessageCount(){
+        return evictedMessages;
+    }
+
+    /**
+     * @return the combined buffer size of all partially received messages that were dropped
+     */
+    synchronized long getEvictedByteCount(){
+        return evictedBytes;
+    }
+
+    private void sweepIfDue(){
+        long now = System.currentTimeMillis();
+        if(now - lastSweepTime >= sweepInterval){
+            lastSweepTime = now;
+            evictStale(now);
+        }
+    }
+
+    private void evictStale(long now){
+        //Evicting shifts entries back into earlier slots, so check the same slot again after each one
+        int index = 0;
+        while(index < values.length){
+            SdlProtocolBase.MessageFrameAssembler assembler = values[index];
+            if(assembler != null && now - assembler.lastFrameTime > maxAge){
+                evict(index);
+            }else{
+                index++;
+            }
+        }
+    }
+
+    private int indexOfOldest(){
+        int oldest = -1;
+        for(int i = 0; i < values.length; i++){
+            if(values[i] != null && (oldest < 0 || values[i].lastFrameTime < values[oldest].lastFrameTime)){
+                oldest = i;
+            }
+        }
+        return oldest;
+    }
+
+    private void evict(int index){
+        DebugTool.logWarning(TAG + ": Dropping partially received message " + keys[index]);
+        evictedMessages++;
+        evictedBytes += sizes[index];
+        //The assembler may still be in use by another transport's thread, so its buffer is left to
+        //be collected rather than put back in the pool
+        delete(index);
+    }
+
+    private int indexOf(int messageId){
+        int mask = keys.length - 1;
+        int index = slot(messageId);
+        while(values[index] != null){
+            if(keys[index] == messageId){
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the entry at the index and moves later entries of the same probe run back so that no
+     * lookups are broken by the gap
+     */
+    private void delete(int index){
+        int mask = keys.length - 1;
+        reservedBytes -= sizes[index];
+        count--;
+        values[index] = null;
+
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while(values[next] != null){
+            int home = slot(keys[next]);
+            //Move the entry into the gap unless its home slot lies after the gap, in probe order
+            if(((next - home) & mask) >= ((next - gap) & mask)){
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                sizes[gap] = sizes[next];
+                values[next] = null;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private int slot(int messageId){
+        //Fibonacci hashing spreads the sequential message ids across the table
+        return (messageId * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(keys.length));
+    }
+
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        values = new SdlProtocolBase.MessageFrameAssembler[capacity];
+        sizes = new int[capacity];
+    }
+
+    private void resize(int capacity){
+        int[] oldKeys = keys;
+        SdlProtocolBase.MessageFrameAssembler[] oldValues = values;
+        int[] oldSizes = sizes;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for(int i = 0; i < oldValues.length; i++){
+            if(oldValues[i] != null){
+                int index = slot(oldKeys[i]);
+                while(values[index] != null){
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                sizes[index] = oldSizes[i];
+            }
+        }
+    }
+}
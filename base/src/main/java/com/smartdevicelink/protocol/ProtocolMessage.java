@@ -33,6 +33,7 @@ package com.smartdevicelink.protocol;
 
 import com.smartdevicelink.protocol.enums.MessageType;
 import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.util.ByteArrayPool;
 
 public class ProtocolMessage {
 	private byte version = 1;
@@ -49,6 +50,15 @@ public class ProtocolMessage {
 
 	private byte[] _data = null;
 	private byte[] _bulkData = null;
+
+	// When the data is a view, the arrays above are shared buffers and only the region described
+	// by the offset and length belongs to this message
+	private boolean _dataIsView = false, _bulkDataIsView = false;
+	private int _dataOffset = 0;
+	private int _bulkDataOffset = 0, _bulkDataLength = 0;
+
+	private ByteArrayPool _pool = null;
+	private byte[] _pooledBuffer = null;
 	
 	public ProtocolMessage() {}
 
@@ -68,13 +78,52 @@ public class ProtocolMessage {
 		this._sessionID = sessionID;
 	}
 
+	/**
+	 * @return the JSON data of this message. If the data was set as a view it is copied out of the
+	 * shared buffer the first time this is called.
+	 */
 	public byte[] getData() {
+		if (_dataIsView) {
+			byte[] data = new byte[_jsonSize];
+			System.arraycopy(_data, _dataOffset, data, 0, _jsonSize);
+			_data = data;
+			_dataOffset = 0;
+			_dataIsView = false;
+		}
+		return _data;
+	}
+
+	/**
+	 * @return the array holding the JSON data, which starts at {@link #getDataOffset()} and is
+	 * {@link #getJsonSize()} bytes long. Unlike {@link #getData()} this never copies.
+	 */
+	public byte[] getDataBuffer() {
 		return _data;
 	}
 
+	public int getDataOffset() {
+		return _dataOffset;
+	}
+
 	public void setData(byte[] data) {
 		this._data = data;
 		this._jsonSize = data.length;
+		this._dataOffset = 0;
+		this._dataIsView = false;
+	}
+
+	/**
+	 * Sets the JSON data as a region of a larger buffer without copying it. The buffer must not be
+	 * modified while this message is in use.
+	 * @param buffer the buffer that contains the JSON data
+	 * @param offset where the JSON data starts in the buffer
+	 * @param length the length of the JSON data
+	 */
+	public void setDataView(byte[] buffer, int offset, int length) {
+		this._data = buffer;
+		this._dataOffset = offset;
+		this._jsonSize = length;
+		this._dataIsView = true;
 	}
 
 	public void setData(byte[] data, int length) {
@@ -87,19 +136,69 @@ public class ProtocolMessage {
 		this._data = new byte[length];
 		System.arraycopy(data, offset, this._data, 0, length);
 		this._jsonSize = 0;
+		this._dataOffset = 0;
+		this._dataIsView = false;
 	}	
 
+	/**
+	 * @return the bulk data of this message. If the bulk data was set as a view it is copied out of
+	 * the shared buffer the first time this is called.
+	 */
 	public byte[] getBulkData() {
+		if (_bulkDataIsView) {
+			byte[] bulkData = new byte[_bulkDataLength];
+			System.arraycopy(_bulkData, _bulkDataOffset, bulkData, 0, _bulkDataLength);
+			_bulkData = bulkData;
+			_bulkDataOffset = 0;
+			_bulkDataIsView = false;
+		}
+		return _bulkData;
+	}
+
+	/**
+	 * @return the array holding the bulk data, which starts at {@link #getBulkDataOffset()} and is
+	 * {@link #getBulkDataLength()} bytes long. Unlike {@link #getBulkData()} this never copies.
+	 */
+	public byte[] getBulkDataBuffer() {
 		return _bulkData;
 	}
 
+	public int getBulkDataOffset() {
+		return _bulkDataOffset;
+	}
+
+	public int getBulkDataLength() {
+		if (_bulkDataIsView) {
+			return _bulkDataLength;
+		}
+		return _bulkData != null ? _bulkData.length : 0;
+	}
+
+	/**
+	 * Sets the bulk data as a region of a larger buffer without copying it. The buffer must not be
+	 * modified while this message is in use.
+	 * @param buffer the buffer that contains the bulk data
+	 * @param offset where the bulk data starts in the buffer
+	 * @param length the length of the bulk data
+	 */
+	public void setBulkDataView(byte[] buffer, int offset, int length) {
+		this._bulkData = buffer;
+		this._bulkDataOffset = offset;
+		this._bulkDataLength = length;
+		this._bulkDataIsView = true;
+	}
+
 	public void setBulkDataNoCopy(byte[] bulkData) {
 		this._bulkData = bulkData;
+		this._bulkDataIsView = false;
+		this._bulkDataOffset = 0;
 	}
 
 	public void setBulkData(byte[] bulkData) {
 		if (this._bulkData != null)
 			this._bulkData = null;
+		this._bulkDataIsView = false;
+		this._bulkDataOffset = 0;
 		this._bulkData = new byte[bulkData.length];
 		System.arraycopy(bulkData, 0, this._bulkData, 0, bulkData.length);
 		//this._bulkData = bulkData;
@@ -108,6 +207,8 @@ public class ProtocolMessage {
 	public void setBulkData(byte[] bulkData, int length) {
 		if (this._bulkData != null)
 			this._bulkData = null;
+		this._bulkDataIsView = false;
+		this._bulkDataOffset = 0;
 		this._bulkData = new byte[length];
 		System.arraycopy(bulkData, 0, this._bulkData, 0, length);
 		//this._bulkData = bulkData;
@@ -179,4 +280,37 @@ public class ProtocolMessage {
 	public int getPrioirtyCoefficient(){
 		return this.priorityCoefficient;
 	}
+
+	/**
+	 * Marks the buffer this message's views point into as coming from a pool, so it can be given
+	 * back with {@link #release()}
+	 */
+	void setPooledBuffer(ByteArrayPool pool, byte[] buffer) {
+		this._pool = pool;
+		this._pooledBuffer = buffer;
+	}
+
+	/**
+	 * Returns the buffer backing this message to the pool it was taken from, if any. Data that is
+	 * still a view into that buffer is dropped, so this should only be called once the message has
+	 * been fully processed, for example after it was converted into an RPC.
+	 */
+	public void release() {
+		if (_pooledBuffer == null) {
+			return;
+		}
+		if (_dataIsView && _data == _pooledBuffer) {
+			_data = null;
+			_jsonSize = 0;
+			_dataIsView = false;
+		}
+		if (_bulkDataIsView && _bulkData == _pooledBuffer) {
+			_bulkData = null;
+			_bulkDataLength = 0;
+			_bulkDataIsView = false;
+		}
+		_pool.release(_pooledBuffer);
+		_pool = null;
+		_pooledBuffer = null;
+	}
 } // end-class
\ No newline at end of file
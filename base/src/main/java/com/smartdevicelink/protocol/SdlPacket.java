@@ -117,6 +117,7 @@ public class SdlPacket implements Parcelable{
 	int messageId;
 	int priorityCoefficient;
 	byte[] payload = null;
+	ByteBuffer[] payloadBuffers = null;
 	HashMap<String, Object> bsonPayload;
 
 	int messagingVersion = 1;
@@ -157,6 +158,33 @@ public class SdlPacket implements Parcelable{
 			System.arraycopy(payload, offset, this.payload, 0, bytesToWrite);
 		}
 	}
+
+	/**
+	 * Creates a packet whose payload is made up of the supplied buffers. The buffers are referenced
+	 * rather than copied, so their contents must not be modified until the packet has been written.
+	 * The payload will only be copied into a single array if {@link #getPayload()} is called.
+	 * @param payloadBuffers the buffers that make up the payload, from position to limit
+	 */
+	public SdlPacket(int version, boolean encryption, int frameType,
+			int serviceType, int frameInfo, int sessionId,
+			int messageId, ByteBuffer[] payloadBuffers) {
+		this.version = version;
+		this.encryption = encryption;
+		this.frameType = frameType;
+		this.serviceType = serviceType;
+		this.frameInfo = frameInfo;
+		this.sessionId = sessionId;
+		this.messageId = messageId;
+		this.priorityCoefficient = 0;
+		this.dataSize = 0;
+		if(payloadBuffers != null){
+			for(ByteBuffer buffer : payloadBuffers){
+				this.dataSize += buffer.remaining();
+			}
+			this.payloadBuffers = payloadBuffers;
+		}
+	}
+
 	/**
 	 * This constructor is available as a protected method. A few defaults have been set, however a few things <b>MUST</b> be set before use. The rest will "work"
 	 * however, it won't be valid data.
@@ -237,23 +265,67 @@ public class SdlPacket implements Parcelable{
 	}
 
 	public byte[] getPayload() {
+		if(payload == null && payloadBuffers != null){
+			//The payload was supplied as a set of buffers, it has to be gathered into one array
+			payload = new byte[dataSize];
+			int offset = 0;
+			for(ByteBuffer buffer : payloadBuffers){
+				int length = buffer.remaining();
+				buffer.duplicate().get(payload, offset, length);
+				offset += length;
+			}
+			payloadBuffers = null;
+		}
 		return payload;
 	}
 	
 	public byte[] constructPacket() {
+		encodeBsonPayload();
+		return constructPacket(version, encryption, frameType,
+				serviceType, frameInfo, sessionId,
+				dataSize, messageId, getPayload());
+	}
+
+	/**
+	 * Creates the header for this packet and returns it followed by the payload. Unlike
+	 * {@link #constructPacket()} the payload is not copied into a new array, which allows a transport
+	 * to write the packet out without materializing it as a single array.
+	 * @return the header buffer followed by the buffers that make up the payload
+	 */
+	public ByteBuffer[] constructPacketBuffers() {
+		encodeBsonPayload();
+		ByteBuffer header = ByteBuffer.allocate(version == 1 ? HEADER_SIZE_V1 : HEADER_SIZE);
+		putHeader(header, version, encryption, frameType, serviceType, frameInfo, sessionId, dataSize, messageId);
+		header.flip();
+
+		if(payloadBuffers != null){
+			ByteBuffer[] buffers = new ByteBuffer[payloadBuffers.length + 1];
+			buffers[0] = header;
+			for(int i = 0; i < payloadBuffers.length; i++){
+				buffers[i + 1] = payloadBuffers[i].duplicate();
+			}
+			return buffers;
+		}else if(payload != null && payload.length > 0){
+			return new ByteBuffer[]{header, ByteBuffer.wrap(payload)};
+		}else{
+			return new ByteBuffer[]{header};
+		}
+	}
+
+	private void encodeBsonPayload(){
 		if (bsonPayload != null && !bsonPayload.isEmpty()) {
 			byte[] bsonBytes = BsonEncoder.encodeToBytes(bsonPayload);
 			if(bsonBytes != null) {
 				payload = bsonBytes;
+				payloadBuffers = null;
 				dataSize = bsonBytes.length;
 			}
 		}
-		return constructPacket(version, encryption, frameType,
-				serviceType, frameInfo, sessionId,
-				dataSize, messageId, payload);
 	}
+
 	public void setPayload(byte[] bytes){
 		this.payload = bytes;
+		this.payloadBuffers = null;
 	}
 	/**
 	 * Set the priority for this packet. The lower the number the higher the priority. <br>0 is the highest priority and the default.
@@ -301,6 +373,18 @@ public class SdlPacket implements Parcelable{
 				break;
 		}
 		
+		putHeader(builder, version, encryption, frameType, serviceType, controlFrameInfo, sessionId, dataSize, messageId);
+		
+		if(payload!=null && payload.length>0){
+			builder.put(payload);
+		}
+		
+		return builder.array();
+	}
+
+	private static void putHeader(ByteBuffer builder, int version, boolean encryption, int frameType,
+			int serviceType, int controlFrameInfo, int sessionId,
+			int dataSize, int messageId){
 		builder.put((byte)((version<<4) + getEncryptionBit(encryption) + frameType));
 		builder.put((byte)serviceType);
 		builder.put((byte)controlFrameInfo);
@@ -317,12 +401,6 @@ public class SdlPacket implements Parcelable{
 			builder.put((byte)((messageId&0x0000FF00)>>8));
 			builder.put((byte)((messageId&0x000000FF)));
 		}
-		
-		if(payload!=null && payload.length>0){
-			builder.put(payload);
-		}
-		
-		return builder.array();
 	}
 	
 	
@@ -416,6 +494,7 @@ public class SdlPacket implements Parcelable{
 		dest.writeInt(sessionId);
 		dest.writeInt(dataSize);
 		dest.writeInt(messageId);
+		byte[] payload = getPayload();
 		dest.writeInt(payload!=null? 1 : 0);
 		if(payload!=null){
 			dest.writeByteArray(payload);
@@ -454,7 +533,7 @@ public class SdlPacket implements Parcelable{
 	}
 
 	public Object getTag(String tag){
-		if(payload == null){
+		if(getPayload() == null){
 			return null;
 		}else if(bsonPayload == null || bsonPayload.isEmpty()){
 			bsonPayload = BsonEncoder.decodeFromBytes(payload);
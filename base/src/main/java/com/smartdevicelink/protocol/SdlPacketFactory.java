@@ -36,6 +36,8 @@ import com.smartdevicelink.protocol.enums.FrameDataControlFrameType;
 import com.smartdevicelink.protocol.enums.SessionType;
 import com.smartdevicelink.util.BitConverter;
 
+import java.nio.ByteBuffer;
+
 public class SdlPacketFactory {
 
 	/* 
@@ -109,6 +111,17 @@ public class SdlPacketFactory {
 				payload.length,messageID,payload);
 	}
 
+	/**
+	 * Creates a single frame packet that references the supplied buffers as its payload without copying them
+	 */
+	public static SdlPacket createSingleSendData(SessionType serviceType, byte sessionID,
+			int messageID, byte version, ByteBuffer[] payload, boolean encrypted) {
+
+		return new SdlPacket(version,encrypted,SdlPacket.FRAME_TYPE_SINGLE,
+				serviceType.getValue(),0,sessionID,
+				messageID,payload);
+	}
+
 	public static SdlPacket createMultiSendDataFirst(SessionType serviceType, byte sessionID, 
 			int messageID, byte version, byte[] payload, boolean encrypted) {
 		
@@ -126,6 +139,17 @@ public class SdlPacketFactory {
 				length,messageID,payload,offset,length);
 	}
 
+	/**
+	 * Creates a consecutive frame packet that references the supplied buffers as its payload without copying them
+	 */
+	public static SdlPacket createMultiSendDataRest(SessionType serviceType, byte sessionID,
+			byte frameSequenceNumber, int messageID, byte version, ByteBuffer[] payload, boolean encrypted) {
+
+		return new SdlPacket(version,encrypted,SdlPacket.FRAME_TYPE_CONSECUTIVE,
+				serviceType.getValue(),frameSequenceNumber,sessionID,
+				messageID,payload);
+	}
+
 	public static SdlPacket createRegisterSecondaryTransport(byte sessionID, byte version) {
 		return new SdlPacket(version, false, SdlPacket.FRAME_TYPE_CONTROL,
 				SessionType.CONTROL.getValue(), SdlPacket.FRAME_INFO_REGISTER_SECONDARY_TRANSPORT,
@@ -34,6 +34,7 @@ package com.smartdevicelink.protocol;
 
 
 import com.smartdevicelink.transport.BaseTransportConfig;
+import com.smartdevicelink.transport.PacketScheduler;
 import com.smartdevicelink.transport.TransportManager;
 
 
@@ -41,9 +42,25 @@ import com.smartdevicelink.transport.TransportManager;
 public class SdlProtocol extends SdlProtocolBase {
     private static final String TAG ="SdlProtocol";
 
+    private final TransportManager transportManager;
+
     public SdlProtocol( ISdlProtocol iSdlProtocol,  BaseTransportConfig config) {
         super(iSdlProtocol, config);
-        this.setTransportManager(new TransportManager(config, transportEventListener));
+        this.transportManager = new TransportManager(config, transportEventListener);
+        this.setTransportManager(transportManager);
+    }
+
+    @Override
+    protected boolean isFrameLockRequired() {
+        //The packet scheduler keeps frames in order and may block a sender when its service is congested
+        return !transportManager.isPacketSchedulerEnabled();
+    }
+
+    /**
+     * @return the scheduler ordering outgoing packets, or null if packets are written directly
+     */
+    public PacketScheduler getPacketScheduler(){
+        return transportManager.getPacketScheduler();
     }
 
 
@@ -53,24 +53,24 @@ import com.smartdevicelink.transport.TransportManagerBase;
 import com.smartdevicelink.transport.enums.TransportType;
 import com.smartdevicelink.transport.utl.TransportRecord;
 import com.smartdevicelink.util.BitConverter;
+import com.smartdevicelink.util.ByteArrayPool;
 import com.smartdevicelink.util.DebugTool;
 import com.smartdevicelink.util.Version;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SdlProtocolBase {
     private static final String TAG ="SdlProtocol";
     private final static String FailurePropagating_Msg = "Failure propagating ";
 
-    private static final int TLS_MAX_RECORD_SIZE = 16384;
-
     private static final int PRIMARY_TRANSPORT_ID    = 1;
     private static final int SECONDARY_TRANSPORT_ID  = 2;
 
@@ -92,12 +92,21 @@ public class SdlProtocolBase {
     private static final List<SessionType> HIGH_BANDWIDTH_SERVICES
             = Arrays.asList(SessionType.NAV, SessionType.PCM);
 
-    // Lock to ensure all frames are sent uninterrupted
+    // Buffers used to reassemble multi-frame messages, shared by every protocol instance
+    private static final ByteArrayPool REASSEMBLY_POOL = new ByteArrayPool(16 * 1024 * 1024);
+    // Limits for multi-frame messages that are still being received before they are dropped
+    private static final long MAX_PARTIAL_MESSAGE_BYTES = 64 * 1024 * 1024;
+    private static final long MAX_PARTIAL_MESSAGE_AGE = 30000;
+
+    // Lock to ensure each frame is handed to the transport uninterrupted. Frames of different
+    // messages may be interleaved.
     private final Object FRAME_LOCK = new Object();
 
     private final ISdlProtocol iSdlProtocol;
-    private final Hashtable<Integer, SdlProtocol.MessageFrameAssembler> _assemblerForMessageID = new Hashtable<>();
-    private final Hashtable<Byte, Object> _messageLocks = new Hashtable<>();
+    private final MessageFrameAssemblerTable _assemblerForMessageID = new MessageFrameAssemblerTable(MAX_PARTIAL_MESSAGE_BYTES, MAX_PARTIAL_MESSAGE_AGE);
+    // Single and control frames carry no state between frames, so they all share one assembler
+    private final MessageFrameAssembler singleFrameAssembler = new MessageFrameAssembler();
+    private final ConcurrentHashMap<Byte, Boolean> _startedSessions = new ConcurrentHashMap<>();
     private final HashMap<SessionType, Long> mtus = new HashMap<>();
     private final HashMap<SessionType, TransportRecord> activeTransports = new HashMap<>();
     private final Map<TransportType, List<ISecondaryTransportListener>> secondaryTransportListeners = new HashMap<>();
@@ -105,7 +114,7 @@ public class SdlProtocolBase {
 
     private Version protocolVersion = new Version("1.0.0");
     private int hashID = 0;
-    private int messageID = 0;
+    private final AtomicInteger messageID = new AtomicInteger(0);
     private int headerSize = V1_HEADER_SIZE;
 
     /**
@@ -199,14 +208,14 @@ public class SdlProtocolBase {
     protected void reset(){
         protocolVersion = new Version("1.0.0");
         hashID = 0;
-        messageID = 0;
+        messageID.set(0);
         headerSize = V1_HEADER_SIZE;
         this.activeTransports.clear();
         this.mtus.clear();
         mtus.put(SessionType.RPC, (long) (V1_V2_MTU_SIZE - headerSize));
         this.secondaryTransportParams = null;
         this._assemblerForMessageID.clear();
-        this._messageLocks.clear();
+        this._startedSessions.clear();
     }
 
     /**
@@ -542,118 +551,199 @@ public class SdlProtocolBase {
         SessionType sessionType = protocolMsg.getSessionType();
         byte sessionID = protocolMsg.getSessionID();
 
-        byte[] data;
+        //The binary header, json and bulk data are kept as separate buffers so they never have to be
+        //copied into a single array unless the payload has to be encrypted
+        ByteBuffer[] data;
         if (protocolVersion.getMajor() > 1 && sessionType != SessionType.NAV && sessionType != SessionType.PCM) {
             if (sessionType.eq(SessionType.CONTROL)) {
-                final byte[] secureData = protocolMsg.getData().clone();
-                data = new byte[headerSize + secureData.length];
-
                 final BinaryFrameHeader binFrameHeader =
                         SdlPacketFactory.createBinaryFrameHeader(protocolMsg.getRPCType(),protocolMsg.getFunctionID(), protocolMsg.getCorrID(), 0);
-                System.arraycopy(binFrameHeader.assembleHeaderBytes(), 0, data, 0, headerSize);
-                System.arraycopy(secureData, 0, data, headerSize, secureData.length);
-            }
-            else if (protocolMsg.getBulkData() != null) {
-                data = new byte[12 + protocolMsg.getJsonSize() + protocolMsg.getBulkData().length];
-                sessionType = SessionType.BULK_DATA;
+                data = new ByteBuffer[]{ByteBuffer.wrap(binFrameHeader.assembleHeaderBytes(), 0, headerSize),
+                        ByteBuffer.wrap(protocolMsg.getData())};
             } else {
-                data = new byte[12 + protocolMsg.getJsonSize()];
-            }
-            if (!sessionType.eq(SessionType.CONTROL)) {
                 BinaryFrameHeader binFrameHeader = SdlPacketFactory.createBinaryFrameHeader(protocolMsg.getRPCType(), protocolMsg.getFunctionID(), protocolMsg.getCorrID(), protocolMsg.getJsonSize());
-                System.arraycopy(binFrameHeader.assembleHeaderBytes(), 0, data, 0, 12);
-                System.arraycopy(protocolMsg.getData(), 0, data, 12, protocolMsg.getJsonSize());
+                ByteBuffer header = ByteBuffer.wrap(binFrameHeader.assembleHeaderBytes());
+                ByteBuffer json = ByteBuffer.wrap(protocolMsg.getData(), 0, protocolMsg.getJsonSize());
                 if (protocolMsg.getBulkData() != null) {
-                    System.arraycopy(protocolMsg.getBulkData(), 0, data, 12 + protocolMsg.getJsonSize(), protocolMsg.getBulkData().length);
+                    sessionType = SessionType.BULK_DATA;
+                    data = new ByteBuffer[]{header, json, ByteBuffer.wrap(protocolMsg.getBulkData())};
+                } else {
+                    data = new ByteBuffer[]{header, json};
                 }
             }
         } else {
-            data = protocolMsg.getData();
+            data = new ByteBuffer[]{ByteBuffer.wrap(protocolMsg.getData())};
         }
+        int dataLength = getRemaining(data);
 
-        if (iSdlProtocol != null && protocolMsg.getPayloadProtected()){
-
-            if (data != null && data.length > 0) {
-                byte[] dataToRead = new byte[TLS_MAX_RECORD_SIZE];
-                SdlSecurityBase sdlSec = iSdlProtocol.getSdlSecurity();
-                if (sdlSec == null)
-                    return;
-
-                Integer iNumBytes = sdlSec.encryptData(data, dataToRead);
-                if ((iNumBytes == null) || (iNumBytes <= 0))
-                    return;
-
-                byte[] encryptedData = new byte[iNumBytes];
-                System.arraycopy(dataToRead, 0, encryptedData, 0, iNumBytes);
-                data = encryptedData;
-            }
+        SdlSecurityBase sdlSec = null;
+        if (iSdlProtocol != null && protocolMsg.getPayloadProtected() && dataLength > 0) {
+            sdlSec = iSdlProtocol.getSdlSecurity();
+            if (sdlSec == null)
+                return;
         }
 
-        // Get the message lock for this protocol session
-        Object messageLock = _messageLocks.get(sessionID);
-        if (messageLock == null) {
+        if (!_startedSessions.containsKey(sessionID)) {
             handleProtocolError("Error sending protocol message to SDL.",
                     new SdlException("Attempt to send protocol message prior to startSession ACK.", SdlExceptionCause.SDL_UNAVAILABLE));
             return;
         }
 
-        synchronized(messageLock) {
-            if (data.length > getMtu(sessionType)) {
-
-                messageID++;
+        //Each message gets its own id and frame sequence, so frames from other messages are free to
+        //be sent in between the frames of this one
+        final int messageID = this.messageID.incrementAndGet();
+        final TransportRecord transportRecord = activeTransports.get(sessionType);
+        int frameSize = (int) getMtu(sessionType);
+        if (sdlSec != null) {
+            //Each frame is encrypted on its own, the same way Core encrypts and decrypts them, so
+            //it has to leave room for the records the plain data grows into
+            frameSize = getMaxProtectedFrameSize(sdlSec, frameSize);
+            if (frameSize <= 0) {
+                DebugTool.logError("The MTU of the " + sessionType + " service is too small to hold an encrypted frame");
+                return;
+            }
+        }
+        if (dataLength > frameSize) {
 
-                // Assemble first frame.
-                Long mtu = getMtu(sessionType);
-                int frameCount = Long.valueOf(data.length / mtu).intValue();
-                if (data.length % mtu > 0) {
-                    frameCount++;
-                }
-                byte[] firstFrameData = new byte[8];
-                // First four bytes are data size.
-                System.arraycopy(BitConverter.intToByteArray(data.length), 0, firstFrameData, 0, 4);
-                // Second four bytes are frame count.
-                System.arraycopy(BitConverter.intToByteArray(frameCount), 0, firstFrameData, 4, 4);
-
-                SdlPacket firstHeader = SdlPacketFactory.createMultiSendDataFirst(sessionType, sessionID, messageID, (byte)protocolVersion.getMajor(),firstFrameData,protocolMsg.getPayloadProtected());
-                firstHeader.setPriorityCoefficient(1+protocolMsg.priorityCoefficient);
-                firstHeader.setTransportRecord(activeTransports.get(sessionType));
-                //Send the first frame
-                handlePacketToSend(firstHeader);
-
-                int currentOffset = 0;
-                byte frameSequenceNumber = 0;
-
-                for (int i = 0; i < frameCount; i++) {
-                    if (i < (frameCount - 1)) {
+            // Assemble first frame.
+            int frameCount = dataLength / frameSize;
+            if (dataLength % frameSize > 0) {
+                frameCount++;
+            }
+            byte[] firstFrameData = new byte[8];
+            // First four bytes are data size.
+            System.arraycopy(BitConverter.intToByteArray(dataLength), 0, firstFrameData, 0, 4);
+            // Second four bytes are frame count.
+            System.arraycopy(BitConverter.intToByteArray(frameCount), 0, firstFrameData, 4, 4);
+
+            //The first frame only holds the size of the plain data and the frame count, it is never encrypted
+            SdlPacket firstHeader = SdlPacketFactory.createMultiSendDataFirst(sessionType, sessionID, messageID, (byte)protocolVersion.getMajor(),firstFrameData,false);
+            firstHeader.setPriorityCoefficient(1+protocolMsg.priorityCoefficient);
+            firstHeader.setTransportRecord(transportRecord);
+            //Send the first frame
+            handlePacketToSend(firstHeader);
+
+            int currentOffset = 0;
+            byte frameSequenceNumber = 0;
+
+            for (int i = 0; i < frameCount; i++) {
+                if (i < (frameCount - 1)) {
+                    ++frameSequenceNumber;
+                    if (frameSequenceNumber ==
+                            SdlPacket.FRAME_INFO_FINAL_CONNESCUTIVE_FRAME) {
+                        // we can't use 0x00 as frameSequenceNumber, because
+                        // it's reserved for the last frame
                         ++frameSequenceNumber;
-                        if (frameSequenceNumber ==
-                                SdlPacket.FRAME_INFO_FINAL_CONNESCUTIVE_FRAME) {
-                            // we can't use 0x00 as frameSequenceNumber, because
-                            // it's reserved for the last frame
-                            ++frameSequenceNumber;
-                        }
-                    } else {
-                        frameSequenceNumber = SdlPacket.FRAME_INFO_FINAL_CONNESCUTIVE_FRAME;
-                    } // end-if
+                    }
+                } else {
+                    frameSequenceNumber = SdlPacket.FRAME_INFO_FINAL_CONNESCUTIVE_FRAME;
+                } // end-if
 
-                    int bytesToWrite = data.length - currentOffset;
-                    if (bytesToWrite > mtu) {
-                        bytesToWrite = mtu.intValue();
+                int bytesToWrite = dataLength - currentOffset;
+                if (bytesToWrite > frameSize) {
+                    bytesToWrite = frameSize;
+                }
+                ByteBuffer[] frameData = slice(data, currentOffset, bytesToWrite);
+                if (sdlSec != null) {
+                    frameData = encryptFrame(sdlSec, frameData);
+                    if (frameData == null) {
+                        return;
                     }
-                    SdlPacket consecHeader = SdlPacketFactory.createMultiSendDataRest(sessionType, sessionID, bytesToWrite, frameSequenceNumber , messageID, (byte)protocolVersion.getMajor(),data, currentOffset, bytesToWrite, protocolMsg.getPayloadProtected());
-                    consecHeader.setTransportRecord(activeTransports.get(sessionType));
-                    consecHeader.setPriorityCoefficient(i+2+protocolMsg.priorityCoefficient);
-                    handlePacketToSend(consecHeader);
-                    currentOffset += bytesToWrite;
                 }
-            } else {
-                messageID++;
-                SdlPacket header = SdlPacketFactory.createSingleSendData(sessionType, sessionID, data.length, messageID, (byte)protocolVersion.getMajor(),data, protocolMsg.getPayloadProtected());
-                header.setPriorityCoefficient(protocolMsg.priorityCoefficient);
-                header.setTransportRecord(activeTransports.get(sessionType));
-                handlePacketToSend(header);
+                SdlPacket consecHeader = SdlPacketFactory.createMultiSendDataRest(sessionType, sessionID, frameSequenceNumber, messageID, (byte)protocolVersion.getMajor(), frameData, protocolMsg.getPayloadProtected());
+                consecHeader.setTransportRecord(transportRecord);
+                consecHeader.setPriorityCoefficient(i+2+protocolMsg.priorityCoefficient);
+                handlePacketToSend(consecHeader);
+                currentOffset += bytesToWrite;
+            }
+        } else {
+            if (sdlSec != null) {
+                data = encryptFrame(sdlSec, data);
+                if (data == null) {
+                    return;
+                }
+            }
+            SdlPacket header = SdlPacketFactory.createSingleSendData(sessionType, sessionID, messageID, (byte)protocolVersion.getMajor(), data, protocolMsg.getPayloadProtected());
+            header.setPriorityCoefficient(protocolMsg.priorityCoefficient);
+            header.setTransportRecord(transportRecord);
+            handlePacketToSend(header);
+        }
+    }
+
+    /**
+     * Finds how much plain data fits in a frame once it is encrypted
+     * @param sdlSec the security library that will encrypt the frames
+     * @param mtu the largest payload a frame of the service can hold
+     * @return the largest number of plain bytes whose encrypted form fits in the MTU, or a number
+     * less than 1 if not even a single byte does
+     */
+    private static int getMaxProtectedFrameSize(SdlSecurityBase sdlSec, int mtu){
+        int frameSize = mtu;
+        while(frameSize > 0){
+            int excess = sdlSec.getMaxEncryptedSize(frameSize) - mtu;
+            if(excess <= 0){
+                break;
+            }
+            frameSize -= excess;
+        }
+        return frameSize;
+    }
+
+    /**
+     * Encrypts the data of a single frame
+     * @param sdlSec the security library that encrypts the data
+     * @param data the plain data of the frame
+     * @return a buffer holding the encrypted data or null if encryption failed
+     */
+    private static ByteBuffer[] encryptFrame(SdlSecurityBase sdlSec, ByteBuffer[] data){
+        byte[] encryptedData = new byte[sdlSec.getMaxEncryptedSize(getRemaining(data))];
+        Integer iNumBytes = sdlSec.encryptData(data, ByteBuffer.wrap(encryptedData));
+        if ((iNumBytes == null) || (iNumBytes <= 0)) {
+            return null;
+        }
+        return new ByteBuffer[]{ByteBuffer.wrap(encryptedData, 0, iNumBytes)};
+    }
+
+    /**
+     * Sums the remaining bytes of a set of buffers
+     * @param buffers the buffers to be measured
+     * @return the total number of bytes between position and limit of each buffer
+     */
+    private static int getRemaining(ByteBuffer[] buffers){
+        int length = 0;
+        for(ByteBuffer buffer : buffers){
+            length += buffer.remaining();
+        }
+        return length;
+    }
+
+    /**
+     * Creates views into a range of bytes that spans a set of buffers. No bytes are copied.
+     * @param buffers the buffers that together hold the bytes
+     * @param offset the offset into the combined remaining bytes of the buffers
+     * @param length the number of bytes the views should cover
+     * @return buffers that cover the requested range
+     */
+    private static ByteBuffer[] slice(ByteBuffer[] buffers, int offset, int length){
+        ArrayList<ByteBuffer> views = new ArrayList<>(buffers.length);
+        for(ByteBuffer buffer : buffers){
+            if(length <= 0){
+                break;
             }
+            int remaining = buffer.remaining();
+            if(offset >= remaining){
+                offset -= remaining;
+                continue;
+            }
+            int count = Math.min(remaining - offset, length);
+            ByteBuffer view = buffer.duplicate();
+            view.position(buffer.position() + offset);
+            view.limit(view.position() + count);
+            views.add(view);
+            length -= count;
+            offset = 0;
         }
+        return views.toArray(new ByteBuffer[views.size()]);
     }
 
     protected void handlePacketReceived(SdlPacket packet){
@@ -669,17 +759,36 @@ public class SdlProtocolBase {
 
 
     protected SdlProtocolBase.MessageFrameAssembler getFrameAssemblerForFrame(SdlPacket packet) {
-        Integer iSessionId = packet.getSessionId();
-        Byte bySessionId = iSessionId.byteValue();
+        FrameType frameType = packet.getFrameType();
+        if (frameType == FrameType.First) {
+            //The assembler adds itself to the table once it knows how big the message is
+            return new SdlProtocolBase.MessageFrameAssembler();
+        } else if (frameType == FrameType.Consecutive) {
+            SdlProtocolBase.MessageFrameAssembler ret = _assemblerForMessageID.get(packet.getMessageId());
+            if (ret == null) {
+                //The first frame was lost or the message was evicted. An assembler without a
+                //buffer ignores the frame.
+                ret = new SdlProtocolBase.MessageFrameAssembler();
+            }
+            return ret;
+        }
+        return singleFrameAssembler;
+    } // end-method
 
-        SdlProtocolBase.MessageFrameAssembler ret = _assemblerForMessageID.get(packet.getMessageId());
-        if (ret == null) {
-            ret = new SdlProtocolBase.MessageFrameAssembler();
-            _assemblerForMessageID.put(packet.getMessageId(), ret);
-        } // end-if
+    /**
+     * @return the number of partially received multi-frame messages that were dropped because no
+     * frames arrived for them in too long, or because they didn't fit in the memory budget
+     */
+    public long getEvictedMessageCount() {
+        return _assemblerForMessageID.getEvictedMessageCount();
+    }
 
-        return ret;
-    } // end-method
+    /**
+     * @return the combined size of the buffers of all dropped partially received messages
+     */
+    public long getEvictedMessageBytes() {
+        return _assemblerForMessageID.getEvictedByteCount();
+    }
 
 
 
@@ -833,15 +942,28 @@ public class SdlProtocolBase {
      * @param packet packet that will be sent to the router service
      */
     protected void handlePacketToSend(SdlPacket packet) {
-        synchronized(FRAME_LOCK) {
-
-            if(packet!=null){
+        if(packet == null){
+            return;
+        }
+        if(isFrameLockRequired()) {
+            synchronized (FRAME_LOCK) {
                 iSdlProtocol.onProtocolMessageBytesToSend(packet);
             }
-
+        }else{
+            iSdlProtocol.onProtocolMessageBytesToSend(packet);
         }
     }
 
+    /**
+     * Frames are normally handed to the transport one at a time. When the transport orders frames
+     * itself and may block a sender to apply backpressure, holding the frame lock would stall every
+     * other service behind the blocked one.
+     * @return true if frames must be handed off to the transport while holding the frame lock
+     */
+    protected boolean isFrameLockRequired(){
+        return true;
+    }
+
     /** This method handles the end of a protocol session. A callback is
      * sent to the protocol listener.
      **/
@@ -880,6 +1002,10 @@ public class SdlProtocolBase {
     // This method handles the end of a protocol session. A callback is
     // sent to the protocol listener.
     protected void handleServiceEnded(SdlPacket packet, SessionType sessionType) {
+        if(!SessionType.RPC.equals(sessionType)){
+            // A restarted service negotiates its MTU again, so don't keep the old one around
+            mtus.remove(sessionType);
+        }
 
         iSdlProtocol.onProtocolSessionEnded(sessionType, (byte)packet.getSessionId(), "");
 
@@ -892,12 +1018,8 @@ public class SdlProtocolBase {
      * @param serviceType the service type that has just been started
      */
     protected void handleProtocolSessionStarted(SdlPacket packet, SessionType serviceType) {
-        // Use this sessionID to create a message lock
-        Object messageLock = _messageLocks.get((byte)packet.getSessionId());
-        if (messageLock == null) {
-            messageLock = new Object();
-            _messageLocks.put((byte)packet.getSessionId(), messageLock);
-        }
+        // Messages can now be sent for this session
+        _startedSessions.put((byte)packet.getSessionId(), Boolean.TRUE);
         if(packet.version >= 5){
             String mtuTag = null;
             if(serviceType.equals(SessionType.RPC)){
@@ -1232,22 +1354,56 @@ public class SdlProtocolBase {
 
 
     protected class MessageFrameAssembler {
-        protected ByteArrayOutputStream accumulator = null;
+        //Frames are copied straight into a single buffer sized from the first frame, which is then
+        //handed to the message as is
+        protected byte[] accumulator = null;
         protected int totalSize = 0;
+        protected int bytesReceived = 0;
+        volatile long lastFrameTime = System.currentTimeMillis();
 
         protected void handleFirstDataFrame(SdlPacket packet) {
             //The message is new, so let's figure out how big it is.
-            totalSize = BitConverter.intFromByteArray(packet.payload, 0) - headerSize;
+            totalSize = BitConverter.intFromByteArray(packet.payload, 0);
+            bytesReceived = 0;
+            if (totalSize < 0) {
+                DebugTool.logError("Invalid message size in first frame: " + totalSize);
+                accumulator = null;
+                return;
+            }
+            if (!_assemblerForMessageID.put(packet.getMessageId(), this, totalSize)) {
+                accumulator = null;
+                return;
+            }
             try {
-                accumulator = new ByteArrayOutputStream(totalSize);
+                accumulator = REASSEMBLY_POOL.acquire(totalSize);
             }catch(OutOfMemoryError e){
                 DebugTool.logError("OutOfMemory error", e); //Garbled bits were received
+                _assemblerForMessageID.remove(packet.getMessageId(), this);
                 accumulator = null;
             }
         }
 
         protected void handleRemainingFrame(SdlPacket packet) {
-            accumulator.write(packet.payload, 0, (int)packet.getDataSize());
+            lastFrameTime = System.currentTimeMillis();
+            int length = (int)packet.getDataSize();
+            if (bytesReceived + length > accumulator.length) {
+                //More data arrived than the first frame announced, so move to a bigger buffer
+                byte[] larger;
+                try {
+                    larger = REASSEMBLY_POOL.acquire(Math.max(bytesReceived + length, accumulator.length * 2));
+                }catch(OutOfMemoryError e){
+                    DebugTool.logError("OutOfMemory error", e);
+                    REASSEMBLY_POOL.release(accumulator);
+                    accumulator = null;
+                    _assemblerForMessageID.remove(packet.getMessageId(), this);
+                    return;
+                }
+                System.arraycopy(accumulator, 0, larger, 0, bytesReceived);
+                REASSEMBLY_POOL.release(accumulator);
+                accumulator = larger;
+            }
+            System.arraycopy(packet.payload, 0, accumulator, bytesReceived, length);
+            bytesReceived += length;
             notifyIfFinished(packet);
         }
 
@@ -1260,21 +1416,27 @@ public class SdlProtocolBase {
                 //If it is WiPro 2.0 it must have binary header
                 if (protocolVersion.getMajor() > 1) {
                     BinaryFrameHeader binFrameHeader = BinaryFrameHeader.
-                            parseBinaryHeader(accumulator.toByteArray());
+                            parseBinaryHeader(accumulator, 0, bytesReceived);
                     if(binFrameHeader == null) {
+                        _assemblerForMessageID.remove(packet.getMessageId(), this);
+                        REASSEMBLY_POOL.release(accumulator);
+                        accumulator = null;
                         return;
                     }
                     message.setVersion((byte)protocolVersion.getMajor());
                     message.setRPCType(binFrameHeader.getRPCType());
                     message.setFunctionID(binFrameHeader.getFunctionID());
                     message.setCorrID(binFrameHeader.getCorrID());
-                    if (binFrameHeader.getJsonSize() > 0) message.setData(binFrameHeader.getJsonData());
-                    if (binFrameHeader.getBulkData() != null) message.setBulkData(binFrameHeader.getBulkData());
+                    if (binFrameHeader.getJsonSize() > 0) message.setDataView(accumulator, binFrameHeader.getJsonDataOffset(), binFrameHeader.getJsonSize());
+                    if (binFrameHeader.getBulkDataLength() > 0) message.setBulkDataView(accumulator, binFrameHeader.getBulkDataOffset(), binFrameHeader.getBulkDataLength());
                 } else{
-                    message.setData(accumulator.toByteArray());
+                    message.setDataView(accumulator, 0, bytesReceived);
                 }
+                //The message now owns the buffer. Whoever consumes it can give it back to the pool
+                //with ProtocolMessage.release once they are done, otherwise it is simply collected.
+                message.setPooledBuffer(REASSEMBLY_POOL, accumulator);
 
-                _assemblerForMessageID.remove(packet.getMessageId());
+                _assemblerForMessageID.remove(packet.getMessageId(), this);
 
                 try {
                     iSdlProtocol.onProtocolMessageReceived(message);
@@ -1300,19 +1462,22 @@ public class SdlProtocolBase {
 
         protected void handleFrame(SdlPacket packet) {
 
-            if (packet.getPayload() != null && packet.getDataSize() > 0 && packet.isEncrypted() ) {
+            //Every frame but the first of a multi frame message is encrypted on its own
+            if (packet.getPayload() != null && packet.getDataSize() > 0 && packet.isEncrypted() && packet.getFrameType() != FrameType.First) {
 
                 SdlSecurityBase sdlSec = iSdlProtocol.getSdlSecurity();
-                byte[] dataToRead = new byte[4096];
+                //The plain data is never larger than the records it was encrypted into, so it is
+                //decrypted straight into the array that becomes the new payload
+                byte[] encryptedData = packet.getPayload();
+                byte[] decryptedData = new byte[(int)packet.getDataSize()];
 
-                Integer iNumBytes = sdlSec.decryptData(packet.getPayload(), dataToRead);
+                Integer iNumBytes = sdlSec.decryptData(ByteBuffer.wrap(encryptedData, 0, decryptedData.length), ByteBuffer.wrap(decryptedData));
                 if ((iNumBytes == null) || (iNumBytes <= 0)){
                     return;
                 }
 
-                byte[] decryptedData = new byte[iNumBytes];
-                System.arraycopy(dataToRead, 0, decryptedData, 0, iNumBytes);
                 packet.payload = decryptedData;
+                packet.dataSize = iNumBytes;
             }
 
             if (packet.getFrameType().equals(FrameType.Control)) {
@@ -1408,8 +1573,6 @@ public class SdlProtocolBase {
 
             }
 
-            _assemblerForMessageID.remove(packet.getMessageId());
-
         } // end-method
 
         private void handleSingleFrameMessageFrame(SdlPacket packet) {
@@ -1427,7 +1590,7 @@ public class SdlProtocolBase {
             boolean isControlService = message.getSessionType().equals(SessionType.CONTROL);
             if (protocolVersion.getMajor() > 1 && !isControlService) {
                 BinaryFrameHeader binFrameHeader = BinaryFrameHeader.
-                        parseBinaryHeader(packet.payload);
+                        parseBinaryHeader(packet.payload, 0, (int)packet.getDataSize());
                 if(binFrameHeader == null) {
                     return;
                 }
@@ -1435,18 +1598,20 @@ public class SdlProtocolBase {
                 message.setRPCType(binFrameHeader.getRPCType());
                 message.setFunctionID(binFrameHeader.getFunctionID());
                 message.setCorrID(binFrameHeader.getCorrID());
+                //The payload belongs to this packet alone, so the message can point straight into it
                 if (binFrameHeader.getJsonSize() > 0){
-                    message.setData(binFrameHeader.getJsonData());
+                    message.setDataView(packet.payload, binFrameHeader.getJsonDataOffset(), binFrameHeader.getJsonSize());
                 }
-                if (binFrameHeader.getBulkData() != null){
-                    message.setBulkData(binFrameHeader.getBulkData());
+                if (binFrameHeader.getBulkDataLength() > 0){
+                    message.setBulkDataView(packet.payload, binFrameHeader.getBulkDataOffset(), binFrameHeader.getBulkDataLength());
                 }
-            } else {
+            } else if (packet.payload.length == packet.getDataSize()) {
                 message.setData(packet.payload);
+            } else {
+                //Decrypted payloads can be shorter than the array that holds them
+                message.setData(packet.payload, (int)packet.getDataSize());
             }
 
-            _assemblerForMessageID.remove(packet.getMessageId());
-
             try {
                 iSdlProtocol.onProtocolMessageReceived(message);
             } catch (Exception ex) {
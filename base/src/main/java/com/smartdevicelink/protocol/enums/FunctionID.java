@@ -33,8 +33,6 @@ package com.smartdevicelink.protocol.enums;
 
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map.Entry;
 
 public enum FunctionID{
     // DEPRECATED FUNCTIONS
@@ -133,7 +131,21 @@ public enum FunctionID{
 
     public static final int                 INVALID_ID = -1;
 
-    private static HashMap<String, Integer> functionMap;
+    private static final HashMap<String, FunctionID> enumMap;
+    private static final HashMap<Integer, String> nameMap;
+
+    static{
+        FunctionID[] values = values();
+        enumMap = new HashMap<>(values.length * 2);
+        nameMap = new HashMap<>(values.length * 2);
+        for(FunctionID value : values){
+            enumMap.put(value.JSON_NAME, value);
+            //Mocked functions all share the invalid id so they can't be looked up by it
+            if(value.ID != INVALID_ID){
+                nameMap.put(value.ID, value.JSON_NAME);
+            }
+        }
+    }
 
     private final int                       ID;
     private final String                    JSON_NAME;
@@ -152,37 +164,21 @@ public enum FunctionID{
         return this.JSON_NAME;
     }
 
-    private static void initFunctionMap(){
-        functionMap = new HashMap<String, Integer>(values().length);
-
-        for(FunctionID value : EnumSet.allOf(FunctionID.class)){
-            functionMap.put(value.toString(), value.getId());
-        }
-    }
-
     public static String getFunctionName(int i){
-        if(functionMap == null){
-            initFunctionMap();
-        }
-
-        Iterator<Entry<String, Integer>> iterator = functionMap.entrySet().iterator();
-        while(iterator.hasNext()){
-            Entry<String, Integer> thisEntry = iterator.next();
-            if(Integer.valueOf(i).equals(thisEntry.getValue())){
-                return thisEntry.getKey();
+        String name = nameMap.get(i);
+        if(name == null && i == INVALID_ID){
+            for(FunctionID value : EnumSet.allOf(FunctionID.class)){
+                if(value.ID == INVALID_ID){
+                    return value.JSON_NAME;
+                }
             }
         }
-
-        return null;
+        return name;
     }
 
     public static int getFunctionId(String functionName){
-        if(functionMap == null){
-            initFunctionMap();
-        }
-
-        Integer result = functionMap.get(functionName);
-        return ( result == null ) ? INVALID_ID : result;
+        FunctionID result = enumMap.get(functionName);
+        return ( result == null ) ? INVALID_ID : result.ID;
     }
 
     /**
@@ -191,11 +187,6 @@ public enum FunctionID{
      * @return FunctionID represents the equivalent enum value for the provided string
      */
     public static FunctionID getEnumForString(String name){
-        for(FunctionID value : EnumSet.allOf(FunctionID.class)) {
-            if(value.JSON_NAME.equals(name)){
-                return value;
-            }
-        }
-        return null;
+        return name != null ? enumMap.get(name) : null;
     }
 }
@@ -127,8 +127,7 @@ public class RPCMessage extends RPCStruct  {
 
 	@Override
 	public Object getObject(Class tClass, String key) {
-		Object obj = parameters.get(key);
-		return formatObject(tClass, obj);
+		return decodeObject(parameters, tClass, key);
 	}
 
 	// Common Object Getters
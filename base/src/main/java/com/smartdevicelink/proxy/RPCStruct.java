@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RPCStruct {
     public static final String KEY_BULK_DATA = "bulkData";
@@ -55,6 +56,10 @@ public class RPCStruct {
 	private boolean formatRequested = false;
 	private Version rpcSpecVersion = null;
 
+	//Reflection results are shared by all structs since they never change for a given class
+	private static final ConcurrentHashMap<Class<?>, Constructor<?>> constructorCache = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Object>> enumValueCache = new ConcurrentHashMap<>();
+
 
 	protected Hashtable<String, Object> store = null;
 	
@@ -228,8 +233,44 @@ public class RPCStruct {
 	}
 
 	public Object getObject(Class tClass, String key) {
-		Object obj = store.get(key);
-		return formatObject(tClass, obj);
+		return decodeObject(store, tClass, key);
+	}
+
+	/**
+	 * Formats the object stored for the key. If a hashtable, or list of hashtables, was decoded
+	 * into structs they replace the raw value in the table so the decoding only happens once.
+	 * @param table the hashtable the value is stored in
+	 * @param tClass a Class to cast Objects to
+	 * @param key the key of the value to retrieve
+	 * @return the formatted object or null if it could not be formatted
+	 */
+	Object decodeObject(Hashtable<String, Object> table, Class<?> tClass, String key){
+		Object obj = table.get(key);
+		Object result = formatObject(tClass, obj);
+		if(result != null && result != obj && isDecodedStruct(obj, result)){
+			synchronized (table){
+				//Make sure the value wasn't replaced while it was being decoded
+				if(table.get(key) == obj){
+					table.put(key, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param obj the raw value that was decoded
+	 * @param result the result of decoding the raw value
+	 * @return if the result holds all of the raw value as structs and can replace it in the store
+	 */
+	private static boolean isDecodedStruct(Object obj, Object result){
+		if(result instanceof RPCStruct){
+			return true;
+		}else if(obj instanceof List<?> && result instanceof List<?>){
+			List<?> resultList = (List<?>) result;
+			return resultList.size() == ((List<?>) obj).size() && resultList.get(0) instanceof RPCStruct;
+		}
+		return false;
 	}
 
 	// Helper methods
@@ -252,7 +293,7 @@ public class RPCStruct {
 			return getValueForString(tClass, (String) obj);
 		} else if (obj instanceof Hashtable) {
 			try {
-				Constructor constructor = tClass.getConstructor(Hashtable.class);
+				Constructor<?> constructor = getHashtableConstructor(tClass);
 				Object customObject = constructor.newInstance((Hashtable<String, Object>) obj);
 				if(formatRequested && customObject instanceof RPCStruct){
 					((RPCStruct)customObject).format(rpcSpecVersion,true);
@@ -273,7 +314,7 @@ public class RPCStruct {
 					Object customObject;
 					for (Object hashObj : list) {
 						try {
-							Constructor constructor = tClass.getConstructor(Hashtable.class);
+							Constructor<?> constructor = getHashtableConstructor(tClass);
 							customObject = constructor.newInstance((Hashtable<String, Object>) hashObj);
 							if(formatRequested
 									&& customObject != null
@@ -302,12 +343,49 @@ public class RPCStruct {
 		return null;
 	}
 
+	/**
+	 * @param tClass a Class that has a constructor taking a Hashtable
+	 * @return the constructor of the class that takes a Hashtable
+	 * @throws NoSuchMethodException if the class does not have such a constructor
+	 */
+	private static Constructor<?> getHashtableConstructor(Class<?> tClass) throws NoSuchMethodException {
+		Constructor<?> constructor = constructorCache.get(tClass);
+		if(constructor == null){
+			constructor = tClass.getConstructor(Hashtable.class);
+			constructorCache.put(tClass, constructor);
+		}
+		return constructor;
+	}
+
 	/**
 	 * @param tClass - a Class with a `valueForString(String s)` method that returns an Object for a given String
 	 * @param s - a String to be converted to an Object using a `valueForString(String s)` method
 	 * @return An Object converted using a `valueForString(String s)` method in the Class passed in, or a null object if such method does not exist
 	 */
 	protected Object getValueForString(Class tClass, String s){
+		if(!tClass.isEnum()){
+			return invokeValueForString(tClass, s);
+		}
+		//Enum values are cached per class so the reflective lookup only happens once per string
+		ConcurrentHashMap<String, Object> values = enumValueCache.get(tClass);
+		if(values == null){
+			values = new ConcurrentHashMap<>();
+			ConcurrentHashMap<String, Object> existing = enumValueCache.putIfAbsent(tClass, values);
+			if(existing != null){
+				values = existing;
+			}
+		}
+		Object value = values.get(s);
+		if(value == null){
+			value = invokeValueForString(tClass, s);
+			if(value != null){
+				values.put(s, value);
+			}
+		}
+		return value;
+	}
+
+	private static Object invokeValueForString(Class<?> tClass, String s){
 		Method valueForString = null;
 		try {
 			valueForString = tClass.getDeclaredMethod("valueForString", String.class);
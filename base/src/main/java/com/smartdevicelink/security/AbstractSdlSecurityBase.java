@@ -34,11 +34,27 @@ package com.smartdevicelink.security;
 import com.smartdevicelink.SdlConnection.SdlSession;
 import com.smartdevicelink.protocol.enums.SessionType;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 abstract class AbstractSdlSecurityBase {
-	
+
+	/**
+	 * The largest amount of plain data that fits in a single TLS record
+	 */
+	public static final int TLS_MAX_RECORD_SIZE = 16384;
+	// A TLS record header holds the content type (1 byte), version (2 bytes) and length (2 bytes)
+	private static final int TLS_RECORD_HEADER_SIZE = 5;
+	// The spec allows a record's ciphertext to be up to 2048 bytes larger than its plain data
+	private static final int TLS_MAX_RECORD_EXPANSION = 2048;
+	private static final int TLS_MAX_ENCRYPTED_RECORD_SIZE = TLS_RECORD_HEADER_SIZE + TLS_MAX_RECORD_SIZE + TLS_MAX_RECORD_EXPANSION;
+
+	private final Object ENCRYPT_LOCK = new Object();
+	private final Object DECRYPT_LOCK = new Object();
+	// Scratch space for the byte[] adapters, reused for every record of this session
+	private byte[] encryptInput, encryptOutput, decryptOutput;
+
 	protected SdlSession session = null;	
 	protected String appId = null;
 	protected List<String> makeList = null;
@@ -56,7 +72,168 @@ abstract class AbstractSdlSecurityBase {
 	public abstract Integer encryptData(byte[] inputData,byte[] outputData);
 	
     public abstract Integer decryptData(byte[] inputData,byte[] outputData);
-    
+
+    /**
+     * Encrypts the remaining bytes of the input buffers into the output buffer. Input larger than
+     * {@link #TLS_MAX_RECORD_SIZE} is split into multiple records that are written back to back.
+     * The default implementation runs each record through {@link #encryptData(byte[], byte[])}
+     * using scratch arrays that belong to this instance; libraries that can work with buffers
+     * directly should override this method.
+     * @param inputData the plain data, from position to limit of each buffer. The positions are
+     *                  not changed.
+     * @param outputData the buffer the encrypted records are written to, starting at its position.
+     *                   See {@link #getMaxEncryptedSize(int)} for the capacity it should have.
+     * @return the number of bytes written to the output buffer or null if encryption failed
+     */
+    public Integer encryptData(ByteBuffer[] inputData, ByteBuffer outputData) {
+        if (inputData == null || outputData == null) {
+            return null;
+        }
+        int startPosition = outputData.position();
+        synchronized (ENCRYPT_LOCK) {
+            if (encryptOutput == null) {
+                encryptOutput = new byte[TLS_MAX_ENCRYPTED_RECORD_SIZE];
+            }
+            int bufferIndex = 0;
+            int bufferOffset = 0;
+            int remaining = 0;
+            for (ByteBuffer buffer : inputData) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                int recordSize = Math.min(remaining, TLS_MAX_RECORD_SIZE);
+                byte[] record;
+                ByteBuffer current = inputData[bufferIndex];
+                if (current.hasArray() && current.arrayOffset() + current.position() + bufferOffset == 0
+                        && current.remaining() == recordSize && current.array().length == recordSize) {
+                    //The buffer already wraps exactly the bytes of this record
+                    record = current.array();
+                    bufferIndex++;
+                } else {
+                    if (recordSize == TLS_MAX_RECORD_SIZE) {
+                        if (encryptInput == null) {
+                            encryptInput = new byte[TLS_MAX_RECORD_SIZE];
+                        }
+                        record = encryptInput;
+                    } else {
+                        //The byte[] contract uses the array length as the input length
+                        record = new byte[recordSize];
+                    }
+                    int copied = 0;
+                    while (copied < recordSize) {
+                        current = inputData[bufferIndex];
+                        int count = Math.min(current.remaining() - bufferOffset, recordSize - copied);
+                        ByteBuffer view = current.duplicate();
+                        view.position(current.position() + bufferOffset);
+                        view.get(record, copied, count);
+                        copied += count;
+                        bufferOffset += count;
+                        if (bufferOffset == current.remaining()) {
+                            bufferIndex++;
+                            bufferOffset = 0;
+                        }
+                    }
+                }
+                Integer numBytes = encryptData(record, encryptOutput);
+                if (numBytes == null || numBytes <= 0 || numBytes > outputData.remaining()) {
+                    outputData.position(startPosition);
+                    return null;
+                }
+                outputData.put(encryptOutput, 0, numBytes);
+                remaining -= recordSize;
+            }
+        }
+        return outputData.position() - startPosition;
+    }
+
+    /**
+     * Encrypts the remaining bytes of the input buffer into the output buffer.
+     * @see #encryptData(ByteBuffer[], ByteBuffer)
+     */
+    public Integer encryptData(ByteBuffer inputData, ByteBuffer outputData) {
+        if (inputData == null) {
+            return null;
+        }
+        return encryptData(new ByteBuffer[]{inputData}, outputData);
+    }
+
+    /**
+     * Decrypts the remaining bytes of the input buffer into the output buffer. The input may hold
+     * several TLS records back to back; each of them is decrypted in order. The default
+     * implementation runs each record through {@link #decryptData(byte[], byte[])}; libraries
+     * that can work with buffers directly should override this method.
+     * @param inputData the encrypted records, from position to limit. The position is not changed.
+     * @param outputData the buffer the plain data is written to, starting at its position. A
+     *                   capacity equal to the size of the input is always enough.
+     * @return the number of bytes written to the output buffer or null if decryption failed
+     */
+    public Integer decryptData(ByteBuffer inputData, ByteBuffer outputData) {
+        if (inputData == null || outputData == null) {
+            return null;
+        }
+        int startPosition = outputData.position();
+        ByteBuffer input = inputData.duplicate();
+        synchronized (DECRYPT_LOCK) {
+            if (decryptOutput == null) {
+                decryptOutput = new byte[TLS_MAX_ENCRYPTED_RECORD_SIZE];
+            }
+            while (input.hasRemaining()) {
+                int recordSize = getRecordSize(input);
+                if (recordSize < 0) {
+                    //Not a series of whole records, so hand everything that is left over at once
+                    recordSize = input.remaining();
+                }
+                byte[] record;
+                if (input.hasArray() && input.arrayOffset() + input.position() == 0 && input.array().length == recordSize) {
+                    record = input.array();
+                    input.position(input.position() + recordSize);
+                } else {
+                    record = new byte[recordSize];
+                    input.get(record);
+                }
+                byte[] output = recordSize > decryptOutput.length ? new byte[recordSize] : decryptOutput;
+                Integer numBytes = decryptData(record, output);
+                if (numBytes == null || numBytes < 0 || numBytes > outputData.remaining()) {
+                    outputData.position(startPosition);
+                    return null;
+                }
+                outputData.put(output, 0, numBytes);
+            }
+        }
+        return outputData.position() - startPosition;
+    }
+
+    /**
+     * @param length the number of plain bytes to be encrypted
+     * @return the number of bytes an output buffer needs to hold the encrypted form of the data
+     */
+    public int getMaxEncryptedSize(int length) {
+        int records = (length + TLS_MAX_RECORD_SIZE - 1) / TLS_MAX_RECORD_SIZE;
+        return length + records * (TLS_RECORD_HEADER_SIZE + TLS_MAX_RECORD_EXPANSION);
+    }
+
+    /**
+     * Reads the size of the TLS record that starts at the position of the buffer
+     * @return the size of the record including its header or -1 if the buffer doesn't start with
+     * a complete record
+     */
+    private static int getRecordSize(ByteBuffer buffer) {
+        if (buffer.remaining() < TLS_RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int position = buffer.position();
+        int contentType = buffer.get(position) & 0xFF;
+        if (contentType < 20 || contentType > 24) {
+            return -1;
+        }
+        int length = ((buffer.get(position + 3) & 0xFF) << 8) | (buffer.get(position + 4) & 0xFF);
+        int recordSize = TLS_RECORD_HEADER_SIZE + length;
+        if (length > TLS_MAX_RECORD_SIZE + TLS_MAX_RECORD_EXPANSION || recordSize > buffer.remaining()) {
+            return -1;
+        }
+        return recordSize;
+    }
+
     public abstract void shutDown();
     
     public void resetParams() {
@@ -63,7 +63,7 @@ abstract public class AbstractPacketizer {
 		_serviceType = sType;
 		this._session = session;
 		if (this._session != null) {
-			bufferSize = this._session.getMtu();
+			bufferSize = (int) this._session.getMtu(_serviceType);
 			buffer = new byte[bufferSize];
 		}else{
 			throw new IllegalArgumentException("Session variable is null");
@@ -80,7 +80,7 @@ abstract public class AbstractPacketizer {
 		_wiproVersion = new Version(wiproVersion+".0.0");
 		this._session = session;
 		if (this._session != null) {
-			bufferSize = this._session.getMtu();
+			bufferSize = (int) this._session.getMtu(_serviceType);
 			buffer = new byte[bufferSize];
 		}else{
 			throw new IllegalArgumentException("Session variable is null");
@@ -96,7 +96,7 @@ abstract public class AbstractPacketizer {
 		_wiproVersion = protocolVersion;
 		this._session = session;
 		if (this._session != null) {
-			bufferSize = this._session.getMtu();
+			bufferSize = (int) this._session.getMtu(_serviceType);
 			buffer = new byte[bufferSize];
 		}else{
 			throw new IllegalArgumentException("Session variable is null");
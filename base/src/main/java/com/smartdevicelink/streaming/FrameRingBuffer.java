@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.streaming;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed number of frame slots shared by one producer (the encoder thread of the app) and one
+ * consumer (the packetizer thread).
+ * <p>
+ * Every slot keeps its array between frames, so once the slots have grown to the size of the
+ * largest frames no memory is allocated. The producer publishes frames with a volatile write and
+ * never waits for the consumer unless the ring is full. The consumer takes a frame by briefly
+ * owning the head index and swapping a spare slot into the ring, so a frame being sent is never
+ * overwritten. When the ring is full, the {@link OverflowPolicy} decides what happens.
+ */
+public class FrameRingBuffer {
+
+	public enum OverflowPolicy {
+		/**
+		 * The producer waits until the consumer takes a frame.
+		 */
+		BLOCK,
+		/**
+		 * The oldest queued frame that isn't a key frame is dropped. If only key frames are
+		 * queued, the oldest one is dropped.
+		 */
+		DROP_OLDEST_NON_IDR,
+		/**
+		 * All queued frames are dropped and new frames are dropped until the next key frame, so
+		 * the decoder never sees a frame that references a dropped one.
+		 */
+		DROP_UNTIL_IDR,
+	}
+
+	/**
+	 * A frame slot. Its contents are valid from {@link #beginWrite(int, boolean)} until the
+	 * consumer releases it.
+	 */
+	public static final class Frame {
+		private byte[] data = new byte[0];
+		private ByteBuffer buffer = ByteBuffer.wrap(data);
+		private int length;
+		private boolean keyFrame;
+		private long writeTimeNanos;
+
+		private void prepare(int length, boolean keyFrame) {
+			if (data.length < length) {
+				data = new byte[length];
+				buffer = ByteBuffer.wrap(data);
+			}
+			buffer.clear();
+			buffer.limit(length);
+			this.length = length;
+			this.keyFrame = keyFrame;
+			this.writeTimeNanos = System.nanoTime();
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * @return a buffer over the first {@link #getLength()} bytes of the data
+		 */
+		public ByteBuffer getBuffer() {
+			return buffer;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public boolean isKeyFrame() {
+			return keyFrame;
+		}
+
+		/**
+		 * @return the {@link System#nanoTime()} at which the producer started writing the frame
+		 */
+		public long getWriteTimeNanos() {
+			return writeTimeNanos;
+		}
+	}
+
+	// Set in the head index while one side rearranges the slots
+	private static final long LOCKED = 1L << 62;
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	// Times a side yields before parking, since the other side usually catches up within microseconds
+	private static final int SPIN_TRIES = 64;
+
+	private final Frame[] slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private volatile long tail;
+	private volatile OverflowPolicy overflowPolicy;
+	private volatile Thread waitingProducer;
+	private volatile Thread waitingConsumer;
+
+	// Owned by the consumer
+	private Frame spare = new Frame();
+
+	// Owned by the producer
+	private boolean waitingForKeyFrame = false;
+	private volatile long droppedFrames;
+	private volatile int maxQueuedFrames;
+
+	/**
+	 * @param capacity number of frames the ring holds, rounded up to a power of two
+	 * @param overflowPolicy what to do when a frame is written to a full ring
+	 */
+	public FrameRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Frame[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Frame();
+		}
+		mask = size - 1;
+		setOverflowPolicy(overflowPolicy);
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		if (overflowPolicy == null) {
+			throw new IllegalArgumentException("Overflow policy can't be null");
+		}
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return the number of frames waiting for the consumer
+	 */
+	public int getQueuedFrames() {
+		return (int) (tail - (head.get() & ~LOCKED));
+	}
+
+	/**
+	 * @return the largest number of frames that were queued at once
+	 */
+	public int getMaxQueuedFrames() {
+		return maxQueuedFrames;
+	}
+
+	/**
+	 * @return the number of frames dropped by the overflow policy
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	/* *******************************************************************************************
+	 * Producer
+	 *********************************************************************************************/
+
+	/**
+	 * Returns the slot the next frame is written to. The frame is queued once
+	 * {@link #commitWrite()} is called. Only one thread may write frames.
+	 * @param length size of the frame in bytes
+	 * @param keyFrame true if the frame can be decoded without the frames before it
+	 * @return the slot to write to, or null if the overflow policy drops this frame
+	 * @throws InterruptedException if the producer is interrupted while waiting for room
+	 */
+	public Frame beginWrite(int length, boolean keyFrame) throws InterruptedException {
+		if (waitingForKeyFrame) {
+			if (!keyFrame) {
+				droppedFrames++;
+				return null;
+			}
+			waitingForKeyFrame = false;
+		}
+
+		while (tail - (head.get() & ~LOCKED) > mask) {
+			switch (overflowPolicy) {
+				case DROP_OLDEST_NON_IDR:
+					dropOldest();
+					break;
+				case DROP_UNTIL_IDR:
+					droppedFrames += dropQueued();
+					if (!keyFrame) {
+						waitingForKeyFrame = true;
+						droppedFrames++;
+						return null;
+					}
+					break;
+				default:
+					waitForConsumer();
+					break;
+			}
+		}
+
+		Frame frame = slots[(int) tail & mask];
+		frame.prepare(length, keyFrame);
+		return frame;
+	}
+
+	/**
+	 * Queues the frame returned by the last call to {@link #beginWrite(int, boolean)}.
+	 */
+	public void commitWrite() {
+		long newTail = tail + 1;
+		tail = newTail;
+		int queued = (int) (newTail - (head.get() & ~LOCKED));
+		if (queued > maxQueuedFrames) {
+			maxQueuedFrames = queued;
+		}
+		Thread consumer = waitingConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Copies a frame into the ring.
+	 * @return true if the frame was queued, false if the overflow policy dropped it
+	 * @throws InterruptedException if the producer is interrupted while waiting for room
+	 */
+	public boolean write(byte[] data, int offset, int length, boolean keyFrame) throws InterruptedException {
+		Frame frame = beginWrite(length, keyFrame);
+		if (frame == null) {
+			return false;
+		}
+		System.arraycopy(data, offset, frame.data, 0, length);
+		commitWrite();
+		return true;
+	}
+
+	private void waitForConsumer() throws InterruptedException {
+		for (int i = 0; i < SPIN_TRIES; i++) {
+			if (tail - (head.get() & ~LOCKED) <= mask) {
+				return;
+			}
+			Thread.yield();
+		}
+		waitingProducer = Thread.currentThread();
+		try {
+			if (tail - (head.get() & ~LOCKED) > mask) {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		} finally {
+			waitingProducer = null;
+		}
+	}
+
+	/**
+	 * Drops the oldest queued frame that isn't a key frame, or the oldest frame if all are key frames.
+	 */
+	private void dropOldest() {
+		long h = lockHead();
+		long t = tail;
+		long victim = h;
+		for (long i = h; i < t; i++) {
+			if (!slots[(int) i & mask].keyFrame) {
+				victim = i;
+				break;
+			}
+		}
+		if (victim < t) {
+			// Move the frames before the victim up by one so the dropped slot becomes the free head slot
+			Frame dropped = slots[(int) victim & mask];
+			for (long i = victim; i > h; i--) {
+				slots[(int) i & mask] = slots[(int) (i - 1) & mask];
+			}
+			slots[(int) h & mask] = dropped;
+			h++;
+			droppedFrames++;
+		}
+		head.set(h);
+	}
+
+	/* *******************************************************************************************
+	 * Consumer
+	 *********************************************************************************************/
+
+	/**
+	 * Waits for the oldest queued frame. The frame belongs to the caller until it is passed to
+	 * {@link #release(Frame)}, which must happen before the next frame is taken. Only one thread
+	 * may take frames.
+	 * @throws InterruptedException if the consumer is interrupted while waiting
+	 */
+	public Frame take() throws InterruptedException {
+		int spins = SPIN_TRIES;
+		for (;;) {
+			Frame frame = poll();
+			if (frame != null) {
+				return frame;
+			}
+			if (spins-- > 0) {
+				Thread.yield();
+				continue;
+			}
+			waitingConsumer = Thread.currentThread();
+			try {
+				if (getQueuedFrames() == 0) {
+					LockSupport.parkNanos(this, PARK_NANOS);
+				}
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			} finally {
+				waitingConsumer = null;
+			}
+		}
+	}
+
+	/**
+	 * Takes the oldest queued frame without waiting.
+	 * @return the frame or null if none is queued
+	 * @see #take()
+	 */
+	public Frame poll() {
+		if (spare == null) {
+			throw new IllegalStateException("The previous frame was not released");
+		}
+		long h = lockHead();
+		if (h == tail) {
+			head.set(h);
+			return null;
+		}
+		int index = (int) h & mask;
+		Frame frame = slots[index];
+		slots[index] = spare;
+		spare = null;
+		head.set(h + 1);
+
+		Thread producer = waitingProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+		return frame;
+	}
+
+	/**
+	 * Gives a frame returned by {@link #take()} or {@link #poll()} back to the ring.
+	 */
+	public void release(Frame frame) {
+		spare = frame;
+	}
+
+	/**
+	 * Drops all queued frames. Unlike the other methods this may be called from any thread.
+	 */
+	public void clear() {
+		lockHead();
+		head.set(tail);
+		Thread producer = waitingProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+	}
+
+	/**
+	 * Drops all queued frames on behalf of the producer.
+	 * @return the number of frames dropped
+	 */
+	private int dropQueued() {
+		long h = lockHead();
+		long t = tail;
+		head.set(t);
+		return (int) (t - h);
+	}
+
+	/**
+	 * Sets the lock bit in the head index, waiting while the other side holds it.
+	 * @return the head index, which must be written back to unlock it
+	 */
+	private long lockHead() {
+		for (;;) {
+			long h = head.get();
+			if ((h & LOCKED) == 0 && head.compareAndSet(h, h | LOCKED)) {
+				return h;
+			}
+			Thread.yield();
+		}
+	}
+}
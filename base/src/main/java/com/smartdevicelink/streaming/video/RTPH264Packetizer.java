@@ -35,14 +35,16 @@ import com.smartdevicelink.protocol.ProtocolMessage;
 import com.smartdevicelink.protocol.enums.SessionType;
 import com.smartdevicelink.proxy.interfaces.IVideoStreamListener;
 import com.smartdevicelink.streaming.AbstractPacketizer;
+import com.smartdevicelink.streaming.FrameRingBuffer;
+import com.smartdevicelink.streaming.FrameRingBuffer.OverflowPolicy;
 import com.smartdevicelink.streaming.IStreamListener;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /*
  * Note for testing.
@@ -66,6 +68,8 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 	// By adding a buffer, we accept underlying transport being stuck for a short time. By setting
 	// a limit of the buffer size, we avoid buffer overflows when underlying transport is too slow.
 	private static final int MAX_QUEUE_SIZE = 256 * 1024;
+	// Number of frames mOutputQueue holds at least, regardless of the buffer size
+	private static final int MIN_QUEUE_FRAMES = 4;
 
 	private static final int FRAME_LENGTH_LEN = 2;
 	private static final int MAX_RTP_PACKET_SIZE = 65535;  // because length field is two bytes (RFC 4571)
@@ -86,10 +90,12 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 
 	private boolean mServiceProtected;
 	private Thread mThread;
-	private BlockingQueue<ByteBuffer> mOutputQueue;
+	private FrameRingBuffer mOutputQueue;
+	private volatile VideoBitrateController mBitrateController;
 	private volatile boolean mPaused;
 	private boolean mWaitForIDR;
 	private NALUnitReader mNALUnitReader;
+	private final List<ByteBuffer> mNALUnits = new ArrayList<ByteBuffer>();
 	private byte mPayloadType = 0;
 	private int mSSRC = 0;
 	private char mSequenceNum = 0;
@@ -119,7 +125,7 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 			bufferSize = MAX_DATA_SIZE_FOR_ENCRYPTED_SERVICE;
 		}
 
-		mOutputQueue = new LinkedBlockingQueue<ByteBuffer>(MAX_QUEUE_SIZE / bufferSize);
+		mOutputQueue = new FrameRingBuffer(Math.max(MIN_QUEUE_FRAMES, MAX_QUEUE_SIZE / bufferSize), OverflowPolicy.BLOCK);
 		mNALUnitReader = new NALUnitReader();
 		mPayloadType = DEFAULT_RTP_PAYLOAD_TYPE;
 
@@ -159,6 +165,38 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 		mSSRC = ssrc;
 	}
 
+	/**
+	 * Sets what happens to frames that arrive while the output queue is full.
+	 *
+	 * By default the encoder thread is blocked until the queue has room.
+	 *
+	 * @param policy The overflow policy
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		mOutputQueue.setOverflowPolicy(policy);
+	}
+
+	/**
+	 * @return The number of frames waiting to be sent
+	 */
+	public int getQueuedFrameCount() {
+		return mOutputQueue.getQueuedFrames();
+	}
+
+	/**
+	 * @return The number of frames dropped by the overflow policy
+	 */
+	public long getDroppedFrameCount() {
+		return mOutputQueue.getDroppedFrames();
+	}
+
+	/**
+	 * @param controller the controller that is told about every frame handed to the session, or null
+	 */
+	public void setBitrateController(VideoBitrateController controller) {
+		mBitrateController = controller;
+	}
+
 	/**
 	 * Starts this packetizer.
 	 *
@@ -218,29 +256,44 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 	public void run() {
 
 		while (mThread != null && !mThread.isInterrupted()) {
-			ByteBuffer frame;
+			FrameRingBuffer.Frame slot;
 			try {
-				frame = mOutputQueue.take();
+				slot = mOutputQueue.take();
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 				break;
 			}
+			ByteBuffer frame = slot.getBuffer();
 
+			// The buffer holds all RTP packets of a video frame. Each packet is sent in its own SDL
+			// frames, split further if it is larger than the buffer size.
 			while (frame.hasRemaining()) {
-				int len = frame.remaining() > bufferSize ? bufferSize : frame.remaining();
+				int packetEnd = frame.position() + FRAME_LENGTH_LEN + (frame.getShort(frame.position()) & 0xFFFF);
 
-				ProtocolMessage pm = new ProtocolMessage();
-				pm.setSessionID(_rpcSessionID);
-				pm.setSessionType(_serviceType);
-				pm.setFunctionID(0);
-				pm.setCorrID(0);
-				pm.setData(frame.array(), frame.arrayOffset() + frame.position(), len);
-				pm.setPayloadProtected(mServiceProtected);
+				while (frame.position() < packetEnd) {
+					int len = packetEnd - frame.position() > bufferSize ? bufferSize : packetEnd - frame.position();
 
-				_streamListener.sendStreamPacket(pm);
+					ProtocolMessage pm = new ProtocolMessage();
+					pm.setSessionID(_rpcSessionID);
+					pm.setSessionType(_serviceType);
+					pm.setFunctionID(0);
+					pm.setCorrID(0);
+					pm.setData(frame.array(), frame.arrayOffset() + frame.position(), len);
+					pm.setPayloadProtected(mServiceProtected);
 
-				frame.position(frame.position() + len);
+					_streamListener.sendStreamPacket(pm);
+
+					frame.position(frame.position() + len);
+				}
 			}
+
+			VideoBitrateController controller = mBitrateController;
+			if (controller != null) {
+				controller.onFrameSent(slot.getLength(), System.nanoTime() - slot.getWriteTimeNanos(), mOutputQueue.getDroppedFrames());
+			}
+
+			// The messages hold copies of the data, so the slot can be reused right away
+			mOutputQueue.release(slot);
 		}
 
 		// XXX: This is added to sync with StreamPacketizer. Actually it shouldn't be here since
@@ -279,20 +332,70 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 		}
 
 		ByteBuffer nalUnit;
-
+		mNALUnits.clear();
 		while ((nalUnit = nalUnitReader.getNalUnit()) != null) {
+			mNALUnits.add(nalUnit);
+		}
+		// The last NAL unit of the frame is marked even when it gets dropped
+		int lastIndex = mNALUnits.size() - 1;
+
+		int frameSize = 0;
+		boolean keyFrame = false;
+		for (int i = 0; i < mNALUnits.size(); i++) {
+			nalUnit = mNALUnits.get(i);
 			if (mWaitForIDR) {
 				if (isIDR(nalUnit)) {
 					mWaitForIDR = false;
 				} else {
+					mNALUnits.set(i, null);
 					continue;
 				}
 			}
-			outputRTPFrames(nalUnit, ptsInUs, nalUnitReader.hasConsumedAll());
+			keyFrame |= isIDR(nalUnit) || isParameterSet(nalUnit);
+			frameSize += getRTPFramesSize(nalUnit.remaining());
+		}
+
+		if (frameSize > 0) {
+			// All RTP packets of the frame are written straight into a slot of the output queue
+			FrameRingBuffer.Frame slot;
+			try {
+				slot = mOutputQueue.beginWrite(frameSize, keyFrame);
+			} catch (InterruptedException e) {
+				slot = null;
+				Thread.currentThread().interrupt();
+			}
+			if (slot != null) {
+				ByteBuffer frame = slot.getBuffer();
+				frame.order(ByteOrder.BIG_ENDIAN);
+				for (int i = 0; i < mNALUnits.size(); i++) {
+					nalUnit = mNALUnits.get(i);
+					if (nalUnit != null) {
+						putRTPFrames(frame, nalUnit, ptsInUs, i == lastIndex);
+					}
+				}
+				frame.flip();
+				mOutputQueue.commitWrite();
+			}
+		}
+		mNALUnits.clear();
+	}
+
+	/**
+	 * @param nalUnitLength length of a NAL unit
+	 * @return the number of bytes needed to frame the NAL unit as one or more RTP packets
+	 */
+	private static int getRTPFramesSize(int nalUnitLength) {
+		if (RTP_HEADER_LEN + nalUnitLength > MAX_RTP_PACKET_SIZE) {
+			// The first byte of the NAL unit is carried in the FU indicator and header
+			int maxPayloadLength = MAX_RTP_PACKET_SIZE - (RTP_HEADER_LEN + FU_INDICATOR_LEN + FU_HEADER_LEN);
+			int payloadLength = nalUnitLength - 1;
+			int fragments = (payloadLength + maxPayloadLength - 1) / maxPayloadLength;
+			return payloadLength + fragments * (FRAME_LENGTH_LEN + RTP_HEADER_LEN + FU_INDICATOR_LEN + FU_HEADER_LEN);
 		}
+		return FRAME_LENGTH_LEN + RTP_HEADER_LEN + nalUnitLength;
 	}
 
-	private boolean outputRTPFrames(ByteBuffer nalUnit, long ptsInUs, boolean isLast) {
+	private void putRTPFrames(ByteBuffer frame, ByteBuffer nalUnit, long ptsInUs, boolean isLast) {
 		if (RTP_HEADER_LEN + nalUnit.remaining() > MAX_RTP_PACKET_SIZE) {
 			// Split into multiple Fragmentation Units ([5.8] in RFC 6184)
 			byte firstByte = nalUnit.get();
@@ -306,45 +409,28 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 					lastFragment = true;
 				}
 
-				ByteBuffer frame = allocateRTPFrame(FU_INDICATOR_LEN + FU_HEADER_LEN + payloadLength,
-				                                    false, isLast, ptsInUs);
+				// Only the last packet of the frame is marked ([5.1] in RFC 6184)
+				putRTPHeader(frame, FU_INDICATOR_LEN + FU_HEADER_LEN + payloadLength,
+				             false, isLast && lastFragment, ptsInUs);
 				// FU indicator
 				frame.put((byte)((firstByte & 0xE0) | TYPE_FU_A));
 				// FU header
 				frame.put((byte)((firstFragment ? 0x80 : lastFragment ? 0x40 : 0) | (firstByte & 0x1F)));
 				// FU payload
-				frame.put(nalUnit.array(), nalUnit.position(), payloadLength);
+				frame.put(nalUnit.array(), nalUnit.arrayOffset() + nalUnit.position(), payloadLength);
 				nalUnit.position(nalUnit.position() + payloadLength);
-				frame.flip();
-
-				try {
-					mOutputQueue.put(frame);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					return false;
-				}
 
 				firstFragment = false;
 			}
 		} else {
 			// Use Single NAL Unit Packet ([5.6] in RFC 6184)
-			ByteBuffer frame = allocateRTPFrame(nalUnit.remaining(), false, isLast, ptsInUs);
+			putRTPHeader(frame, nalUnit.remaining(), false, isLast, ptsInUs);
 			frame.put(nalUnit);
-			frame.flip();
-
-			try {
-				mOutputQueue.put(frame);
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				return false;
-			}
 		}
-
-		return true;
 	}
 
-	private ByteBuffer allocateRTPFrame(int rtpPayloadLen,
-	                                    boolean hasPadding, boolean isLast, long ptsInUs) {
+	private void putRTPHeader(ByteBuffer frame, int rtpPayloadLen,
+	                          boolean hasPadding, boolean isLast, long ptsInUs) {
 		if (rtpPayloadLen <= 0) {
 			throw new IllegalArgumentException("Invalid rtpPayloadLen value: " + rtpPayloadLen);
 		}
@@ -358,8 +444,7 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 		}
 		int ptsIn90kHz = (int)(ptsInUs * 9 / 100) + mInitialPTS;
 
-		ByteBuffer frame = ByteBuffer.allocate(FRAME_LENGTH_LEN + packetLength);
-		frame.order(ByteOrder.BIG_ENDIAN);
+		int start = frame.position();
 		frame.putShort((short)packetLength);
 
 		// Version = 2, Padding = hasPadding, Extension = 0, CSRC count = 0
@@ -370,12 +455,11 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 			.putInt(ptsIn90kHz)
 			.putInt(mSSRC);
 
-		if (frame.position() != FRAME_LENGTH_LEN + RTP_HEADER_LEN) {
+		if (frame.position() - start != FRAME_LENGTH_LEN + RTP_HEADER_LEN) {
 			throw new RuntimeException("Data size in ByteBuffer mismatch");
 		}
 
 		mSequenceNum++;
-		return frame;
 	}
 
 	private static boolean isIDR(ByteBuffer nalUnit) {
@@ -387,6 +471,12 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 		return nalUnitType == 5;
 	}
 
+	private static boolean isParameterSet(ByteBuffer nalUnit) {
+		// SPS and PPS are needed to decode the IDR frame that follows them
+		byte nalUnitType = (byte)(nalUnit.get(nalUnit.position()) & 0x1F);
+		return nalUnitType == 7 || nalUnitType == 8;
+	}
+
 
 	private static int SKIP_TABLE[] = new int[256];
 	static {
@@ -406,6 +496,8 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 		private byte[] mData;
 		private int mOffset;
 		private int mLimit;
+		// Holds the contents of direct buffers, reused for every frame
+		private byte[] mCopyBuffer;
 
 		NALUnitReader() {
 		}
@@ -441,12 +533,15 @@ public class RTPH264Packetizer extends AbstractPacketizer implements IVideoStrea
 				// mark the buffer as consumed
 				data.position(data.position() + data.remaining());
 			} else {
-				byte[] buffer = new byte[data.remaining()];
-				data.get(buffer);
+				int length = data.remaining();
+				if (mCopyBuffer == null || mCopyBuffer.length < length) {
+					mCopyBuffer = new byte[length];
+				}
+				data.get(mCopyBuffer, 0, length);
 
-				mData = buffer;
+				mData = mCopyBuffer;
 				mOffset = 0;
-				mLimit = buffer.length;
+				mLimit = length;
 			}
 		}
 
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.streaming.video;
+
+import com.smartdevicelink.proxy.rpc.ImageResolution;
+import com.smartdevicelink.proxy.rpc.VideoStreamingCapability;
+import com.smartdevicelink.util.DebugTool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the video stream to the bandwidth the transport actually delivers.
+ * <p>
+ * The packetizer reports every frame it has handed to the transport together with the time the
+ * frame spent between the encoder and the transport. Service data ACKs from the head unit and
+ * congestion reports from the packet scheduler are fed in as well. Twice a second the controller
+ * compares these and:
+ * <ul>
+ *     <li>lowers the bitrate towards the measured drain rate when frames start to queue up, are
+ *     dropped or the transport reports congestion</li>
+ *     <li>raises the bitrate again in small steps once frames flow through without delay</li>
+ *     <li>lowers the frame rate and then the resolution when the bitrate gets too low for the
+ *     current format, and restores them in reverse order once there is room</li>
+ * </ul>
+ * The bitrate, frame rate and resolution never exceed the parameters the controller was created
+ * with, which should already be updated with the {@link VideoStreamingCapability} of the head unit.
+ * <p>
+ * {@link Listener} methods are called on the thread that reported the measurement, which is the
+ * packetizer or transport thread, so they should only hand the new values to the encoder.
+ * <p>
+ * Only the javaSE library feeds the controller so far, through its SdlSession once the controller
+ * is set with {@code LifecycleManager.setVideoBitrateController}.
+ */
+public class VideoBitrateController {
+	private static final String TAG = "VideoBitrateController";
+
+	public interface Listener {
+		/**
+		 * Called when only the bitrate has changed, which encoders can usually apply on the fly.
+		 * @param bitrate the new bitrate in bits per second
+		 */
+		void onBitrateChanged(int bitrate);
+
+		/**
+		 * Called when the frame rate or resolution has changed, which usually requires the
+		 * encoder to be reconfigured.
+		 * @param parameters a copy of the parameters the encoder should use, including the bitrate
+		 */
+		void onVideoStreamingParametersChanged(VideoStreamingParameters parameters);
+	}
+
+	/**
+	 * Source of the monotonic time the measurements are taken with, replaced in tests.
+	 */
+	interface Clock {
+		long nanoTime();
+	}
+
+	private static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	private static final long EVALUATION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+	// The frame rate and resolution are changed at most this often, since the encoder has to restart
+	private static final long FORMAT_CHANGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(4);
+	// Frames reaching the transport later than this mean the queue is building up
+	private static final long HIGH_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+	// Frames reaching the transport faster than this mean there is room for more data. Slow links
+	// need tens of milliseconds just to send a frame, so this can't be much lower.
+	private static final long LOW_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	// Number of intervals without delay before the bitrate is raised
+	private static final int STABLE_INTERVALS_BEFORE_INCREASE = 4;
+	private static final float DECREASE_FACTOR = 0.85f;
+	private static final float INCREASE_FACTOR = 1.08f;
+	private static final int MIN_INCREASE = 32000;
+	// Bits per pixel below which the picture gets too blurry and the format is lowered
+	private static final float LOW_BITS_PER_PIXEL = 0.04f;
+	// Bits per pixel the raised format must still get, so it isn't lowered again right away
+	private static final float RESTORE_BITS_PER_PIXEL = 0.06f;
+	private static final float FRAME_RATE_STEP = 2f / 3f;
+	private static final float RESOLUTION_STEP = 0.75f;
+
+	private final Listener listener;
+	private final Clock clock;
+	private final VideoStreamingParameters maxParameters;
+	private int minBitrate;
+	private int minFrameRate;
+	private float minResolutionScale = 0.5f;
+
+	// Current output, guarded by this
+	private int bitrate;
+	private int frameRate;
+	private int resolutionLevel;
+	private long lastFormatChange;
+	private int stableIntervals;
+
+	// Measurements of the current interval, guarded by this
+	private long intervalStart;
+	private long sentBytes;
+	private int sentFrames;
+	private long latencySum;
+	private long ackedBytes;
+	private long lastDroppedFrames;
+	private boolean framesDropped;
+	private volatile boolean congested;
+
+	// Results of the last interval
+	private volatile int drainRate;
+	private volatile long averageLatency;
+
+	/**
+	 * @param parameters the parameters the stream is started with, which are also the upper bounds
+	 * @param listener the listener that applies changes to the encoder
+	 */
+	public VideoBitrateController(VideoStreamingParameters parameters, Listener listener) {
+		this(parameters, listener, SYSTEM_CLOCK);
+	}
+
+	VideoBitrateController(VideoStreamingParameters parameters, Listener listener, Clock clock) {
+		if (parameters == null || listener == null) {
+			throw new IllegalArgumentException("Parameters and listener can't be null");
+		}
+		this.listener = listener;
+		this.clock = clock;
+		this.maxParameters = copyOf(parameters, parameters.getBitrate(), parameters.getFrameRate(),
+				parameters.getResolution().getResolutionWidth(), parameters.getResolution().getResolutionHeight());
+		this.minBitrate = Math.max(1, maxParameters.getBitrate() / 10);
+		this.minFrameRate = Math.min(10, maxParameters.getFrameRate());
+		reset();
+	}
+
+	/**
+	 * Lowers the upper bounds to what the head unit supports.
+	 * @param capability the video streaming capability returned from the SystemCapabilityManager
+	 */
+	public synchronized void update(VideoStreamingCapability capability) {
+		if (capability == null) {
+			return;
+		}
+		Integer maxBitrate = capability.getMaxBitrate();
+		if (maxBitrate != null && maxBitrate > 0 && maxBitrate * 1000 < maxParameters.getBitrate()) { // kbps
+			maxParameters.setBitrate(maxBitrate * 1000);
+			minBitrate = Math.min(minBitrate, maxParameters.getBitrate());
+		}
+		ImageResolution resolution = capability.getPreferredResolution();
+		if (resolution != null && resolution.getResolutionWidth() != null && resolution.getResolutionHeight() != null
+				&& resolution.getResolutionWidth() > 0 && resolution.getResolutionHeight() > 0) {
+			maxParameters.getResolution().setResolutionWidth(Math.min(resolution.getResolutionWidth(), maxParameters.getResolution().getResolutionWidth()));
+			maxParameters.getResolution().setResolutionHeight(Math.min(resolution.getResolutionHeight(), maxParameters.getResolution().getResolutionHeight()));
+		}
+		bitrate = Math.min(bitrate, maxParameters.getBitrate());
+	}
+
+	/**
+	 * @param bitrate the lowest bitrate in bits per second, 10% of the maximum by default
+	 */
+	public synchronized void setMinimumBitrate(int bitrate) {
+		minBitrate = Math.max(1, Math.min(bitrate, maxParameters.getBitrate()));
+	}
+
+	/**
+	 * @param frameRate the lowest frame rate, 10 by default
+	 */
+	public synchronized void setMinimumFrameRate(int frameRate) {
+		minFrameRate = Math.max(1, Math.min(frameRate, maxParameters.getFrameRate()));
+	}
+
+	/**
+	 * @param scale the smallest resolution relative to the maximum resolution, 0.5 by default
+	 */
+	public synchronized void setMinimumResolutionScale(float scale) {
+		minResolutionScale = Math.max(0.1f, Math.min(scale, 1f));
+	}
+
+	/**
+	 * Goes back to the maximum parameters and forgets all measurements. Called when a new
+	 * stream is started.
+	 */
+	public synchronized void reset() {
+		bitrate = maxParameters.getBitrate();
+		frameRate = maxParameters.getFrameRate();
+		resolutionLevel = 0;
+		stableIntervals = 0;
+		congested = false;
+		drainRate = 0;
+		averageLatency = 0;
+		lastFormatChange = clock.nanoTime();
+		startInterval(lastFormatChange);
+	}
+
+	/* *******************************************************************************************
+	 * Measurements
+	 *********************************************************************************************/
+
+	/**
+	 * Called by the packetizer once a frame has been handed to the transport.
+	 * @param length size of the frame in bytes
+	 * @param latencyNanos time between the encoder queueing the frame and the transport accepting it
+	 * @param droppedFrames total number of frames the packetizer has dropped so far
+	 */
+	public void onFrameSent(int length, long latencyNanos, long droppedFrames) {
+		long now = clock.nanoTime();
+		synchronized (this) {
+			sentBytes += length;
+			sentFrames++;
+			latencySum += latencyNanos;
+			if (droppedFrames < lastDroppedFrames) {
+				// A new packetizer has started counting from zero
+				lastDroppedFrames = droppedFrames;
+			}
+			if (droppedFrames > lastDroppedFrames) {
+				lastDroppedFrames = droppedFrames;
+				framesDropped = true;
+			}
+		}
+		evaluate(now, false);
+	}
+
+	/**
+	 * Called when the head unit acknowledges video data.
+	 * @param dataSize the number of bytes acknowledged
+	 */
+	public synchronized void onServiceDataAck(int dataSize) {
+		ackedBytes += dataSize;
+	}
+
+	/**
+	 * Called when the transport's queue for the video service fills up or drains. The bitrate is
+	 * lowered right away when it becomes congested, without waiting for the next interval.
+	 * @param congested true if the queue is filling up, false once it has drained again
+	 */
+	public void onCongestionChanged(boolean congested) {
+		this.congested = congested;
+		if (congested) {
+			evaluate(clock.nanoTime(), true);
+		}
+	}
+
+	/* *******************************************************************************************
+	 * Results
+	 *********************************************************************************************/
+
+	public synchronized int getBitrate() {
+		return bitrate;
+	}
+
+	public synchronized int getFrameRate() {
+		return frameRate;
+	}
+
+	/**
+	 * @return a copy of the parameters the encoder should currently use
+	 */
+	public synchronized VideoStreamingParameters getVideoStreamingParameters() {
+		return copyOf(maxParameters, bitrate, frameRate, getWidth(resolutionLevel), getHeight(resolutionLevel));
+	}
+
+	/**
+	 * @return the rate at which the transport took video data during the last interval in bits per second
+	 */
+	public int getDrainRate() {
+		return drainRate;
+	}
+
+	/**
+	 * @return the average time frames took to reach the transport during the last interval in milliseconds
+	 */
+	public long getAverageLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(averageLatency);
+	}
+
+	/* *******************************************************************************************
+	 * Decisions
+	 *********************************************************************************************/
+
+	private void evaluate(long now, boolean force) {
+		boolean bitrateChanged;
+		boolean formatChanged;
+		int newBitrate;
+		VideoStreamingParameters parameters = null;
+
+		synchronized (this) {
+			long elapsed = now - intervalStart;
+			if (elapsed < EVALUATION_INTERVAL_NANOS && !(force && elapsed > 0)) {
+				return;
+			}
+
+			int rate = (int) Math.min(Integer.MAX_VALUE, sentBytes * 8 * TimeUnit.SECONDS.toNanos(1) / elapsed);
+			if (ackedBytes > 0) {
+				// The head unit tells what actually arrived, which may be less than the transport took
+				rate = (int) Math.min(rate, Math.min(Integer.MAX_VALUE, ackedBytes * 8 * TimeUnit.SECONDS.toNanos(1) / elapsed));
+			}
+			long latency = sentFrames > 0 ? latencySum / sentFrames : 0;
+			drainRate = rate;
+			averageLatency = latency;
+
+			newBitrate = bitrate;
+			if (congested || framesDropped || latency > HIGH_LATENCY_NANOS) {
+				// Back off below what the transport managed to send, so the queue can drain. If the
+				// bitrate is already below that, the queue is draining and nothing needs to change.
+				if (sentBytes > 0) {
+					newBitrate = Math.min(bitrate, (int) (rate * DECREASE_FACTOR));
+				} else {
+					newBitrate = (int) (bitrate * DECREASE_FACTOR);
+				}
+				stableIntervals = 0;
+			} else if (sentFrames > 0 && latency < LOW_LATENCY_NANOS) {
+				if (++stableIntervals >= STABLE_INTERVALS_BEFORE_INCREASE) {
+					newBitrate = Math.max((int) (bitrate * INCREASE_FACTOR), bitrate + MIN_INCREASE);
+				}
+			} else {
+				stableIntervals = 0;
+			}
+			newBitrate = Math.max(minBitrate, Math.min(newBitrate, maxParameters.getBitrate()));
+			bitrateChanged = newBitrate != bitrate;
+			bitrate = newBitrate;
+
+			formatChanged = now - lastFormatChange >= FORMAT_CHANGE_INTERVAL_NANOS && adaptFormat();
+			if (formatChanged) {
+				lastFormatChange = now;
+				parameters = copyOf(maxParameters, bitrate, frameRate, getWidth(resolutionLevel), getHeight(resolutionLevel));
+			}
+			startInterval(now);
+		}
+
+		if (formatChanged) {
+			DebugTool.logInfo(TAG + ": Changing video to " + parameters);
+			listener.onVideoStreamingParametersChanged(parameters);
+		} else if (bitrateChanged) {
+			listener.onBitrateChanged(newBitrate);
+		}
+	}
+
+	/**
+	 * Lowers the frame rate and then the resolution when there are too few bits per pixel for the
+	 * current bitrate, or restores them in reverse order when there are enough.
+	 * @return true if the frame rate or resolution has changed
+	 */
+	private boolean adaptFormat() {
+		if (getBitsPerPixel(frameRate, resolutionLevel) < LOW_BITS_PER_PIXEL) {
+			int lowerFrameRate = Math.max(minFrameRate, (int) (frameRate * FRAME_RATE_STEP));
+			if (lowerFrameRate < frameRate) {
+				frameRate = lowerFrameRate;
+				return true;
+			}
+			if (getScale(resolutionLevel + 1) >= minResolutionScale) {
+				resolutionLevel++;
+				return true;
+			}
+		} else if (resolutionLevel > 0) {
+			if (getBitsPerPixel(frameRate, resolutionLevel - 1) >= RESTORE_BITS_PER_PIXEL) {
+				resolutionLevel--;
+				return true;
+			}
+		} else if (frameRate < maxParameters.getFrameRate()) {
+			int higherFrameRate = Math.min(maxParameters.getFrameRate(), (int) Math.ceil(frameRate / FRAME_RATE_STEP));
+			if (getBitsPerPixel(higherFrameRate, 0) >= RESTORE_BITS_PER_PIXEL) {
+				frameRate = higherFrameRate;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private float getBitsPerPixel(int frameRate, int level) {
+		return (float) bitrate / ((float) getWidth(level) * getHeight(level) * frameRate);
+	}
+
+	private static float getScale(int level) {
+		return (float) Math.pow(RESOLUTION_STEP, level);
+	}
+
+	private int getWidth(int level) {
+		// Encoders expect even dimensions
+		return Math.max(2, (int) (maxParameters.getResolution().getResolutionWidth() * getScale(level)) & ~1);
+	}
+
+	private int getHeight(int level) {
+		return Math.max(2, (int) (maxParameters.getResolution().getResolutionHeight() * getScale(level)) & ~1);
+	}
+
+	private void startInterval(long now) {
+		intervalStart = now;
+		sentBytes = 0;
+		sentFrames = 0;
+		latencySum = 0;
+		ackedBytes = 0;
+		framesDropped = false;
+	}
+
+	private static VideoStreamingParameters copyOf(VideoStreamingParameters parameters, int bitrate, int frameRate, int width, int height) {
+		return new VideoStreamingParameters(parameters.getDisplayDensity(), frameRate, bitrate,
+				parameters.getInterval(), new ImageResolution(width, height), parameters.getFormat());
+	}
+}
@@ -34,12 +34,13 @@ package com.smartdevicelink.transport;
 
 import com.smartdevicelink.protocol.SdlPacket;
 import com.smartdevicelink.transport.enums.TransportType;
+import com.smartdevicelink.transport.utl.ByteBufferUtil;
 import com.smartdevicelink.transport.utl.TransportRecord;
 import com.smartdevicelink.util.DebugTool;
 
 import java.nio.ByteBuffer;
 
-public abstract class CustomTransport implements TransportInterface{
+public abstract class CustomTransport implements GatheringTransportInterface{
     private static final String TAG = "CustomTransport";
 
     final TransportRecord transportRecord;
@@ -62,27 +63,18 @@ public abstract class CustomTransport implements TransportInterface{
     /**
      * Call this method when reading a byte array off the transport
      * @param bytes the bytes read off the transport
+     * @param offset index of the first byte that was read
+     * @param length number of bytes that were read
      */
     public synchronized void onByteArrayReceived (byte[] bytes, int offset, int length) {
 
         if(bytes != null && bytes.length > 0){
-            boolean stateProgress;
-            for(int i = 0; i < length; i++){
-                stateProgress = psm.handleByte(bytes[i]);
-                if (!stateProgress) {//We are trying to weed through the bad packet info until we get something
-                    //Log.w(TAG, "Packet State Machine did not move forward from state - "+ psm.getState()+". PSM being Reset.");
-                    psm.reset();
-                }
-
-                if (psm.getState() == SdlPsm.FINISHED_STATE) {
-                    SdlPacket packet = psm.getFormedPacket();
-                    if (transportCallback != null && packet != null) {
-                        packet.setTransportRecord(transportRecord);
-                        transportCallback.onPacketReceived(packet);
-                    }
-                    //We put a trace statement in the message read so we can avoid all the extra bytes
-                    psm.reset();
-                }
+            int consumed;
+            while(length > 0){
+                consumed = psm.handleBytes(bytes, offset, length);
+                offset += consumed;
+                length -= consumed;
+                handlePsmState();
             }
 
         }
@@ -94,29 +86,34 @@ public abstract class CustomTransport implements TransportInterface{
      */
     public synchronized void onByteBufferReceived (ByteBuffer message) {
         if(message != null){
-            boolean stateProgress;
             while (message.hasRemaining()) {
-                stateProgress = psm.handleByte(message.get());
-                if (!stateProgress) {//We are trying to weed through the bad packet info until we get something
-
-                    //Log.w(TAG, "Packet State Machine did not move forward from state - "+ psm.getState()+". PSM being Reset.");
-                    psm.reset();
-                }
-
-                if (psm.getState() == SdlPsm.FINISHED_STATE) {
-                    SdlPacket packet = psm.getFormedPacket();
-                    if (transportCallback != null && packet != null) {
-                        packet.setTransportRecord(transportRecord);
-                        transportCallback.onPacketReceived(packet);
-                    }
-                    //We put a trace statement in the message read so we can avoid all the extra bytes
-                    psm.reset();
-                }
+                psm.handleBytes(message);
+                handlePsmState();
             }
 
         }
     }
 
+    /**
+     * Checks the state of the packet state machine after a range of bytes has been handled. If a packet
+     * has been formed it is passed along to the transport callback.
+     */
+    private void handlePsmState(){
+        int state = psm.getState();
+        if (state == SdlPsm.ERROR_STATE) {//We are trying to weed through the bad packet info until we get something
+            //Log.w(TAG, "Packet State Machine did not move forward. PSM being Reset.");
+            psm.reset();
+        } else if (state == SdlPsm.FINISHED_STATE) {
+            SdlPacket packet = psm.getFormedPacket();
+            if (transportCallback != null && packet != null) {
+                packet.setTransportRecord(transportRecord);
+                transportCallback.onPacketReceived(packet);
+            }
+            //We put a trace statement in the message read so we can avoid all the extra bytes
+            psm.reset();
+        }
+    }
+
     @Override
     public void start() {
         if (transportCallback != null) {
@@ -133,13 +130,30 @@ public abstract class CustomTransport implements TransportInterface{
 
     @Override
     public void write(SdlPacket packet) {
-        byte[] bytes = packet.constructPacket();
-        if(bytes != null && bytes.length > 0) {
-            try {
-                onWrite(bytes, 0, bytes.length);
-            } catch (Exception exc) {
-                DebugTool.logError("Error attempting to write packet", exc);
+        if(packet != null) {
+            write(packet.constructPacketBuffers());
+        }
+    }
+
+    /**
+     * Writes out a packet that has been split across a set of buffers. A packet held in a single
+     * array backed buffer is passed straight to {@link #onWrite(byte[], int, int)}, otherwise the
+     * buffers are gathered into one array first. Integrators writing to a gathering channel can
+     * override this method to avoid that copy.
+     * @param buffers the buffers that together make up one packet
+     */
+    @Override
+    public void write(ByteBuffer... buffers) {
+        if(buffers == null || buffers.length == 0){
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBufferUtil.gather(true, buffers);
+            if(buffer.hasRemaining()) {
+                onWrite(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
             }
+        } catch (Exception exc) {
+            DebugTool.logError("Error attempting to write packet", exc);
         }
     }
 
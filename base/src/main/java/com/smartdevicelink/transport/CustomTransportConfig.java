@@ -37,11 +37,26 @@ import com.smartdevicelink.transport.enums.TransportType;
 public class CustomTransportConfig extends BaseTransportConfig {
 
     final CustomTransport customTransport;
+    PacketScheduler.Factory packetSchedulerFactory;
 
     public CustomTransportConfig(CustomTransport customTransport){
         this.customTransport = customTransport;
     }
 
+    public PacketScheduler.Factory getPacketSchedulerFactory() {
+        return packetSchedulerFactory;
+    }
+
+    /**
+     * Set the factory for the schedulers that will order outgoing packets before they are written to
+     * the transport. By default packets are written directly from the sending thread. Each connection
+     * made with this config gets its own scheduler.
+     * @param packetSchedulerFactory the factory to create schedulers with, or null to write packets directly
+     */
+    public void setPacketSchedulerFactory(PacketScheduler.Factory packetSchedulerFactory) {
+        this.packetSchedulerFactory = packetSchedulerFactory;
+    }
+
     @Override
     public TransportType getTransportType() {
         return TransportType.CUSTOM;
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.smartdevicelink.transport;
+
+import android.util.Log;
+import com.smartdevicelink.transport.utl.ByteBufferUtil;
+import com.smartdevicelink.transport.utl.SSLWebSocketFactoryGenerator;
+import com.smartdevicelink.util.DebugTool;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketServerFactory;
+import org.java_websocket.handshake.ClientHandshake;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A web socket server that hosts any number of SDL connections on a single port. Unlike
+ * {@link WebSocketServer}, which only ever tracks one socket, each connection accepted by this server
+ * is wrapped in its own {@link CustomTransport}, giving it a separate packet state machine and
+ * transport record. The {@link ConnectionListener} is handed that transport when the connection
+ * opens so an {@code SdlManager} can be created for it using a {@link CustomTransportConfig}.
+ * <p>
+ * All connections share one selector thread and a fixed number of worker threads that decode
+ * incoming frames. Messages from a single connection are always decoded on the same worker thread.
+ * Configs created through {@link #createTransportConfig(CustomTransport)} also share a single
+ * thread that writes outgoing packets.
+ */
+public class MultiplexingWebSocketServer extends org.java_websocket.server.WebSocketServer {
+    private static final String TAG = "MultiplexingWebSocketServer";
+
+    final WebSocketServerConfig config;
+    final ConnectionListener connectionListener;
+    final ConcurrentHashMap<WebSocket, WebSocketConnection> connections;
+    final ExecutorService packetWriterExecutor;
+    final PacketScheduler.Factory packetSchedulerFactory;
+
+    /**
+     * Creates a server that uses one worker thread per available processor to decode messages
+     * @param config the config used for the port, connection lost timeout, and SSL settings
+     * @param connectionListener the listener that will be informed of each new and closed connection
+     */
+    public MultiplexingWebSocketServer(WebSocketServerConfig config, ConnectionListener connectionListener){
+        this(config, Runtime.getRuntime().availableProcessors(), connectionListener);
+    }
+
+    /**
+     * @param config the config used for the port, connection lost timeout, and SSL settings
+     * @param workerThreads the number of threads used to decode messages across all connections
+     * @param connectionListener the listener that will be informed of each new and closed connection
+     */
+    public MultiplexingWebSocketServer(WebSocketServerConfig config, int workerThreads, ConnectionListener connectionListener){
+        super(new InetSocketAddress(config.port), workerThreads);
+
+        this.config = config;
+        this.connectionListener = connectionListener;
+        this.connections = new ConcurrentHashMap<>();
+        this.packetWriterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SdlPacketWriter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.packetSchedulerFactory = new PriorityPacketScheduler.Factory(packetWriterExecutor);
+        this.setConnectionLostTimeout(config.connectionLostTimeout);
+        if(config.getSslConfig() != null){
+            WebSocketServerFactory factory = SSLWebSocketFactoryGenerator.generateWebSocketServer(config.getSslConfig());
+            if(factory!=null){
+                this.setWebSocketFactory(factory);
+            }else{
+                DebugTool.logError("MultiplexingWebSocketServer: Unable to generate SSL Web Socket Server Factory");
+            }
+        }
+    }
+
+    /**
+     * @return the number of connections that are currently open
+     */
+    public int getConnectionCount(){
+        return connections.size();
+    }
+
+    /**
+     * @return the transports for all connections that are currently open
+     */
+    public Collection<? extends CustomTransport> getConnectionTransports(){
+        return connections.values();
+    }
+
+    /**
+     * Creates the config for an SdlManager that will serve one of this server's connections. Its
+     * packet scheduler writes from the thread shared by all connections of this server.
+     * @param transport the transport that was passed to {@link ConnectionListener#onConnectionOpened(CustomTransport)}
+     * @return a config for the transport
+     */
+    public CustomTransportConfig createTransportConfig(CustomTransport transport){
+        CustomTransportConfig transportConfig = new CustomTransportConfig(transport);
+        transportConfig.setPacketSchedulerFactory(packetSchedulerFactory);
+        return transportConfig;
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        this.stop(500);
+    }
+
+    @Override
+    public void stop(int timeout) throws InterruptedException {
+        super.stop(timeout);
+        packetWriterExecutor.shutdown();
+    }
+
+    @Override
+    public void onStart() {
+        Log.i(TAG, "onStart");
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, ClientHandshake clientHandshake) {
+        InetSocketAddress remoteAddress = webSocket.getRemoteSocketAddress();
+        WebSocketConnection connection = new WebSocketConnection(webSocket, remoteAddress != null ? remoteAddress.toString() : "");
+        connections.put(webSocket, connection);
+        DebugTool.logInfo("MultiplexingWebSocketServer: connection opened " + connection.getTransportRecord().getAddress());
+
+        if(connectionListener != null){
+            connectionListener.onConnectionOpened(connection);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket webSocket, int code, String reason, boolean remote) {
+        WebSocketConnection connection = connections.remove(webSocket);
+        if(connection == null){
+            return;
+        }
+        DebugTool.logInfo("MultiplexingWebSocketServer: connection closed " + connection.getTransportRecord().getAddress() + " code - " + code + " remote - " + remote);
+
+        connection.onTerminated(reason);
+        if(connectionListener != null){
+            connectionListener.onConnectionClosed(connection);
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String s) {
+        DebugTool.logError("Incorrect message type received, dropping. - String: " + s);
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, ByteBuffer message) {
+        WebSocketConnection connection = connections.get(webSocket);
+        if(connection != null){
+            connection.onByteBufferReceived(message);
+        }
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Exception e) {
+        //A null socket means the error came from the server itself rather than a connection
+        if(webSocket == null){
+            Log.e(TAG, "Web socket server on port " + config.port + " failed", e);
+            return;
+        }
+        WebSocketConnection connection = connections.get(webSocket);
+        if(connection != null){
+            Log.e(TAG, "Error on connection " + connection.getTransportRecord().getAddress(), e);
+            connection.onError();
+        }else{
+            Log.e(TAG, "Error on unknown connection " + webSocket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    /**
+     * Listener used to hand each accepted connection to the integrator
+     */
+    public interface ConnectionListener{
+        /**
+         * Called when a new connection has been opened. The supplied transport should be used to create
+         * a {@link CustomTransportConfig} for the SdlManager that will serve this connection, preferably
+         * through {@link MultiplexingWebSocketServer#createTransportConfig(CustomTransport)}.
+         * @param transport the transport for the newly opened connection
+         */
+        void onConnectionOpened(CustomTransport transport);
+
+        /**
+         * Called after a connection has been closed and its transport has reported the termination
+         * @param transport the transport for the connection that was closed
+         */
+        void onConnectionClosed(CustomTransport transport);
+    }
+
+    /**
+     * A transport for a single connection of the multiplexing server
+     */
+    static class WebSocketConnection extends CustomTransport{
+        final WebSocket webSocket;
+        final AtomicBoolean terminated = new AtomicBoolean(false);
+
+        WebSocketConnection(WebSocket webSocket, String address){
+            super(address);
+            this.webSocket = webSocket;
+        }
+
+        @Override
+        public void stop() {
+            if(webSocket.isOpen()){
+                //The server will report the termination once the socket has closed
+                webSocket.close();
+            }else{
+                onTerminated("Transport told to stop");
+            }
+        }
+
+        /**
+         * Reports the termination of the connection. Closing the session in response to the
+         * termination stops this transport again, so it is only ever reported once.
+         */
+        void onTerminated(String reason){
+            if(terminated.compareAndSet(false, true) && transportCallback != null){
+                transportCallback.onConnectionTerminated(reason);
+            }
+        }
+
+        /**
+         * Sends the packet as a single binary message. The web socket library queues the buffer, so
+         * the buffers are never reused.
+         * @param buffers the buffers that together make up one packet
+         */
+        @Override
+        public void write(ByteBuffer... buffers) {
+            if(buffers == null || buffers.length == 0 || !webSocket.isOpen()){
+                return;
+            }
+            webSocket.send(ByteBufferUtil.gather(false, buffers));
+        }
+
+        @Override
+        public void onWrite(byte[] bytes, int offset, int length) {
+            if(webSocket.isOpen()) {
+                webSocket.send(ByteBuffer.wrap(bytes, offset, length));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019, Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.protocol.enums.SessionType;
+
+/**
+ * Decides the order in which outgoing packets are written to a transport. A scheduler owns the
+ * thread that performs the writes, so callers only hand packets over and are free to continue.
+ */
+public interface PacketScheduler {
+
+    /**
+     * Starts writing scheduled packets with the supplied writer
+     * @param writer the writer that will be given each packet in the order it should be sent
+     */
+    void start(PacketWriter writer);
+
+    /**
+     * Queues a packet to be written. Frames of a single message must be scheduled in order and will
+     * be written in that order. This method may block when the queue for the packet's service is full.
+     * @param packet the packet to be written
+     */
+    void schedule(SdlPacket packet);
+
+    /**
+     * Stops accepting packets and stops writing once the packets that were already scheduled have
+     * been written. Implementations may give up on those packets after a timeout.
+     */
+    void stop();
+
+    /**
+     * @param listener a listener that should be informed when a service becomes congested
+     */
+    void addCongestionListener(CongestionListener listener);
+
+    /**
+     * @param listener a listener that was previously added
+     */
+    void removeCongestionListener(CongestionListener listener);
+
+    interface Factory {
+        /**
+         * A scheduler serves a single connection, so a new one is created for every connection
+         * made with a transport config
+         * @return a new scheduler that hasn't been started
+         */
+        PacketScheduler createPacketScheduler();
+    }
+
+    interface PacketWriter {
+        /**
+         * Writes the packet out to the transport. Only ever called from the scheduler's writer thread.
+         * @param packet the packet to write
+         */
+        void writePacket(SdlPacket packet);
+    }
+
+    interface CongestionListener {
+        /**
+         * Called when the amount of data queued for a service crosses its high or low watermark.
+         * Producers of large amounts of data, like video and audio encoders, can use this to adjust
+         * their rate.
+         * @param serviceType the service whose queue has changed state
+         * @param congested true if the queue is filling up, false once it has drained again
+         */
+        void onCongestionChanged(SessionType serviceType, boolean congested);
+    }
+}
@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2019, Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.util.DebugTool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules packets with a queue per service. Control packets are written ahead of the other
+ * services. The rest of the services share the transport through weighted round robin so that RPCs,
+ * then audio, then video get the largest share while bulk data still makes progress:
+ * <ul>
+ * <li>RPC - 8 packets per round</li>
+ * <li>PCM - 4 packets per round</li>
+ * <li>NAV - 2 packets per round</li>
+ * <li>BULK_DATA - 1 packet per round</li>
+ * </ul>
+ * Packets are only reordered where it is safe to do so. Within a session:
+ * <ul>
+ * <li>A control packet is written after every packet the session scheduled before it, and packets
+ * scheduled after it wait until it has been written. An EndService can't overtake the data of
+ * the service it ends.</li>
+ * <li>Encrypted packets are written in the order they were scheduled, whatever their service. They
+ * were encrypted in that order by a security context that is shared by all services.</li>
+ * </ul>
+ * The audio, video and bulk data queues are bounded by size. Scheduling a packet for one of those
+ * services blocks until there is room, which slows the producer down to the rate of the transport.
+ * Control and RPC packets are never blocked.
+ * <p>
+ * By default each scheduler writes from its own thread. Schedulers created with an {@link Executor}
+ * instead write from tasks run by that executor, so many connections can share a small number of
+ * writer threads. A task writes at most {@link #WRITE_BATCH} packets before giving the executor's
+ * thread to the next connection.
+ */
+public class PriorityPacketScheduler implements PacketScheduler {
+    private static final String TAG = "PriorityPacketScheduler";
+
+    private static final int CONTROL = 0, RPC = 1, PCM = 2, NAV = 3, BULK_DATA = 4;
+    private static final int QUEUE_COUNT = 5;
+    private static final SessionType[] SERVICE_TYPES = {SessionType.CONTROL, SessionType.RPC, SessionType.PCM, SessionType.NAV, SessionType.BULK_DATA};
+    private static final int[] WEIGHTS = {0, 8, 4, 2, 1};
+    private static final int UNBOUNDED = -1;
+    private static final int WRITE_BATCH = 32;
+
+    public static final int DEFAULT_AUDIO_CAPACITY = 256 * 1024;
+    public static final int DEFAULT_VIDEO_CAPACITY = 1024 * 1024;
+    public static final int DEFAULT_BULK_DATA_CAPACITY = 1024 * 1024;
+    /**
+     * How long {@link #stop()} waits for the packets that were already scheduled to be written
+     */
+    public static final long DRAIN_TIMEOUT = 2000;
+
+    private final Object QUEUE_LOCK = new Object();
+    private final List<ArrayDeque<QueuedPacket>> queues;
+    private final HashMap<Integer, SessionOrder> sessions = new HashMap<>();
+    private final long[] queuedBytes = new long[QUEUE_COUNT];
+    private final long[] capacities;
+    private final boolean[] congested = new boolean[QUEUE_COUNT];
+    private final Object CONGESTION_LOCK = new Object();
+    private final boolean[] reportedCongested = new boolean[QUEUE_COUNT];
+    private int currentQueue = RPC, credits = WEIGHTS[RPC];
+    private long nextSequence;
+
+    private final CopyOnWriteArrayList<CongestionListener> congestionListeners = new CopyOnWriteArrayList<>();
+    private PacketWriter writer;
+    private Thread writerThread;
+    private boolean running, accepting;
+    private final Executor writerExecutor;
+    private boolean writeTaskQueued;
+    // The thread that is writing a packet taken off the queues, or null
+    private Thread writingThread;
+
+    public PriorityPacketScheduler(){
+        this(DEFAULT_AUDIO_CAPACITY, DEFAULT_VIDEO_CAPACITY, DEFAULT_BULK_DATA_CAPACITY);
+    }
+
+    /**
+     * @param writerExecutor the executor that will run the write tasks of this scheduler. It can be
+     *                       shared with other schedulers.
+     */
+    public PriorityPacketScheduler(Executor writerExecutor){
+        this(DEFAULT_AUDIO_CAPACITY, DEFAULT_VIDEO_CAPACITY, DEFAULT_BULK_DATA_CAPACITY, writerExecutor);
+    }
+
+    /**
+     * @param audioCapacity the number of bytes of audio that can be queued before scheduling blocks
+     * @param videoCapacity the number of bytes of video that can be queued before scheduling blocks
+     * @param bulkDataCapacity the number of bytes of bulk data that can be queued before scheduling blocks
+     */
+    public PriorityPacketScheduler(int audioCapacity, int videoCapacity, int bulkDataCapacity){
+        this(audioCapacity, videoCapacity, bulkDataCapacity, null);
+    }
+
+    /**
+     * @param audioCapacity the number of bytes of audio that can be queued before scheduling blocks
+     * @param videoCapacity the number of bytes of video that can be queued before scheduling blocks
+     * @param bulkDataCapacity the number of bytes of bulk data that can be queued before scheduling blocks
+     * @param writerExecutor the executor that will run the write tasks of this scheduler, or null to
+     *                       write from a thread owned by this scheduler
+     */
+    public PriorityPacketScheduler(int audioCapacity, int videoCapacity, int bulkDataCapacity, Executor writerExecutor){
+        this.writerExecutor = writerExecutor;
+        queues = new ArrayList<>(QUEUE_COUNT);
+        for(int i = 0; i < QUEUE_COUNT; i++){
+            queues.add(new ArrayDeque<QueuedPacket>());
+        }
+        capacities = new long[]{UNBOUNDED, UNBOUNDED, audioCapacity, videoCapacity, bulkDataCapacity};
+    }
+
+    @Override
+    public void start(PacketWriter writer) {
+        synchronized (QUEUE_LOCK){
+            if(running){
+                return;
+            }
+            this.writer = writer;
+            running = true;
+            accepting = true;
+            if(writerExecutor != null){
+                return;
+            }
+            writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writePackets();
+                }
+            }, "SdlPacketWriter");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    @Override
+    public void schedule(SdlPacket packet) {
+        if(packet == null){
+            return;
+        }
+        int queue = getQueue(packet.getServiceType());
+        long size = getSize(packet);
+        boolean congestionChanged, queueWriteTask;
+        synchronized (QUEUE_LOCK){
+            long capacity = capacities[queue];
+            //A packet is always let through when its queue is empty, even if it is larger than the capacity
+            while(accepting && capacity != UNBOUNDED && queuedBytes[queue] > 0 && queuedBytes[queue] + size > capacity){
+                try {
+                    QUEUE_LOCK.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if(!accepting){
+                DebugTool.logWarning(TAG + ": Scheduler isn't running, dropping packet");
+                return;
+            }
+            queues.get(queue).add(createQueuedPacket(packet, size));
+            queuedBytes[queue] += size;
+            congestionChanged = updateCongestion(queue);
+            QUEUE_LOCK.notifyAll();
+            queueWriteTask = writerExecutor != null && !writeTaskQueued;
+            if(queueWriteTask){
+                writeTaskQueued = true;
+            }
+        }
+        if(congestionChanged){
+            notifyCongestion(queue);
+        }
+        if(queueWriteTask){
+            queueWriteTask();
+        }
+    }
+
+    /**
+     * Stops accepting packets and waits up to {@link #DRAIN_TIMEOUT} for the packets that were
+     * already scheduled to be written, so that the last messages of a session, like an
+     * UnregisterAppInterface, still reach the transport. When called from the thread that is writing
+     * a packet, e.g. because the transport failed, the remaining packets are dropped right away.
+     */
+    @Override
+    public void stop() {
+        int dropped = 0;
+        synchronized (QUEUE_LOCK){
+            accepting = false;
+            //Producers waiting for room give up
+            QUEUE_LOCK.notifyAll();
+
+            Thread current = Thread.currentThread();
+            if(current != writerThread && current != writingThread){
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT);
+                long remaining;
+                while(running && (writingThread != null || !sessions.isEmpty())
+                        && (remaining = deadline - System.nanoTime()) > 0){
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(QUEUE_LOCK, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            running = false;
+            for(int i = 0; i < QUEUE_COUNT; i++){
+                dropped += queues.get(i).size();
+                queues.get(i).clear();
+                queuedBytes[i] = 0;
+                congested[i] = false;
+            }
+            sessions.clear();
+            writerThread = null;
+            QUEUE_LOCK.notifyAll();
+        }
+        if(dropped > 0){
+            DebugTool.logWarning(TAG + ": Stopped before " + dropped + " packets could be written");
+        }
+        for(int i = 0; i < QUEUE_COUNT; i++){
+            notifyCongestion(i);
+        }
+    }
+
+    @Override
+    public void addCongestionListener(CongestionListener listener) {
+        if(listener != null){
+            congestionListeners.addIfAbsent(listener);
+        }
+    }
+
+    @Override
+    public void removeCongestionListener(CongestionListener listener) {
+        congestionListeners.remove(listener);
+    }
+
+    /**
+     * @param serviceType the service to check
+     * @return the number of bytes currently waiting to be written for the service
+     */
+    public long getQueuedBytes(SessionType serviceType){
+        synchronized (QUEUE_LOCK){
+            return queuedBytes[getQueue(serviceType.getValue())];
+        }
+    }
+
+    private void writePackets(){
+        while(true){
+            QueuedPacket next;
+            int queue;
+            boolean congestionChanged;
+            PacketWriter writer;
+            synchronized (QUEUE_LOCK){
+                finishWrite();
+                queue = nextQueue();
+                while(isCurrentWriter() && queue < 0){
+                    try {
+                        QUEUE_LOCK.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    queue = nextQueue();
+                }
+                if(!isCurrentWriter()){
+                    return;
+                }
+                next = takePacket(queue);
+                congestionChanged = updateCongestion(queue);
+                writer = this.writer;
+                QUEUE_LOCK.notifyAll();
+            }
+            if(congestionChanged){
+                notifyCongestion(queue);
+            }
+            try{
+                writer.writePacket(next.packet);
+            }catch (Exception e){
+                DebugTool.logError(TAG + ": Error writing packet", e);
+            }
+        }
+    }
+
+    /**
+     * Hands the write task to the executor. Only one write task is ever queued or running at a time,
+     * which keeps the packets of this scheduler in order.
+     */
+    private void queueWriteTask(){
+        try{
+            writerExecutor.execute(writeTask);
+        }catch (RejectedExecutionException e){
+            DebugTool.logError(TAG + ": Writer executor rejected the write task", e);
+            synchronized (QUEUE_LOCK){
+                writeTaskQueued = false;
+            }
+        }
+    }
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            for(int i = 0; i < WRITE_BATCH; i++){
+                QueuedPacket next;
+                int queue;
+                boolean congestionChanged;
+                PacketWriter writer;
+                synchronized (QUEUE_LOCK){
+                    finishWrite();
+                    queue = running ? nextQueue() : -1;
+                    if(queue < 0){
+                        writeTaskQueued = false;
+                        return;
+                    }
+                    next = takePacket(queue);
+                    congestionChanged = updateCongestion(queue);
+                    writer = PriorityPacketScheduler.this.writer;
+                    QUEUE_LOCK.notifyAll();
+                }
+                if(congestionChanged){
+                    notifyCongestion(queue);
+                }
+                try{
+                    writer.writePacket(next.packet);
+                }catch (Exception e){
+                    DebugTool.logError(TAG + ": Error writing packet", e);
+                }
+            }
+            synchronized (QUEUE_LOCK){
+                finishWrite();
+            }
+            //Let the other schedulers sharing the executor write before continuing
+            queueWriteTask();
+        }
+    };
+
+    /**
+     * A writer thread left over from before a restart must not keep writing alongside the new one.
+     * Must be called while holding the queue lock.
+     */
+    private boolean isCurrentWriter(){
+        return running && writerThread == Thread.currentThread();
+    }
+
+    /**
+     * Marks the packet the current thread took off the queues as written, which {@link #stop()} may
+     * be waiting for. Must be called while holding the queue lock.
+     */
+    private void finishWrite(){
+        if(writingThread != null){
+            writingThread = null;
+            QUEUE_LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Wraps a packet with what is needed to keep it in order with the rest of its session. Must be
+     * called while holding the queue lock.
+     */
+    private QueuedPacket createQueuedPacket(SdlPacket packet, long size){
+        SessionOrder session = sessions.get(packet.getSessionId());
+        if(session == null){
+            session = new SessionOrder(packet.getSessionId());
+            sessions.put(packet.getSessionId(), session);
+        }
+        boolean control = packet.getServiceType() == SdlPacket.SERVICE_TYPE_CONTROL;
+        QueuedPacket queuedPacket = new QueuedPacket(packet, session, nextSequence++, size, control, control || packet.isEncrypted());
+        if(control){
+            queuedPacket.earlierPackets = session.queuedPackets;
+            session.controlPackets.add(queuedPacket);
+        }
+        if(queuedPacket.ordered){
+            session.orderedPackets.add(queuedPacket);
+        }
+        session.queuedPackets++;
+        return queuedPacket;
+    }
+
+    /**
+     * Removes the next packet from a queue and records that it's about to be written. Must be
+     * called while holding the queue lock.
+     */
+    private QueuedPacket takePacket(int queue){
+        QueuedPacket queuedPacket = queues.get(queue).poll();
+        queuedBytes[queue] -= queuedPacket.size;
+        writingThread = Thread.currentThread();
+
+        SessionOrder session = queuedPacket.session;
+        if(queuedPacket.ordered){
+            session.orderedPackets.poll();
+        }
+        if(queuedPacket.control){
+            session.controlPackets.poll();
+        }
+        //Every control packet still queued for the session was scheduled after this packet
+        for(QueuedPacket controlPacket : session.controlPackets){
+            controlPacket.earlierPackets--;
+        }
+        if(--session.queuedPackets == 0){
+            sessions.remove(session.sessionId);
+        }
+        return queuedPacket;
+    }
+
+    /**
+     * Checks if the packet at the head of a queue may be written now without overtaking a packet of
+     * its session that it must stay behind. Must be called while holding the queue lock.
+     */
+    private boolean isWritable(int queue){
+        QueuedPacket queuedPacket = queues.get(queue).peek();
+        if(queuedPacket == null){
+            return false;
+        }
+        SessionOrder session = queuedPacket.session;
+        QueuedPacket controlPacket = session.controlPackets.peek();
+        if(controlPacket != null && controlPacket.sequence < queuedPacket.sequence){
+            //Waiting on an earlier control packet
+            return false;
+        }
+        if(queuedPacket.control && queuedPacket.earlierPackets > 0){
+            return false;
+        }
+        return !queuedPacket.ordered || session.orderedPackets.peek() == queuedPacket;
+    }
+
+    /**
+     * Picks the queue the next packet should be taken from. The oldest queued packet can always be
+     * written, so this only returns -1 when there is nothing to write. Must be called while holding
+     * the queue lock.
+     * @return the index of the queue or -1 if no packet can be written
+     */
+    private int nextQueue(){
+        if(isWritable(CONTROL)){
+            return CONTROL;
+        }
+        //Visit each weighted queue at most once, plus the one currently being served
+        for(int i = 0; i < QUEUE_COUNT; i++){
+            if(credits > 0 && isWritable(currentQueue)){
+                credits--;
+                return currentQueue;
+            }
+            currentQueue = currentQueue == BULK_DATA ? RPC : currentQueue + 1;
+            credits = WEIGHTS[currentQueue];
+        }
+        return -1;
+    }
+
+    /**
+     * Updates the congestion state of a queue. Must be called while holding the queue lock.
+     * @return true if the congestion state of the queue changed
+     */
+    private boolean updateCongestion(int queue){
+        long capacity = capacities[queue];
+        if(capacity == UNBOUNDED){
+            return false;
+        }
+        if(!congested[queue] && queuedBytes[queue] >= capacity * 3 / 4){
+            congested[queue] = true;
+            return true;
+        }else if(congested[queue] && queuedBytes[queue] <= capacity / 4){
+            congested[queue] = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Informs the listeners of the current congestion state of a queue. The state may have changed
+     * again since the caller saw it, so it is read again here and only reported if it differs from
+     * the last reported state. This keeps the listeners from seeing the changes out of order.
+     */
+    private void notifyCongestion(int queue){
+        synchronized (CONGESTION_LOCK){
+            boolean isCongested;
+            synchronized (QUEUE_LOCK){
+                isCongested = congested[queue];
+            }
+            if(isCongested == reportedCongested[queue]){
+                return;
+            }
+            reportedCongested[queue] = isCongested;
+            for(CongestionListener listener : congestionListeners){
+                listener.onCongestionChanged(SERVICE_TYPES[queue], isCongested);
+            }
+        }
+    }
+
+    private static int getQueue(int serviceType){
+        switch (serviceType){
+            case SdlPacket.SERVICE_TYPE_CONTROL:
+                return CONTROL;
+            case SdlPacket.SERVICE_TYPE_PCM:
+                return PCM;
+            case SdlPacket.SERVICE_TYPE_VIDEO:
+                return NAV;
+            case SdlPacket.SERVICE_TYPE_BULK_DATA:
+                return BULK_DATA;
+            default:
+                return RPC;
+        }
+    }
+
+    private static long getSize(SdlPacket packet){
+        return packet.getDataSize() + SdlPacket.HEADER_SIZE;
+    }
+
+    private static class QueuedPacket {
+        final SdlPacket packet;
+        final SessionOrder session;
+        final long sequence, size;
+        final boolean control;
+        // Control and encrypted packets, which have to be written in the order they were scheduled
+        final boolean ordered;
+        // For control packets, the number of packets of the session scheduled earlier that are still queued
+        int earlierPackets;
+
+        QueuedPacket(SdlPacket packet, SessionOrder session, long sequence, long size, boolean control, boolean ordered){
+            this.packet = packet;
+            this.session = session;
+            this.sequence = sequence;
+            this.size = size;
+            this.control = control;
+            this.ordered = ordered;
+        }
+    }
+
+    /**
+     * The packets of one session that are queued and have to stay in order
+     */
+    private static class SessionOrder {
+        final int sessionId;
+        final ArrayDeque<QueuedPacket> controlPackets = new ArrayDeque<>();
+        final ArrayDeque<QueuedPacket> orderedPackets = new ArrayDeque<>();
+        int queuedPackets;
+
+        SessionOrder(int sessionId){
+            this.sessionId = sessionId;
+        }
+    }
+
+    /**
+     * Creates a new {@link PriorityPacketScheduler} for every connection made with a transport config
+     */
+    public static class Factory implements PacketScheduler.Factory {
+        private final int audioCapacity, videoCapacity, bulkDataCapacity;
+        private final Executor writerExecutor;
+
+        public Factory(){
+            this(DEFAULT_AUDIO_CAPACITY, DEFAULT_VIDEO_CAPACITY, DEFAULT_BULK_DATA_CAPACITY, null);
+        }
+
+        /**
+         * @param writerExecutor the executor that will run the write tasks of every scheduler this
+         *                       factory creates
+         */
+        public Factory(Executor writerExecutor){
+            this(DEFAULT_AUDIO_CAPACITY, DEFAULT_VIDEO_CAPACITY, DEFAULT_BULK_DATA_CAPACITY, writerExecutor);
+        }
+
+        /**
+         * @see PriorityPacketScheduler#PriorityPacketScheduler(int, int, int, Executor)
+         */
+        public Factory(int audioCapacity, int videoCapacity, int bulkDataCapacity, Executor writerExecutor){
+            this.audioCapacity = audioCapacity;
+            this.videoCapacity = videoCapacity;
+            this.bulkDataCapacity = bulkDataCapacity;
+            this.writerExecutor = writerExecutor;
+        }
+
+        @Override
+        public PacketScheduler createPacketScheduler() {
+            return new PriorityPacketScheduler(audioCapacity, videoCapacity, bulkDataCapacity, writerExecutor);
+        }
+    }
+}
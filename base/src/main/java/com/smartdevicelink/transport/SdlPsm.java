@@ -33,6 +33,8 @@ package com.smartdevicelink.transport;
 
 import com.smartdevicelink.protocol.SdlPacket;
 
+import java.nio.ByteBuffer;
+
 import static com.smartdevicelink.protocol.SdlProtocol.V1_HEADER_SIZE;
 import static com.smartdevicelink.protocol.SdlProtocol.V1_V2_MTU_SIZE;
 
@@ -92,6 +94,68 @@ public class SdlPsm{
 		}
 		return true;
 	}
+
+	/**
+	 * Feeds a range of bytes into the state machine. Header bytes are still walked through the
+	 * state transitions one at a time, but once the data pump state is reached the payload is
+	 * copied over in bulk. Processing stops as soon as a packet is finished or an error is found
+	 * so the caller can retrieve the packet or reset the state machine before continuing.
+	 * @param bytes the array that holds the incoming bytes
+	 * @param offset index of the first byte to be handled
+	 * @param length number of bytes available to be handled
+	 * @return the number of bytes that were consumed by the state machine
+	 */
+	public int handleBytes(byte[] bytes, int offset, int length){
+		int index = offset, end = offset + length;
+		while(index < end){
+			if(state == DATA_PUMP_STATE){
+				int count = Math.min(dumpSize, end - index);
+				System.arraycopy(bytes, index, payload, dataLength - dumpSize, count);
+				index += count;
+				dumpSize -= count;
+				if(dumpSize == 0){
+					state = FINISHED_STATE;
+				}
+			}else{
+				state = transitionOnInput(bytes[index++], state);
+			}
+			if(state == FINISHED_STATE || state == ERROR_STATE){
+				break;
+			}
+		}
+		return index - offset;
+	}
+
+	/**
+	 * Feeds the remaining bytes of a buffer into the state machine. The buffer's position is advanced
+	 * by the number of bytes consumed. See {@link #handleBytes(byte[], int, int)}.
+	 * @param buffer the buffer that holds the incoming bytes
+	 * @return the number of bytes that were consumed by the state machine
+	 */
+	public int handleBytes(ByteBuffer buffer){
+		if(buffer.hasArray()){
+			int consumed = handleBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.position() + consumed);
+			return consumed;
+		}
+		int start = buffer.position();
+		while(buffer.hasRemaining()){
+			if(state == DATA_PUMP_STATE){
+				int count = Math.min(dumpSize, buffer.remaining());
+				buffer.get(payload, dataLength - dumpSize, count);
+				dumpSize -= count;
+				if(dumpSize == 0){
+					state = FINISHED_STATE;
+				}
+			}else{
+				state = transitionOnInput(buffer.get(), state);
+			}
+			if(state == FINISHED_STATE || state == ERROR_STATE){
+				break;
+			}
+		}
+		return buffer.position() - start;
+	}
 	
 	private int transitionOnInput(byte rawByte, int state){
 		switch(state){
@@ -47,6 +47,7 @@ public class TransportManager extends TransportManagerBase{
     private static final String TAG = "TransportManager";
 
     TransportInterface transport;
+    PacketScheduler packetScheduler;
 
     /**
      * Managing transports
@@ -61,18 +62,32 @@ public class TransportManager extends TransportManagerBase{
         switch (config.getTransportType()){
             case WEB_SOCKET_SERVER:
                 transport = new WebSocketServer((WebSocketServerConfig)config, new SingleTransportCallbackImpl(new TransportRecord(TransportType.WEB_SOCKET_SERVER,"127.0.0.1:"+((WebSocketServerConfig)config).port)));
+                packetScheduler = createPacketScheduler(((WebSocketServerConfig) config).getPacketSchedulerFactory());
                 break;
             case CUSTOM:
                 transport = ((CustomTransportConfig) config).getTransportInterface();
                 transport.setCallback(new SingleTransportCallbackImpl(transport.getTransportRecord()));
+                packetScheduler = createPacketScheduler(((CustomTransportConfig) config).getPacketSchedulerFactory());
                 break;
         }
 
     }
 
+    private static PacketScheduler createPacketScheduler(PacketScheduler.Factory factory){
+        return factory != null ? factory.createPacketScheduler() : null;
+    }
+
     @Override
     public void start(){
         if(transport != null){
+            if(packetScheduler != null){
+                packetScheduler.start(new PacketScheduler.PacketWriter() {
+                    @Override
+                    public void writePacket(SdlPacket packet) {
+                        writeToTransport(packet);
+                    }
+                });
+            }
             transport.start();
         }else{
             System.out.print("Unable to start transport.");
@@ -81,11 +96,28 @@ public class TransportManager extends TransportManagerBase{
 
     @Override
     public void close(long sessionId){
+        if(packetScheduler != null){
+            packetScheduler.stop();
+        }
         if(transport != null) {
             transport.stop();
         }
     }
 
+    /**
+     * @return true if outgoing packets are handed to a scheduler instead of being written by the sending thread
+     */
+    public boolean isPacketSchedulerEnabled(){
+        return packetScheduler != null;
+    }
+
+    /**
+     * @return the scheduler ordering outgoing packets, or null if packets are written directly
+     */
+    public PacketScheduler getPacketScheduler(){
+        return packetScheduler;
+    }
+
     @Deprecated
     @Override
     public void resetSession(){
@@ -155,12 +187,24 @@ public class TransportManager extends TransportManagerBase{
     @Override
     public void sendPacket(SdlPacket packet){
         if(transport !=null){
-            transport.write(packet);
+            if(packetScheduler != null){
+                packetScheduler.schedule(packet);
+            }else{
+                writeToTransport(packet);
+            }
         }else {
 
         }
     }
 
+    private void writeToTransport(SdlPacket packet){
+        if(transport instanceof GatheringTransportInterface){
+            ((GatheringTransportInterface) transport).write(packet.constructPacketBuffers());
+        }else{
+            transport.write(packet);
+        }
+    }
+
     class  SingleTransportCallbackImpl implements TransportCallback {
 
         final List<TransportRecord> finalList;
@@ -35,6 +35,7 @@ package com.smartdevicelink.transport;
 import android.util.Log;
 import com.smartdevicelink.protocol.SdlPacket;
 import com.smartdevicelink.transport.enums.TransportType;
+import com.smartdevicelink.transport.utl.ByteBufferUtil;
 import com.smartdevicelink.transport.utl.SSLWebSocketFactoryGenerator;
 import com.smartdevicelink.transport.utl.TransportRecord;
 import com.smartdevicelink.util.DebugTool;
@@ -45,7 +46,7 @@ import org.java_websocket.handshake.ClientHandshake;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
-public class WebSocketServer extends org.java_websocket.server.WebSocketServer implements TransportInterface{
+public class WebSocketServer extends org.java_websocket.server.WebSocketServer implements GatheringTransportInterface{
     private static final String TAG = "WebSocketServer";
     TransportCallback callback;
     WebSocketServerConfig config;
@@ -89,12 +90,26 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
     @Override
     public void write(SdlPacket packet){
         //Log.i(TAG, "Atttempt to write packet " + packet);
-        if(packet != null
+        if(packet != null) {
+            write(packet.constructPacketBuffers());
+        }
+
+    }
+
+    /**
+     * Writes out a packet that has been split across a set of buffers. Each packet is sent as a
+     * single binary message, so the buffers are gathered into one buffer unless the packet is
+     * already held in a single buffer. The web socket library queues the buffer, so it is never reused.
+     * @param buffers the buffers that together make up one packet
+     */
+    @Override
+    public void write(ByteBuffer... buffers){
+        if(buffers != null
+                && buffers.length > 0
                 && this.webSocket != null
                 && this.webSocket.isOpen()) {
-            this.webSocket.send(packet.constructPacket());
+            this.webSocket.send(ByteBufferUtil.gather(false, buffers));
         }
-
     }
 
     @Override
@@ -146,28 +161,23 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
     public void onMessage(WebSocket conn, ByteBuffer message) {
         super.onMessage(conn, message);
         //Log.i(TAG, "on Message - ByteBuffer");
-        byte input;
 
         if(message != null){
             synchronized (WebSocketServer.this) {
-                boolean stateProgress;
+                int state;
                 while (message.hasRemaining()) {
-                    input = message.get();
-                    stateProgress = psm.handleByte(input);
-                    if (!stateProgress) {//We are trying to weed through the bad packet info until we get something
+                    psm.handleBytes(message);
+                    state = psm.getState();
+                    if (state == SdlPsm.ERROR_STATE) {//We are trying to weed through the bad packet info until we get something
 
-                        //Log.w(TAG, "Packet State Machine did not move forward from state - "+ psm.getState()+". PSM being Reset.");
+                        //Log.w(TAG, "Packet State Machine did not move forward. PSM being Reset.");
                         psm.reset();
-                    }
-
-                    if (psm.getState() == SdlPsm.FINISHED_STATE) {
-                        synchronized (WebSocketServer.this) {
-                            SdlPacket packet = psm.getFormedPacket();
-                            if (callback != null && packet != null) {
-                               /// Log.i(TAG, "Read a packet: " + packet);
-                                packet.setTransportRecord(transportRecord);
-                                callback.onPacketReceived(packet);
-                            }
+                    } else if (state == SdlPsm.FINISHED_STATE) {
+                        SdlPacket packet = psm.getFormedPacket();
+                        if (callback != null && packet != null) {
+                           /// Log.i(TAG, "Read a packet: " + packet);
+                            packet.setTransportRecord(transportRecord);
+                            callback.onPacketReceived(packet);
                         }
                         //We put a trace statement in the message read so we can avoid all the extra bytes
                         psm.reset();
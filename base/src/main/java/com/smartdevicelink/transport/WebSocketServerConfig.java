@@ -38,6 +38,7 @@ public class WebSocketServerConfig extends BaseTransportConfig{
 
     final int port, connectionLostTimeout;
     SSLConfig sslConfig;
+    PacketScheduler.Factory packetSchedulerFactory;
     /**
      * Default constructor for WebsocketConfig
      * @param port the port this web socket should listen on
@@ -58,6 +59,20 @@ public class WebSocketServerConfig extends BaseTransportConfig{
         this.sslConfig = sslConfig;
     }
 
+    public PacketScheduler.Factory getPacketSchedulerFactory() {
+        return packetSchedulerFactory;
+    }
+
+    /**
+     * Set the factory for the schedulers that will order outgoing packets before they are written to
+     * the web socket. By default packets are written directly from the sending thread. Each connection
+     * made with this config gets its own scheduler.
+     * @param packetSchedulerFactory the factory to create schedulers with, or null to write packets directly
+     */
+    public void setPacketSchedulerFactory(PacketScheduler.Factory packetSchedulerFactory) {
+        this.packetSchedulerFactory = packetSchedulerFactory;
+    }
+
     @Override
     public TransportType getTransportType() {
         return TransportType.WEB_SOCKET_SERVER;
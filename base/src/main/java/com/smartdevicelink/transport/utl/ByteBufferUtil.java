@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.smartdevicelink.transport.utl;
+
+import java.nio.ByteBuffer;
+
+public class ByteBufferUtil {
+
+    /**
+     * Gathers the bytes from position to limit of each buffer into one buffer. The buffers
+     * themselves are left untouched. A single buffer is returned as a duplicate instead of being
+     * copied, unless an array backed buffer was requested and it is not backed by an array.
+     * @param requireArray if the returned buffer must be backed by an array
+     * @param buffers the buffers to gather
+     * @return a buffer positioned at the first byte, or null if there were no buffers
+     */
+    public static ByteBuffer gather(boolean requireArray, ByteBuffer... buffers){
+        if(buffers == null || buffers.length == 0){
+            return null;
+        }
+        if(buffers.length == 1 && (!requireArray || buffers[0].hasArray())){
+            return buffers[0].duplicate();
+        }
+        int length = 0;
+        for(ByteBuffer buffer : buffers){
+            length += buffer.remaining();
+        }
+        ByteBuffer gathered = ByteBuffer.allocate(length);
+        for(ByteBuffer buffer : buffers){
+            gathered.put(buffer.duplicate());
+        }
+        gathered.flip();
+        return gathered;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of byte arrays grouped into power of two size classes. Arrays are handed out from the
+ * smallest class that fits the requested size and can be returned once they are no longer used,
+ * so large buffers that are needed over and over don't have to be allocated each time.
+ * <br><br>
+ * Arrays smaller than the smallest class or larger than the largest class are allocated to the
+ * exact size requested and are never pooled. The pool only keeps as many bytes as its limit allows;
+ * anything released past that is left for the garbage collector.
+ */
+public class ByteArrayPool {
+
+	public static final int DEFAULT_MIN_CLASS_SIZE = 1 << 12;	// 4KB
+	public static final int DEFAULT_MAX_CLASS_SIZE = 1 << 24;	// 16MB
+
+	private final int minClassShift;
+	private final int maxClassShift;
+	private final List<ConcurrentLinkedQueue<byte[]>> sizeClasses;
+	private final long maxPooledBytes;
+	private final AtomicLong pooledBytes = new AtomicLong(0);
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Creates a pool with size classes from {@link #DEFAULT_MIN_CLASS_SIZE} to {@link #DEFAULT_MAX_CLASS_SIZE}
+	 * @param maxPooledBytes the most bytes that will be kept in the pool across all size classes
+	 */
+	public ByteArrayPool(long maxPooledBytes){
+		this(DEFAULT_MIN_CLASS_SIZE, DEFAULT_MAX_CLASS_SIZE, maxPooledBytes);
+	}
+
+	/**
+	 * @param minClassSize the length of the arrays in the smallest size class, a power of two
+	 * @param maxClassSize the length of the arrays in the largest size class, a power of two no
+	 *                     smaller than minClassSize
+	 * @param maxPooledBytes the most bytes that will be kept in the pool across all size classes
+	 */
+	public ByteArrayPool(int minClassSize, int maxClassSize, long maxPooledBytes){
+		if(Integer.bitCount(minClassSize) != 1 || Integer.bitCount(maxClassSize) != 1 || minClassSize > maxClassSize){
+			throw new IllegalArgumentException("Size classes must be powers of two with min <= max: " + minClassSize + " - " + maxClassSize);
+		}
+		this.minClassShift = Integer.numberOfTrailingZeros(minClassSize);
+		this.maxClassShift = Integer.numberOfTrailingZeros(maxClassSize);
+		this.maxPooledBytes = maxPooledBytes;
+		int classCount = maxClassShift - minClassShift + 1;
+		sizeClasses = new ArrayList<>(classCount);
+		for(int i = 0; i < classCount; i++){
+			sizeClasses.add(new ConcurrentLinkedQueue<byte[]>());
+		}
+	}
+
+	/**
+	 * Retrieves an array that can hold at least the requested number of bytes. The contents of the
+	 * array are undefined and it may be longer than requested.
+	 * @param size the minimum length of the array
+	 * @return a byte array at least size bytes long
+	 */
+	public byte[] acquire(int size){
+		int sizeClass = getSizeClass(size);
+		if(sizeClass < 0){
+			return new byte[Math.max(size, 0)];
+		}
+		byte[] array = sizeClasses.get(sizeClass).poll();
+		if(array != null){
+			pooledBytes.addAndGet(-array.length);
+			hits.incrementAndGet();
+			return array;
+		}
+		misses.incrementAndGet();
+		return new byte[1 << (sizeClass + minClassShift)];
+	}
+
+	/**
+	 * Returns an array to the pool. The array must not be used by the caller after this.
+	 * @param array an array that was retrieved from {@link #acquire(int)}
+	 */
+	public void release(byte[] array){
+		if(array == null){
+			return;
+		}
+		int sizeClass = getSizeClass(array.length);
+		if(sizeClass < 0 || array.length != 1 << (sizeClass + minClassShift)){
+			//Not one of ours
+			return;
+		}
+		if(pooledBytes.addAndGet(array.length) > maxPooledBytes){
+			pooledBytes.addAndGet(-array.length);
+			return;
+		}
+		sizeClasses.get(sizeClass).offer(array);
+	}
+
+	/**
+	 * @return the number of bytes currently held by the pool
+	 */
+	public long getPooledBytes(){
+		return pooledBytes.get();
+	}
+
+	/**
+	 * @return the number of times a pooled array was reused
+	 */
+	public long getHitCount(){
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of times a poolable array had to be allocated
+	 */
+	public long getMissCount(){
+		return misses.get();
+	}
+
+	/**
+	 * @return the index of the smallest size class that fits the size, or -1 if the size isn't pooled
+	 */
+	private int getSizeClass(int size){
+		if(size < 1 << minClassShift || size > 1 << maxClassShift){
+			return -1;
+		}
+		//Number of bits needed to represent size - 1 is the shift of the smallest power of two >= size
+		int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+		return shift - minClassShift;
+	}
+}
@@ -0,0 +1 @@
+../../../../../../../base/src/main/java/com/smartdevicelink/protocol/MessageFrameAssemblerTable.java
\ No newline at end of file
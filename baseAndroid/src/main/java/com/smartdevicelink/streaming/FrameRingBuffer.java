@@ -0,0 +1 @@
+../../../../../../../base/src/main/java/com/smartdevicelink/streaming/FrameRingBuffer.java
\ No newline at end of file
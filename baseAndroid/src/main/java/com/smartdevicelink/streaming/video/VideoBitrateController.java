@@ -0,0 +1 @@
+../../../../../../../../base/src/main/java/com/smartdevicelink/streaming/video/VideoBitrateController.java
\ No newline at end of file
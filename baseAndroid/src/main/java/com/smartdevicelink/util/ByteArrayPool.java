@@ -0,0 +1 @@
+../../../../../../../base/src/main/java/com/smartdevicelink/util/ByteArrayPool.java
\ No newline at end of file
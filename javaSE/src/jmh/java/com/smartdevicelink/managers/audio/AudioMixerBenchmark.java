@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.audio;
+
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams.SampleFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many input samples per second one core converts and mixes into the format of an
+ * audio service. Every invocation handles {@link #FRAMES} frames per source and the score is
+ * reported per frame, so the result reads as samples per second per source.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OperationsPerInvocation(AudioMixerBenchmark.FRAMES)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AudioMixerBenchmark {
+    static final int FRAMES = 960;
+
+    @Param({"22050", "44100", "48000"})
+    public int inputRate;
+
+    @Param({"1", "2"})
+    public int inputChannels;
+
+    @Param({"16000", "44100"})
+    public int outputRate;
+
+    @Param({"1", "3"})
+    public int sourceCount;
+
+    private byte[] input;
+    private int[] resampled;
+    private byte[] mixed;
+    private PcmResampler resampler;
+    private AudioMixer mixer;
+    private AudioMixer.Source[] sources;
+
+    @Setup
+    public void setup() {
+        input = new byte[FRAMES * inputChannels * 2];
+        for (int frame = 0; frame < FRAMES; frame++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 440 * frame / inputRate) * 16000);
+            for (int channel = 0; channel < inputChannels; channel++) {
+                int index = (frame * inputChannels + channel) * 2;
+                input[index] = (byte) sample;
+                input[index + 1] = (byte) (sample >> 8);
+            }
+        }
+
+        resampler = new PcmResampler(inputRate, 16, inputChannels, outputRate, 1);
+        resampled = new int[resampler.getMaxOutputSamples(FRAMES + 1)];
+
+        mixer = new AudioMixer(new AudioStreamingLPCMParams(SampleFormat.LPCM_16BIT_SIGNED_LITTLE_ENDIAN, outputRate, 1));
+        sources = new AudioMixer.Source[sourceCount];
+        for (int i = 0; i < sourceCount; i++) {
+            sources[i] = mixer.addSource(inputRate, 16, inputChannels);
+        }
+        mixed = new byte[(resampler.getMaxOutputSamples(FRAMES + 1)) * mixer.getBytesPerFrame()];
+    }
+
+    @Benchmark
+    public int resample() {
+        return resampler.resample(input, 0, input.length, resampled, 0);
+    }
+
+    @Benchmark
+    public int resampleAndMix() {
+        for (AudioMixer.Source source : sources) {
+            source.push(input, 0, input.length);
+        }
+        int frames = 0;
+        int mixedFrames;
+        while ((mixedFrames = mixer.mix(mixed, 0, mixed.length / mixer.getBytesPerFrame())) > 0) {
+            frames += mixedFrames;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.lifecycle;
+
+import android.util.Log;
+
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.protocol.ProtocolMessage;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.MessageType;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.proxy.RPCMessage;
+import com.smartdevicelink.proxy.RPCNotification;
+import com.smartdevicelink.proxy.rpc.OnHashChange;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCListener;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCNotificationListener;
+import com.smartdevicelink.transport.CustomTransport;
+import com.smartdevicelink.transport.CustomTransportConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how incoming notifications are dispatched when many sessions live in the same JVM.
+ * Each benchmark thread drives either its own LifecycleManager or one manager shared by all
+ * threads. Per-thread sessions should scale with the number of threads since their listener
+ * registries are not shared, run with -t 1,2,4,8 to see it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LifecycleDispatchBenchmark {
+
+    /**
+     * The android.util.Log shim prints every received RPC to System.out, which would make every
+     * thread wait on the same stream. It is turned off while the benchmark runs.
+     */
+    @State(Scope.Benchmark)
+    public static class QuietOutput {
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Log.setEnabled(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Log.setEnabled(true);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        LifecycleManager manager;
+        ProtocolMessage message;
+        final AtomicLong notified = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setup(QuietOutput output) {
+            LifecycleManager.AppConfig appConfig = new LifecycleManager.AppConfig();
+            appConfig.setAppName("Benchmark");
+            appConfig.setAppID("1234");
+            CustomTransportConfig transportConfig = new CustomTransportConfig(new CustomTransport("benchmark") {
+                @Override
+                public void onWrite(byte[] bytes, int offset, int length) {
+                }
+            });
+            manager = new LifecycleManager(appConfig, transportConfig, null);
+
+            manager.internalInterface.addOnRPCListener(FunctionID.ON_HASH_CHANGE, new OnRPCListener() {
+                @Override
+                public void onReceived(RPCMessage message) {
+                    notified.incrementAndGet();
+                }
+            });
+            manager.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, new OnRPCNotificationListener() {
+                @Override
+                public void onNotified(RPCNotification notification) {
+                    notified.incrementAndGet();
+                }
+            });
+
+            //The session is never started, so it stays on protocol version 1 where the
+            //payload is the whole JSON message
+            message = new ProtocolMessage();
+            message.setData(JsonRPCMarshaller.marshall(new OnHashChange("hash"), (byte) 1));
+            message.setMessageType(MessageType.RPC);
+            message.setSessionType(SessionType.RPC);
+            message.setFunctionID(FunctionID.ON_HASH_CHANGE.getId());
+            message.setRPCType((byte) 0x02);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedSession extends Session {
+    }
+
+    @Benchmark
+    public long separateSessions(Session session) {
+        session.manager.sdlConnectionListener.onProtocolMessageReceived(session.message);
+        return session.notified.get();
+    }
+
+    @Benchmark
+    public long sharedSession(SharedSession session) {
+        session.manager.sdlConnectionListener.onProtocolMessageReceived(session.message);
+        return session.notified.get();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.lifecycle;
+
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.proxy.RPCMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.nio.charset.Charset;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost per message of creating inbound RPCs through RpcConverter's constructor switch
+ * with the reflective lookup it replaced. The messages are already parsed into hashtables, so only
+ * the creation of the RPC object is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RpcConverterBenchmark {
+
+    static final String ON_VEHICLE_DATA = "{\"notification\":{\"name\":\"OnVehicleData\",\"parameters\":{"
+            + "\"speed\":88.5,\"rpm\":2400,\"fuelLevel\":47.3,\"instantFuelConsumption\":6.1,"
+            + "\"externalTemperature\":21.5,\"odometer\":123456,\"engineTorque\":210.3,"
+            + "\"accPedalPosition\":12.5,\"steeringWheelAngle\":-3.5,\"prndl\":\"DRIVE\","
+            + "\"gps\":{\"longitudeDegrees\":-83.045,\"latitudeDegrees\":42.331,\"utcYear\":2019,"
+            + "\"utcMonth\":6,\"utcDay\":14,\"utcHours\":17,\"utcMinutes\":32,\"utcSeconds\":11,"
+            + "\"compassDirection\":\"NORTH\",\"pdop\":1.2,\"hdop\":0.9,\"vdop\":0.8,\"actual\":true,"
+            + "\"satellites\":9,\"dimension\":\"3D\",\"altitude\":182.4,\"heading\":12.5,\"speed\":88.5}}}}";
+
+    static final String ON_HMI_STATUS = "{\"notification\":{\"name\":\"OnHMIStatus\",\"parameters\":{"
+            + "\"hmiLevel\":\"FULL\",\"audioStreamingState\":\"AUDIBLE\",\"systemContext\":\"MAIN\","
+            + "\"videoStreamingState\":\"STREAMABLE\"}}}";
+
+    static final String ON_TOUCH_EVENT = "{\"notification\":{\"name\":\"OnTouchEvent\",\"parameters\":{"
+            + "\"type\":\"MOVE\",\"event\":[{\"id\":0,\"ts\":[1560533531001,1560533531017],"
+            + "\"c\":[{\"x\":412,\"y\":230},{\"x\":418,\"y\":236}]},{\"id\":1,\"ts\":[1560533531001],"
+            + "\"c\":[{\"x\":612,\"y\":330}]}]}}}";
+
+    static final String GET_VEHICLE_DATA_RESPONSE = "{\"response\":{\"name\":\"GetVehicleData\",\"correlationID\":42,"
+            + "\"parameters\":{\"success\":true,\"resultCode\":\"SUCCESS\",\"speed\":88.5,\"rpm\":2400,"
+            + "\"fuelLevel\":47.3,\"odometer\":123456,\"prndl\":\"DRIVE\",\"driverBraking\":\"NO\"}}}";
+
+    static final String SHOW_RESPONSE = "{\"response\":{\"name\":\"Show\",\"correlationID\":43,"
+            + "\"parameters\":{\"success\":true,\"resultCode\":\"SUCCESS\"}}}";
+
+    @Param({"OnVehicleData", "OnHMIStatus", "OnTouchEvent", "GetVehicleDataResponse", "ShowResponse"})
+    public String message;
+
+    private Hashtable<String, Object> table;
+
+    @Setup
+    public void setup() {
+        String json;
+        switch (message) {
+            case "OnVehicleData":
+                json = ON_VEHICLE_DATA;
+                break;
+            case "OnHMIStatus":
+                json = ON_HMI_STATUS;
+                break;
+            case "OnTouchEvent":
+                json = ON_TOUCH_EVENT;
+                break;
+            case "GetVehicleDataResponse":
+                json = GET_VEHICLE_DATA_RESPONSE;
+                break;
+            case "ShowResponse":
+                json = SHOW_RESPONSE;
+                break;
+            default:
+                throw new IllegalArgumentException(message);
+        }
+        table = JsonRPCMarshaller.unmarshall(json.getBytes(Charset.forName("UTF-8")));
+        if (!message.equals(convertReflectively(table).getClass().getSimpleName())
+                || !message.equals(RpcConverter.convertTableToRpc(table).getClass().getSimpleName())) {
+            throw new IllegalStateException("Unexpected RPC created for " + message);
+        }
+    }
+
+    @Benchmark
+    public RPCMessage constructorSwitch() {
+        return RpcConverter.convertTableToRpc(table);
+    }
+
+    @Benchmark
+    public RPCMessage reflection() throws Exception {
+        return convertReflectively(table);
+    }
+
+    /**
+     * The lookup RpcConverter used for every message before it called the constructors directly
+     */
+    @SuppressWarnings("unchecked")
+    private static RPCMessage convertReflectively(Hashtable<String, Object> rpcHashTable) {
+        Hashtable<String, Object> params;
+        boolean isResponse = rpcHashTable.containsKey(RPCMessage.KEY_RESPONSE);
+        if (isResponse) {
+            params = (Hashtable<String, Object>) rpcHashTable.get(RPCMessage.KEY_RESPONSE);
+        } else if (rpcHashTable.containsKey(RPCMessage.KEY_NOTIFICATION)) {
+            params = (Hashtable<String, Object>) rpcHashTable.get(RPCMessage.KEY_NOTIFICATION);
+        } else {
+            params = (Hashtable<String, Object>) rpcHashTable.get(RPCMessage.KEY_REQUEST);
+        }
+        String functionName = (String) params.get(RPCMessage.KEY_FUNCTION_NAME);
+        StringBuilder rpcClassName = new StringBuilder();
+        rpcClassName.append("com.smartdevicelink.proxy.rpc.");
+        rpcClassName.append(functionName);
+        if (isResponse) {
+            rpcClassName.append("Response");
+        }
+        try {
+            Class<?> rpcClass = Class.forName(rpcClassName.toString());
+            Constructor<?> rpcConstructor = rpcClass.getConstructor(Hashtable.class);
+            return (RPCMessage) rpcConstructor.newInstance(rpcHashTable);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
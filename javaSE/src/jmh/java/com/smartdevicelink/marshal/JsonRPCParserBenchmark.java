@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.marshal;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing inbound RPC payloads with {@link JsonRPCParser} against the JSONObject based path
+ * that decodes the payload into a String, builds a JSONObject tree and then copies it into
+ * hashtables. The payloads are the JSON part of protocol version 2+ messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonRPCParserBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final String ON_VEHICLE_DATA = "{\"speed\":88.5,\"rpm\":2400,\"fuelLevel\":47.3,"
+            + "\"fuelLevel_State\":\"NORMAL\",\"instantFuelConsumption\":6.1,\"externalTemperature\":21.5,"
+            + "\"odometer\":123456,\"engineTorque\":210.3,\"accPedalPosition\":12.5,\"steeringWheelAngle\":-3.5,"
+            + "\"prndl\":\"DRIVE\",\"driverBraking\":\"NO\",\"wiperStatus\":\"OFF\",\"engineOilLife\":64.5,"
+            + "\"gps\":{\"longitudeDegrees\":-83.045,\"latitudeDegrees\":42.331,\"utcYear\":2019,\"utcMonth\":6,"
+            + "\"utcDay\":14,\"utcHours\":17,\"utcMinutes\":32,\"utcSeconds\":11,\"compassDirection\":\"NORTH\","
+            + "\"pdop\":1.2,\"hdop\":0.9,\"vdop\":0.8,\"actual\":true,\"satellites\":9,\"dimension\":\"3D\","
+            + "\"altitude\":182.4,\"heading\":12.5,\"speed\":88.5},"
+            + "\"tirePressure\":{\"pressureTelltale\":\"OFF\",\"leftFront\":{\"status\":\"NORMAL\"},"
+            + "\"rightFront\":{\"status\":\"NORMAL\"},\"leftRear\":{\"status\":\"NORMAL\"},\"rightRear\":{\"status\":\"LOW\"}},"
+            + "\"bodyInformation\":{\"parkBrakeActive\":false,\"ignitionStableStatus\":\"IGNITION_SWITCH_STABLE\","
+            + "\"ignitionStatus\":\"RUN\",\"driverDoorAjar\":false,\"passengerDoorAjar\":false}}";
+
+    static final String GET_SYSTEM_CAPABILITY_RESPONSE = "{\"success\":true,\"resultCode\":\"SUCCESS\","
+            + "\"info\":\"Capabilit\u00e9s vid\u00e9o\",\"systemCapability\":{\"systemCapabilityType\":\"VIDEO_STREAMING\","
+            + "\"videoStreamingCapability\":{\"preferredResolution\":{\"resolutionWidth\":800,\"resolutionHeight\":480},"
+            + "\"maxBitrate\":400000,\"supportedFormats\":[{\"protocol\":\"RAW\",\"codec\":\"H264\"},"
+            + "{\"protocol\":\"RTP\",\"codec\":\"H264\"},{\"protocol\":\"RTSP\",\"codec\":\"Theora\"},"
+            + "{\"protocol\":\"RTMP\",\"codec\":\"VP8\"},{\"protocol\":\"WEBM\",\"codec\":\"VP9\"}],"
+            + "\"hapticSpatialDataSupported\":true,\"diagonalScreenSize\":8.0,\"pixelPerInch\":117,\"scale\":1.0}}}";
+
+    @Param({"OnVehicleData", "GetSystemCapabilityResponse"})
+    public String message;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws JSONException {
+        if ("OnVehicleData".equals(message)) {
+            payload = ON_VEHICLE_DATA.getBytes(UTF_8);
+        } else if ("GetSystemCapabilityResponse".equals(message)) {
+            payload = GET_SYSTEM_CAPABILITY_RESPONSE.getBytes(UTF_8);
+        } else {
+            throw new IllegalArgumentException(message);
+        }
+        if (!streamingParser().equals(jsonObject())) {
+            throw new IllegalStateException("Parsers disagree on " + message);
+        }
+    }
+
+    @Benchmark
+    public Hashtable<String, Object> streamingParser() throws JSONException {
+        return JsonRPCParser.parse(payload);
+    }
+
+    @Benchmark
+    public Hashtable<String, Object> jsonObject() throws JSONException {
+        return JsonRPCMarshaller.deserializeJSONObject(new JSONObject(new String(payload, UTF_8)));
+    }
+}
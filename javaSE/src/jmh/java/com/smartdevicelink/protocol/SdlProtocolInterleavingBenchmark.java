@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.protocol;
+
+import com.livio.BSON.BsonEncoder;
+import com.smartdevicelink.protocol.enums.ControlFrameTags;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.MessageType;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.security.SdlSecurityBase;
+import com.smartdevicelink.streaming.video.VideoStreamingParameters;
+import com.smartdevicelink.transport.BaseTransportConfig;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+import com.smartdevicelink.transport.enums.TransportType;
+import com.smartdevicelink.transport.utl.TransportRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reports how long a small Show request takes to reach the transport while a large PutFile is being
+ * sent on the same session. The transport is simulated by parking the writing thread for as long as
+ * the frame would take to send at a fixed bandwidth, so a frame holds the frame lock for a realistic
+ * amount of time.
+ * <p>
+ * With {@code serializeMessages} set, every message is sent under one lock for the whole session,
+ * which is how SdlProtocolBase used to send messages. The Show then waits for the rest of the
+ * PutFile instead of at most one of its frames.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SdlProtocolInterleavingBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte SESSION_ID = 1;
+    private static final long MTU = 131072;
+
+    private static final String SHOW_JSON = "{\"mainField1\":\"Now Playing\",\"mainField2\":\"Track 7\","
+            + "\"alignment\":\"CENTERED\",\"graphic\":{\"value\":\"album_art.png\",\"imageType\":\"DYNAMIC\"}}";
+
+    /**
+     * Size of the PutFile sent in a loop in the background. 0 measures a Show on an idle session.
+     */
+    @Param({"0", "4194304"})
+    public int putFileSize;
+
+    /**
+     * Simulated transport bandwidth, 100 bytes/us is roughly 800 Mbit/s
+     */
+    @Param({"100"})
+    public int bytesPerMicrosecond;
+
+    @Param({"false", "true"})
+    public boolean serializeMessages;
+
+    private final Object messageLock = new Object();
+    private SdlProtocolBase protocol;
+    private ProtocolMessage show;
+    private Thread putFileSender;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        protocol = new SdlProtocolBase(new ThrottledTransport(bytesPerMicrosecond), new WebSocketServerConfig(5432, -1));
+        protocol.handleProtocolSessionStarted(createStartServiceAck(), SessionType.RPC);
+
+        show = createRequest(FunctionID.SHOW, 1, SHOW_JSON.getBytes(UTF_8), null);
+        if (putFileSize == 0) {
+            return;
+        }
+
+        final ProtocolMessage putFile = createRequest(FunctionID.PUT_FILE, 2,
+                "{\"syncFileName\":\"map_tiles.bin\",\"fileType\":\"BINARY\",\"persistentFile\":false}".getBytes(UTF_8),
+                new byte[putFileSize]);
+        final CountDownLatch started = new CountDownLatch(1);
+        running = true;
+        putFileSender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                while (running) {
+                    send(putFile);
+                }
+            }
+        }, "PutFileSender");
+        putFileSender.setDaemon(true);
+        putFileSender.start();
+        started.await();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (putFileSender != null) {
+            putFileSender.join();
+        }
+    }
+
+    @Benchmark
+    public void showWhilePutFileInFlight() {
+        send(show);
+    }
+
+    private void send(ProtocolMessage message) {
+        if (serializeMessages) {
+            synchronized (messageLock) {
+                protocol.sendMessage(message);
+            }
+        } else {
+            protocol.sendMessage(message);
+        }
+    }
+
+    private static SdlPacket createStartServiceAck() {
+        HashMap<String, Object> tags = new HashMap<>();
+        tags.put(ControlFrameTags.RPC.StartServiceACK.PROTOCOL_VERSION, "5.0.0");
+        tags.put(ControlFrameTags.RPC.StartServiceACK.HASH_ID, 0x5d1);
+        tags.put(ControlFrameTags.RPC.StartServiceACK.MTU, MTU);
+
+        SdlPacket ack = SdlPacketFactory.createStartSessionACK(SessionType.RPC, SESSION_ID, 0, (byte) 5);
+        ack.setPayload(BsonEncoder.encodeToBytes(tags));
+        ack.setTransportRecord(new TransportRecord(TransportType.WEB_SOCKET_SERVER, null));
+        return ack;
+    }
+
+    private static ProtocolMessage createRequest(FunctionID functionID, int correlationID, byte[] json, byte[] bulkData) {
+        ProtocolMessage message = new ProtocolMessage();
+        message.setData(json);
+        message.setSessionID(SESSION_ID);
+        message.setMessageType(MessageType.RPC);
+        message.setSessionType(SessionType.RPC);
+        message.setFunctionID(functionID.getId());
+        message.setRPCType((byte) 0x00);
+        message.setCorrID(correlationID);
+        if (bulkData != null) {
+            message.setBulkDataNoCopy(bulkData);
+            message.setPriorityCoefficient(1);
+        }
+        return message;
+    }
+
+    /**
+     * Holds each frame for as long as it would take to write it at a fixed bandwidth
+     */
+    static class ThrottledTransport implements ISdlProtocol {
+        private static final int HEADER_SIZE = 12;
+        private final int bytesPerMicrosecond;
+
+        ThrottledTransport(int bytesPerMicrosecond) {
+            this.bytesPerMicrosecond = bytesPerMicrosecond;
+        }
+
+        @Override
+        public void onProtocolMessageBytesToSend(SdlPacket packet) {
+            LockSupport.parkNanos((packet.getDataSize() + HEADER_SIZE) * 1000L / bytesPerMicrosecond);
+        }
+
+        @Override
+        public void onProtocolMessageReceived(ProtocolMessage msg) {}
+
+        @Override
+        public void onProtocolSessionStarted(SessionType sessionType, byte sessionID, byte version, String correlationID, int hashID, boolean isEncrypted) {}
+
+        @Override
+        public void onProtocolSessionNACKed(SessionType sessionType, byte sessionID, byte version, String correlationID, List<String> rejectedParams) {}
+
+        @Override
+        public void onProtocolSessionEnded(SessionType sessionType, byte sessionID, String correlationID) {}
+
+        @Override
+        public void onProtocolSessionEndedNACKed(SessionType sessionType, byte sessionID, String correlationID) {}
+
+        @Override
+        public void onProtocolHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolHeartbeatACK(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolServiceDataACK(SessionType sessionType, int dataSize, byte sessionID) {}
+
+        @Override
+        public void onResetOutgoingHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onResetIncomingHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolError(String info, Exception e) {
+            throw new IllegalStateException(info, e);
+        }
+
+        @Override
+        public byte getSessionId() {
+            return SESSION_ID;
+        }
+
+        @Override
+        public void shutdown(String info) {}
+
+        @Override
+        public void onTransportDisconnected(String info, boolean altTransportAvailable, BaseTransportConfig transportConfig) {}
+
+        @Override
+        public SdlSecurityBase getSdlSecurity() {
+            return null;
+        }
+
+        @Override
+        public VideoStreamingParameters getDesiredVideoParams() {
+            return null;
+        }
+
+        @Override
+        public void setAcceptedVideoParams(VideoStreamingParameters acceptedVideoParams) {}
+
+        @Override
+        public void stopStream(SessionType serviceType) {}
+
+        @Override
+        public void onAuthTokenReceived(String authToken) {}
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.transport;
+
+import android.util.Log;
+
+import com.smartdevicelink.managers.lifecycle.LifecycleManager;
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.protocol.BinaryFrameHeader;
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.protocol.SdlPacketFactory;
+import com.smartdevicelink.protocol.enums.ControlFrameTags;
+import com.smartdevicelink.protocol.enums.FrameType;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.proxy.RPCMessage;
+import com.smartdevicelink.proxy.rpc.OnHMIStatus;
+import com.smartdevicelink.proxy.rpc.RegisterAppInterfaceResponse;
+import com.smartdevicelink.proxy.rpc.SdlMsgVersion;
+import com.smartdevicelink.proxy.rpc.enums.AudioStreamingState;
+import com.smartdevicelink.proxy.rpc.enums.HMILevel;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.enums.SdlDisconnectedReason;
+import com.smartdevicelink.proxy.rpc.enums.SystemContext;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for {@link MultiplexingWebSocketServer}. Every invocation connects {@link #clients}
+ * local web socket clients that play the part of a head unit. Each client acknowledges the RPC
+ * service, answers the RegisterAppInterface request and sends the first OnHMIStatus. The
+ * invocation ends once the LifecycleManager of every connection has reported that it is connected,
+ * so the score is the time it takes to bring up that many sessions on one server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class MultiplexingWebSocketServerBenchmark {
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    @Param({"16", "128"})
+    public int clients;
+
+    @Param({"2"})
+    public int workerThreads;
+
+    private MultiplexingWebSocketServer server;
+    private URI uri;
+    private final ConcurrentHashMap<CustomTransport, LifecycleManager> managers = new ConcurrentHashMap<>();
+    private final List<HeadUnitClient> connected = new ArrayList<>();
+    private volatile CountDownLatch proxiesConnected;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        //The android.util.Log shim prints every received RPC to System.out
+        Log.setEnabled(false);
+
+        int port;
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            port = socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+        uri = URI.create("ws://127.0.0.1:" + port);
+
+        final LifecycleManager.AppConfig appConfig = new LifecycleManager.AppConfig();
+        appConfig.setAppName("Benchmark");
+        appConfig.setAppID("1234");
+        final LifecycleManager.LifecycleListener lifecycleListener = new LifecycleManager.LifecycleListener() {
+            @Override
+            public void onProxyConnected(LifecycleManager lifeCycleManager) {
+                proxiesConnected.countDown();
+            }
+
+            @Override
+            public void onProxyClosed(LifecycleManager lifeCycleManager, String info, Exception e, SdlDisconnectedReason reason) {
+            }
+
+            @Override
+            public void onServiceStarted(SessionType sessionType) {
+            }
+
+            @Override
+            public void onServiceEnded(SessionType sessionType) {
+            }
+
+            @Override
+            public void onError(LifecycleManager lifeCycleManager, String info, Exception e) {
+            }
+        };
+
+        final CountDownLatch started = new CountDownLatch(1);
+        server = new MultiplexingWebSocketServer(new WebSocketServerConfig(port, -1), workerThreads, new MultiplexingWebSocketServer.ConnectionListener() {
+            @Override
+            public void onConnectionOpened(CustomTransport transport) {
+                LifecycleManager manager = new LifecycleManager(appConfig, server.createTransportConfig(transport), lifecycleListener);
+                managers.put(transport, manager);
+                manager.start();
+            }
+
+            @Override
+            public void onConnectionClosed(CustomTransport transport) {
+                managers.remove(transport);
+            }
+        }) {
+            @Override
+            public void onStart() {
+                super.onStart();
+                started.countDown();
+            }
+        };
+        server.setReuseAddr(true);
+        server.start();
+        if (!started.await(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Server did not start");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.stop();
+        Log.setEnabled(true);
+    }
+
+    @Benchmark
+    public int connect() throws Exception {
+        proxiesConnected = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            HeadUnitClient client = new HeadUnitClient(uri);
+            connected.add(client);
+            client.connect();
+        }
+        if (!proxiesConnected.await(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException((clients - proxiesConnected.getCount()) + " of " + clients + " sessions connected");
+        }
+        return server.getConnectionCount();
+    }
+
+    @TearDown(Level.Invocation)
+    public void disconnect() throws InterruptedException {
+        for (HeadUnitClient client : connected) {
+            client.closeBlocking();
+        }
+        connected.clear();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT_SECONDS);
+        while (server.getConnectionCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Answers the start of an app's session the way a head unit would
+     */
+    static class HeadUnitClient extends WebSocketClient {
+        private static final byte VERSION = 5;
+        private static final byte SESSION_ID = 1;
+
+        private final SdlPsm psm = new SdlPsm();
+        private int messageId;
+
+        HeadUnitClient(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake serverHandshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            while (bytes.hasRemaining()) {
+                psm.handleBytes(bytes);
+                int state = psm.getState();
+                if (state == SdlPsm.ERROR_STATE) {
+                    psm.reset();
+                } else if (state == SdlPsm.FINISHED_STATE) {
+                    SdlPacket packet = psm.getFormedPacket();
+                    psm.reset();
+                    if (packet != null) {
+                        onPacket(packet);
+                    }
+                }
+            }
+        }
+
+        private void onPacket(SdlPacket packet) {
+            if (FrameType.Control.equals(packet.getFrameType())
+                    && packet.getFrameInfo() == SdlPacket.FRAME_INFO_START_SERVICE
+                    && packet.getServiceType() == SessionType.RPC.getValue()) {
+                SdlPacket ack = SdlPacketFactory.createStartSessionACK(SessionType.RPC, SESSION_ID, packet.getMessageId(), VERSION);
+                ack.putTag(ControlFrameTags.RPC.StartServiceACK.PROTOCOL_VERSION, "5.0.0");
+                ack.putTag(ControlFrameTags.RPC.StartServiceACK.HASH_ID, 0x1234);
+                ack.putTag(ControlFrameTags.RPC.StartServiceACK.MTU, 131072L);
+                send(ack.constructPacket());
+            } else if (FrameType.Single.equals(packet.getFrameType())
+                    && packet.getServiceType() == SessionType.RPC.getValue()) {
+                BinaryFrameHeader header = BinaryFrameHeader.parseBinaryHeader(packet.getPayload());
+                if (header != null && header.getFunctionID() == FunctionID.REGISTER_APP_INTERFACE.getId()) {
+                    RegisterAppInterfaceResponse response = new RegisterAppInterfaceResponse();
+                    response.setSuccess(true);
+                    response.setResultCode(Result.SUCCESS);
+                    response.setSdlMsgVersion(new SdlMsgVersion(5, 0));
+                    sendRpc(response, (byte) 0x01, FunctionID.REGISTER_APP_INTERFACE, header.getCorrID());
+
+                    OnHMIStatus hmiStatus = new OnHMIStatus();
+                    hmiStatus.setHmiLevel(HMILevel.HMI_NONE);
+                    hmiStatus.setAudioStreamingState(AudioStreamingState.NOT_AUDIBLE);
+                    hmiStatus.setSystemContext(SystemContext.SYSCTXT_MAIN);
+                    sendRpc(hmiStatus, (byte) 0x02, FunctionID.ON_HMI_STATUS, 0);
+                }
+            }
+        }
+
+        private void sendRpc(RPCMessage message, byte rpcType, FunctionID functionID, int correlationId) {
+            byte[] json = JsonRPCMarshaller.marshall(message, VERSION);
+            byte[] header = SdlPacketFactory.createBinaryFrameHeader(rpcType, functionID.getId(), correlationId, json.length).assembleHeaderBytes();
+            byte[] payload = new byte[header.length + json.length];
+            System.arraycopy(header, 0, payload, 0, header.length);
+            System.arraycopy(json, 0, payload, header.length, json.length);
+            send(SdlPacketFactory.createSingleSendData(SessionType.RPC, SESSION_ID, payload.length, ++messageId, VERSION, payload, false).constructPacket());
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    }
+}
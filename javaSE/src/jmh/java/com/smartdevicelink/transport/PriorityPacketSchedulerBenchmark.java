@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reports how long an RPC packet takes to be written while a video producer keeps a bandwidth
+ * limited transport busy. With the {@code priority} writer the packets go through a
+ * {@link PriorityPacketScheduler}. With the {@code direct} writer each sender writes under a shared
+ * lock, which is what happens when no scheduler is configured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PriorityPacketSchedulerBenchmark {
+    private static final int SESSION_ID = 1;
+
+    @Param({"priority", "direct"})
+    public String writer;
+
+    /**
+     * Simulated transport bandwidth, 100 bytes/us is roughly 800 Mbit/s
+     */
+    @Param({"100"})
+    public int bytesPerMicrosecond;
+
+    @Param({"16384", "131072"})
+    public int videoPacketSize;
+
+    private final Object writeLock = new Object();
+    private PriorityPacketScheduler scheduler;
+    private PacketScheduler.PacketWriter transport;
+    private SdlPacket rpc;
+    private volatile CountDownLatch rpcWritten;
+    private Thread videoProducer;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        rpc = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_RPC, 0, SESSION_ID, 256, 1, new byte[256]);
+        transport = new PacketScheduler.PacketWriter() {
+            @Override
+            public void writePacket(SdlPacket packet) {
+                LockSupport.parkNanos((packet.getDataSize() + SdlPacket.HEADER_SIZE) * 1000L / bytesPerMicrosecond);
+                if (packet == rpc) {
+                    rpcWritten.countDown();
+                }
+            }
+        };
+        if ("priority".equals(writer)) {
+            scheduler = new PriorityPacketScheduler();
+            scheduler.start(transport);
+        } else if (!"direct".equals(writer)) {
+            throw new IllegalArgumentException(writer);
+        }
+
+        final SdlPacket video = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_VIDEO, 0, SESSION_ID, videoPacketSize, 2, new byte[videoPacketSize]);
+        final CountDownLatch started = new CountDownLatch(1);
+        running = true;
+        videoProducer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                while (running) {
+                    send(video);
+                }
+            }
+        }, "VideoProducer");
+        videoProducer.setDaemon(true);
+        videoProducer.start();
+        started.await();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+        videoProducer.join();
+    }
+
+    @Benchmark
+    public void rpcWhileStreamingVideo() throws InterruptedException {
+        rpcWritten = new CountDownLatch(1);
+        send(rpc);
+        rpcWritten.await();
+    }
+
+    private void send(SdlPacket packet) {
+        if (scheduler != null) {
+            scheduler.schedule(packet);
+        } else {
+            synchronized (writeLock) {
+                transport.writePacket(packet);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares how fast SdlPsm turns received bytes into packets when it is fed one byte at a time
+ * and when it is fed whole buffers. Every invocation parses {@link #PACKETS} packets that arrive
+ * in chunks of {@link #chunkSize} bytes, like reads from a socket. Divide the score by the size
+ * of the stream to get bytes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SdlPsmBenchmark {
+    static final int PACKETS = 16;
+
+    @Param({"64", "1024", "131072"})
+    public int payloadSize;
+
+    @Param({"1500", "16384"})
+    public int chunkSize;
+
+    private byte[] stream;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private SdlPsm psm;
+
+    @Setup
+    public void setup() {
+        byte[] payload = new byte[payloadSize];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        byte[] packet = new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_RPC,
+                0, 1, payload.length, 2, payload).constructPacket();
+
+        stream = new byte[packet.length * PACKETS];
+        for (int i = 0; i < PACKETS; i++) {
+            System.arraycopy(packet, 0, stream, i * packet.length, packet.length);
+        }
+        heapBuffer = ByteBuffer.wrap(stream);
+        directBuffer = ByteBuffer.allocateDirect(stream.length);
+        directBuffer.put(stream);
+        psm = new SdlPsm();
+    }
+
+    /**
+     * The way the transports fed the state machine before it had a bulk API
+     */
+    @Benchmark
+    public int handleByte() {
+        int packets = 0;
+        for (int offset = 0; offset < stream.length; offset += chunkSize) {
+            int end = Math.min(offset + chunkSize, stream.length);
+            for (int i = offset; i < end; i++) {
+                if (!psm.handleByte(stream[i])) {
+                    psm.reset();
+                } else if (psm.getState() == SdlPsm.FINISHED_STATE) {
+                    packets += psm.getFormedPacket() != null ? 1 : 0;
+                    psm.reset();
+                }
+            }
+        }
+        return packets;
+    }
+
+    @Benchmark
+    public int handleBytesArray() {
+        int packets = 0;
+        for (int offset = 0; offset < stream.length; offset += chunkSize) {
+            int index = offset;
+            int end = Math.min(offset + chunkSize, stream.length);
+            while (index < end) {
+                index += psm.handleBytes(stream, index, end - index);
+                packets += takePacket();
+            }
+        }
+        return packets;
+    }
+
+    @Benchmark
+    public int handleBytesHeapBuffer() {
+        return handleBuffer(heapBuffer);
+    }
+
+    @Benchmark
+    public int handleBytesDirectBuffer() {
+        return handleBuffer(directBuffer);
+    }
+
+    private int handleBuffer(ByteBuffer buffer) {
+        int packets = 0;
+        for (int offset = 0; offset < stream.length; offset += chunkSize) {
+            buffer.limit(Math.min(offset + chunkSize, stream.length));
+            buffer.position(offset);
+            while (buffer.hasRemaining()) {
+                psm.handleBytes(buffer);
+                packets += takePacket();
+            }
+        }
+        return packets;
+    }
+
+    private int takePacket() {
+        int state = psm.getState();
+        if (state == SdlPsm.ERROR_STATE) {
+            psm.reset();
+        } else if (state == SdlPsm.FINISHED_STATE) {
+            SdlPacket packet = psm.getFormedPacket();
+            psm.reset();
+            return packet != null ? 1 : 0;
+        }
+        return 0;
+    }
+}
@@ -33,7 +33,9 @@
 package com.smartdevicelink.managers;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
+import com.smartdevicelink.managers.audio.AudioStreamManager;
 import com.smartdevicelink.managers.file.FileManager;
 import com.smartdevicelink.managers.file.filetypes.SdlArtwork;
 import com.smartdevicelink.managers.lifecycle.LifecycleManager;
@@ -53,11 +55,13 @@ import com.smartdevicelink.proxy.rpc.listeners.OnMultipleRequestListener;
 import com.smartdevicelink.proxy.rpc.listeners.OnRPCNotificationListener;
 import com.smartdevicelink.proxy.rpc.listeners.OnRPCRequestListener;
 import com.smartdevicelink.security.SdlSecurityBase;
+import com.smartdevicelink.streaming.video.VideoBitrateController;
 import com.smartdevicelink.transport.BaseTransportConfig;
 import com.smartdevicelink.transport.enums.TransportType;
 import com.smartdevicelink.util.DebugTool;
 import com.smartdevicelink.util.Version;
 
+import java.io.File;
 import java.util.*;
 
 
@@ -80,6 +84,7 @@ public class SdlManager extends BaseSdlManager{
 	private SdlArtwork appIcon;
 	private SdlManagerListener managerListener;
 	private List<Class<? extends SdlSecurityBase>> sdlSecList;
+	private VideoBitrateController videoBitrateController;
 
 
 	// Managers
@@ -87,6 +92,7 @@ public class SdlManager extends BaseSdlManager{
 	private PermissionManager permissionManager;
 	private FileManager fileManager;
     private ScreenManager screenManager;
+	private AudioStreamManager audioStreamManager;
 
 
 	// INTERNAL INTERFACE
@@ -199,13 +205,15 @@ public class SdlManager extends BaseSdlManager{
 					@Override
 					public void onComplete(boolean success) {
 						if (success) {
-							SetAppIcon msg = new SetAppIcon(SdlManager.this.appIcon.getName());
+							SetAppIcon msg = new SetAppIcon(fileManager.getRemoteFileName(SdlManager.this.appIcon));
 							_internalInterface.sendRPCRequest(msg);
 						}
 					}
 				});
 			} else {
-				SetAppIcon msg = new SetAppIcon(SdlManager.this.appIcon.getName());
+				// The icon's contents may be on the head unit under another name
+				String iconName = fileManager != null ? fileManager.getRemoteFileName(SdlManager.this.appIcon) : SdlManager.this.appIcon.getName();
+				SetAppIcon msg = new SetAppIcon(iconName);
 				_internalInterface.sendRPCRequest(msg);
 			}
 		}
@@ -216,7 +224,13 @@ public class SdlManager extends BaseSdlManager{
 		// Instantiate sub managers
 		this.permissionManager = new PermissionManager(_internalInterface);
 		this.fileManager = new FileManager(_internalInterface);
+		this.fileManager.setContentIndexDirectory(new File(System.getProperty("java.io.tmpdir"), "sdl"), getAppId(), getHeadUnitId());
 		this.screenManager = new ScreenManager(_internalInterface, this.fileManager);
+		if (getAppTypes().contains(AppHMIType.NAVIGATION) || getAppTypes().contains(AppHMIType.PROJECTION)) {
+			this.audioStreamManager = new AudioStreamManager(_internalInterface);
+		} else {
+			this.audioStreamManager = null;
+		}
 
 		// Start sub managers
 		this.permissionManager.start(subManagerListener);
@@ -238,6 +252,10 @@ public class SdlManager extends BaseSdlManager{
 			this.screenManager.dispose();
 		}
 
+		if (this.audioStreamManager != null) {
+			this.audioStreamManager.dispose();
+		}
+
 		if(managerListener != null){
 			managerListener.onDestroy(this);
 			managerListener = null;
@@ -275,6 +293,19 @@ public class SdlManager extends BaseSdlManager{
 		return fileManager;
 	}
 
+	/**
+	 * Gets the AudioStreamManager. <br>
+	 * The AudioStreamManager returned will only be not null if the registered app type is
+	 * either NAVIGATION or PROJECTION. Once the AudioStreamManager is retrieved, its start()
+	 * method will need to be called before use.
+	 * <br><strong>Note: AudioStreamManager should be used only after SdlManager.start() CompletionListener callback is completed successfully.</strong>
+	 * @return a AudioStreamManager object
+	 */
+	public @Nullable AudioStreamManager getAudioStreamManager() {
+		checkSdlManagerState();
+		return audioStreamManager;
+	}
+
 	/**
 	 * Gets the ScreenManager. <br>
 	 * <strong>Note: ScreenManager should be used only after SdlManager.start() CompletionListener callback is completed successfully.</strong>
@@ -473,6 +504,9 @@ public class SdlManager extends BaseSdlManager{
 				if (sdlSecList != null && !sdlSecList.isEmpty()) {
 					lifecycleManager.setSdlSecurityClassList(sdlSecList);
 				}
+				if (videoBitrateController != null) {
+					lifecycleManager.setVideoBitrateController(videoBitrateController);
+				}
 
 				//Setup the notification queue
 				initNotificationQueue();
@@ -648,6 +682,16 @@ public class SdlManager extends BaseSdlManager{
 			return this;
 		}
 
+		/**
+		 * Sets the controller that adapts the bitrate, frame rate and resolution of video streams
+		 * to the available bandwidth. Its listener is told when the encoder should change.
+		 * @param controller the video bitrate controller
+		 */
+		public Builder setVideoBitrateController(VideoBitrateController controller) {
+			sdlManager.videoBitrateController = controller;
+			return this;
+		}
+
 		/**
 		 * Set the SdlManager Listener
 		 * @param listener the listener
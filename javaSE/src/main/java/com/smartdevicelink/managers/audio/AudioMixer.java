@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.audio;
+
+import com.smartdevicelink.managers.CompletionListener;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams.SampleFormat;
+
+import java.util.Arrays;
+
+/**
+ * Mixes any number of PCM sources, e.g. TTS and media, into the single format of an audio service.
+ * <p>
+ * Each {@link Source} converts the audio pushed to it into the output format as soon as it is
+ * pushed and keeps the result until {@link #mix(byte[], int, int)} sums it with the other sources.
+ * Mixing works on preallocated primitive arrays; buffers only grow when a source or a mix request
+ * needs more room than before.
+ */
+public class AudioMixer {
+    private static final int UNITY_GAIN = 1 << 16;
+
+    private final int sampleRate;
+    private final int channels;
+    private final SampleFormat sampleFormat;
+    // Copied on every change so mixing can iterate without locks or iterator allocations
+    private volatile Source[] sources = new Source[0];
+    private int[] mixBuffer = new int[0];
+
+    /**
+     * @param params format of the mixed output; only the sampling rate, channel count and sample format are used
+     */
+    public AudioMixer(AudioStreamingLPCMParams params) {
+        if (params.samplingRate <= 0 || params.channels <= 0 || params.sampleFormat == null) {
+            throw new IllegalArgumentException("Invalid output format");
+        }
+        this.sampleRate = params.samplingRate;
+        this.channels = params.channels;
+        this.sampleFormat = params.sampleFormat;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the number of bytes one frame takes in the mixed output
+     */
+    public int getBytesPerFrame() {
+        return sampleFormat == SampleFormat.LPCM_8BIT_UNSIGNED ? channels : channels * 2;
+    }
+
+    /**
+     * Adds a source that accepts PCM in the given format.
+     * @param sampleRate sample rate of the source in Hz
+     * @param bitsPerSample bits per sample of the source, 8 (unsigned), 16, 24 or 32 (signed, little endian)
+     * @param channels number of interleaved channels of the source
+     * @return the new source
+     */
+    public Source addSource(int sampleRate, int bitsPerSample, int channels) {
+        Source source = new Source(new PcmResampler(sampleRate, bitsPerSample, channels, this.sampleRate, this.channels));
+        synchronized (this) {
+            Source[] grown = Arrays.copyOf(sources, sources.length + 1);
+            grown[grown.length - 1] = source;
+            sources = grown;
+        }
+        return source;
+    }
+
+    private synchronized boolean removeSource(Source source) {
+        Source[] current = sources;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == source) {
+                Source[] shrunk = new Source[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                sources = shrunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all sources without notifying their completion listeners.
+     */
+    public void clear() {
+        for (Source source : sources) {
+            source.close();
+        }
+    }
+
+    /**
+     * @return true if any source holds audio that has not been mixed yet
+     */
+    public boolean hasPendingAudio() {
+        for (Source source : sources) {
+            if (source.getPendingFrames() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mixes up to the given number of frames from all sources and encodes them in the output format.
+     * Sources that run out of audio early are treated as silence.
+     * @param output array receiving the encoded frames
+     * @param offset offset of the first output byte
+     * @param maxFrames maximum number of frames to mix
+     * @return the number of frames written, 0 if no source had pending audio
+     */
+    public int mix(byte[] output, int offset, int maxFrames) {
+        if (offset < 0 || maxFrames < 0 || offset + maxFrames * getBytesPerFrame() > output.length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        Source[] sources = this.sources;
+        int frames = 0;
+        for (Source source : sources) {
+            frames = Math.max(frames, Math.min(source.getPendingFrames(), maxFrames));
+        }
+        if (frames == 0) {
+            finishDrainedSources(sources);
+            return 0;
+        }
+
+        int samples = frames * channels;
+        if (mixBuffer.length < samples) {
+            mixBuffer = new int[samples];
+        }
+        int[] mix = mixBuffer;
+        for (int i = 0; i < samples; i++) {
+            mix[i] = 0;
+        }
+        for (Source source : sources) {
+            source.read(mix, samples);
+        }
+
+        if (sampleFormat == SampleFormat.LPCM_8BIT_UNSIGNED) {
+            for (int i = 0; i < samples; i++) {
+                int sample = mix[i];
+                sample = sample > 32767 ? 32767 : (sample < -32768 ? -32768 : sample);
+                output[offset + i] = (byte) ((sample >> 8) + 128);
+            }
+        } else {
+            int index = offset;
+            for (int i = 0; i < samples; i++) {
+                int sample = mix[i];
+                sample = sample > 32767 ? 32767 : (sample < -32768 ? -32768 : sample);
+                output[index++] = (byte) sample;
+                output[index++] = (byte) (sample >> 8);
+            }
+        }
+        finishDrainedSources(sources);
+        return frames;
+    }
+
+    private void finishDrainedSources(Source[] sources) {
+        for (Source source : sources) {
+            if (source.isDrained() && removeSource(source)) {
+                source.notifyFinished();
+            }
+        }
+    }
+
+    /**
+     * A source of audio for the mixer. Audio can be pushed from any thread.
+     */
+    public class Source {
+        private final PcmResampler resampler;
+        private int[] converted = new int[0];
+        // Converted samples waiting to be mixed, in a ring whose size is a power of two
+        private int[] pending = new int[1024];
+        private int head = 0;
+        private int count = 0;
+        private volatile int gain = UNITY_GAIN;
+        private boolean finished = false;
+        private CompletionListener completionListener;
+
+        private Source(PcmResampler resampler) {
+            this.resampler = resampler;
+        }
+
+        /**
+         * Pushes little endian PCM bytes in the format of this source.
+         */
+        public void push(byte[] data, int offset, int length) {
+            synchronized (this) {
+                int converted = resampler.resample(data, offset, length, getConvertedBuffer(resampler.getMaxOutputSamples(length / resampler.getBytesPerFrame() + 1)), 0);
+                enqueue(converted);
+            }
+        }
+
+        /**
+         * Pushes 16 bit samples, interleaved if the source has more than one channel.
+         */
+        public void push(short[] data, int offset, int length) {
+            synchronized (this) {
+                int converted = resampler.resample(data, offset, length, getConvertedBuffer(resampler.getMaxOutputSamples(length / resampler.getInputChannels())), 0);
+                enqueue(converted);
+            }
+        }
+
+        /**
+         * Pushes floating point samples in the range [-1.0, 1.0], interleaved if the source has
+         * more than one channel.
+         */
+        public void push(float[] data, int offset, int length) {
+            synchronized (this) {
+                int converted = resampler.resample(data, offset, length, getConvertedBuffer(resampler.getMaxOutputSamples(length / resampler.getInputChannels())), 0);
+                enqueue(converted);
+            }
+        }
+
+        /**
+         * @param volume factor applied to the samples of this source, 1.0 leaves them unchanged
+         */
+        public void setVolume(float volume) {
+            if (volume < 0) {
+                throw new IllegalArgumentException("Volume can't be negative");
+            }
+            gain = (int) (volume * UNITY_GAIN);
+        }
+
+        /**
+         * @return the number of frames that were pushed but not mixed yet
+         */
+        public synchronized int getPendingFrames() {
+            return count / channels;
+        }
+
+        /**
+         * Marks the end of this source. It is removed from the mixer once all pushed audio is mixed.
+         * @param listener called once the source is removed, may be null
+         */
+        public void finish(CompletionListener listener) {
+            synchronized (this) {
+                finished = true;
+                completionListener = listener;
+            }
+        }
+
+        /**
+         * Removes this source from the mixer right away, dropping any audio that was not mixed yet.
+         * The completion listener is not called.
+         */
+        public void close() {
+            synchronized (this) {
+                finished = true;
+                completionListener = null;
+                head = 0;
+                count = 0;
+            }
+            removeSource(this);
+        }
+
+        private int[] getConvertedBuffer(int samples) {
+            if (converted.length < samples) {
+                converted = new int[samples];
+            }
+            return converted;
+        }
+
+        private void enqueue(int samples) {
+            if (finished) {
+                return;
+            }
+            if (count + samples > pending.length) {
+                int capacity = pending.length;
+                while (capacity < count + samples) {
+                    capacity <<= 1;
+                }
+                int[] grown = new int[capacity];
+                int first = Math.min(count, pending.length - head);
+                System.arraycopy(pending, head, grown, 0, first);
+                System.arraycopy(pending, 0, grown, first, count - first);
+                pending = grown;
+                head = 0;
+            }
+            int mask = pending.length - 1;
+            int tail = (head + count) & mask;
+            int first = Math.min(samples, pending.length - tail);
+            System.arraycopy(converted, 0, pending, tail, first);
+            System.arraycopy(converted, first, pending, 0, samples - first);
+            count += samples;
+        }
+
+        /**
+         * Adds up to the given number of pending samples to the mix buffer.
+         */
+        private synchronized void read(int[] mix, int samples) {
+            int n = Math.min(samples, count);
+            int first = Math.min(n, pending.length - head);
+            addSamples(pending, head, mix, 0, first);
+            addSamples(pending, 0, mix, first, n - first);
+            head = (head + n) & (pending.length - 1);
+            count -= n;
+        }
+
+        private void addSamples(int[] source, int sourceOffset, int[] mix, int mixOffset, int length) {
+            int gain = this.gain;
+            if (gain == UNITY_GAIN) {
+                for (int i = 0; i < length; i++) {
+                    mix[mixOffset + i] += source[sourceOffset + i];
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    mix[mixOffset + i] += (int) (((long) source[sourceOffset + i] * gain) >> 16);
+                }
+            }
+        }
+
+        private synchronized boolean isDrained() {
+            return finished && count == 0;
+        }
+
+        private void notifyFinished() {
+            CompletionListener listener;
+            synchronized (this) {
+                listener = completionListener;
+                completionListener = null;
+            }
+            if (listener != null) {
+                listener.onComplete(true);
+            }
+        }
+    }
+}
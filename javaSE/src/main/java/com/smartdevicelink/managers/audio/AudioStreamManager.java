@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.audio;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.smartdevicelink.SdlConnection.SdlSession;
+import com.smartdevicelink.managers.CompletionListener;
+import com.smartdevicelink.managers.StreamingStateMachine;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.proxy.RPCNotification;
+import com.smartdevicelink.proxy.interfaces.IAudioStreamListener;
+import com.smartdevicelink.proxy.interfaces.ISdl;
+import com.smartdevicelink.proxy.interfaces.ISdlServiceListener;
+import com.smartdevicelink.proxy.interfaces.OnSystemCapabilityListener;
+import com.smartdevicelink.proxy.rpc.AudioPassThruCapabilities;
+import com.smartdevicelink.proxy.rpc.OnHMIStatus;
+import com.smartdevicelink.proxy.rpc.enums.HMILevel;
+import com.smartdevicelink.proxy.rpc.enums.SystemCapabilityType;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCNotificationListener;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams.SampleFormat;
+import com.smartdevicelink.transport.utl.TransportRecord;
+import com.smartdevicelink.util.SharedTimer;
+import com.smartdevicelink.util.Version;
+
+import java.util.List;
+import java.util.TimerTask;
+
+/**
+ * The AudioStreamManager class provides methods to start and stop an audio stream
+ * to the connected device. Audio from any number of sources is converted to the format
+ * of the audio service and mixed before it is sent, so e.g. TTS can be played over media.
+ * <p>
+ * The mixed audio is sent in real time in small chunks. All managers in a process share one
+ * timer thread for this, so a server can stream to many head units without a thread per stream.
+ * The audio packetizer drops its oldest audio instead of blocking when a transport falls behind,
+ * so a stalled head unit never holds up the timer.
+ */
+public class AudioStreamManager extends BaseAudioStreamManager {
+    private static final String TAG = AudioStreamManager.class.getSimpleName();
+    private static final int COMPLETION_TIMEOUT = 2000;
+    // Audio is mixed and sent every MIX_INTERVAL ms
+    private static final int MIX_INTERVAL = 20;
+    // Audio sent ahead of real time when a source starts playing, in ms
+    private static final int MAX_LEAD = 100;
+
+    private static final SharedTimer STREAM_TIMER = new SharedTimer("SdlAudioStream");
+
+    private IAudioStreamListener sdlAudioStream;
+    private AudioMixer mixer;
+    private byte[] mixedAudio;
+    private TimerTask mixTask;
+    private long streamStartTime;
+    private long framesSent;
+    private final StreamingStateMachine streamingStateMachine;
+    private AudioPassThruCapabilities audioStreamingCapabilities;
+    private HMILevel hmiLevel;
+    private boolean isTransportAvailable = false;
+
+    private CompletionListener serviceCompletionListener;
+    private TimerTask serviceCompletionTimeoutTask;
+
+    // INTERNAL INTERFACE
+
+    private final ISdlServiceListener serviceListener = new ISdlServiceListener() {
+        @Override
+        public void onServiceStarted(SdlSession session, SessionType type, boolean isEncrypted) {
+            if (SessionType.PCM.equals(type)) {
+                cancelServiceCompletionTimeout();
+
+                sdlAudioStream = session.startAudioStream();
+                streamingStateMachine.transitionToState(StreamingStateMachine.STARTED);
+                startMixing();
+
+                finishServiceOperation(true);
+            }
+        }
+
+        @Override
+        public void onServiceEnded(SdlSession session, SessionType type) {
+            if (SessionType.PCM.equals(type)) {
+                cancelServiceCompletionTimeout();
+
+                stopMixing();
+                if (mixer != null) {
+                    mixer.clear();
+                }
+                if (session != null) {
+                    session.stopAudioStream();
+                }
+                sdlAudioStream = null;
+                streamingStateMachine.transitionToState(StreamingStateMachine.NONE);
+
+                finishServiceOperation(true);
+            }
+        }
+
+        @Override
+        public void onServiceError(SdlSession session, SessionType type, String reason) {
+            if (SessionType.PCM.equals(type)) {
+                cancelServiceCompletionTimeout();
+
+                streamingStateMachine.transitionToState(StreamingStateMachine.ERROR);
+                Log.e(TAG, "OnServiceError: " + reason);
+                streamingStateMachine.transitionToState(StreamingStateMachine.NONE);
+
+                finishServiceOperation(false);
+            }
+        }
+    };
+
+    private final OnRPCNotificationListener hmiListener = new OnRPCNotificationListener() {
+        @Override
+        public void onNotified(RPCNotification notification) {
+            if(notification != null){
+                hmiLevel = ((OnHMIStatus)notification).getHmiLevel();
+                if(hmiLevel.equals(HMILevel.HMI_FULL) || hmiLevel.equals(HMILevel.HMI_LIMITED)){
+                    checkState();
+                }
+            }
+        }
+    };
+
+    /**
+     * Creates a new object of AudioStreamManager
+     * @param internalInterface The internal interface to the connected device.
+     */
+    public AudioStreamManager(@NonNull ISdl internalInterface) {
+        super(internalInterface);
+
+        internalInterface.addServiceListener(SessionType.PCM, serviceListener);
+
+        // Listen for HMILevel changes
+        internalInterface.addOnRPCNotificationListener(FunctionID.ON_HMI_STATUS, hmiListener);
+
+        streamingStateMachine = new StreamingStateMachine();
+    }
+
+    @Override
+    public void start(CompletionListener listener) {
+        isTransportAvailable = internalInterface.isTransportForServiceAvailable(SessionType.PCM);
+        getAudioStreamingCapabilities();
+        checkState();
+        super.start(listener);
+    }
+
+    private void checkState(){
+        if(audioStreamingCapabilities != null
+                && isTransportAvailable
+                && hmiLevel != null
+                && (hmiLevel.equals(HMILevel.HMI_LIMITED) || hmiLevel.equals(HMILevel.HMI_FULL))){
+            transitionToState(READY);
+        }
+    }
+
+    private void getAudioStreamingCapabilities(){
+        internalInterface.getCapability(SystemCapabilityType.PCM_STREAMING, new OnSystemCapabilityListener() {
+            @Override
+            public void onCapabilityRetrieved(Object capability) {
+                if(capability != null && capability instanceof AudioPassThruCapabilities){
+                    audioStreamingCapabilities = (AudioPassThruCapabilities) capability;
+                    checkState();
+                }
+            }
+
+            @Override
+            public void onError(String info) {
+                Log.e(TAG, "Error retrieving audio streaming capability: " + info);
+                streamingStateMachine.transitionToState(StreamingStateMachine.ERROR);
+                transitionToState(ERROR);
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        stopAudioStream(new CompletionListener() {
+            @Override
+            public void onComplete(boolean success) {
+                internalInterface.removeServiceListener(SessionType.PCM, serviceListener);
+            }
+        });
+        internalInterface.removeOnRPCNotificationListener(FunctionID.ON_HMI_STATUS, hmiListener);
+
+        super.dispose();
+    }
+
+    /**
+     * Starts the audio service and audio stream to the connected device.
+     * The method is non-blocking.
+     * @param encrypted Specify whether or not the audio stream should be encrypted.
+     */
+    public void startAudioStream(boolean encrypted, final CompletionListener completionListener) {
+        // audio stream cannot be started without a connected internal interface
+        if (!internalInterface.isConnected()) {
+            Log.w(TAG, "startAudioStream called without being connected.");
+            finish(completionListener, false);
+            return;
+        }
+
+        // streaming state must be NONE (starting the service is ready. starting stream is started)
+        if (streamingStateMachine.getState() != StreamingStateMachine.NONE) {
+            Log.w(TAG, "startAudioStream called but streamingStateMachine is not in state NONE (current: " + streamingStateMachine.getState() + ")");
+            finish(completionListener, false);
+            return;
+        }
+
+        AudioPassThruCapabilities capabilities = (AudioPassThruCapabilities) internalInterface.getCapability(SystemCapabilityType.PCM_STREAMING);
+        AudioStreamingLPCMParams params = getStreamingParams(capabilities);
+        if (params == null) {
+            finish(completionListener, false);
+            return;
+        }
+        mixer = new AudioMixer(params);
+
+        streamingStateMachine.transitionToState(StreamingStateMachine.READY);
+        serviceCompletionListener = completionListener;
+        startServiceCompletionTimeout();
+        internalInterface.startAudioService(encrypted);
+    }
+
+    /**
+     * @return the format of the audio service described by the capabilities, or null if it isn't supported
+     */
+    private static AudioStreamingLPCMParams getStreamingParams(AudioPassThruCapabilities capabilities) {
+        if (capabilities == null || capabilities.getSamplingRate() == null || capabilities.getBitsPerSample() == null) {
+            return null;
+        }
+        int sampleRate;
+        switch (capabilities.getSamplingRate()) {
+            case _8KHZ:
+                sampleRate = 8000;
+                break;
+            case _16KHZ:
+                sampleRate = 16000;
+                break;
+            case _22KHZ:
+                // common sample rate is 22050, not 22000
+                sampleRate = 22050;
+                break;
+            case _44KHZ:
+                // 2x 22050 is 44100
+                sampleRate = 44100;
+                break;
+            default:
+                return null;
+        }
+
+        SampleFormat sampleFormat;
+        switch (capabilities.getBitsPerSample()) {
+            case _8_BIT:
+                sampleFormat = SampleFormat.LPCM_8BIT_UNSIGNED;
+                break;
+            case _16_BIT:
+                sampleFormat = SampleFormat.LPCM_16BIT_SIGNED_LITTLE_ENDIAN;
+                break;
+            default:
+                return null;
+        }
+        // The PCM service carries a single channel
+        return new AudioStreamingLPCMParams(sampleFormat, sampleRate, 1);
+    }
+
+    /**
+     * Makes the callback to the listener
+     * @param listener the listener to notify
+     * @param isSuccess flag to notify
+     */
+    private void finish(CompletionListener listener, boolean isSuccess) {
+        if (listener != null) {
+            listener.onComplete(isSuccess);
+        }
+    }
+
+    /**
+     * Stops the audio service and audio stream to the connected device.
+     * The method is non-blocking.
+     */
+    public void stopAudioStream(final CompletionListener completionListener) {
+        if (!internalInterface.isConnected()) {
+            Log.w(TAG, "stopAudioStream called without being connected");
+            finish(completionListener, false);
+            return;
+        }
+
+        // streaming state must be STARTED (starting the service is ready. starting stream is started)
+        if (streamingStateMachine.getState() != StreamingStateMachine.STARTED) {
+            Log.w(TAG, "stopAudioStream called but streamingStateMachine is not STARTED (current: " + streamingStateMachine.getState() + ")");
+            finish(completionListener, false);
+            return;
+        }
+
+        stopMixing();
+        streamingStateMachine.transitionToState(StreamingStateMachine.STOPPED);
+        serviceCompletionListener = completionListener;
+        startServiceCompletionTimeout();
+        internalInterface.stopAudioService();
+    }
+
+    /**
+     * Adds a source of PCM audio that is mixed with all other sources. Audio pushed to the source
+     * is converted to the format of the audio service right away.
+     * @param sampleRate sample rate of the source in Hz
+     * @param bitsPerSample bits per sample of the source, 8 (unsigned), 16, 24 or 32 (signed, little endian)
+     * @param channels number of interleaved channels of the source
+     * @return the new source or null if the audio stream isn't started
+     */
+    public AudioMixer.Source createAudioSource(int sampleRate, int bitsPerSample, int channels) {
+        AudioMixer mixer = this.mixer;
+        // streaming state must be STARTED (starting the service is ready. starting stream is started)
+        if (streamingStateMachine.getState() != StreamingStateMachine.STARTED || mixer == null) {
+            return null;
+        }
+        return mixer.addSource(sampleRate, bitsPerSample, channels);
+    }
+
+    /**
+     * Plays a buffer of little endian PCM audio. It is mixed with anything that is already playing.
+     * @param data the audio data
+     * @param sampleRate sample rate of the data in Hz
+     * @param bitsPerSample bits per sample of the data, 8 (unsigned), 16, 24 or 32 (signed, little endian)
+     * @param channels number of interleaved channels of the data
+     * @param completionListener A completion listener that informs when the audio is played.
+     */
+    public void pushAudioData(byte[] data, int sampleRate, int bitsPerSample, int channels, CompletionListener completionListener) {
+        AudioMixer.Source source = createAudioSource(sampleRate, bitsPerSample, channels);
+        if (source == null) {
+            finish(completionListener, false);
+            return;
+        }
+        source.push(data, 0, data.length);
+        source.finish(completionListener);
+    }
+
+    private void startMixing() {
+        AudioMixer mixer = this.mixer;
+        if (mixer == null) {
+            return;
+        }
+        synchronized (this) {
+            stopMixing();
+            mixedAudio = new byte[(mixer.getSampleRate() * (MIX_INTERVAL + MAX_LEAD) / 1000) * mixer.getBytesPerFrame()];
+            streamStartTime = System.nanoTime();
+            framesSent = 0;
+            mixTask = new TimerTask() {
+                @Override
+                public void run() {
+                    sendMixedAudio();
+                }
+            };
+            STREAM_TIMER.get().scheduleAtFixedRate(mixTask, 0, MIX_INTERVAL);
+        }
+    }
+
+    private synchronized void stopMixing() {
+        if (mixTask != null) {
+            mixTask.cancel();
+            mixTask = null;
+        }
+    }
+
+    /**
+     * Sends the audio that is due since the last call. When no source has audio, nothing is sent
+     * and the next audio starts with a lead of up to MAX_LEAD ms.
+     */
+    private synchronized void sendMixedAudio() {
+        AudioMixer mixer = this.mixer;
+        IAudioStreamListener stream = sdlAudioStream;
+        if (mixer == null || stream == null || mixTask == null) {
+            return;
+        }
+        int sampleRate = mixer.getSampleRate();
+        long elapsedFrames = (System.nanoTime() - streamStartTime) / 1000 * sampleRate / 1000000;
+        int leadFrames = sampleRate * MAX_LEAD / 1000;
+        long due = elapsedFrames + leadFrames - framesSent;
+        int maxFrames = mixedAudio.length / mixer.getBytesPerFrame();
+        if (due > maxFrames) {
+            // Never send more than the buffer holds, e.g. after the timer was delayed
+            framesSent += due - maxFrames;
+            due = maxFrames;
+        }
+        if (due <= 0) {
+            return;
+        }
+
+        int frames = mixer.mix(mixedAudio, 0, (int) due);
+        if (frames > 0) {
+            long presentationTimeUs = framesSent * 1000000 / sampleRate;
+            stream.sendAudio(mixedAudio, 0, frames * mixer.getBytesPerFrame(), presentationTimeUs);
+            framesSent += frames;
+        }
+        if (frames < due - leadFrames) {
+            // The sources ran dry, so real time continues without audio
+            framesSent = elapsedFrames;
+        }
+    }
+
+    private void startServiceCompletionTimeout() {
+        cancelServiceCompletionTimeout();
+        serviceCompletionTimeoutTask = new TimerTask() {
+            @Override
+            public void run() {
+                serviceListener.onServiceError(null, SessionType.PCM, "Service operation timeout reached");
+            }
+        };
+        STREAM_TIMER.get().schedule(serviceCompletionTimeoutTask, COMPLETION_TIMEOUT);
+    }
+
+    private void cancelServiceCompletionTimeout() {
+        if (serviceCompletionTimeoutTask != null) {
+            serviceCompletionTimeoutTask.cancel();
+            serviceCompletionTimeoutTask = null;
+        }
+    }
+
+    private void finishServiceOperation(boolean success) {
+        if (serviceCompletionListener != null) {
+            CompletionListener completionListener = serviceCompletionListener;
+            serviceCompletionListener = null;
+            completionListener.onComplete(success);
+        }
+    }
+
+    @Override
+    protected void onTransportUpdate(List<TransportRecord> connectedTransports, boolean audioStreamTransportAvail, boolean videoStreamTransportAvail){
+
+        isTransportAvailable = audioStreamTransportAvail;
+
+        if(internalInterface.getProtocolVersion().isNewerThan(new Version(5,1,0)) >= 0){
+            if(audioStreamTransportAvail){
+                checkState();
+            }
+        }else{
+            //The protocol version doesn't support simultaneous transports.
+            if(!audioStreamTransportAvail){
+                //If audio streaming isn't available on primary transport then it is not possible to
+                //use the audio streaming manager until a complete register on a transport that
+                //supports audio
+                transitionToState(ERROR);
+            }
+        }
+    }
+}
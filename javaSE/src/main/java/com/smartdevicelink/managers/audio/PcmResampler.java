@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.audio;
+
+/**
+ * Converts linear PCM from one sample rate, bit depth and channel count to another using linear
+ * interpolation. Samples are produced as ints in the range of signed 16 bit PCM so they can be
+ * summed by a mixer before being encoded to the format of the audio service.
+ * <p>
+ * The resampler keeps the last input frame and the interpolation position between calls, so a
+ * stream can be converted in chunks of any size. Scratch arrays are only allocated when a chunk is
+ * larger than any chunk seen before, which means a steady stream is converted without allocations.
+ * Instances are not thread safe.
+ */
+public class PcmResampler {
+    private static final int FRACTION_BITS = 32;
+    private static final long ONE = 1L << FRACTION_BITS;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int inputChannels;
+    private final int outputChannels;
+    private final int bytesPerSample;
+    private final int bytesPerFrame;
+    private final long step;
+
+    // Position of the next output frame in input frames, where 0 is the last frame of the previous chunk
+    private long position = ONE;
+    private final int[] previousFrame;
+    private final byte[] partialFrame;
+    private int partialFrameLength = 0;
+    private int[] frames = new int[0];
+
+    /**
+     * @param inputRate sample rate of the input in Hz
+     * @param inputBitsPerSample bits per input sample, 8 (unsigned), 16, 24 or 32 (signed, little endian)
+     * @param inputChannels number of interleaved input channels
+     * @param outputRate sample rate of the output in Hz
+     * @param outputChannels number of interleaved output channels
+     */
+    public PcmResampler(int inputRate, int inputBitsPerSample, int inputChannels, int outputRate, int outputChannels) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rate: " + inputRate + " -> " + outputRate);
+        }
+        if (inputBitsPerSample != 8 && inputBitsPerSample != 16 && inputBitsPerSample != 24 && inputBitsPerSample != 32) {
+            throw new IllegalArgumentException("Unsupported bits per sample: " + inputBitsPerSample);
+        }
+        if (inputChannels <= 0 || outputChannels <= 0) {
+            throw new IllegalArgumentException("Invalid channel count: " + inputChannels + " -> " + outputChannels);
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.inputChannels = inputChannels;
+        this.outputChannels = outputChannels;
+        this.bytesPerSample = inputBitsPerSample / 8;
+        this.bytesPerFrame = bytesPerSample * inputChannels;
+        this.step = (((long) inputRate) << FRACTION_BITS) / outputRate;
+        this.previousFrame = new int[outputChannels];
+        this.partialFrame = new byte[bytesPerFrame];
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getInputChannels() {
+        return inputChannels;
+    }
+
+    public int getOutputChannels() {
+        return outputChannels;
+    }
+
+    /**
+     * @return the number of bytes one input frame takes
+     */
+    public int getBytesPerFrame() {
+        return bytesPerFrame;
+    }
+
+    /**
+     * @param inputFrames number of input frames
+     * @return the maximum number of output samples (frames times output channels) the given
+     * number of input frames can produce
+     */
+    public int getMaxOutputSamples(int inputFrames) {
+        return (int) ((long) inputFrames * outputRate / inputRate + 2) * outputChannels;
+    }
+
+    /**
+     * Converts a chunk of little endian PCM bytes. A trailing partial frame is kept and completed by
+     * the next call.
+     * @param input the input data
+     * @param offset offset of the first input byte
+     * @param length number of input bytes
+     * @param output array receiving interleaved output samples, must have room for
+     *               {@code getMaxOutputSamples(length / getBytesPerFrame() + 1)} samples after outputOffset
+     * @param outputOffset offset of the first output sample
+     * @return the number of output samples written
+     */
+    public int resample(byte[] input, int offset, int length, int[] output, int outputOffset) {
+        if (offset < 0 || length < 0 || offset + length > input.length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        int frameCount = (partialFrameLength + length) / bytesPerFrame;
+        int[] decoded = getFrames(frameCount);
+        int frame = 0;
+
+        if (partialFrameLength > 0) {
+            int needed = Math.min(bytesPerFrame - partialFrameLength, length);
+            System.arraycopy(input, offset, partialFrame, partialFrameLength, needed);
+            partialFrameLength += needed;
+            offset += needed;
+            length -= needed;
+            if (partialFrameLength < bytesPerFrame) {
+                return 0;
+            }
+            decodeFrames(partialFrame, 0, 1, decoded, 0);
+            partialFrameLength = 0;
+            frame = 1;
+        }
+
+        int wholeFrames = length / bytesPerFrame;
+        decodeFrames(input, offset, wholeFrames, decoded, frame * outputChannels);
+        frame += wholeFrames;
+
+        int remainder = length - wholeFrames * bytesPerFrame;
+        if (remainder > 0) {
+            System.arraycopy(input, offset + wholeFrames * bytesPerFrame, partialFrame, 0, remainder);
+            partialFrameLength = remainder;
+        }
+        return interpolate(decoded, frame, output, outputOffset);
+    }
+
+    /**
+     * Converts a chunk of 16 bit samples. The length must be a multiple of the input channel count.
+     * @return the number of output samples written
+     * @see #resample(byte[], int, int, int[], int)
+     */
+    public int resample(short[] input, int offset, int length, int[] output, int outputOffset) {
+        int frameCount = checkSampleRange(input.length, offset, length);
+        int[] decoded = getFrames(frameCount);
+        for (int frame = 0; frame < frameCount; frame++) {
+            int base = offset + frame * inputChannels;
+            if (outputChannels == 1 && inputChannels > 1) {
+                int sum = 0;
+                for (int channel = 0; channel < inputChannels; channel++) {
+                    sum += input[base + channel];
+                }
+                decoded[frame] = sum / inputChannels;
+            } else {
+                for (int channel = 0; channel < outputChannels; channel++) {
+                    decoded[frame * outputChannels + channel] = input[base + Math.min(channel, inputChannels - 1)];
+                }
+            }
+        }
+        return interpolate(decoded, frameCount, output, outputOffset);
+    }
+
+    /**
+     * Converts a chunk of floating point samples in the range [-1.0, 1.0]. The length must be a
+     * multiple of the input channel count.
+     * @return the number of output samples written
+     * @see #resample(byte[], int, int, int[], int)
+     */
+    public int resample(float[] input, int offset, int length, int[] output, int outputOffset) {
+        int frameCount = checkSampleRange(input.length, offset, length);
+        int[] decoded = getFrames(frameCount);
+        for (int frame = 0; frame < frameCount; frame++) {
+            int base = offset + frame * inputChannels;
+            if (outputChannels == 1 && inputChannels > 1) {
+                float sum = 0;
+                for (int channel = 0; channel < inputChannels; channel++) {
+                    sum += input[base + channel];
+                }
+                decoded[frame] = toSample(sum / inputChannels);
+            } else {
+                for (int channel = 0; channel < outputChannels; channel++) {
+                    decoded[frame * outputChannels + channel] = toSample(input[base + Math.min(channel, inputChannels - 1)]);
+                }
+            }
+        }
+        return interpolate(decoded, frameCount, output, outputOffset);
+    }
+
+    /**
+     * Forgets the state carried over from previous chunks, e.g. when a new stream starts.
+     */
+    public void reset() {
+        position = ONE;
+        partialFrameLength = 0;
+        for (int i = 0; i < previousFrame.length; i++) {
+            previousFrame[i] = 0;
+        }
+    }
+
+    private int checkSampleRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > arrayLength) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        if (length % inputChannels != 0) {
+            throw new IllegalArgumentException("Length " + length + " is not a multiple of the channel count " + inputChannels);
+        }
+        return length / inputChannels;
+    }
+
+    private int[] getFrames(int frameCount) {
+        if (frames.length < frameCount * outputChannels) {
+            frames = new int[frameCount * outputChannels];
+        }
+        return frames;
+    }
+
+    private static int toSample(float value) {
+        int sample = (int) (value * 32767f);
+        return sample > 32767 ? 32767 : (sample < -32768 ? -32768 : sample);
+    }
+
+    /**
+     * @return the sample at the given byte position scaled to the signed 16 bit range
+     */
+    private int readSample(byte[] input, int index) {
+        switch (bytesPerSample) {
+            case 1:
+                return ((input[index] & 0xFF) - 128) << 8;
+            case 2:
+                return (input[index] & 0xFF) | (input[index + 1] << 8);
+            case 3:
+                return (input[index + 1] & 0xFF) | (input[index + 2] << 8);
+            default:
+                return (input[index + 2] & 0xFF) | (input[index + 3] << 8);
+        }
+    }
+
+    private void decodeFrames(byte[] input, int offset, int frameCount, int[] decoded, int decodedOffset) {
+        for (int frame = 0; frame < frameCount; frame++) {
+            int base = offset + frame * bytesPerFrame;
+            int target = decodedOffset + frame * outputChannels;
+            if (outputChannels == 1 && inputChannels > 1) {
+                int sum = 0;
+                for (int channel = 0; channel < inputChannels; channel++) {
+                    sum += readSample(input, base + channel * bytesPerSample);
+                }
+                decoded[target] = sum / inputChannels;
+            } else {
+                for (int channel = 0; channel < outputChannels; channel++) {
+                    decoded[target + channel] = readSample(input, base + Math.min(channel, inputChannels - 1) * bytesPerSample);
+                }
+            }
+        }
+    }
+
+    private int interpolate(int[] decoded, int frameCount, int[] output, int outputOffset) {
+        if (frameCount == 0) {
+            return 0;
+        }
+        int sampleCount = frameCount * outputChannels;
+        if (inputRate == outputRate) {
+            System.arraycopy(decoded, 0, output, outputOffset, sampleCount);
+            return sampleCount;
+        }
+
+        int[] previous = previousFrame;
+        int channels = outputChannels;
+        long end = ((long) frameCount) << FRACTION_BITS;
+        long pos = position;
+        int out = outputOffset;
+        while (pos < end) {
+            int index = (int) (pos >>> FRACTION_BITS);
+            long fraction = pos & (ONE - 1);
+            // index 0 refers to the previous frame, index i to decoded frame i - 1
+            int right = index * channels;
+            int left = right - channels;
+            for (int channel = 0; channel < channels; channel++) {
+                int a = index == 0 ? previous[channel] : decoded[left + channel];
+                int b = decoded[right + channel];
+                output[out++] = a + (int) (((b - a) * fraction) >> FRACTION_BITS);
+            }
+            pos += step;
+        }
+        position = pos - end;
+        System.arraycopy(decoded, sampleCount - channels, previous, 0, channels);
+        return out - outputOffset;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.file;
+
+import android.util.Log;
+
+import com.smartdevicelink.util.FileUtls;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of file contents shared by every file manager in the process. When many sessions upload
+ * the same artwork, the bytes are read from disk once and every PutFile request references the
+ * same array instead of holding its own copy. The marshalled parameters of the PutFile requests
+ * are kept alongside the bytes, so they are only serialized once as well.
+ * <p>
+ * Cached bytes are never modified. A payload is referenced from the time a request that uploads it
+ * is created until core responds to it or the file manager that sent it is disposed, and referenced
+ * payloads are never evicted. Once the cache
+ * holds more than its maximum size, the least recently used payloads that aren't referenced are
+ * evicted.
+ */
+public class ArtworkPayloadCache {
+
+	private static final String TAG = "ArtworkPayloadCache";
+	/**
+	 * The default number of bytes of file contents that the cache holds
+	 */
+	public static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+	private static final ArtworkPayloadCache INSTANCE = new ArtworkPayloadCache(DEFAULT_MAX_SIZE);
+
+	//Access ordered, so iteration starts at the least recently used payload
+	private final LinkedHashMap<String, Payload> payloads = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxSize, size;
+	private long hitCount, missCount, evictionCount;
+
+	ArtworkPayloadCache(long maxSize){
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the cache shared by every file manager in this process
+	 */
+	public static ArtworkPayloadCache getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Sets the number of bytes of file contents that the cache holds. If it currently holds more,
+	 * payloads that aren't in use are evicted right away.
+	 * @param maxSize the maximum size in bytes, 0 disables caching of payloads that aren't in use
+	 */
+	public synchronized void setMaxSize(long maxSize){
+		if(maxSize < 0){
+			throw new IllegalArgumentException("The maximum size can't be negative");
+		}
+		this.maxSize = maxSize;
+		trim();
+	}
+
+	public synchronized long getMaxSize(){
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of bytes of file contents currently held, including payloads in use
+	 */
+	public synchronized long getSize(){
+		return size;
+	}
+
+	/**
+	 * @return the number of payloads currently held
+	 */
+	public synchronized int getEntryCount(){
+		return payloads.size();
+	}
+
+	/**
+	 * @return how many times a payload was found in the cache
+	 */
+	public synchronized long getHitCount(){
+		return hitCount;
+	}
+
+	/**
+	 * @return how many times a payload had to be loaded
+	 */
+	public synchronized long getMissCount(){
+		return missCount;
+	}
+
+	/**
+	 * @return how many payloads were evicted to keep the cache under its maximum size
+	 */
+	public synchronized long getEvictionCount(){
+		return evictionCount;
+	}
+
+	/**
+	 * @return the fraction of requests for a payload that were served from the cache, or 0 if none
+	 * have been made
+	 */
+	public synchronized double getHitRate(){
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * Removes every payload from the cache and resets its counters. Requests that are still using a
+	 * payload keep their reference to it.
+	 */
+	public synchronized void clear(){
+		payloads.clear();
+		size = 0;
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+
+	/**
+	 * Gets the contents of a file on disk, reading it only if the cache doesn't already hold the
+	 * current version of it. The payload must be released once it is no longer needed.
+	 * @param filePath path of the file
+	 * @return the referenced payload or null if the file couldn't be read
+	 */
+	Payload acquireFile(String filePath){
+		File file = new File(filePath);
+		Payload payload = acquire(buildFileKey(file));
+		synchronized (payload){
+			if(!payload.loaded){
+				byte[] data = FileUtls.getFileData(filePath);
+				onLoaded(payload, data != null && data.length > 0 ? data : null);
+			}
+		}
+		return checkLoaded(payload);
+	}
+
+	/**
+	 * Gets a payload holding the given bytes, copying them only if the cache doesn't already hold
+	 * the same contents. The payload must be released once it is no longer needed.
+	 * @param hash hash of the bytes, see {@link FileContentIndex#hash(byte[])}
+	 * @param data the bytes, which are copied so later changes to them don't affect the cache
+	 * @return the referenced payload
+	 */
+	Payload acquireData(String hash, byte[] data){
+		Payload payload = acquire("data:" + hash);
+		synchronized (payload){
+			if(!payload.loaded){
+				byte[] copy = new byte[data.length];
+				System.arraycopy(data, 0, copy, 0, data.length);
+				payload.contentHash = hash;
+				onLoaded(payload, copy);
+			}
+		}
+		return checkLoaded(payload);
+	}
+
+	/**
+	 * Finds the payload holding the current version of a file on disk without loading it or taking
+	 * a reference to it
+	 * @param filePath path of the file
+	 * @return the payload or null if the cache doesn't hold the file
+	 */
+	synchronized Payload peekFile(String filePath){
+		Payload payload = payloads.get(buildFileKey(new File(filePath)));
+		return payload != null && payload.data != null ? payload : null;
+	}
+
+	/**
+	 * Gives up a reference to a payload taken by one of the acquire methods
+	 * @param payload the payload that is no longer needed
+	 */
+	synchronized void release(Payload payload){
+		if(payload.refCount > 0){
+			payload.refCount--;
+		}
+		if(payload.refCount == 0 && size > maxSize){
+			trim();
+		}
+	}
+
+	private static String buildFileKey(File file){
+		//A changed file gets a new key, the old version is evicted once it's no longer used
+		return "file:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+	}
+
+	/**
+	 * Finds or creates the payload for a key and takes a reference to it. A payload that was just
+	 * created has to be loaded by the caller while holding its lock, other callers wait on that lock
+	 * rather than loading the same contents again.
+	 */
+	private synchronized Payload acquire(String key){
+		Payload payload = payloads.get(key);
+		if(payload != null){
+			hitCount++;
+		}else{
+			missCount++;
+			payload = new Payload(key);
+			payloads.put(key, payload);
+		}
+		payload.refCount++;
+		return payload;
+	}
+
+	private synchronized void onLoaded(Payload payload, byte[] data){
+		payload.loaded = true;
+		payload.data = data;
+		if(data == null){
+			if(payloads.get(payload.key) == payload){
+				payloads.remove(payload.key);
+			}
+			return;
+		}
+		if(payloads.get(payload.key) == payload){
+			size += data.length;
+			trim();
+		}
+	}
+
+	private Payload checkLoaded(Payload payload){
+		if(payload.data == null){
+			release(payload);
+			return null;
+		}
+		return payload;
+	}
+
+	/**
+	 * Evicts the least recently used payloads that aren't in use until the cache is under its
+	 * maximum size
+	 */
+	private void trim(){
+		Iterator<Payload> iterator = payloads.values().iterator();
+		while(size > maxSize && iterator.hasNext()){
+			Payload payload = iterator.next();
+			if(payload.refCount == 0 && payload.data != null){
+				iterator.remove();
+				size -= payload.data.length;
+				evictionCount++;
+				Log.v(TAG, "Evicted " + payload.key);
+			}
+		}
+	}
+
+	/**
+	 * Contents of a file shared by every request that uploads it. Neither the bytes nor the
+	 * marshalled parameters may be modified.
+	 */
+	static final class Payload {
+		private final String key;
+		private volatile byte[] data;
+		private boolean loaded = false;
+		private int refCount = 0;
+		private String contentHash;
+		private final Map<Byte, MarshalledParameters> marshalledParameters = new HashMap<>();
+
+		private Payload(String key){
+			this.key = key;
+		}
+
+		byte[] getData(){
+			return data;
+		}
+
+		/**
+		 * @return the hash of the payload's bytes, which is only computed once
+		 */
+		synchronized String getContentHash(){
+			if(contentHash == null){
+				contentHash = FileContentIndex.hash(data);
+			}
+			return contentHash;
+		}
+
+		/**
+		 * @param parameters the parameters of a request uploading this payload
+		 * @param version the protocol version the parameters will be sent with
+		 * @return the parameters marshalled by an earlier request with the same parameters, or null
+		 */
+		synchronized byte[] getMarshalledParameters(Hashtable<String, Object> parameters, byte version){
+			MarshalledParameters marshalled = marshalledParameters.get(version);
+			if(marshalled != null && marshalled.parameters.equals(parameters)){
+				return marshalled.json;
+			}
+			return null;
+		}
+
+		/**
+		 * Stores marshalled parameters for later requests uploading this payload with the same
+		 * parameters. Only the last parameters stored for a protocol version are kept.
+		 */
+		synchronized void setMarshalledParameters(Hashtable<String, Object> parameters, byte version, byte[] json){
+			marshalledParameters.put(version, new MarshalledParameters(new Hashtable<>(parameters), json));
+		}
+	}
+
+	private static final class MarshalledParameters {
+		private final Hashtable<String, Object> parameters;
+		private final byte[] json;
+
+		private MarshalledParameters(Hashtable<String, Object> parameters, byte[] json){
+			this.parameters = parameters;
+			this.json = json;
+		}
+	}
+}
@@ -33,10 +33,28 @@ package com.smartdevicelink.managers.file;
 
 
 import android.support.annotation.NonNull;
+import android.util.Log;
+
 import com.smartdevicelink.managers.file.filetypes.SdlFile;
+import com.smartdevicelink.proxy.RPCResponse;
 import com.smartdevicelink.proxy.interfaces.ISdl;
 import com.smartdevicelink.proxy.rpc.PutFile;
-import com.smartdevicelink.util.FileUtls;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.listeners.OnPutFileUpdateListener;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * <strong>FileManager</strong> <br>
@@ -55,42 +73,91 @@ import com.smartdevicelink.util.FileUtls;
  */
 public class FileManager extends BaseFileManager {
 
+	/**
+	 * Files on disk larger than this are streamed in chunks of this size instead of being read into memory
+	 */
+	static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+	/**
+	 * The number of chunks of a streamed file that can be waiting on a response at once
+	 */
+	static final int STREAMING_MAX_PENDING_CHUNKS = 4;
+	/**
+	 * Sends the chunks of streamed files. Sending a chunk can block when the transport is congested,
+	 * so it's not done on the thread that delivers the responses. Threads are only kept around while
+	 * files are being streamed.
+	 */
+	private static final Executor CHUNK_SENDER = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "SdlPutFileStream");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Requests holding a cached payload that are waiting on a response
+	 */
+	private final Set<SharedPutFile> pendingSharedPutFiles = new HashSet<>();
+
 	public FileManager(ISdl internalInterface) {
 
 		// setup
 		super(internalInterface);
 	}
 
+	@Override
+	public void dispose(){
+		//No response will come for the requests that are still pending, so their payloads are released here
+		List<SharedPutFile> pending;
+		synchronized (pendingSharedPutFiles){
+			pending = new ArrayList<>(pendingSharedPutFiles);
+			pendingSharedPutFiles.clear();
+		}
+		for(SharedPutFile putFile : pending){
+			putFile.release();
+		}
+		super.dispose();
+	}
+
 	/**
-	 * Creates and returns a PutFile request that would upload a given SdlFile
+	 * Creates and returns a PutFile request that would upload a given SdlFile. The file's contents
+	 * are shared through the {@link ArtworkPayloadCache} with every other session uploading them.
 	 * @param file SdlFile with fileName and one of A) fileData, B) Uri, or C) resourceID set
 	 * @return a valid PutFile request if SdlFile contained a fileName and sufficient data
 	 */
 	@Override
 	PutFile createPutFile(@NonNull final SdlFile file){
-		PutFile putFile = new PutFile();
 		if(file.getName() == null){
 			throw new IllegalArgumentException("You must specify an file name in the SdlFile");
-		}else{
-			putFile.setSdlFileName(file.getName());
 		}
 
+		PutFile putFile;
 		if(file.getFilePath() != null){
 			//Attempt to access the file via a path
-			byte[] data = FileUtls.getFileData(file.getFilePath());
-			if(data != null ){
-				putFile.setFileData(data);
+			ArtworkPayloadCache cache = ArtworkPayloadCache.getInstance();
+			ArtworkPayloadCache.Payload payload = cache.acquireFile(file.getFilePath());
+			if(payload != null){
+				putFile = new SharedPutFile(cache, payload);
 			}else{
 				throw new IllegalArgumentException("File at path was empty");
 			}
 		}else if(file.getFileData() != null){
 			// Use file data (raw bytes) to upload file
-			putFile.setFileData(file.getFileData());
+			String hash = getContentHash(file);
+			if(hash != null){
+				ArtworkPayloadCache cache = ArtworkPayloadCache.getInstance();
+				putFile = new SharedPutFile(cache, cache.acquireData(hash, file.getFileData()));
+			}else{
+				putFile = new PutFile();
+				putFile.setFileData(file.getFileData());
+			}
 		}else{
 			throw new IllegalArgumentException("The SdlFile to upload does " +
 					"not specify its resourceId, Uri, or file data");
 		}
 
+		putFile.setSdlFileName(file.getName());
 		if(file.getType() != null){
 			putFile.setFileType(file.getType());
 		}
@@ -99,4 +166,345 @@ public class FileManager extends BaseFileManager {
 		return putFile;
 	}
 
+	/**
+	 * Sends the request(s) that upload a single file to core. Files on disk that are larger than a
+	 * single chunk are streamed, see {@link #streamFile(SdlFile, OnPutFileUpdateListener)}.
+	 * @param file SdlFile with file name and one of A) fileData, B) Uri, or C) resourceID set
+	 * @param listener called with core's response once the whole file has been accepted or rejected
+	 */
+	@Override
+	void sendPutFile(@NonNull SdlFile file, final OnRPCResponseListener listener){
+		if(file.getFilePath() != null && new File(file.getFilePath()).length() > STREAMING_CHUNK_SIZE){
+			//The caller's listener records the upload
+			startStream(file, new OnPutFileUpdateListener() {
+				@Override
+				public void onResponse(int correlationId, RPCResponse response, long totalSize) {
+					listener.onResponse(correlationId, response);
+				}
+
+				@Override
+				public void onError(int correlationId, Result resultCode, String info) {
+					listener.onError(correlationId, resultCode, info);
+				}
+			});
+			return;
+		}
+		final PutFile putFile = createPutFile(file);
+		if(putFile instanceof SharedPutFile){
+			synchronized (pendingSharedPutFiles){
+				pendingSharedPutFiles.add((SharedPutFile) putFile);
+			}
+		}
+		putFile.setOnRPCResponseListener(new OnRPCResponseListener() {
+			@Override
+			public void onResponse(int correlationId, RPCResponse response) {
+				releasePayload(putFile);
+				listener.onResponse(correlationId, response);
+			}
+
+			@Override
+			public void onError(int correlationId, Result resultCode, String info) {
+				releasePayload(putFile);
+				listener.onError(correlationId, resultCode, info);
+			}
+		});
+		internalInterface.sendRPC(putFile);
+	}
+
+	/**
+	 * Lets the payload cache evict a file's contents once the request uploading them is done
+	 */
+	private void releasePayload(PutFile putFile){
+		if(putFile instanceof SharedPutFile){
+			synchronized (pendingSharedPutFiles){
+				pendingSharedPutFiles.remove(putFile);
+			}
+			((SharedPutFile) putFile).release();
+		}
+	}
+
+	@Override
+	Object getContentVersion(@NonNull SdlFile file){
+		if(file.getFilePath() != null){
+			//Writing to the file changes its modification time
+			File diskFile = new File(file.getFilePath());
+			return file.getFilePath() + ":" + diskFile.length() + ":" + diskFile.lastModified();
+		}
+		return super.getContentVersion(file);
+	}
+
+	@Override
+	String computeContentHash(@NonNull SdlFile file){
+		if(file.getFilePath() != null){
+			//Sessions uploading the same file share the hash of the cached contents
+			ArtworkPayloadCache.Payload payload = ArtworkPayloadCache.getInstance().peekFile(file.getFilePath());
+			if(payload != null){
+				return payload.getContentHash();
+			}
+			FileInputStream inputStream = null;
+			try{
+				inputStream = new FileInputStream(file.getFilePath());
+				return FileContentIndex.hash(inputStream);
+			}catch (IOException e){
+				Log.e(TAG, "Unable to read file: " + file.getFilePath(), e);
+				return null;
+			}finally {
+				if(inputStream != null){
+					try {
+						inputStream.close();
+					} catch (IOException ignore) {}
+				}
+			}
+		}
+		return super.computeContentHash(file);
+	}
+
+	@Override
+	long getFileSize(@NonNull SdlFile file){
+		if(file.getFilePath() != null){
+			return new File(file.getFilePath()).length();
+		}
+		return super.getFileSize(file);
+	}
+
+	/**
+	 * Uploads a file from disk as a series of PutFile requests, each carrying the next chunk of the
+	 * file at an increasing offset. The file is memory mapped and only a few chunks are read into
+	 * memory at a time, so large files can be uploaded without loading them into the heap. New
+	 * chunks are sent while earlier ones are still waiting on a response.
+	 * @param file SdlFile with a file name and file path set
+	 * @param listener called as core accepts each chunk and once the whole file has been uploaded or
+	 *                 any chunk fails
+	 */
+	public void streamFile(@NonNull final SdlFile file, final OnPutFileUpdateListener listener){
+		startStream(file, new OnPutFileUpdateListener() {
+			@Override
+			public void onStart(int correlationId, long totalSize) {
+				if(listener != null){
+					listener.setTotalSize(totalSize);
+					listener.onStart(correlationId);
+				}
+			}
+
+			@Override
+			public void onUpdate(int correlationId, long bytesWritten, long totalSize) {
+				if(listener != null){
+					listener.onUpdate(correlationId, bytesWritten, totalSize);
+				}
+			}
+
+			@Override
+			public void onResponse(int correlationId, RPCResponse response, long totalSize) {
+				if(response.getSuccess()){
+					onFileUploaded(file);
+				}
+				if(listener != null){
+					listener.onResponse(correlationId, response);
+				}
+			}
+
+			@Override
+			public void onError(int correlationId, Result resultCode, String info) {
+				if(listener != null){
+					listener.onError(correlationId, resultCode, info);
+				}
+			}
+		});
+	}
+
+	private void startStream(@NonNull SdlFile file, OnPutFileUpdateListener listener){
+		if(file.getName() == null){
+			throw new IllegalArgumentException("You must specify an file name in the SdlFile");
+		}
+		if(file.getFilePath() == null){
+			throw new IllegalArgumentException("The SdlFile to stream does not specify a file path");
+		}
+		ByteBuffer data = mapFile(file.getFilePath());
+		if(data == null || !data.hasRemaining()){
+			throw new IllegalArgumentException("File at path was empty");
+		}
+		new PutFileStream(file, data, listener).start();
+	}
+
+	/**
+	 * Maps a file into memory so that it can be read without copying the whole thing into the heap
+	 * @param filePath path of the file to map
+	 * @return a read only buffer of the file's contents or null if it couldn't be read
+	 */
+	private static ByteBuffer mapFile(String filePath){
+		FileInputStream inputStream = null;
+		try{
+			inputStream = new FileInputStream(filePath);
+			FileChannel channel = inputStream.getChannel();
+			if(channel.size() > Integer.MAX_VALUE){
+				Log.e(TAG, "File is too large to stream: " + filePath);
+				return null;
+			}
+			//The mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}catch (IOException e){
+			Log.e(TAG, "Unable to map file: " + filePath, e);
+			return null;
+		}finally {
+			if(inputStream != null){
+				try {
+					inputStream.close();
+				} catch (IOException ignore) {}
+			}
+		}
+	}
+
+	/**
+	 * Sends a mapped file as a series of PutFile chunks. At most {@link #STREAMING_MAX_PENDING_CHUNKS}
+	 * chunks are waiting on a response at any time; each response frees the slot for the next chunk.
+	 * Chunks are sent in order by a single task at a time on {@link #CHUNK_SENDER}.
+	 */
+	private class PutFileStream {
+		private final SdlFile file;
+		private final ByteBuffer data;
+		private final OnPutFileUpdateListener listener;
+		private final long totalSize;
+		private int firstCorrelationId;
+		private int nextOffset = 0, pendingChunks = 0;
+		private long bytesAccepted = 0;
+		private boolean finished = false, sendQueued = false;
+
+		PutFileStream(SdlFile file, ByteBuffer data, OnPutFileUpdateListener listener){
+			this.file = file;
+			this.data = data;
+			this.listener = listener;
+			this.totalSize = data.remaining();
+		}
+
+		synchronized void start(){
+			queueSend();
+		}
+
+		/**
+		 * Hands the send task to the executor if there is room for more chunks and it isn't already
+		 * queued or running. Must be called while holding this stream's lock.
+		 */
+		private void queueSend(){
+			if(!sendQueued && canSend()){
+				sendQueued = true;
+				CHUNK_SENDER.execute(sendTask);
+			}
+		}
+
+		private boolean canSend(){
+			return !finished && pendingChunks < STREAMING_MAX_PENDING_CHUNKS && nextOffset < totalSize;
+		}
+
+		/**
+		 * Sends chunks until the pending limit is reached or the whole file has been sent
+		 */
+		private final Runnable sendTask = new Runnable() {
+			@Override
+			public void run() {
+				while(true){
+					PutFile putFile;
+					synchronized (PutFileStream.this){
+						if(!canSend()){
+							sendQueued = false;
+							return;
+						}
+						putFile = createNextChunk();
+					}
+					internalInterface.sendRPC(putFile);
+				}
+			}
+		};
+
+		/**
+		 * Creates the PutFile for the next chunk and counts it as pending. Must be called while
+		 * holding this stream's lock.
+		 */
+		private PutFile createNextChunk(){
+			final int offset = nextOffset;
+			final int length = (int) Math.min(STREAMING_CHUNK_SIZE, totalSize - offset);
+			byte[] chunk = new byte[length];
+			ByteBuffer view = data.duplicate();
+			view.position(offset);
+			view.get(chunk);
+
+			PutFile putFile = new PutFile();
+			putFile.setSdlFileName(file.getName());
+			if(file.getType() != null){
+				putFile.setFileType(file.getType());
+			}
+			putFile.setPersistentFile(file.isPersistent());
+			putFile.setOffset((long) offset);
+			if(offset == 0){
+				//Only the first chunk carries the total length of the file
+				putFile.setLength(totalSize);
+			}
+			putFile.setFileData(chunk);
+			putFile.setOnRPCResponseListener(new OnRPCResponseListener() {
+				@Override
+				public void onStart(int correlationId) {
+					//The session assigns the correlation id when the chunk is sent
+					if(offset == 0){
+						onFirstChunkStarted(correlationId);
+					}
+				}
+
+				@Override
+				public void onResponse(int correlationId, RPCResponse response) {
+					onChunkAccepted(correlationId, length, response);
+				}
+
+				@Override
+				public void onError(int correlationId, Result resultCode, String info) {
+					onChunkFailed(correlationId, resultCode, info);
+				}
+			});
+
+			nextOffset += length;
+			pendingChunks++;
+			return putFile;
+		}
+
+		private synchronized void onFirstChunkStarted(int correlationId){
+			firstCorrelationId = correlationId;
+			if(listener != null){
+				listener.setTotalSize(totalSize);
+				listener.onStart(correlationId);
+			}
+		}
+
+		private synchronized void onChunkAccepted(int correlationId, int length, RPCResponse response){
+			if(finished){
+				return;
+			}
+			if(!response.getSuccess()){
+				onChunkFailed(correlationId, response.getResultCode(), response.getInfo());
+				return;
+			}
+			pendingChunks--;
+			bytesAccepted += length;
+			if(listener != null){
+				listener.onUpdate(correlationId, bytesAccepted, totalSize);
+			}
+			if(bytesAccepted == totalSize){
+				finished = true;
+				if(listener != null){
+					listener.onResponse(firstCorrelationId, response);
+				}
+			}else{
+				queueSend();
+			}
+		}
+
+		private synchronized void onChunkFailed(int correlationId, Result resultCode, String info){
+			if(finished){
+				return;
+			}
+			finished = true;
+			Log.e(TAG, "Failed to stream file " + file.getName() + " at " + bytesAccepted + "/" + totalSize + " - " + buildErrorString(resultCode, info));
+			if(listener != null){
+				listener.onError(correlationId, resultCode, info);
+			}
+		}
+	}
+
 }
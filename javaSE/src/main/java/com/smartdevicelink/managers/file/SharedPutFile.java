@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.managers.file;
+
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.proxy.rpc.PutFile;
+
+/**
+ * A PutFile request whose file data is held by the {@link ArtworkPayloadCache}. The data is shared
+ * with every other request uploading the same contents rather than copied into this request, and
+ * the marshalled parameters are reused from an earlier request when they are the same.
+ * <p>
+ * Setting new file data detaches the request from the cache.
+ */
+public class SharedPutFile extends PutFile {
+
+	private final ArtworkPayloadCache cache;
+	private ArtworkPayloadCache.Payload payload;
+	private boolean released = false;
+
+	/**
+	 * @param cache the cache the payload was acquired from
+	 * @param payload the payload holding the file data, referenced for this request
+	 */
+	SharedPutFile(ArtworkPayloadCache cache, ArtworkPayloadCache.Payload payload){
+		super();
+		this.cache = cache;
+		this.payload = payload;
+	}
+
+	@Override
+	public byte[] getBulkData() {
+		if(payload != null){
+			return payload.getData();
+		}
+		return super.getBulkData();
+	}
+
+	@Override
+	public void setBulkData(byte[] bulkData) {
+		release();
+		payload = null;
+		super.setBulkData(bulkData);
+	}
+
+	/**
+	 * Marshals the request, reusing the bytes marshalled for an earlier request uploading the same
+	 * payload with the same parameters. The returned bytes are shared and must not be modified.
+	 * @param version protocol version
+	 * @return byte array of the marshalled message
+	 */
+	public byte[] marshall(byte version){
+		//Version 1 messages hold the correlation ID, so they are never the same for two requests
+		if(payload == null || version <= 1){
+			return JsonRPCMarshaller.marshall(this, version);
+		}
+		byte[] json = payload.getMarshalledParameters(parameters, version);
+		if(json == null){
+			json = JsonRPCMarshaller.marshall(this, version);
+			if(json != null){
+				payload.setMarshalledParameters(parameters, version, json);
+			}
+		}
+		return json;
+	}
+
+	/**
+	 * Gives up this request's reference to the cached payload once it is no longer needed. The file
+	 * data stays readable, but the cache is free to evict it.
+	 */
+	synchronized void release(){
+		if(payload != null && !released){
+			released = true;
+			cache.release(payload);
+		}
+	}
+}
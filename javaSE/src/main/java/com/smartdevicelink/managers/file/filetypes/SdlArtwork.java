@@ -106,6 +106,13 @@ public class SdlArtwork extends SdlFile {
         }
     }
 
+    @Override
+    public void setName(@NonNull String fileName) {
+        super.setName(fileName);
+        //The Image RPC refers to the artwork by name
+        imageRPC = null;
+    }
+
     /**
      * Gets the Image RPC representing this artwork. Generally for use internally, you should instead pass an artwork to a Screen Manager method
      * @return The Image RPC representing this artwork.
@@ -38,6 +38,7 @@ import com.smartdevicelink.SdlConnection.ISdlConnectionListener;
 import com.smartdevicelink.SdlConnection.SdlSession;
 import com.smartdevicelink.exception.SdlException;
 import com.smartdevicelink.managers.SdlManager;
+import com.smartdevicelink.managers.file.SharedPutFile;
 import com.smartdevicelink.marshal.JsonRPCMarshaller;
 import com.smartdevicelink.protocol.ProtocolMessage;
 import com.smartdevicelink.protocol.enums.FunctionID;
@@ -51,17 +52,20 @@ import com.smartdevicelink.proxy.rpc.listeners.*;
 import com.smartdevicelink.security.SdlSecurityBase;
 import com.smartdevicelink.streaming.audio.AudioStreamingCodec;
 import com.smartdevicelink.streaming.audio.AudioStreamingParams;
+import com.smartdevicelink.streaming.video.VideoBitrateController;
 import com.smartdevicelink.streaming.video.VideoStreamingParameters;
 import com.smartdevicelink.transport.BaseTransportConfig;
-import com.smartdevicelink.util.CorrelationIdGenerator;
 import com.smartdevicelink.util.DebugTool;
 import com.smartdevicelink.util.FileUtls;
 import com.smartdevicelink.util.Version;
 
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The lifecycle manager creates a centeral point for all SDL session logic to converge. It should only be used by
@@ -74,19 +78,14 @@ public class LifecycleManager extends BaseLifecycleManager {
 
     public static final Version MAX_SUPPORTED_RPC_VERSION = new Version(5, 1, 0);
 
+    // Time to wait for the head unit to respond to a start service request
+    private static final int RESPONSE_WAIT_TIME = 2000;
+
     // Protected Correlation IDs
     private final int 	REGISTER_APP_INTERFACE_CORRELATION_ID = 65529,
                         UNREGISTER_APP_INTERFACE_CORRELATION_ID = 65530;
 
 
-    // Sdl Synchronization Objects
-    private static final Object  RPC_LISTENER_LOCK = new Object(),
-                                 ON_UPDATE_LISTENER_LOCK = new Object(),
-                                 ON_REQUEST_LISTENER_LOCK = new Object(),
-                                 ON_NOTIFICATION_LISTENER_LOCK = new Object();
-
-
-
     SdlSession session;
     AppConfig appConfig;
 
@@ -94,10 +93,12 @@ public class LifecycleManager extends BaseLifecycleManager {
     protected Version rpcSpecVersion = MAX_SUPPORTED_RPC_VERSION;
 
 
-    private final HashMap<Integer,CopyOnWriteArrayList<OnRPCListener>> rpcListeners;
-    private final HashMap<Integer, OnRPCResponseListener> rpcResponseListeners;
-    private final HashMap<Integer, CopyOnWriteArrayList<OnRPCNotificationListener>> rpcNotificationListeners;
-    private final HashMap<Integer, CopyOnWriteArrayList<OnRPCRequestListener>> rpcRequestListeners;
+    // Listener registries are per instance and lock free so that multiple sessions in the same
+    // process never contend with each other while dispatching RPCs
+    private final ConcurrentHashMap<Integer,CopyOnWriteArrayList<OnRPCListener>> rpcListeners;
+    private final PendingRequestTracker rpcResponseListeners;
+    private final ConcurrentHashMap<Integer, CopyOnWriteArrayList<OnRPCNotificationListener>> rpcNotificationListeners;
+    private final ConcurrentHashMap<Integer, CopyOnWriteArrayList<OnRPCRequestListener>> rpcRequestListeners;
 
     protected final SystemCapabilityManager systemCapabilityManager;
 
@@ -112,15 +113,16 @@ public class LifecycleManager extends BaseLifecycleManager {
     private String authToken;
     private Version minimumProtocolVersion;
     private Version minimumRPCVersion;
+    private final CopyOnWriteArrayList<SessionType> startedServices = new CopyOnWriteArrayList<>();
 
     public LifecycleManager(AppConfig appConfig, BaseTransportConfig config, LifecycleListener listener){
 
         this.lifecycleListener = listener;
 
-        this.rpcListeners = new HashMap<>();
-        this.rpcResponseListeners = new HashMap<>();
-        this.rpcNotificationListeners = new HashMap<>();
-        this.rpcRequestListeners = new HashMap<>();
+        this.rpcListeners = new ConcurrentHashMap<>();
+        this.rpcResponseListeners = new PendingRequestTracker();
+        this.rpcNotificationListeners = new ConcurrentHashMap<>();
+        this.rpcRequestListeners = new ConcurrentHashMap<>();
 
         this.appConfig = appConfig;
         this.minimumProtocolVersion = appConfig.minimumProtocolVersion;
@@ -157,7 +159,7 @@ public class LifecycleManager extends BaseLifecycleManager {
             for(RPCMessage message : messages){
                 if(message instanceof RPCRequest){
                     RPCRequest request = ((RPCRequest) message);
-                    request.setCorrelationID(CorrelationIdGenerator.generateId());
+                    request.setCorrelationID(generateCorrelationId());
                     if(listener != null){
                         listener.addCorrelationId(request.getCorrelationID());
                         request.setOnRPCResponseListener(listener.getSingleRpcResponseListener());
@@ -188,7 +190,7 @@ public class LifecycleManager extends BaseLifecycleManager {
            // Request Specifics
            if (rpc.getMessageType().equals(RPCMessage.KEY_REQUEST)) {
                RPCRequest request = (RPCRequest) rpc;
-               request.setCorrelationID(CorrelationIdGenerator.generateId());
+               request.setCorrelationID(generateCorrelationId());
 
                request.setOnRPCResponseListener(new OnRPCResponseListener() {
                    @Override
@@ -248,6 +250,110 @@ public class LifecycleManager extends BaseLifecycleManager {
         }
     }
 
+    /**
+     * Starts the video service if it isn't already running with the requested encryption and then
+     * starts a packetizer on it. This method blocks for up to {@link #RESPONSE_WAIT_TIME}ms while
+     * waiting for the head unit to accept the service, so it must not be called on the thread that
+     * delivers protocol callbacks.
+     * @param isEncrypted true if the packets on the video service should be encrypted
+     * @param parameters the desired video streaming parameters
+     * @return the listener to send encoded frames to, or null if the stream couldn't be started
+     */
+    private IVideoStreamListener startVideoStream(boolean isEncrypted, VideoStreamingParameters parameters){
+        if (!isConnected()) {
+            DebugTool.logWarning("Connection is not available.");
+            return null;
+        }
+        if (parameters == null) {
+            DebugTool.logWarning("Video parameters were not supplied.");
+            return null;
+        }
+        Version protocolVersion = getProtocolVersion();
+        if (protocolVersion != null && protocolVersion.getMajor() >= 5
+                && !systemCapabilityManager.isCapabilitySupported(SystemCapabilityType.VIDEO_STREAMING)) {
+            DebugTool.logWarning("Module doesn't support video streaming.");
+            return null;
+        }
+
+        session.setDesiredVideoParams(parameters);
+
+        if (!startServiceAndWait(SessionType.NAV, isEncrypted)) {
+            DebugTool.logWarning("Video service was not started.");
+            return null;
+        }
+
+        if (protocolVersion == null || protocolVersion.getMajor() < 5) {
+            // Older head units don't negotiate the parameters so the desired ones are used as is
+            session.setAcceptedVideoParams(parameters);
+        }
+        return session.startVideoStream();
+    }
+
+    /**
+     * Starts the audio service if it isn't already running with the requested encryption and then
+     * starts a packetizer on it. Like {@link #startVideoStream(boolean, VideoStreamingParameters)}
+     * this blocks while waiting for the head unit to accept the service.
+     * @param isEncrypted true if the packets on the audio service should be encrypted
+     * @param codec the codec of the audio data, only LPCM is supported
+     * @param params the format of the audio data
+     * @return the listener to send audio data to, or null if the stream couldn't be started
+     */
+    private IAudioStreamListener startAudioStream(boolean isEncrypted, AudioStreamingCodec codec, AudioStreamingParams params){
+        if (!isConnected()) {
+            DebugTool.logWarning("Connection is not available.");
+            return null;
+        }
+        if (codec != AudioStreamingCodec.LPCM) {
+            DebugTool.logWarning("Audio codec " + codec + " is not supported.");
+            return null;
+        }
+
+        if (!startServiceAndWait(SessionType.PCM, isEncrypted)) {
+            DebugTool.logWarning("Audio service was not started.");
+            return null;
+        }
+        return session.startAudioStream();
+    }
+
+    /**
+     * Requests the service unless it is already started with the requested encryption and waits
+     * up to {@link #RESPONSE_WAIT_TIME}ms for the head unit to answer.
+     * @return true if the service is started once this method returns
+     */
+    private boolean startServiceAndWait(SessionType serviceType, boolean isEncrypted){
+        if (startedServices.contains(serviceType) && (!isEncrypted || session.isServiceProtected(serviceType))) {
+            return true;
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        ISdlServiceListener serviceListener = new ISdlServiceListener() {
+            @Override
+            public void onServiceStarted(SdlSession session, SessionType type, boolean isEncrypted) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onServiceEnded(SdlSession session, SessionType type) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onServiceError(SdlSession session, SessionType type, String reason) {
+                latch.countDown();
+            }
+        };
+        session.addServiceListener(serviceType, serviceListener);
+        try {
+            session.startService(serviceType, session.getSessionId(), isEncrypted);
+            latch.await(RESPONSE_WAIT_TIME, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            session.removeServiceListener(serviceType, serviceListener);
+        }
+        return startedServices.contains(serviceType);
+    }
+
     /**
      * Method to retrieve the RegisterAppInterface Response message that was sent back from the
      * module. It contains various attributes about the connected module and can be used to adapt
@@ -271,6 +377,7 @@ public class LifecycleManager extends BaseLifecycleManager {
 
     private void onClose(String info, Exception e){
         Log.i(TAG, "onClose");
+        startedServices.clear();
         if(lifecycleListener != null){
             lifecycleListener.onProxyClosed(this, info,e,null);
         }
@@ -354,6 +461,7 @@ public class LifecycleManager extends BaseLifecycleManager {
                                 public void run() {
                                     RPCRequest request = PoliciesFetcher.fetchPolicies(onSystemRequest);
                                     if (request != null && isConnected()) {
+                                        assignCorrelationId(request);
                                         sendRPCMessagePrivate(request);
                                     }
                                 }
@@ -371,6 +479,7 @@ public class LifecycleManager extends BaseLifecycleManager {
                                         systemRequest.setBulkData(file);
                                         systemRequest.setRequestType(RequestType.ICON_URL);
                                         if (isConnected()) {
+                                            assignCorrelationId(systemRequest);
                                             sendRPCMessagePrivate(systemRequest);
                                         }
                                     } else {
@@ -407,47 +516,56 @@ public class LifecycleManager extends BaseLifecycleManager {
      *********************************************************************************************************/
 
     private boolean onRPCReceived(final RPCMessage message){
-        synchronized(RPC_LISTENER_LOCK){
-            if(message == null || message.getFunctionID() == null){
-                return false;
-            }
+        if(message == null || message.getFunctionID() == null){
+            return false;
+        }
 
-            final int id = message.getFunctionID().getId();
-            CopyOnWriteArrayList<OnRPCListener> listeners = rpcListeners.get(id);
-            if(listeners!=null && listeners.size()>0) {
-                for (OnRPCListener listener : listeners) {
-                    listener.onReceived(message);
-                }
-                return true;
+        final int id = message.getFunctionID().getId();
+        CopyOnWriteArrayList<OnRPCListener> listeners = rpcListeners.get(id);
+        if(listeners!=null && listeners.size()>0) {
+            for (OnRPCListener listener : listeners) {
+                listener.onReceived(message);
             }
-            return false;
+            return true;
         }
+        return false;
     }
 
     private void addRpcListener(FunctionID id, OnRPCListener listener){
-        synchronized(RPC_LISTENER_LOCK){
-            if (id != null && listener != null) {
-                if (!rpcListeners.containsKey(id.getId())) {
-                    rpcListeners.put(id.getId(), new CopyOnWriteArrayList<OnRPCListener>());
-                }
-
-                rpcListeners.get(id.getId()).add(listener);
-            }
+        if (id != null && listener != null) {
+            getListenerList(rpcListeners, id.getId()).add(listener);
         }
     }
 
     private boolean removeOnRPCListener(FunctionID id, OnRPCListener listener){
-        synchronized(RPC_LISTENER_LOCK){
-            if(rpcListeners!= null
-                    && id != null
-                    && listener != null
-                    && rpcListeners.containsKey(id.getId())){
-                return rpcListeners.get(id.getId()).remove(listener);
-            }
+        if(rpcListeners!= null
+                && id != null
+                && listener != null){
+            CopyOnWriteArrayList<OnRPCListener> listeners = rpcListeners.get(id.getId());
+            return listeners != null && listeners.remove(listener);
         }
         return false;
     }
 
+    /**
+     * Retrieves the list of listeners for the supplied function id, atomically creating it if there
+     * isn't one yet.
+     * @param registry the map of function ids to listener lists
+     * @param id the function id the listener list is associated with
+     * @return the listener list for the function id
+     */
+    private static <T> CopyOnWriteArrayList<T> getListenerList(ConcurrentHashMap<Integer, CopyOnWriteArrayList<T>> registry, int id){
+        CopyOnWriteArrayList<T> listeners = registry.get(id);
+        if(listeners == null){
+            listeners = new CopyOnWriteArrayList<>();
+            CopyOnWriteArrayList<T> existing = registry.putIfAbsent(id, listeners);
+            if(existing != null){
+                listeners = existing;
+            }
+        }
+        return listeners;
+    }
+
     /**
      * Only call this method for a PutFile response. It will cause a class cast exception if not.
      * @param correlationId correlation id of the packet being updated
@@ -456,15 +574,75 @@ public class LifecycleManager extends BaseLifecycleManager {
      */
     @SuppressWarnings("unused")
     private void onPacketProgress(int correlationId, long bytesWritten, long totalSize){
-        synchronized(ON_UPDATE_LISTENER_LOCK){
-            if(rpcResponseListeners !=null
-                    && rpcResponseListeners.containsKey(correlationId)){
-                ((OnPutFileUpdateListener)rpcResponseListeners.get(correlationId)).onUpdate(correlationId, bytesWritten, totalSize);
+        if(rpcResponseListeners !=null){
+            OnRPCResponseListener listener = rpcResponseListeners.get(correlationId);
+            if(listener != null){
+                ((OnPutFileUpdateListener)listener).onUpdate(correlationId, bytesWritten, totalSize);
             }
         }
 
     }
 
+    /**
+     * Generates a correlation id from this session's own id space, skipping the ids reserved for
+     * registering and unregistering the app
+     * @return the next correlation id for this session
+     */
+    private int generateCorrelationId(){
+        int correlationId;
+        do{
+            correlationId = rpcResponseListeners.nextCorrelationId();
+        }while (correlationId == REGISTER_APP_INTERFACE_CORRELATION_ID || correlationId == UNREGISTER_APP_INTERFACE_CORRELATION_ID);
+        return correlationId;
+    }
+
+    /**
+     * Replaces the correlation id a request was created with by one from this session's id space.
+     * The id a request is created with comes from a counter shared by every session in the process.
+     * @param message the message about to be sent, only requests are changed
+     */
+    private void assignCorrelationId(RPCMessage message){
+        if(message != null && RPCMessage.KEY_REQUEST.equals(message.getMessageType())){
+            ((RPCRequest) message).setCorrelationID(generateCorrelationId());
+        }
+    }
+
+    /**
+     * Set how long requests of a specific type wait on a response before their listener's onError
+     * is called with a result of TIMED_OUT
+     * @param functionID the function id of the requests, or null to set the default for all requests
+     *                   that don't have their own timeout
+     * @param timeout timeout in milliseconds, or a value of 0 or less to wait indefinitely
+     */
+    public void setRequestTimeout(FunctionID functionID, long timeout){
+        if(functionID == null){
+            rpcResponseListeners.setDefaultTimeout(timeout);
+        }else{
+            rpcResponseListeners.setTimeout(functionID, timeout);
+        }
+    }
+
+    /**
+     * @return the number of requests currently waiting on a response
+     */
+    public int getPendingRequestCount(){
+        return rpcResponseListeners.getPendingCount();
+    }
+
+    /**
+     * @return how long in milliseconds the oldest request still waiting on a response has been waiting
+     */
+    public long getOldestPendingRequestAge(){
+        return rpcResponseListeners.getOldestPendingAge();
+    }
+
+    /**
+     * @return the number of requests that timed out waiting on a response
+     */
+    public long getTimedOutRequestCount(){
+        return rpcResponseListeners.getTimedOutCount();
+    }
+
     /**
      * Will provide callback to the listener either onFinish or onError depending on the RPCResponses result code,
      * <p>Will automatically remove the listener for the list of listeners on completion.
@@ -473,47 +651,41 @@ public class LifecycleManager extends BaseLifecycleManager {
      */
     @SuppressWarnings("UnusedReturnValue")
     private boolean onRPCResponseReceived(RPCResponse msg){
-        synchronized(ON_UPDATE_LISTENER_LOCK){
-            int correlationId = msg.getCorrelationID();
-            if(rpcResponseListeners !=null
-                    && rpcResponseListeners.containsKey(correlationId)){
-                OnRPCResponseListener listener = rpcResponseListeners.get(correlationId);
-                if(msg.getSuccess()){
-                    listener.onResponse(correlationId, msg);
-                }else{
-                    listener.onError(correlationId, msg.getResultCode(), msg.getInfo());
-                }
-                rpcResponseListeners.remove(correlationId);
-                return true;
+        int correlationId = msg.getCorrelationID();
+        //Removing the listener first guarantees it is only ever called once
+        OnRPCResponseListener listener = rpcResponseListeners != null ? rpcResponseListeners.remove(correlationId) : null;
+        if(listener != null){
+            if(msg.getSuccess()){
+                listener.onResponse(correlationId, msg);
+            }else{
+                listener.onError(correlationId, msg.getResultCode(), msg.getInfo());
             }
-            return false;
+            return true;
         }
+        return false;
     }
 
     /**
      * Add a listener that will receive the response to the specific RPCRequest sent with the corresponding correlation id
      * @param listener that will get called back when a response is received
      * @param correlationId of the RPCRequest that was sent
+     * @param functionID of the RPCRequest that was sent, used to decide when it times out
      * @param totalSize only include if this is an OnPutFileUpdateListener. Otherwise it will be ignored.
      */
-    private void addOnRPCResponseListener(OnRPCResponseListener listener,int correlationId, int totalSize){
-        synchronized(ON_UPDATE_LISTENER_LOCK){
-            if(rpcResponseListeners!=null
-                    && listener !=null){
-                if(listener.getListenerType() == OnRPCResponseListener.UPDATE_LISTENER_TYPE_PUT_FILE){
-                    ((OnPutFileUpdateListener)listener).setTotalSize(totalSize);
-                }
-                listener.onStart(correlationId);
-                rpcResponseListeners.put(correlationId, listener);
+    private void addOnRPCResponseListener(OnRPCResponseListener listener, int correlationId, FunctionID functionID, int totalSize){
+        if(rpcResponseListeners!=null
+                && listener !=null){
+            if(listener.getListenerType() == OnRPCResponseListener.UPDATE_LISTENER_TYPE_PUT_FILE){
+                ((OnPutFileUpdateListener)listener).setTotalSize(totalSize);
             }
+            listener.onStart(correlationId);
+            rpcResponseListeners.add(correlationId, functionID, listener);
         }
     }
 
     @SuppressWarnings("unused")
-    private HashMap<Integer, OnRPCResponseListener> getResponseListeners(){
-        synchronized(ON_UPDATE_LISTENER_LOCK){
-            return this.rpcResponseListeners;
-        }
+    private Map<Integer, OnRPCResponseListener> getResponseListeners(){
+        return this.rpcResponseListeners.getListeners();
     }
 
     /**
@@ -542,16 +714,14 @@ public class LifecycleManager extends BaseLifecycleManager {
             }
         }
 
-        synchronized(ON_NOTIFICATION_LISTENER_LOCK){
-            CopyOnWriteArrayList<OnRPCNotificationListener> listeners = rpcNotificationListeners.get(FunctionID.getFunctionId(notification.getFunctionName()));
-            if(listeners!=null && listeners.size()>0) {
-                for (OnRPCNotificationListener listener : listeners) {
-                    listener.onNotified(notification);
-                }
-                return true;
+        CopyOnWriteArrayList<OnRPCNotificationListener> listeners = rpcNotificationListeners.get(FunctionID.getFunctionId(notification.getFunctionName()));
+        if(listeners!=null && listeners.size()>0) {
+            for (OnRPCNotificationListener listener : listeners) {
+                listener.onNotified(notification);
             }
-            return false;
+            return true;
         }
+        return false;
     }
 
     /**
@@ -562,24 +732,17 @@ public class LifecycleManager extends BaseLifecycleManager {
      */
     @SuppressWarnings("unused")
     private void addOnRPCNotificationListener(FunctionID notificationId, OnRPCNotificationListener listener){
-        synchronized(ON_NOTIFICATION_LISTENER_LOCK){
-            if(notificationId != null && listener != null){
-                if(!rpcNotificationListeners.containsKey(notificationId.getId())){
-                    rpcNotificationListeners.put(notificationId.getId(),new CopyOnWriteArrayList<OnRPCNotificationListener>());
-                }
-                rpcNotificationListeners.get(notificationId.getId()).add(listener);
-            }
+        if(notificationId != null && listener != null){
+            getListenerList(rpcNotificationListeners, notificationId.getId()).add(listener);
         }
     }
 
     private boolean removeOnRPCNotificationListener(FunctionID notificationId, OnRPCNotificationListener listener){
-        synchronized(ON_NOTIFICATION_LISTENER_LOCK){
-            if(rpcNotificationListeners!= null
-                    && notificationId != null
-                    && listener != null
-                    && rpcNotificationListeners.containsKey(notificationId.getId())){
-                return rpcNotificationListeners.get(notificationId.getId()).remove(listener);
-            }
+        if(rpcNotificationListeners!= null
+                && notificationId != null
+                && listener != null){
+            CopyOnWriteArrayList<OnRPCNotificationListener> listeners = rpcNotificationListeners.get(notificationId.getId());
+            return listeners != null && listeners.remove(listener);
         }
         return false;
     }
@@ -592,16 +755,14 @@ public class LifecycleManager extends BaseLifecycleManager {
         }
         DebugTool.logInfo("onRPCRequestReceived - " + request.getFunctionName() );
 
-        synchronized(ON_REQUEST_LISTENER_LOCK){
-            CopyOnWriteArrayList<OnRPCRequestListener> listeners = rpcRequestListeners.get(FunctionID.getFunctionId(request.getFunctionName()));
-            if(listeners!=null && listeners.size()>0) {
-                for (OnRPCRequestListener listener : listeners) {
-                    listener.onRequest(request);
-                }
-                return true;
+        CopyOnWriteArrayList<OnRPCRequestListener> listeners = rpcRequestListeners.get(FunctionID.getFunctionId(request.getFunctionName()));
+        if(listeners!=null && listeners.size()>0) {
+            for (OnRPCRequestListener listener : listeners) {
+                listener.onRequest(request);
             }
-            return false;
+            return true;
         }
+        return false;
     }
 
     /**
@@ -612,25 +773,18 @@ public class LifecycleManager extends BaseLifecycleManager {
      */
     @SuppressWarnings("unused")
     private void addOnRPCRequestListener(FunctionID requestId, OnRPCRequestListener listener){
-        synchronized(ON_REQUEST_LISTENER_LOCK){
-            if(requestId != null && listener != null){
-                if(!rpcRequestListeners.containsKey(requestId.getId())){
-                    rpcRequestListeners.put(requestId.getId(),new CopyOnWriteArrayList<OnRPCRequestListener>());
-                }
-                rpcRequestListeners.get(requestId.getId()).add(listener);
-            }
+        if(requestId != null && listener != null){
+            getListenerList(rpcRequestListeners, requestId.getId()).add(listener);
         }
     }
 
     @SuppressWarnings("UnusedReturnValue")
     private boolean removeOnRPCRequestListener(FunctionID requestId, OnRPCRequestListener listener){
-        synchronized(ON_REQUEST_LISTENER_LOCK){
-            if(rpcRequestListeners!= null
-                    && requestId != null
-                    && listener != null
-                    && rpcRequestListeners.containsKey(requestId.getId())){
-                return rpcRequestListeners.get(requestId.getId()).remove(listener);
-            }
+        if(rpcRequestListeners!= null
+                && requestId != null
+                && listener != null){
+            CopyOnWriteArrayList<OnRPCRequestListener> listeners = rpcRequestListeners.get(requestId.getId());
+            return listeners != null && listeners.remove(listener);
         }
         return false;
     }
@@ -675,7 +829,13 @@ public class LifecycleManager extends BaseLifecycleManager {
 
 
             message.format(rpcSpecVersion,true);
-            byte[] msgBytes = JsonRPCMarshaller.marshall(message, (byte)getProtocolVersion().getMajor());
+            byte[] msgBytes;
+            if (message instanceof SharedPutFile) {
+                //Artwork uploaded by many sessions is only marshalled once
+                msgBytes = ((SharedPutFile) message).marshall((byte)getProtocolVersion().getMajor());
+            } else {
+                msgBytes = JsonRPCMarshaller.marshall(message, (byte)getProtocolVersion().getMajor());
+            }
 
             ProtocolMessage pm = new ProtocolMessage();
             pm.setData(msgBytes);
@@ -699,7 +859,7 @@ public class LifecycleManager extends BaseLifecycleManager {
 
                     OnRPCResponseListener listener = ((RPCRequest)message).getOnRPCResponseListener();
                     if(listener != null){
-                        addOnRPCResponseListener(listener, corrId, msgBytes.length);
+                        addOnRPCResponseListener(listener, corrId, message.getFunctionID(), msgBytes.length);
                     }
                 }
             }else if (RPCMessage.KEY_RESPONSE.equals(message.getMessageType())){ // Response Specifics
@@ -717,8 +877,14 @@ public class LifecycleManager extends BaseLifecycleManager {
                 pm.setRPCType((byte)0x02);
             }
 
-            if (message.getBulkData() != null){
-                pm.setBulkData(message.getBulkData());
+            byte[] bulkData = message.getBulkData();
+            if (bulkData != null){
+                if (message instanceof SharedPutFile) {
+                    //Cached payloads are never modified, so every session can send the same array
+                    pm.setBulkDataNoCopy(bulkData);
+                } else {
+                    pm.setBulkData(bulkData);
+                }
             }
 
             if(message.getFunctionName().equalsIgnoreCase(FunctionID.PUT_FILE.name())){
@@ -766,6 +932,8 @@ public class LifecycleManager extends BaseLifecycleManager {
                     || SessionType.BULK_DATA.equals(msg.getSessionType())) {
 
                 RPCMessage rpc = RpcConverter.extractRpc(msg, session.getProtocolVersion());
+                //Nothing in the RPC refers to the message's buffer anymore
+                msg.release();
                 if (rpc != null) {
                     String messageType = rpc.getMessageType();
                     Log.v(TAG, "RPC received - " + messageType);
@@ -850,6 +1018,7 @@ public class LifecycleManager extends BaseLifecycleManager {
 
 
                 } else {
+                    startedServices.addIfAbsent(sessionType);
                     lifecycleListener.onServiceStarted(sessionType);
                 }
             }
@@ -857,7 +1026,8 @@ public class LifecycleManager extends BaseLifecycleManager {
 
         @Override
         public void onProtocolSessionEnded(SessionType sessionType, byte sessionID, String correlationID) {
-
+            startedServices.remove(sessionType);
+            session.stopStream(sessionType);
         }
 
         @Override
@@ -921,46 +1091,58 @@ public class LifecycleManager extends BaseLifecycleManager {
 
         @Override
         public void startVideoService(VideoStreamingParameters parameters, boolean encrypted) {
-            DebugTool.logWarning("startVideoService is not currently implemented");
-
+            if(isConnected()){
+                session.setDesiredVideoParams(parameters);
+                session.startService(SessionType.NAV, session.getSessionId(), encrypted);
+            }
         }
 
         @Override
         public void stopVideoService() {
-            DebugTool.logWarning("stopVideoService is not currently implemented");
-
+            if(isConnected()){
+                session.stopVideoStream();
+                session.endService(SessionType.NAV, session.getSessionId());
+            }
         }
 
         @Override
         public IVideoStreamListener startVideoStream(boolean isEncrypted, VideoStreamingParameters parameters) {
-            DebugTool.logWarning("startVideoStream is not currently implemented");
-            return null;
+            return LifecycleManager.this.startVideoStream(isEncrypted, parameters);
         }
 
         @Override
         public void startAudioService(boolean encrypted, AudioStreamingCodec codec, AudioStreamingParams params) {
-            DebugTool.logWarning("startAudioService is not currently implemented");
+            // Only the service is requested here; startAudioStream waits for it and starts the packetizer
+            if (codec != AudioStreamingCodec.LPCM) {
+                DebugTool.logWarning("Audio codec " + codec + " is not supported.");
+                return;
+            }
+            startAudioService(encrypted);
         }
 
         @Override
         public void startAudioService(boolean encrypted) {
-            DebugTool.logWarning("startAudioService is not currently implemented");
-
+            if(isConnected()){
+                session.startService(SessionType.PCM, session.getSessionId(), encrypted);
+            }
         }
 
         @Override
         public void stopAudioService() {
-            DebugTool.logWarning("stopAudioService is not currently implemented");
+            if(isConnected()){
+                session.stopAudioStream();
+                session.endService(SessionType.PCM, session.getSessionId());
+            }
         }
 
         @Override
         public IAudioStreamListener startAudioStream(boolean isEncrypted, AudioStreamingCodec codec, AudioStreamingParams params) {
-            DebugTool.logWarning("startAudioStream is not currently implemented");
-            return null;
+            return LifecycleManager.this.startAudioStream(isEncrypted, codec, params);
         }
 
         @Override
         public void sendRPCRequest(RPCRequest message) {
+            assignCorrelationId(message);
             LifecycleManager.this.sendRPCMessagePrivate(message);
 
         }
@@ -968,6 +1150,7 @@ public class LifecycleManager extends BaseLifecycleManager {
         @Override
         public void sendRPC(RPCMessage message) {
             if(isConnected()) {
+                assignCorrelationId(message);
                 LifecycleManager.this.sendRPCMessagePrivate(message);
             }
         }
@@ -1292,6 +1475,16 @@ public class LifecycleManager extends BaseLifecycleManager {
         _secList = list;
     }
 
+    /**
+     * Sets the controller that adapts video streams started afterwards to the available bandwidth
+     * @param controller the controller, or null to stream with fixed parameters
+     */
+    public void setVideoBitrateController(VideoBitrateController controller) {
+        if (session != null) {
+            session.setVideoBitrateController(controller);
+        }
+    }
+
     private void processRaiResponse(RegisterAppInterfaceResponse rai) {
         if (rai == null) return;
 
@@ -1317,6 +1510,7 @@ public class LifecycleManager extends BaseLifecycleManager {
             if ((sec != null) && (sec.getMakeList() != null)) {
                 if (sec.getMakeList().contains(make)) {
                     sec.setAppId(appConfig.getAppID());
+                    sec.setHeadUnitId(make + "/" + vt.getModel() + "/" + vt.getModelYear() + "/" + vt.getTrim() + "/" + rai.getSystemSoftwareVersion());
                     if (session != null) {
                         session.setSdlSecurity(sec);
                         sec.handleSdlSession(session);
@@ -32,5 +32,24 @@
 package com.smartdevicelink.security;
 
 public abstract class SdlSecurityBase extends AbstractSdlSecurityBase {
-    
+
+    protected String headUnitId = null;
+
+    /**
+     * @return a string that identifies the head unit this library is connected to, made up of the
+     * vehicle type and system software version it reported. Null if it hasn't been reported.
+     */
+    public String getHeadUnitId() {
+        return headUnitId;
+    }
+
+    public void setHeadUnitId(String val) {
+        headUnitId = val;
+    }
+
+    @Override
+    public void resetParams() {
+        super.resetParams();
+        headUnitId = null;
+    }
 }
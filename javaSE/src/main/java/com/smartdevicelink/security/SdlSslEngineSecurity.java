@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2019 Livio, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * Neither the name of the Livio Inc. nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.smartdevicelink.security;
+
+import com.smartdevicelink.util.DebugTool;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * A security library that runs TLS through the JDK's {@link SSLEngine}. Subclasses supply the
+ * {@link SSLContext} holding the app's key material and the list of vehicle makes they support,
+ * and can then be passed to the SdlManager like any other security library.
+ * <p>
+ * A new instance of the library is created every time the app connects, so the contexts, and with
+ * them the TLS sessions, are cached for the whole JVM. They are keyed by app ID and head unit, so a
+ * vehicle that reconnects can resume its previous session instead of running a full handshake.
+ * <p>
+ * By default the app acts as the TLS server and the module as the client.
+ */
+public abstract class SdlSslEngineSecurity extends SdlSecurityBase {
+
+    private static final String TAG = "SdlSslEngineSecurity";
+    private static final int MAX_CACHED_CONTEXTS = 16;
+    private static final Map<String, SSLContext> CONTEXT_CACHE = new LinkedHashMap<String, SSLContext>(MAX_CACHED_CONTEXTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SSLContext> eldest) {
+            return size() > MAX_CACHED_CONTEXTS;
+        }
+    };
+    private static final AtomicLong handshakeCount = new AtomicLong(), resumedHandshakeCount = new AtomicLong(), totalHandshakeTime = new AtomicLong();
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    private final Object HANDSHAKE_LOCK = new Object();
+    private SSLEngine engine;
+    private ByteBuffer handshakeInput, handshakeOutput, handshakeScratch;
+    private long handshakeStartTime = 0, lastHandshakeTime = -1;
+    private boolean lastHandshakeResumed = false;
+
+    /**
+     * Called when no context has been cached yet for the app and head unit that are connected
+     * @return the context that will be used to create TLS engines or null if none is available
+     */
+    protected abstract SSLContext createSSLContext();
+
+    /**
+     * @return true if the app should act as the TLS client. False by default, as the module acts as
+     * the client.
+     */
+    protected boolean isClientMode() {
+        return false;
+    }
+
+    /**
+     * Allows subclasses to adjust the engine, for example its enabled protocols or whether client
+     * authentication is required, before the handshake starts
+     * @param engine the engine that was just created
+     */
+    protected void configureEngine(SSLEngine engine) {
+    }
+
+    @Override
+    public void initialize() {
+        SSLContext context = getSSLContext(getSessionKey());
+        if (context == null) {
+            DebugTool.logError("No SSLContext available for " + getSessionKey());
+            handleInitResult(false);
+            return;
+        }
+        synchronized (HANDSHAKE_LOCK) {
+            //The peer host and port are what the JDK keys resumable client sessions with
+            engine = context.createSSLEngine(getSessionKey(), 0);
+            engine.setUseClientMode(isClientMode());
+            configureEngine(engine);
+            SSLSession session = engine.getSession();
+            handshakeInput = ByteBuffer.allocate(session.getPacketBufferSize());
+            handshakeOutput = ByteBuffer.allocate(session.getPacketBufferSize());
+            handshakeScratch = ByteBuffer.allocate(session.getApplicationBufferSize());
+            handshakeStartTime = 0;
+            try {
+                engine.beginHandshake();
+            } catch (SSLException e) {
+                DebugTool.logError("Unable to start TLS handshake", e);
+                engine = null;
+            }
+        }
+        handleInitResult(engine != null);
+    }
+
+    @Override
+    public Integer runHandshake(byte[] inputData, byte[] outputData) {
+        synchronized (HANDSHAKE_LOCK) {
+            if (engine == null) {
+                return null;
+            }
+            if (handshakeStartTime == 0 && engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                handshakeStartTime = System.currentTimeMillis();
+            }
+            handshakeInput = ensureRemaining(handshakeInput, inputData.length);
+            handshakeInput.put(inputData);
+            handshakeInput.flip();
+            handshakeOutput.clear();
+            try {
+                boolean finished = false;
+                while (!finished) {
+                    SSLEngineResult result;
+                    switch (engine.getHandshakeStatus()) {
+                        case NEED_UNWRAP:
+                            handshakeScratch.clear();
+                            result = engine.unwrap(handshakeInput, handshakeScratch);
+                            if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                                //Wait for the rest of the peer's flight
+                                finished = true;
+                            } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                                handshakeScratch = ByteBuffer.allocate(handshakeScratch.capacity() * 2);
+                            } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                                return null;
+                            }
+                            break;
+                        case NEED_WRAP:
+                            result = engine.wrap(EMPTY_BUFFER, handshakeOutput);
+                            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                                handshakeOutput = ensureRemaining(handshakeOutput, engine.getSession().getPacketBufferSize());
+                            } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                                return null;
+                            }
+                            break;
+                        case NEED_TASK:
+                            Runnable task;
+                            while ((task = engine.getDelegatedTask()) != null) {
+                                task.run();
+                            }
+                            break;
+                        default:
+                            onHandshakeFinished();
+                            finished = true;
+                            if (handshakeInput.hasRemaining()) {
+                                //Post-handshake messages, such as session tickets
+                                handshakeScratch.clear();
+                                result = engine.unwrap(handshakeInput, handshakeScratch);
+                                finished = result.getStatus() != SSLEngineResult.Status.OK || result.bytesConsumed() == 0;
+                            }
+                            break;
+                    }
+                }
+            } catch (SSLException e) {
+                DebugTool.logError("TLS handshake failed", e);
+                return null;
+            } finally {
+                handshakeInput.compact();
+            }
+
+            handshakeOutput.flip();
+            int numBytes = handshakeOutput.remaining();
+            if (numBytes > outputData.length) {
+                DebugTool.logError("Handshake output does not fit in " + outputData.length + " bytes");
+                return null;
+            }
+            handshakeOutput.get(outputData, 0, numBytes);
+            return numBytes;
+        }
+    }
+
+    @Override
+    public Integer encryptData(byte[] inputData, byte[] outputData) {
+        return encryptData(ByteBuffer.wrap(inputData), ByteBuffer.wrap(outputData));
+    }
+
+    @Override
+    public Integer decryptData(byte[] inputData, byte[] outputData) {
+        return decryptData(ByteBuffer.wrap(inputData), ByteBuffer.wrap(outputData));
+    }
+
+    @Override
+    public Integer encryptData(ByteBuffer[] inputData, ByteBuffer outputData) {
+        SSLEngine engine = this.engine;
+        if (engine == null || inputData == null || outputData == null) {
+            return null;
+        }
+        ByteBuffer[] input = new ByteBuffer[inputData.length];
+        int remaining = 0;
+        for (int i = 0; i < inputData.length; i++) {
+            input[i] = inputData[i].duplicate();
+            remaining += input[i].remaining();
+        }
+        int startPosition = outputData.position();
+        ByteBuffer record = null;
+        try {
+            //The engine splits the input into as many records as it needs
+            while (remaining > 0) {
+                SSLEngineResult result = engine.wrap(input, outputData);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    //The engine asks for room for a whole record even when less is left to encrypt, so
+                    //the record is wrapped on the side and copied over if it fits
+                    if (record == null) {
+                        record = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+                    }
+                    record.clear();
+                    result = engine.wrap(input, record);
+                    record.flip();
+                    if (record.remaining() > outputData.remaining()) {
+                        DebugTool.logError("Encrypted data does not fit in " + (outputData.limit() - startPosition) + " bytes");
+                        outputData.position(startPosition);
+                        return null;
+                    }
+                    outputData.put(record);
+                }
+                if (result.getStatus() != SSLEngineResult.Status.OK) {
+                    outputData.position(startPosition);
+                    return null;
+                }
+                if (result.bytesConsumed() == 0) {
+                    //The engine only takes app data once the handshake is done, so this would never end
+                    DebugTool.logError("Unable to encrypt data while the TLS handshake is " + engine.getHandshakeStatus());
+                    outputData.position(startPosition);
+                    return null;
+                }
+                remaining -= result.bytesConsumed();
+            }
+        } catch (SSLException e) {
+            DebugTool.logError("Unable to encrypt data", e);
+            outputData.position(startPosition);
+            return null;
+        }
+        return outputData.position() - startPosition;
+    }
+
+    @Override
+    public Integer decryptData(ByteBuffer inputData, ByteBuffer outputData) {
+        SSLEngine engine = this.engine;
+        if (engine == null || inputData == null || outputData == null) {
+            return null;
+        }
+        ByteBuffer input = inputData.duplicate();
+        int startPosition = outputData.position();
+        ByteBuffer record = null;
+        try {
+            while (input.hasRemaining()) {
+                SSLEngineResult result = engine.unwrap(input, outputData);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    //The engine asks for room for the padded record, which may be more than the data
+                    //it holds, so the record is unwrapped on the side and copied over if it fits
+                    if (record == null) {
+                        record = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+                    }
+                    record.clear();
+                    result = engine.unwrap(input, record);
+                    record.flip();
+                    if (record.remaining() > outputData.remaining()) {
+                        DebugTool.logError("Decrypted data does not fit in " + (outputData.limit() - startPosition) + " bytes");
+                        outputData.position(startPosition);
+                        return null;
+                    }
+                    outputData.put(record);
+                }
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    DebugTool.logWarning("Received a partial TLS record, dropping " + input.remaining() + " bytes");
+                    break;
+                } else if (result.getStatus() != SSLEngineResult.Status.OK) {
+                    outputData.position(startPosition);
+                    return null;
+                }
+            }
+        } catch (SSLException e) {
+            DebugTool.logError("Unable to decrypt data", e);
+            outputData.position(startPosition);
+            return null;
+        }
+        return outputData.position() - startPosition;
+    }
+
+    @Override
+    public int getMaxEncryptedSize(int length) {
+        SSLEngine engine = this.engine;
+        if (engine == null) {
+            return super.getMaxEncryptedSize(length);
+        }
+        //A record holds at most TLS_MAX_RECORD_SIZE plain bytes and grows by no more than the packet
+        //buffer leaves room for beyond that. The engine wants room for a whole record when wrapping,
+        //which encryptData takes care of, so the estimate can stay close to the real size and leave
+        //as much of a frame as possible for plain data
+        int records = (length + TLS_MAX_RECORD_SIZE - 1) / TLS_MAX_RECORD_SIZE;
+        return length + records * (engine.getSession().getPacketBufferSize() - TLS_MAX_RECORD_SIZE);
+    }
+
+    @Override
+    public void shutDown() {
+        synchronized (HANDSHAKE_LOCK) {
+            if (engine != null) {
+                engine.closeOutbound();
+                engine = null;
+            }
+            handshakeInput = null;
+            handshakeOutput = null;
+            handshakeScratch = null;
+        }
+    }
+
+    /**
+     * @return how long the last handshake of this library took in milliseconds, measured from the
+     * first handshake data received to the handshake being finished. -1 if no handshake finished.
+     */
+    public long getLastHandshakeTime() {
+        return lastHandshakeTime;
+    }
+
+    /**
+     * @return true if the last handshake of this library resumed a cached session
+     */
+    public boolean isLastHandshakeResumed() {
+        return lastHandshakeResumed;
+    }
+
+    /**
+     * @return the number of handshakes finished by every instance in this JVM
+     */
+    public static long getHandshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * @return the number of handshakes that resumed a cached session instead of running a full
+     * handshake
+     */
+    public static long getResumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
+    /**
+     * @return the average time a handshake took in milliseconds or 0 if none finished
+     */
+    public static long getAverageHandshakeTime() {
+        long count = handshakeCount.get();
+        return count == 0 ? 0 : totalHandshakeTime.get() / count;
+    }
+
+    /**
+     * Drops every cached context along with the TLS sessions they hold
+     */
+    public static void clearSessionCache() {
+        synchronized (CONTEXT_CACHE) {
+            CONTEXT_CACHE.clear();
+        }
+    }
+
+    private String getSessionKey() {
+        return appId + "@" + headUnitId;
+    }
+
+    private SSLContext getSSLContext(String key) {
+        synchronized (CONTEXT_CACHE) {
+            SSLContext context = CONTEXT_CACHE.get(key);
+            if (context == null) {
+                context = createSSLContext();
+                if (context != null) {
+                    CONTEXT_CACHE.put(key, context);
+                }
+            }
+            return context;
+        }
+    }
+
+    private void onHandshakeFinished() {
+        if (handshakeStartTime == 0) {
+            return;
+        }
+        lastHandshakeTime = System.currentTimeMillis() - handshakeStartTime;
+        //A resumed session was created by an earlier handshake
+        lastHandshakeResumed = engine.getSession().getCreationTime() < handshakeStartTime;
+        handshakeStartTime = 0;
+        handshakeCount.incrementAndGet();
+        totalHandshakeTime.addAndGet(lastHandshakeTime);
+        if (lastHandshakeResumed) {
+            resumedHandshakeCount.incrementAndGet();
+        }
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(buffer.position() + length);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
@@ -0,0 +1,208 @@
+package com.smartdevicelink.managers.audio;
+
+import com.smartdevicelink.managers.CompletionListener;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams;
+import com.smartdevicelink.streaming.audio.AudioStreamingLPCMParams.SampleFormat;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.audio.AudioMixer}
+ */
+public class AudioMixerTests extends TestCase {
+    private static final int SAMPLE_RATE = 16000;
+
+    private AudioMixer mixer;
+    private List<Boolean> completions;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mixer = new AudioMixer(new AudioStreamingLPCMParams(SampleFormat.LPCM_16BIT_SIGNED_LITTLE_ENDIAN, SAMPLE_RATE, 1));
+        completions = new ArrayList<>();
+    }
+
+    public void testSourcesSummed() {
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{1000, -1000, 5}, 0, 3);
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{2000, -3000, -5}, 0, 3);
+
+        byte[] output = new byte[6];
+        assertEquals(3, mixer.mix(output, 0, 3));
+        assertEquals(3000, decode16(output, 0));
+        assertEquals(-4000, decode16(output, 1));
+        assertEquals(0, decode16(output, 2));
+        assertFalse(mixer.hasPendingAudio());
+    }
+
+    public void testMixClamped() {
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{30000, -30000, 32767}, 0, 3);
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{30000, -30000, -1}, 0, 3);
+
+        byte[] output = new byte[6];
+        assertEquals(3, mixer.mix(output, 0, 3));
+        assertEquals(32767, decode16(output, 0));
+        assertEquals(-32768, decode16(output, 1));
+        assertEquals(32766, decode16(output, 2));
+    }
+
+    public void test8BitOutput() {
+        AudioMixer mixer = new AudioMixer(new AudioStreamingLPCMParams(SampleFormat.LPCM_8BIT_UNSIGNED, SAMPLE_RATE, 1));
+        assertEquals(1, mixer.getBytesPerFrame());
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{0, 32767, -32768, 256}, 0, 4);
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{0, 32767, -32768, 256}, 0, 4);
+
+        byte[] output = new byte[4];
+        assertEquals(4, mixer.mix(output, 0, 4));
+        assertEquals(128, output[0] & 0xFF);
+        assertEquals(255, output[1] & 0xFF);
+        assertEquals(0, output[2] & 0xFF);
+        assertEquals(130, output[3] & 0xFF);
+    }
+
+    /**
+     * Audio is converted to the output format when it is pushed
+     */
+    public void testSourceConverted() {
+        AudioMixer.Source source = mixer.addSource(8000, 8, 2);
+        byte[] input = new byte[200];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (128 + 16);
+        }
+        source.push(input, 0, input.length);
+
+        // 100 stereo frames at 8 kHz give 198 mono frames at 16 kHz until the next push
+        assertEquals(198, source.getPendingFrames());
+        byte[] output = new byte[198 * 2];
+        assertEquals(198, mixer.mix(output, 0, 198));
+        for (int i = 0; i < 198; i++) {
+            assertEquals(16 << 8, decode16(output, i));
+        }
+    }
+
+    public void testVolume() {
+        AudioMixer.Source source = mixer.addSource(SAMPLE_RATE, 16, 1);
+        source.setVolume(0.5f);
+        source.push(new short[]{10000, -10000}, 0, 2);
+
+        byte[] output = new byte[4];
+        assertEquals(2, mixer.mix(output, 0, 2));
+        assertEquals(5000, decode16(output, 0));
+        assertEquals(-5000, decode16(output, 1));
+    }
+
+    /**
+     * A source with less audio than the others is mixed as silence once it runs out
+     */
+    public void testShorterSourceIsSilence() {
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{100, 100, 100, 100}, 0, 4);
+        mixer.addSource(SAMPLE_RATE, 16, 1).push(new short[]{10, 10}, 0, 2);
+
+        byte[] output = new byte[20];
+        assertEquals(4, mixer.mix(output, 0, 10));
+        assertEquals(110, decode16(output, 1));
+        assertEquals(100, decode16(output, 2));
+        assertEquals(100, decode16(output, 3));
+    }
+
+    public void testMixLimitedToMaxFrames() {
+        AudioMixer.Source source = mixer.addSource(SAMPLE_RATE, 16, 1);
+        short[] input = new short[3000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (short) i;
+        }
+        source.push(input, 0, input.length);
+
+        // The pending audio is kept in order while it is read and more is pushed past the end of the ring
+        byte[] output = new byte[1000 * 2];
+        assertEquals(1000, mixer.mix(output, 0, 1000));
+        assertEquals(999, decode16(output, 999));
+        source.push(input, 0, input.length);
+        assertEquals(5000, source.getPendingFrames());
+
+        int expected = 1000;
+        int frames;
+        while ((frames = mixer.mix(output, 0, 1000)) > 0) {
+            for (int i = 0; i < frames; i++) {
+                assertEquals(expected % 3000, decode16(output, i));
+                expected++;
+            }
+        }
+        assertEquals(6000, expected);
+    }
+
+    /**
+     * A finished source is removed and its listener called once all of its audio is mixed
+     */
+    public void testFinishedSourceDrained() {
+        AudioMixer.Source source = mixer.addSource(SAMPLE_RATE, 16, 1);
+        source.push(new short[]{1, 2, 3, 4}, 0, 4);
+        source.finish(createCompletionListener());
+
+        byte[] output = new byte[8];
+        assertEquals(2, mixer.mix(output, 0, 2));
+        assertTrue(completions.isEmpty());
+        assertTrue(mixer.hasPendingAudio());
+
+        assertEquals(2, mixer.mix(output, 0, 2));
+        assertEquals(1, completions.size());
+        assertTrue(completions.get(0));
+
+        // Audio pushed after finishing is ignored
+        source.push(new short[]{5}, 0, 1);
+        assertFalse(mixer.hasPendingAudio());
+        assertEquals(0, mixer.mix(output, 0, 4));
+        assertEquals(1, completions.size());
+    }
+
+    public void testEmptyFinishedSourceCompletes() {
+        AudioMixer.Source source = mixer.addSource(SAMPLE_RATE, 16, 1);
+        source.finish(createCompletionListener());
+
+        assertEquals(0, mixer.mix(new byte[2], 0, 1));
+        assertEquals(1, completions.size());
+    }
+
+    public void testClosedSourceDropsAudio() {
+        AudioMixer.Source closed = mixer.addSource(SAMPLE_RATE, 16, 1);
+        closed.push(new short[]{1000, 1000}, 0, 2);
+        closed.finish(createCompletionListener());
+        AudioMixer.Source playing = mixer.addSource(SAMPLE_RATE, 16, 1);
+        playing.push(new short[]{1, 1}, 0, 2);
+
+        closed.close();
+
+        byte[] output = new byte[4];
+        assertEquals(2, mixer.mix(output, 0, 2));
+        assertEquals(1, decode16(output, 0));
+        assertTrue(completions.isEmpty());
+    }
+
+    public void testClear() {
+        AudioMixer.Source source = mixer.addSource(SAMPLE_RATE, 16, 1);
+        source.push(new short[]{1000, 1000}, 0, 2);
+        source.finish(createCompletionListener());
+
+        mixer.clear();
+
+        assertFalse(mixer.hasPendingAudio());
+        assertEquals(0, mixer.mix(new byte[4], 0, 2));
+        assertTrue(completions.isEmpty());
+    }
+
+    private CompletionListener createCompletionListener() {
+        return new CompletionListener() {
+            @Override
+            public void onComplete(boolean success) {
+                completions.add(success);
+            }
+        };
+    }
+
+    private static int decode16(byte[] data, int frame) {
+        return (short) ((data[frame * 2] & 0xFF) | (data[frame * 2 + 1] << 8));
+    }
+}
@@ -0,0 +1,237 @@
+package com.smartdevicelink.managers.audio;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.audio.PcmResampler}
+ */
+public class PcmResamplerTests extends TestCase {
+
+    public void test8BitUnsigned() {
+        PcmResampler resampler = new PcmResampler(16000, 8, 1, 16000, 1);
+        int[] output = new int[resampler.getMaxOutputSamples(4)];
+
+        int samples = resampler.resample(new byte[]{(byte) 128, (byte) 255, 0, (byte) 192}, 0, 4, output, 0);
+
+        assertEquals(4, samples);
+        assertSamples(output, 0, 127 << 8, -32768, 64 << 8);
+    }
+
+    public void test16BitLittleEndian() {
+        PcmResampler resampler = new PcmResampler(16000, 16, 1, 16000, 1);
+        byte[] input = encode16(0, 1, -1, 32767, -32768, 0x1234);
+        int[] output = new int[resampler.getMaxOutputSamples(6)];
+
+        int samples = resampler.resample(input, 0, input.length, output, 0);
+
+        assertEquals(6, samples);
+        assertSamples(output, 0, 1, -1, 32767, -32768, 0x1234);
+    }
+
+    /**
+     * Samples wider than 16 bits keep their most significant 16 bits
+     */
+    public void test24And32Bit() {
+        PcmResampler resampler24 = new PcmResampler(16000, 24, 1, 16000, 1);
+        byte[] input24 = {0x56, 0x34, 0x12, (byte) 0xFF, (byte) 0xFF, (byte) 0x80};
+        int[] output = new int[resampler24.getMaxOutputSamples(2)];
+        assertEquals(2, resampler24.resample(input24, 0, input24.length, output, 0));
+        assertSamples(output, 0x1234, -32768 + 0xFF);
+
+        PcmResampler resampler32 = new PcmResampler(16000, 32, 1, 16000, 1);
+        byte[] input32 = {0x78, 0x56, 0x34, 0x12, 0, 0, 0, (byte) 0x80};
+        assertEquals(2, resampler32.resample(input32, 0, input32.length, output, 0));
+        assertSamples(output, 0x1234, -32768);
+    }
+
+    public void testStereoToMono() {
+        PcmResampler resampler = new PcmResampler(16000, 16, 2, 16000, 1);
+        byte[] input = encode16(1000, 3000, -100, 100, 32767, 32767);
+        int[] output = new int[resampler.getMaxOutputSamples(3)];
+
+        assertEquals(3, resampler.resample(input, 0, input.length, output, 0));
+        assertSamples(output, 2000, 0, 32767);
+    }
+
+    public void testMonoToStereo() {
+        PcmResampler resampler = new PcmResampler(16000, 16, 1, 16000, 2);
+        byte[] input = encode16(1000, -2000);
+        int[] output = new int[resampler.getMaxOutputSamples(2)];
+
+        assertEquals(4, resampler.resample(input, 0, input.length, output, 0));
+        assertSamples(output, 1000, 1000, -2000, -2000);
+    }
+
+    public void testShortInput() {
+        PcmResampler resampler = new PcmResampler(16000, 16, 2, 16000, 1);
+        short[] input = {1000, 3000, -4, -2};
+        int[] output = new int[resampler.getMaxOutputSamples(2)];
+
+        assertEquals(2, resampler.resample(input, 0, input.length, output, 0));
+        assertSamples(output, 2000, -3);
+    }
+
+    /**
+     * Float samples are scaled to 16 bits and clamped to its range
+     */
+    public void testFloatInputClamped() {
+        PcmResampler resampler = new PcmResampler(16000, 16, 1, 16000, 1);
+        float[] input = {0f, 1f, -1f, 0.5f, 2f, -2f};
+        int[] output = new int[resampler.getMaxOutputSamples(6)];
+
+        assertEquals(6, resampler.resample(input, 0, input.length, output, 0));
+        assertSamples(output, 0, 32767, -32767, 16383, 32767, -32768);
+    }
+
+    /**
+     * A frame split between two chunks is completed by the second one
+     */
+    public void testPartialFramesAcrossChunks() {
+        PcmResampler resampler = new PcmResampler(16000, 24, 2, 16000, 2);
+        byte[] input = new byte[6 * 50];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 7);
+        }
+        int[] expected = new int[resampler.getMaxOutputSamples(50)];
+        int expectedSamples = resampler.resample(input, 0, input.length, expected, 0);
+        assertEquals(100, expectedSamples);
+
+        PcmResampler chunked = new PcmResampler(16000, 24, 2, 16000, 2);
+        int[] output = new int[expected.length];
+        int samples = 0;
+        int offset = 0;
+        for (int chunk = 1; offset < input.length; chunk++) {
+            int length = Math.min(chunk % 8, input.length - offset);
+            samples += chunked.resample(input, offset, length, output, samples);
+            offset += length;
+        }
+        assertEquals(expectedSamples, samples);
+        assertTrue(Arrays.equals(expected, output));
+    }
+
+    /**
+     * Doubling the rate of a ramp interpolates the midpoints, also between the last frame of one
+     * chunk and the first frame of the next
+     */
+    public void testUpsampleAcrossChunks() {
+        int frames = 100;
+        short[] ramp = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            ramp[i] = (short) (i * 100);
+        }
+        PcmResampler resampler = new PcmResampler(8000, 16, 1, 16000, 1);
+        int[] output = new int[resampler.getMaxOutputSamples(frames)];
+        int samples = 0;
+        for (int offset = 0; offset < frames; offset += 7) {
+            int length = Math.min(7, frames - offset);
+            samples += resampler.resample(ramp, offset, length, output, samples);
+        }
+
+        // The last input frame is only interpolated once the next chunk arrives
+        assertEquals(2 * frames - 2, samples);
+        for (int i = 0; i < samples; i++) {
+            assertEquals(i * 50, output[i]);
+        }
+    }
+
+    public void testDownsampleAcrossChunks() {
+        int frames = 300;
+        short[] ramp = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            ramp[i] = (short) (i * 10);
+        }
+        PcmResampler resampler = new PcmResampler(48000, 16, 1, 16000, 1);
+        int[] output = new int[resampler.getMaxOutputSamples(frames)];
+        int samples = 0;
+        for (int offset = 0; offset < frames; offset += 11) {
+            int length = Math.min(11, frames - offset);
+            samples += resampler.resample(ramp, offset, length, output, samples);
+        }
+
+        assertEquals(frames / 3, samples);
+        for (int i = 0; i < samples; i++) {
+            assertEquals(i * 30, output[i]);
+        }
+    }
+
+    /**
+     * Converting in chunks of varying size gives the same samples as converting everything at once
+     */
+    public void testChunkedConversionMatches() {
+        int frames = 4410;
+        byte[] input = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            short left = (short) (Math.sin(i * 0.05) * 20000);
+            short right = (short) (Math.cos(i * 0.03) * 20000);
+            input[i * 4] = (byte) left;
+            input[i * 4 + 1] = (byte) (left >> 8);
+            input[i * 4 + 2] = (byte) right;
+            input[i * 4 + 3] = (byte) (right >> 8);
+        }
+
+        PcmResampler resampler = new PcmResampler(44100, 16, 2, 16000, 1);
+        int[] expected = new int[resampler.getMaxOutputSamples(frames)];
+        int expectedSamples = resampler.resample(input, 0, input.length, expected, 0);
+        assertTrue(Math.abs(expectedSamples - 1600) <= 1);
+
+        PcmResampler chunked = new PcmResampler(44100, 16, 2, 16000, 1);
+        int[] output = new int[expected.length];
+        int samples = 0;
+        int offset = 0;
+        for (int chunk = 0; offset < input.length; chunk++) {
+            int length = Math.min(1 + (chunk * 37) % 501, input.length - offset);
+            samples += chunked.resample(input, offset, length, output, samples);
+            offset += length;
+        }
+        assertEquals(expectedSamples, samples);
+        assertTrue(Arrays.equals(expected, output));
+    }
+
+    public void testReset() {
+        PcmResampler resampler = new PcmResampler(8000, 16, 1, 16000, 1);
+        short[] input = {1000, 2000, 3000};
+        int[] first = new int[resampler.getMaxOutputSamples(3)];
+        int firstSamples = resampler.resample(input, 0, input.length, first, 0);
+
+        resampler.reset();
+        int[] second = new int[first.length];
+        assertEquals(firstSamples, resampler.resample(input, 0, input.length, second, 0));
+        assertTrue(Arrays.equals(first, second));
+    }
+
+    public void testInvalidFormat() {
+        try {
+            new PcmResampler(16000, 12, 1, 16000, 1);
+            fail("12 bit samples aren't supported");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new PcmResampler(0, 16, 1, 16000, 1);
+            fail("The sample rate must be positive");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new PcmResampler(16000, 16, 2, 16000, 1).resample(new short[3], 0, 3, new int[4], 0);
+            fail("The length must be a multiple of the channel count");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static byte[] encode16(int... samples) {
+        byte[] data = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            data[i * 2] = (byte) samples[i];
+            data[i * 2 + 1] = (byte) (samples[i] >> 8);
+        }
+        return data;
+    }
+
+    private static void assertSamples(int[] actual, int... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("sample " + i, expected[i], actual[i]);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.smartdevicelink.managers.file;
+
+import com.smartdevicelink.test.QuietTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.file.ArtworkPayloadCache}
+ */
+public class ArtworkPayloadCacheTests extends QuietTestCase {
+    private static final long MAX_SIZE = 10000;
+
+    private ArtworkPayloadCache cache;
+    private File file;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        cache = new ArtworkPayloadCache(MAX_SIZE);
+        file = File.createTempFile("ArtworkPayloadCacheTests", ".png");
+        file.deleteOnExit();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testAcquireDataShared() {
+        byte[] data = createData(1000, 1);
+        String hash = FileContentIndex.hash(data);
+
+        ArtworkPayloadCache.Payload first = cache.acquireData(hash, data);
+        ArtworkPayloadCache.Payload second = cache.acquireData(hash, data.clone());
+
+        assertSame(first, second);
+        assertTrue(Arrays.equals(data, first.getData()));
+        //The cache holds its own copy
+        assertNotSame(data, first.getData());
+        assertEquals(hash, first.getContentHash());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1000, cache.getSize());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    public void testAcquireFileShared() throws IOException {
+        byte[] data = createData(1000, 1);
+        writeFile(data);
+
+        ArtworkPayloadCache.Payload first = cache.acquireFile(file.getPath());
+        ArtworkPayloadCache.Payload second = cache.acquireFile(file.getPath());
+
+        assertSame(first, second);
+        assertSame(first, cache.peekFile(file.getPath()));
+        assertTrue(Arrays.equals(data, first.getData()));
+        assertEquals(FileContentIndex.hash(data), first.getContentHash());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testChangedFileLoadedAgain() throws IOException {
+        writeFile(createData(1000, 1));
+        ArtworkPayloadCache.Payload first = cache.acquireFile(file.getPath());
+        cache.release(first);
+
+        byte[] changed = createData(2000, 2);
+        writeFile(changed);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        ArtworkPayloadCache.Payload second = cache.acquireFile(file.getPath());
+
+        assertNotSame(first, second);
+        assertTrue(Arrays.equals(changed, second.getData()));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testEmptyFileNotCached() throws IOException {
+        assertNull(cache.acquireFile(file.getPath()));
+        assertNull(cache.acquireFile(new File(file.getPath() + ".missing").getPath()));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testReferencedPayloadsNotEvicted() {
+        ArtworkPayloadCache.Payload first = acquire(6000, 1);
+        ArtworkPayloadCache.Payload second = acquire(6000, 2);
+
+        //Over the maximum size, but both payloads are in use
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(12000, cache.getSize());
+
+        cache.release(first);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(6000, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.release(second);
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    public void testLeastRecentlyUsedEvicted() {
+        byte[] first = createData(4000, 1);
+        byte[] second = createData(4000, 2);
+        cache.release(cache.acquireData(FileContentIndex.hash(first), first));
+        cache.release(cache.acquireData(FileContentIndex.hash(second), second));
+        //Using the first payload again makes the second one the least recently used
+        cache.release(cache.acquireData(FileContentIndex.hash(first), first));
+
+        cache.release(acquire(4000, 3));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        cache.acquireData(FileContentIndex.hash(first), first);
+        assertEquals(2, cache.getHitCount());
+    }
+
+    public void testSetMaxSizeEvictsUnreferenced() {
+        ArtworkPayloadCache.Payload referenced = acquire(1000, 1);
+        cache.release(acquire(1000, 2));
+
+        cache.setMaxSize(0);
+
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1000, cache.getSize());
+        cache.release(referenced);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * A payload shared by several requests stays cached until every one of them released it, and
+     * releasing the same request twice only gives up its reference once
+     */
+    public void testSharedPutFileRelease() {
+        cache.setMaxSize(0);
+        byte[] data = createData(1000, 1);
+        String hash = FileContentIndex.hash(data);
+        SharedPutFile first = new SharedPutFile(cache, cache.acquireData(hash, data));
+        SharedPutFile second = new SharedPutFile(cache, cache.acquireData(hash, data));
+
+        first.release();
+        first.release();
+        assertEquals(1, cache.getEntryCount());
+        //The data stays readable after the request released it
+        assertTrue(Arrays.equals(data, first.getBulkData()));
+
+        second.release();
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    public void testSharedPutFileNewDataReleases() {
+        cache.setMaxSize(0);
+        byte[] data = createData(1000, 1);
+        SharedPutFile putFile = new SharedPutFile(cache, cache.acquireData(FileContentIndex.hash(data), data));
+
+        byte[] newData = createData(10, 2);
+        putFile.setBulkData(newData);
+
+        assertEquals(0, cache.getEntryCount());
+        assertTrue(Arrays.equals(newData, putFile.getBulkData()));
+    }
+
+    public void testClear() {
+        ArtworkPayloadCache.Payload payload = acquire(1000, 1);
+        cache.clear();
+
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getMissCount());
+        //A request that was still using the payload keeps it
+        assertNotNull(payload.getData());
+    }
+
+    private ArtworkPayloadCache.Payload acquire(int size, int seed) {
+        byte[] data = createData(size, seed);
+        return cache.acquireData(FileContentIndex.hash(data), data);
+    }
+
+    private void writeFile(byte[] data) throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(data);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static byte[] createData(int size, int seed) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) seed);
+        data[0] = (byte) (seed >> 8);
+        return data;
+    }
+}
@@ -0,0 +1,343 @@
+package com.smartdevicelink.managers.file;
+
+import com.smartdevicelink.managers.CompletionListener;
+import com.smartdevicelink.managers.file.filetypes.SdlArtwork;
+import com.smartdevicelink.managers.file.filetypes.SdlFile;
+import com.smartdevicelink.proxy.RPCResponse;
+import com.smartdevicelink.proxy.interfaces.ISdl;
+import com.smartdevicelink.proxy.rpc.PutFile;
+import com.smartdevicelink.proxy.rpc.PutFileResponse;
+import com.smartdevicelink.proxy.rpc.enums.FileType;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.listeners.OnPutFileUpdateListener;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
+import com.smartdevicelink.test.QuietTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.file.FileManager}
+ */
+public class FileManagerTests extends QuietTestCase {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final int FILE_SIZE = 5 * FileManager.STREAMING_CHUNK_SIZE + 123;
+
+    private File file;
+    private byte[] contents;
+    private final LinkedBlockingQueue<PutFile> sent = new LinkedBlockingQueue<>();
+    private final List<String> sendingThreads = new CopyOnWriteArrayList<>();
+    private final AtomicInteger hashes = new AtomicInteger();
+    private final AtomicInteger uploads = new AtomicInteger();
+    private FileManager fileManager;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        contents = new byte[FILE_SIZE];
+        new Random(42).nextBytes(contents);
+        file = File.createTempFile("FileManagerTests", ".bin");
+        file.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+
+        ISdl internalInterface = (ISdl) Proxy.newProxyInstance(ISdl.class.getClassLoader(), new Class<?>[]{ISdl.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("sendRPC".equals(method.getName()) && args[0] instanceof PutFile) {
+                    PutFile putFile = (PutFile) args[0];
+                    sendingThreads.add(Thread.currentThread().getName());
+                    //Like the session, tell the listener the request's correlation id as it is sent
+                    if (putFile.getOnRPCResponseListener() != null) {
+                        putFile.getOnRPCResponseListener().onStart(putFile.getCorrelationID());
+                    }
+                    sent.add(putFile);
+                } else if (method.getReturnType() == boolean.class) {
+                    return false;
+                }
+                return null;
+            }
+        });
+        fileManager = new FileManager(internalInterface) {
+            @Override
+            String computeContentHash(SdlFile file) {
+                hashes.incrementAndGet();
+                return super.computeContentHash(file);
+            }
+
+            @Override
+            void onFileUploaded(SdlFile file) {
+                uploads.incrementAndGet();
+                super.onFileUploaded(file);
+            }
+        };
+        fileManager.start(new CompletionListener() {
+            @Override
+            public void onComplete(boolean success) {
+            }
+        });
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        ArtworkPayloadCache.getInstance().setMaxSize(ArtworkPayloadCache.DEFAULT_MAX_SIZE);
+        ArtworkPayloadCache.getInstance().clear();
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testStreamFileInChunks() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        fileManager.streamFile(new SdlFile("stream.bin", FileType.BINARY, file.getPath(), false), listener);
+
+        PutFile[] chunks = new PutFile[6];
+        for (int i = 0; i < FileManager.STREAMING_MAX_PENDING_CHUNKS; i++) {
+            chunks[i] = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(chunks[i]);
+        }
+        //The window is full until a chunk is accepted
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(chunks[0].getCorrelationID().intValue(), listener.startCorrelationId);
+
+        for (int i = 0; i < chunks.length; i++) {
+            respond(chunks[i], true);
+            int next = i + FileManager.STREAMING_MAX_PENDING_CHUNKS;
+            if (next < chunks.length) {
+                chunks[next] = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertNotNull(chunks[next]);
+            }
+        }
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < chunks.length; i++) {
+            int offset = i * FileManager.STREAMING_CHUNK_SIZE;
+            int length = Math.min(FileManager.STREAMING_CHUNK_SIZE, FILE_SIZE - offset);
+            assertEquals("stream.bin", chunks[i].getSdlFileName());
+            assertEquals(Long.valueOf(offset), chunks[i].getOffset());
+            assertEquals(i == 0 ? Long.valueOf(FILE_SIZE) : null, chunks[i].getLength());
+            assertTrue(Arrays.equals(Arrays.copyOfRange(contents, offset, offset + length), chunks[i].getFileData()));
+        }
+
+        assertEquals(1, listener.responses);
+        assertEquals(0, listener.errors);
+        assertEquals(FILE_SIZE, listener.bytesWritten);
+        assertEquals(chunks[0].getCorrelationID().intValue(), listener.responseCorrelationId);
+        assertEquals(1, uploads.get());
+    }
+
+    /**
+     * A large file uploaded through the file manager is streamed and recorded as uploaded once
+     */
+    public void testUploadedStreamRecordedOnce() throws InterruptedException {
+        final LinkedBlockingQueue<Boolean> completions = new LinkedBlockingQueue<>();
+        SdlFile sdlFile = new SdlFile("stream.bin", FileType.BINARY, file.getPath(), false);
+        fileManager.uploadFile(sdlFile, new CompletionListener() {
+            @Override
+            public void onComplete(boolean success) {
+                completions.add(success);
+            }
+        });
+
+        for (int i = 0; i < 6; i++) {
+            PutFile chunk = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(chunk);
+            respond(chunk, true);
+        }
+
+        assertEquals(Boolean.TRUE, completions.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, uploads.get());
+        assertTrue(fileManager.hasUploadedFile(sdlFile));
+    }
+
+    public void testChunksAreNotSentFromResponseThread() throws InterruptedException {
+        fileManager.streamFile(new SdlFile("stream.bin", FileType.BINARY, file.getPath(), false), new RecordingListener());
+        PutFile first = null;
+        for (int i = 0; i < FileManager.STREAMING_MAX_PENDING_CHUNKS; i++) {
+            PutFile chunk = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (first == null) {
+                first = chunk;
+            }
+        }
+        respond(first, true);
+        assertNotNull(sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(sendingThreads.contains(Thread.currentThread().getName()));
+    }
+
+    public void testFailedChunkStopsStream() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        fileManager.streamFile(new SdlFile("stream.bin", FileType.BINARY, file.getPath(), false), listener);
+        PutFile[] chunks = new PutFile[FileManager.STREAMING_MAX_PENDING_CHUNKS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        respond(chunks[1], false);
+        respond(chunks[0], true);
+        respond(chunks[2], true);
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, listener.errors);
+        assertEquals(0, listener.responses);
+    }
+
+    public void testSmallFileSentInOnePutFile() throws InterruptedException {
+        byte[] small = Arrays.copyOf(contents, 1000);
+        final LinkedBlockingQueue<RPCResponse> responses = new LinkedBlockingQueue<>();
+        fileManager.sendPutFile(new SdlFile("small.bin", FileType.BINARY, small, false), new OnRPCResponseListener() {
+            @Override
+            public void onResponse(int correlationId, RPCResponse response) {
+                responses.add(response);
+            }
+        });
+
+        PutFile putFile = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(putFile);
+        assertTrue(Arrays.equals(small, putFile.getBulkData()));
+        respond(putFile, true);
+        assertNotNull(responses.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    public void testContentHashKeptUntilFileChanges() throws Exception {
+        SdlFile sdlFile = new SdlFile("file.bin", FileType.BINARY, file.getPath(), true);
+
+        String hash = fileManager.getContentHash(sdlFile);
+        assertNotNull(hash);
+        assertEquals(hash, fileManager.getContentHash(sdlFile));
+        assertEquals(1, hashes.get());
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents, 0, 1000);
+        } finally {
+            outputStream.close();
+        }
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        String newHash = fileManager.getContentHash(sdlFile);
+        assertFalse(hash.equals(newHash));
+        assertEquals(2, hashes.get());
+    }
+
+    public void testUploadHashesContentsOnce() throws InterruptedException {
+        SdlFile sdlFile = new SdlFile("small.bin", FileType.BINARY, Arrays.copyOf(contents, 1000), false);
+        fileManager.uploadFile(sdlFile, null);
+        respond(sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), true);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(fileManager.hasUploadedFile(sdlFile));
+        }
+        assertEquals(1, hashes.get());
+
+        //New data is hashed again
+        sdlFile.setFileData(Arrays.copyOf(contents, 2000));
+        assertFalse(fileManager.hasUploadedFile(sdlFile));
+        assertEquals(2, hashes.get());
+    }
+
+    /**
+     * Contents that are already on the head unit under another name are not uploaded again. The
+     * app's artwork keeps its name, while the RPCs refer to the copy on the head unit.
+     */
+    public void testReusedCopyKeepsArtworkName() throws InterruptedException {
+        byte[] image = Arrays.copyOf(contents, 1000);
+        fileManager.uploadFile(new SdlArtwork("first.png", FileType.GRAPHIC_PNG, image, false), null);
+        respond(sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), true);
+
+        SdlArtwork artwork = new SdlArtwork("second.png", FileType.GRAPHIC_PNG, image.clone(), false);
+        final LinkedBlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+        fileManager.uploadFile(artwork, new CompletionListener() {
+            @Override
+            public void onComplete(boolean success) {
+                results.add(success);
+            }
+        });
+
+        assertEquals(Boolean.TRUE, results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals("second.png", artwork.getName());
+        assertEquals("second.png", artwork.getImageRPC().getValue());
+        assertEquals("first.png", fileManager.getRemoteFileName(artwork));
+        assertEquals("first.png", fileManager.getImageRPC(artwork).getValue());
+        assertTrue(fileManager.hasUploadedFile(artwork));
+    }
+
+    /**
+     * Core never responds to requests that are pending when the manager is disposed, so their
+     * cached payloads must be released then
+     */
+    public void testDisposeReleasesPendingPayloads() throws InterruptedException {
+        ArtworkPayloadCache cache = ArtworkPayloadCache.getInstance();
+        cache.clear();
+        cache.setMaxSize(0);
+        SdlFile answered = new SdlFile("answered.bin", FileType.BINARY, Arrays.copyOf(contents, 1000), false);
+        SdlFile pending = new SdlFile("pending.bin", FileType.BINARY, Arrays.copyOf(contents, 2000), false);
+        fileManager.sendPutFile(answered, new OnRPCResponseListener() {
+            @Override
+            public void onResponse(int correlationId, RPCResponse response) {
+            }
+        });
+        fileManager.sendPutFile(pending, new OnRPCResponseListener() {
+            @Override
+            public void onResponse(int correlationId, RPCResponse response) {
+            }
+        });
+        PutFile answeredPutFile = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, cache.getEntryCount());
+
+        respond(answeredPutFile, true);
+        assertEquals(1, cache.getEntryCount());
+
+        fileManager.dispose();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static void respond(PutFile putFile, boolean success) {
+        PutFileResponse response = new PutFileResponse(success, success ? Result.SUCCESS : Result.REJECTED);
+        response.setCorrelationID(putFile.getCorrelationID());
+        putFile.getOnRPCResponseListener().onResponse(putFile.getCorrelationID(), response);
+    }
+
+    static class RecordingListener extends OnPutFileUpdateListener {
+        volatile int startCorrelationId, responseCorrelationId, responses, errors;
+        volatile long bytesWritten;
+
+        @Override
+        public void onStart(int correlationId, long totalSize) {
+            startCorrelationId = correlationId;
+        }
+
+        @Override
+        public void onUpdate(int correlationId, long bytesWritten, long totalSize) {
+            this.bytesWritten = bytesWritten;
+        }
+
+        @Override
+        public void onResponse(int correlationId, RPCResponse response, long totalSize) {
+            responseCorrelationId = correlationId;
+            responses++;
+        }
+
+        @Override
+        public void onError(int correlationId, Result resultCode, String info) {
+            errors++;
+        }
+    }
+}
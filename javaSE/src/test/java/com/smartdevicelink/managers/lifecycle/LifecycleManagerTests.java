@@ -0,0 +1,179 @@
+package com.smartdevicelink.managers.lifecycle;
+
+import com.smartdevicelink.marshal.JsonRPCMarshaller;
+import com.smartdevicelink.protocol.ProtocolMessage;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.MessageType;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.proxy.RPCMessage;
+import com.smartdevicelink.proxy.RPCNotification;
+import com.smartdevicelink.proxy.rpc.Show;
+import com.smartdevicelink.proxy.rpc.OnHashChange;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCListener;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCNotificationListener;
+import com.smartdevicelink.transport.CustomTransport;
+import com.smartdevicelink.transport.CustomTransportConfig;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.lifecycle.LifecycleManager}
+ */
+public class LifecycleManagerTests extends TestCase {
+
+    private static LifecycleManager createManager() {
+        LifecycleManager.AppConfig appConfig = new LifecycleManager.AppConfig();
+        appConfig.setAppName("Test");
+        appConfig.setAppID("1234");
+        CustomTransportConfig transportConfig = new CustomTransportConfig(new CustomTransport("test") {
+            @Override
+            public void onWrite(byte[] bytes, int offset, int length) {
+            }
+        });
+        return new LifecycleManager(appConfig, transportConfig, null);
+    }
+
+    /**
+     * The session is never started, so it stays on protocol version 1 where the payload is the
+     * whole JSON message
+     */
+    private static ProtocolMessage createOnHashChange() {
+        ProtocolMessage message = new ProtocolMessage();
+        message.setData(JsonRPCMarshaller.marshall(new OnHashChange("hash"), (byte) 1));
+        message.setMessageType(MessageType.RPC);
+        message.setSessionType(SessionType.RPC);
+        message.setFunctionID(FunctionID.ON_HASH_CHANGE.getId());
+        message.setRPCType((byte) 0x02);
+        return message;
+    }
+
+    private static OnRPCNotificationListener countingListener(final AtomicInteger count) {
+        return new OnRPCNotificationListener() {
+            @Override
+            public void onNotified(RPCNotification notification) {
+                count.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Requests sent on their own and in batches take their correlation ids from the session they
+     * are sent on, not from the id they were created with
+     */
+    public void testCorrelationIdsPerSession() {
+        LifecycleManager first = createManager();
+        LifecycleManager second = createManager();
+        Show show = new Show();
+        first.internalInterface.sendRPCRequest(show);
+        assertEquals(0, (int) show.getCorrelationID());
+
+        Show batched = new Show();
+        first.internalInterface.sendRequests(Collections.singletonList(batched), null);
+        assertEquals(1, (int) batched.getCorrelationID());
+
+        Show other = new Show();
+        second.internalInterface.sendRPCRequest(other);
+        assertEquals(0, (int) other.getCorrelationID());
+    }
+
+    public void testListenersArePerInstance() {
+        LifecycleManager first = createManager();
+        LifecycleManager second = createManager();
+        AtomicInteger firstCount = new AtomicInteger();
+        AtomicInteger secondCount = new AtomicInteger();
+        first.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, countingListener(firstCount));
+        second.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, countingListener(secondCount));
+
+        second.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        assertEquals(0, firstCount.get());
+        assertEquals(1, secondCount.get());
+
+        first.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        assertEquals(1, firstCount.get());
+        assertEquals(1, secondCount.get());
+    }
+
+    public void testAddAndRemoveListeners() {
+        LifecycleManager manager = createManager();
+        final AtomicInteger rpcCount = new AtomicInteger();
+        AtomicInteger notificationCount = new AtomicInteger();
+        OnRPCListener rpcListener = new OnRPCListener() {
+            @Override
+            public void onReceived(RPCMessage message) {
+                rpcCount.incrementAndGet();
+            }
+        };
+        OnRPCNotificationListener notificationListener = countingListener(notificationCount);
+        manager.internalInterface.addOnRPCListener(FunctionID.ON_HASH_CHANGE, rpcListener);
+        manager.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, notificationListener);
+
+        manager.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        assertEquals(1, rpcCount.get());
+        assertEquals(1, notificationCount.get());
+
+        assertTrue(manager.internalInterface.removeOnRPCListener(FunctionID.ON_HASH_CHANGE, rpcListener));
+        assertTrue(manager.internalInterface.removeOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, notificationListener));
+        assertFalse(manager.internalInterface.removeOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, notificationListener));
+
+        manager.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        assertEquals(1, rpcCount.get());
+        assertEquals(1, notificationCount.get());
+    }
+
+    public void testListenerRemovedDuringDispatch() {
+        final LifecycleManager manager = createManager();
+        final AtomicInteger selfRemovingCount = new AtomicInteger();
+        AtomicInteger otherCount = new AtomicInteger();
+        manager.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, new OnRPCNotificationListener() {
+            @Override
+            public void onNotified(RPCNotification notification) {
+                selfRemovingCount.incrementAndGet();
+                manager.internalInterface.removeOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, this);
+            }
+        });
+        manager.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, countingListener(otherCount));
+
+        manager.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        manager.sdlConnectionListener.onProtocolMessageReceived(createOnHashChange());
+        assertEquals(1, selfRemovingCount.get());
+        assertEquals(2, otherCount.get());
+    }
+
+    public void testConcurrentDispatch() throws InterruptedException {
+        final int threads = 4;
+        final int messages = 500;
+        final LifecycleManager shared = createManager();
+        final AtomicInteger sharedCount = new AtomicInteger();
+        shared.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, countingListener(sharedCount));
+        final AtomicInteger[] counts = new AtomicInteger[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            final LifecycleManager manager = createManager();
+            counts[i] = new AtomicInteger();
+            manager.internalInterface.addOnRPCNotificationListener(FunctionID.ON_HASH_CHANGE, countingListener(counts[i]));
+            new Thread() {
+                @Override
+                public void run() {
+                    ProtocolMessage message = createOnHashChange();
+                    for (int j = 0; j < messages; j++) {
+                        manager.sdlConnectionListener.onProtocolMessageReceived(message);
+                        shared.sdlConnectionListener.onProtocolMessageReceived(message);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        done.await();
+        for (AtomicInteger count : counts) {
+            assertEquals(messages, count.get());
+        }
+        assertEquals(threads * messages, sharedCount.get());
+    }
+}
@@ -0,0 +1,180 @@
+package com.smartdevicelink.managers.lifecycle;
+
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.proxy.RPCResponse;
+import com.smartdevicelink.proxy.rpc.enums.Result;
+import com.smartdevicelink.proxy.rpc.listeners.OnRPCResponseListener;
+import com.smartdevicelink.test.QuietTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.managers.lifecycle.PendingRequestTracker}
+ */
+public class PendingRequestTrackerTests extends QuietTestCase {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final List<PendingRequestTracker> trackers = new ArrayList<>();
+
+    @Override
+    public void tearDown() throws Exception {
+        for (PendingRequestTracker tracker : trackers) {
+            tracker.clear();
+        }
+        super.tearDown();
+    }
+
+    private PendingRequestTracker createTracker() {
+        PendingRequestTracker tracker = new PendingRequestTracker();
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    public void testTimeouts() {
+        PendingRequestTracker tracker = createTracker();
+        assertEquals(PendingRequestTracker.DEFAULT_TIMEOUT, tracker.getTimeout(FunctionID.SHOW));
+        assertEquals(PendingRequestTracker.EXTENDED_TIMEOUT, tracker.getTimeout(FunctionID.PUT_FILE));
+        assertEquals(PendingRequestTracker.DEFAULT_TIMEOUT, tracker.getTimeout(null));
+
+        tracker.setDefaultTimeout(500);
+        tracker.setTimeout(FunctionID.PUT_FILE, 1000);
+        assertEquals(500, tracker.getTimeout(FunctionID.SHOW));
+        assertEquals(1000, tracker.getTimeout(FunctionID.PUT_FILE));
+    }
+
+    /**
+     * Each tracker hands out its own correlation ids and skips ids that are still pending
+     */
+    public void testCorrelationIdsPerTracker() {
+        PendingRequestTracker first = createTracker();
+        PendingRequestTracker second = createTracker();
+        assertEquals(0, first.nextCorrelationId());
+        assertEquals(1, first.nextCorrelationId());
+        assertEquals(0, second.nextCorrelationId());
+
+        first.add(2, FunctionID.SHOW, new RecordingListener());
+        first.add(3, FunctionID.SHOW, new RecordingListener());
+        assertEquals(4, first.nextCorrelationId());
+        assertEquals(1, second.nextCorrelationId());
+    }
+
+    public void testResponseClaimsListenerOnce() {
+        PendingRequestTracker tracker = createTracker();
+        RecordingListener listener = new RecordingListener();
+        tracker.add(7, FunctionID.SHOW, listener);
+        assertTrue(tracker.isPending(7));
+        assertSame(listener, tracker.get(7));
+        assertEquals(1, tracker.getPendingCount());
+        assertEquals(1, tracker.getListeners().size());
+
+        assertSame(listener, tracker.remove(7));
+        assertNull(tracker.remove(7));
+        assertFalse(tracker.isPending(7));
+        assertNull(tracker.get(7));
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    public void testRequestTimesOut() throws InterruptedException {
+        PendingRequestTracker tracker = createTracker();
+        tracker.setTimeout(FunctionID.SHOW, 200);
+        RecordingListener listener = new RecordingListener();
+        tracker.add(1, FunctionID.SHOW, listener);
+
+        assertEquals(Result.TIMED_OUT, listener.errors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, tracker.getTimedOutCount());
+        assertFalse(tracker.isPending(1));
+        assertNull(tracker.remove(1));
+    }
+
+    public void testResponseBeforeTimeout() throws InterruptedException {
+        PendingRequestTracker tracker = createTracker();
+        tracker.setTimeout(FunctionID.SHOW, 200);
+        RecordingListener listener = new RecordingListener();
+        tracker.add(1, FunctionID.SHOW, listener);
+        assertSame(listener, tracker.remove(1));
+
+        assertNull(listener.errors.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, tracker.getTimedOutCount());
+    }
+
+    public void testTimeoutLongerThanWheel() throws InterruptedException {
+        PendingRequestTracker tracker = createTracker();
+        //More than one turn of the wheel, so the request waits an extra round in its slot
+        tracker.setTimeout(FunctionID.SHOW, 60000);
+        tracker.setTimeout(FunctionID.ALERT, 300);
+        RecordingListener longListener = new RecordingListener();
+        RecordingListener shortListener = new RecordingListener();
+        tracker.add(1, FunctionID.SHOW, longListener);
+        tracker.add(2, FunctionID.ALERT, shortListener);
+
+        assertEquals(Result.TIMED_OUT, shortListener.errors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(tracker.isPending(1));
+        assertNull(longListener.errors.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    public void testNoTimeout() throws InterruptedException {
+        PendingRequestTracker tracker = createTracker();
+        tracker.setTimeout(FunctionID.SHOW, 0);
+        RecordingListener listener = new RecordingListener();
+        tracker.add(1, FunctionID.SHOW, listener);
+
+        assertNull(listener.errors.poll(300, TimeUnit.MILLISECONDS));
+        assertTrue(tracker.isPending(1));
+    }
+
+    public void testClearDropsWithoutNotifying() throws InterruptedException {
+        PendingRequestTracker tracker = createTracker();
+        tracker.setTimeout(FunctionID.SHOW, 200);
+        RecordingListener listener = new RecordingListener();
+        tracker.add(1, FunctionID.SHOW, listener);
+        tracker.clear();
+
+        assertEquals(0, tracker.getPendingCount());
+        assertNull(listener.errors.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    public void testTrackersShareTimerThread() throws InterruptedException {
+        final CountDownLatch timedOut = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            PendingRequestTracker tracker = createTracker();
+            tracker.setTimeout(FunctionID.SHOW, 200);
+            tracker.add(i, FunctionID.SHOW, new OnRPCResponseListener() {
+                @Override
+                public void onResponse(int correlationId, RPCResponse response) {
+                }
+
+                @Override
+                public void onError(int correlationId, Result resultCode, String info) {
+                    timedOut.countDown();
+                }
+            });
+        }
+
+        int timerThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("SdlRequestTimeout".equals(thread.getName())) {
+                timerThreads++;
+            }
+        }
+        assertEquals(1, timerThreads);
+        assertTrue(timedOut.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    static class RecordingListener extends OnRPCResponseListener {
+        final LinkedBlockingQueue<Result> errors = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onResponse(int correlationId, RPCResponse response) {
+        }
+
+        @Override
+        public void onError(int correlationId, Result resultCode, String info) {
+            errors.add(resultCode);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.smartdevicelink.protocol;
+
+import com.smartdevicelink.test.QuietTestCase;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.protocol.MessageFrameAssemblerTable}
+ */
+public class MessageFrameAssemblerTableTests extends QuietTestCase {
+    private static final long MAX_BYTES = 1000;
+    private static final long MAX_AGE = 30000;
+
+    private SdlProtocolBase protocol;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        protocol = new SdlProtocolBase(new SdlProtocolBaseTests.RecordingTransport(), new WebSocketServerConfig(5432, -1));
+    }
+
+    public void testPutGetRemove() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE);
+        SdlProtocolBase.MessageFrameAssembler first = protocol.new MessageFrameAssembler();
+        SdlProtocolBase.MessageFrameAssembler second = protocol.new MessageFrameAssembler();
+
+        assertTrue(table.put(1, first, 10));
+        assertTrue(table.put(2, second, 10));
+        assertSame(first, table.get(1));
+        assertSame(second, table.get(2));
+        assertNull(table.get(3));
+
+        //Only the registered assembler is removed
+        table.remove(1, second);
+        assertSame(first, table.get(1));
+        table.remove(1, first);
+        assertNull(table.get(1));
+        assertSame(second, table.get(2));
+        assertEquals(1, table.size());
+        assertEquals(0, table.getEvictedMessageCount());
+    }
+
+    public void testResizeKeepsEntries() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(Long.MAX_VALUE, MAX_AGE);
+        List<SdlProtocolBase.MessageFrameAssembler> assemblers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            SdlProtocolBase.MessageFrameAssembler assembler = protocol.new MessageFrameAssembler();
+            assemblers.add(assembler);
+            assertTrue(table.put(i, assembler, 1));
+        }
+
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(assemblers.get(i), table.get(i));
+        }
+        assertNull(table.get(1000));
+    }
+
+    /**
+     * Removes entries in random order against a map of the expected contents, so that deletes in the
+     * middle of probe runs and runs that wrap around the end of the table are both exercised
+     */
+    public void testBackwardShiftDelete() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(Long.MAX_VALUE, MAX_AGE);
+        Map<Integer, SdlProtocolBase.MessageFrameAssembler> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int operation = 0; operation < 20000; operation++) {
+            int messageId = random.nextInt(64) - 32;
+            if (random.nextBoolean()) {
+                SdlProtocolBase.MessageFrameAssembler assembler = protocol.new MessageFrameAssembler();
+                assertTrue(table.put(messageId, assembler, 1));
+                expected.put(messageId, assembler);
+            } else {
+                SdlProtocolBase.MessageFrameAssembler assembler = expected.remove(messageId);
+                table.remove(messageId, assembler);
+            }
+
+            assertEquals(expected.size(), table.size());
+            for (int id = -32; id < 32; id++) {
+                assertSame(expected.get(id), table.get(id));
+            }
+        }
+    }
+
+    public void testReplacesSameMessageId() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE);
+        SdlProtocolBase.MessageFrameAssembler first = protocol.new MessageFrameAssembler();
+        SdlProtocolBase.MessageFrameAssembler second = protocol.new MessageFrameAssembler();
+
+        assertTrue(table.put(1, first, 100));
+        assertTrue(table.put(1, second, 200));
+
+        assertSame(second, table.get(1));
+        assertEquals(1, table.size());
+        assertEquals(1, table.getEvictedMessageCount());
+        assertEquals(100, table.getEvictedByteCount());
+    }
+
+    public void testEvictsOldestOverByteBudget() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE);
+        long now = System.currentTimeMillis();
+        SdlProtocolBase.MessageFrameAssembler oldest = protocol.new MessageFrameAssembler();
+        oldest.lastFrameTime = now - 200;
+        SdlProtocolBase.MessageFrameAssembler older = protocol.new MessageFrameAssembler();
+        older.lastFrameTime = now - 100;
+        SdlProtocolBase.MessageFrameAssembler newest = protocol.new MessageFrameAssembler();
+
+        assertTrue(table.put(2, older, 400));
+        assertTrue(table.put(1, oldest, 400));
+        assertTrue(table.put(3, newest, 400));
+
+        assertNull(table.get(1));
+        assertSame(older, table.get(2));
+        assertSame(newest, table.get(3));
+        assertEquals(1, table.getEvictedMessageCount());
+        assertEquals(400, table.getEvictedByteCount());
+    }
+
+    public void testRejectsMessageLargerThanBudget() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE);
+        SdlProtocolBase.MessageFrameAssembler kept = protocol.new MessageFrameAssembler();
+        assertTrue(table.put(1, kept, 10));
+
+        assertFalse(table.put(2, protocol.new MessageFrameAssembler(), (int) MAX_BYTES + 1));
+
+        assertSame(kept, table.get(1));
+        assertNull(table.get(2));
+        assertEquals(1, table.getEvictedMessageCount());
+        assertEquals(MAX_BYTES + 1, table.getEvictedByteCount());
+    }
+
+    /**
+     * A stale message is dropped by the next lookup, without any new message being added
+     */
+    public void testGetEvictsStaleMessages() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE, 0);
+        SdlProtocolBase.MessageFrameAssembler stale = protocol.new MessageFrameAssembler();
+        SdlProtocolBase.MessageFrameAssembler fresh = protocol.new MessageFrameAssembler();
+        assertTrue(table.put(1, stale, 100));
+        assertTrue(table.put(2, fresh, 100));
+
+        stale.lastFrameTime = System.currentTimeMillis() - MAX_AGE - 1;
+
+        assertSame(fresh, table.get(2));
+        assertEquals(1, table.size());
+        assertNull(table.get(1));
+        assertEquals(1, table.getEvictedMessageCount());
+        assertEquals(100, table.getEvictedByteCount());
+    }
+
+    public void testPutEvictsStaleMessages() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE, 0);
+        List<SdlProtocolBase.MessageFrameAssembler> stale = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            SdlProtocolBase.MessageFrameAssembler assembler = protocol.new MessageFrameAssembler();
+            assertTrue(table.put(i, assembler, 10));
+            stale.add(assembler);
+        }
+        for (SdlProtocolBase.MessageFrameAssembler assembler : stale) {
+            assembler.lastFrameTime = System.currentTimeMillis() - MAX_AGE - 1;
+        }
+
+        SdlProtocolBase.MessageFrameAssembler fresh = protocol.new MessageFrameAssembler();
+        assertTrue(table.put(100, fresh, 10));
+
+        assertEquals(1, table.size());
+        assertSame(fresh, table.get(100));
+        assertEquals(8, table.getEvictedMessageCount());
+    }
+
+    public void testSweepWaitsForInterval() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE, 60000);
+        SdlProtocolBase.MessageFrameAssembler assembler = protocol.new MessageFrameAssembler();
+        //The first put sweeps, which starts the interval
+        assertTrue(table.put(1, assembler, 10));
+
+        assembler.lastFrameTime = System.currentTimeMillis() - MAX_AGE - 1;
+
+        assertSame(assembler, table.get(1));
+        assertEquals(0, table.getEvictedMessageCount());
+    }
+
+    public void testClear() {
+        MessageFrameAssemblerTable table = new MessageFrameAssemblerTable(MAX_BYTES, MAX_AGE);
+        assertTrue(table.put(1, protocol.new MessageFrameAssembler(), 600));
+        table.clear();
+
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+        //The cleared bytes no longer count against the budget
+        assertTrue(table.put(2, protocol.new MessageFrameAssembler(), 600));
+        assertEquals(0, table.getEvictedMessageCount());
+    }
+}
@@ -0,0 +1,450 @@
+package com.smartdevicelink.protocol;
+
+import com.livio.BSON.BsonEncoder;
+import com.smartdevicelink.protocol.enums.ControlFrameTags;
+import com.smartdevicelink.protocol.enums.FrameType;
+import com.smartdevicelink.protocol.enums.FunctionID;
+import com.smartdevicelink.protocol.enums.MessageType;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.security.SdlSecurityBase;
+import com.smartdevicelink.streaming.video.VideoStreamingParameters;
+import com.smartdevicelink.test.QuietTestCase;
+import com.smartdevicelink.transport.BaseTransportConfig;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+import com.smartdevicelink.transport.enums.TransportType;
+import com.smartdevicelink.transport.utl.TransportRecord;
+import com.smartdevicelink.util.BitConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.protocol.SdlProtocolBase}
+ */
+public class SdlProtocolBaseTests extends QuietTestCase {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final byte SESSION_ID = 1;
+    private static final int MTU = 1024;
+
+    public void testSendBeforeStartServiceAck() {
+        RecordingTransport transport = new RecordingTransport();
+        SdlProtocolBase protocol = new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1));
+
+        protocol.sendMessage(createRequest(FunctionID.SHOW, 1, 0));
+
+        assertTrue(transport.packets.isEmpty());
+        assertEquals(1, transport.errors.size());
+    }
+
+    public void testSingleFrameMessage() {
+        RecordingTransport transport = new RecordingTransport();
+        SdlProtocolBase protocol = startSession(new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1)));
+
+        ProtocolMessage show = createRequest(FunctionID.SHOW, 1, 0);
+        protocol.sendMessage(show);
+
+        assertEquals(1, transport.packets.size());
+        SdlPacket packet = transport.packets.get(0);
+        assertEquals(FrameType.Single, packet.getFrameType());
+        assertEquals(SessionType.RPC.getValue(), packet.getServiceType());
+        assertEquals(5, packet.getVersion());
+        assertEquals(12 + show.getJsonSize(), packet.getDataSize());
+    }
+
+    public void testMultiFrameMessage() {
+        RecordingTransport transport = new RecordingTransport();
+        SdlProtocolBase protocol = startSession(new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1)));
+
+        ProtocolMessage putFile = createRequest(FunctionID.PUT_FILE, 1, 4 * MTU);
+        protocol.sendMessage(putFile);
+
+        int dataLength = 12 + putFile.getJsonSize() + 4 * MTU;
+        int frameCount = (dataLength + MTU - 1) / MTU;
+        assertEquals(frameCount + 1, transport.packets.size());
+        assertFrames(transport.packets, transport.packets.get(0).getMessageId(), frameCount);
+        assertEquals(SessionType.BULK_DATA.getValue(), transport.packets.get(0).getServiceType());
+    }
+
+    /**
+     * The transport holds the first frame of a PutFile until a Show sent from another thread has
+     * been handed to it. This only completes if the Show does not have to wait for the PutFile.
+     */
+    public void testFramesInterleaved() throws InterruptedException {
+        final CountDownLatch putFileStarted = new CountDownLatch(1);
+        final CountDownLatch showSent = new CountDownLatch(1);
+        RecordingTransport transport = new RecordingTransport() {
+            @Override
+            public void onProtocolMessageBytesToSend(SdlPacket packet) {
+                super.onProtocolMessageBytesToSend(packet);
+                if (packet.getFrameType() == FrameType.Single) {
+                    showSent.countDown();
+                } else if (packet.getFrameType() == FrameType.First) {
+                    putFileStarted.countDown();
+                    try {
+                        showSent.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        //Frames are not serialized by the frame lock, as when a packet scheduler orders them
+        final SdlProtocolBase protocol = startSession(new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1)) {
+            @Override
+            protected boolean isFrameLockRequired() {
+                return false;
+            }
+        });
+
+        Thread putFileSender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                protocol.sendMessage(createRequest(FunctionID.PUT_FILE, 1, 8 * MTU));
+            }
+        });
+        putFileSender.start();
+        assertTrue(putFileStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        protocol.sendMessage(createRequest(FunctionID.SHOW, 2, 0));
+        assertTrue(showSent.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        putFileSender.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(putFileSender.isAlive());
+
+        assertEquals(FrameType.First, transport.packets.get(0).getFrameType());
+        assertEquals(FrameType.Single, transport.packets.get(1).getFrameType());
+        assertTrue(transport.packets.get(0).getMessageId() != transport.packets.get(1).getMessageId());
+    }
+
+    public void testConcurrentMessagesKeepTheirOwnFrameSequence() throws InterruptedException {
+        final int threads = 4;
+        final int messagesPerThread = 25;
+        RecordingTransport transport = new RecordingTransport();
+        final SdlProtocolBase protocol = startSession(new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1)));
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            Thread sender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < messagesPerThread; j++) {
+                        protocol.sendMessage(createRequest(FunctionID.PUT_FILE, thread * messagesPerThread + j, 3 * MTU));
+                    }
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+        start.countDown();
+        for (Thread sender : senders) {
+            sender.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse(sender.isAlive());
+        }
+
+        Map<Integer, List<SdlPacket>> framesByMessage = new HashMap<>();
+        for (SdlPacket packet : transport.packets) {
+            List<SdlPacket> frames = framesByMessage.get(packet.getMessageId());
+            if (frames == null) {
+                frames = new ArrayList<>();
+                framesByMessage.put(packet.getMessageId(), frames);
+            }
+            frames.add(packet);
+        }
+        assertEquals(threads * messagesPerThread, framesByMessage.size());
+
+        int dataLength = 12 + createRequest(FunctionID.PUT_FILE, 0, 0).getJsonSize() + 3 * MTU;
+        int frameCount = (dataLength + MTU - 1) / MTU;
+        for (Map.Entry<Integer, List<SdlPacket>> entry : framesByMessage.entrySet()) {
+            assertEquals(frameCount + 1, entry.getValue().size());
+            assertFrames(entry.getValue(), entry.getKey(), frameCount);
+        }
+        assertTrue(transport.errors.isEmpty());
+    }
+
+    /**
+     * An encrypted message larger than the MTU is encrypted frame by frame, so every frame holds
+     * whole records that the receiving side can decrypt on their own
+     */
+    public void testEncryptedMultiFrameRoundTrip() {
+        final RecordSecurity security = new RecordSecurity();
+        RecordingTransport transport = new RecordingTransport() {
+            @Override
+            public SdlSecurityBase getSdlSecurity() {
+                return security;
+            }
+        };
+        SdlProtocolBase protocol = startSession(new SdlProtocolBase(transport, new WebSocketServerConfig(5432, -1)));
+
+        ProtocolMessage putFile = createRequest(FunctionID.PUT_FILE, 1, 4 * MTU);
+        new Random(4 * MTU).nextBytes(putFile.getBulkData());
+        putFile.setPayloadProtected(true);
+        protocol.sendMessage(putFile);
+
+        assertTrue(transport.packets.size() > 2);
+        assertEquals(FrameType.First, transport.packets.get(0).getFrameType());
+        assertFalse(transport.packets.get(0).isEncrypted());
+        for (SdlPacket frame : transport.packets.subList(1, transport.packets.size())) {
+            assertTrue(frame.isEncrypted());
+            assertTrue(frame.getDataSize() <= MTU);
+        }
+
+        final List<ProtocolMessage> received = new CopyOnWriteArrayList<>();
+        RecordingTransport module = new RecordingTransport() {
+            @Override
+            public void onProtocolMessageReceived(ProtocolMessage msg) {
+                received.add(msg);
+            }
+
+            @Override
+            public SdlSecurityBase getSdlSecurity() {
+                return security;
+            }
+        };
+        SdlProtocolBase moduleProtocol = startSession(new SdlProtocolBase(module, new WebSocketServerConfig(5432, -1)));
+        for (SdlPacket packet : transport.packets) {
+            moduleProtocol.handlePacketReceived(packet);
+        }
+
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).getPayloadProtected());
+        assertEquals(1, received.get(0).getCorrID());
+        assertTrue(Arrays.equals(putFile.getBulkData(), received.get(0).getBulkData()));
+    }
+
+    public void testServiceMtuFromStartServiceAck() {
+        SdlProtocolBase protocol = startSession(new SdlProtocolBase(new RecordingTransport(), new WebSocketServerConfig(5432, -1)));
+        protocol.handleProtocolSessionStarted(createAudioServiceAck(100000L), SessionType.PCM);
+
+        assertEquals(100000, protocol.getMtu(SessionType.PCM));
+        // Services without a negotiated MTU use the RPC service's
+        assertEquals(MTU, protocol.getMtu(SessionType.NAV));
+        assertEquals(MTU, protocol.getMtu());
+    }
+
+    /**
+     * A service that ends forgets its MTU, so a restart without an MTU doesn't reuse the old one
+     */
+    public void testServiceMtuForgottenWhenServiceEnds() {
+        SdlProtocolBase protocol = startSession(new SdlProtocolBase(new RecordingTransport(), new WebSocketServerConfig(5432, -1)));
+        protocol.handleProtocolSessionStarted(createAudioServiceAck(100000L), SessionType.PCM);
+
+        protocol.handleServiceEnded(SdlPacketFactory.createEndSession(SessionType.PCM, SESSION_ID, 0, (byte) 5, new byte[0]), SessionType.PCM);
+        assertEquals(MTU, protocol.getMtu(SessionType.PCM));
+
+        protocol.handleProtocolSessionStarted(createAudioServiceAck(null), SessionType.PCM);
+        assertEquals(MTU, protocol.getMtu(SessionType.PCM));
+
+        protocol.handleProtocolSessionStarted(createAudioServiceAck(20000L), SessionType.PCM);
+        assertEquals(20000, protocol.getMtu(SessionType.PCM));
+        assertEquals(MTU, protocol.getMtu());
+    }
+
+    /**
+     * Checks that the frames of one message are a first frame followed by consecutive frames with
+     * sequence numbers 1, 2, ... and a final frame with sequence number 0
+     */
+    private static void assertFrames(List<SdlPacket> packets, int messageId, int frameCount) {
+        List<SdlPacket> frames = new ArrayList<>();
+        for (SdlPacket packet : packets) {
+            if (packet.getMessageId() == messageId) {
+                frames.add(packet);
+            }
+        }
+        assertEquals(frameCount + 1, frames.size());
+        assertEquals(FrameType.First, frames.get(0).getFrameType());
+        assertEquals(8, frames.get(0).getDataSize());
+        for (int i = 1; i <= frameCount; i++) {
+            SdlPacket frame = frames.get(i);
+            assertEquals(FrameType.Consecutive, frame.getFrameType());
+            int expectedSequence = i == frameCount ? SdlPacket.FRAME_INFO_FINAL_CONNESCUTIVE_FRAME : i;
+            assertEquals(expectedSequence, frame.getFrameInfo());
+        }
+    }
+
+    private static SdlProtocolBase startSession(SdlProtocolBase protocol) {
+        HashMap<String, Object> tags = new HashMap<>();
+        tags.put(ControlFrameTags.RPC.StartServiceACK.PROTOCOL_VERSION, "5.0.0");
+        tags.put(ControlFrameTags.RPC.StartServiceACK.HASH_ID, 0x5d1);
+        tags.put(ControlFrameTags.RPC.StartServiceACK.MTU, (long) MTU);
+
+        SdlPacket ack = SdlPacketFactory.createStartSessionACK(SessionType.RPC, SESSION_ID, 0, (byte) 5);
+        ack.setPayload(BsonEncoder.encodeToBytes(tags));
+        ack.setTransportRecord(new TransportRecord(TransportType.WEB_SOCKET_SERVER, null));
+        protocol.handleProtocolSessionStarted(ack, SessionType.RPC);
+        return protocol;
+    }
+
+    private static SdlPacket createAudioServiceAck(Long mtu) {
+        HashMap<String, Object> tags = new HashMap<>();
+        if (mtu != null) {
+            tags.put(ControlFrameTags.Audio.StartServiceACK.MTU, mtu);
+        }
+        SdlPacket ack = SdlPacketFactory.createStartSessionACK(SessionType.PCM, SESSION_ID, 0, (byte) 5);
+        ack.setPayload(BsonEncoder.encodeToBytes(tags));
+        ack.setTransportRecord(new TransportRecord(TransportType.WEB_SOCKET_SERVER, null));
+        return ack;
+    }
+
+    private static ProtocolMessage createRequest(FunctionID functionID, int correlationID, int bulkDataSize) {
+        ProtocolMessage message = new ProtocolMessage();
+        message.setData(("{\"correlationID\":" + correlationID + "}").getBytes());
+        message.setSessionID(SESSION_ID);
+        message.setMessageType(MessageType.RPC);
+        message.setSessionType(SessionType.RPC);
+        message.setFunctionID(functionID.getId());
+        message.setRPCType((byte) 0x00);
+        message.setCorrID(correlationID);
+        if (bulkDataSize > 0) {
+            message.setBulkData(new byte[bulkDataSize]);
+        }
+        return message;
+    }
+
+    /**
+     * Stands in for a TLS library. Each record is framed like a TLS record and carries a checksum,
+     * so a record that was cut short or stitched together from pieces fails to decrypt.
+     */
+    static class RecordSecurity extends SdlSecurityBase {
+        private static final int HEADER_SIZE = 5;
+        private static final int CHECKSUM_SIZE = 4;
+
+        @Override
+        public void initialize() {}
+
+        @Override
+        public Integer runHandshake(byte[] inputData, byte[] outputData) {
+            return 0;
+        }
+
+        @Override
+        public Integer encryptData(byte[] inputData, byte[] outputData) {
+            int length = inputData.length + CHECKSUM_SIZE;
+            outputData[0] = 23;
+            outputData[1] = 3;
+            outputData[2] = 3;
+            outputData[3] = (byte) (length >> 8);
+            outputData[4] = (byte) length;
+            for (int i = 0; i < inputData.length; i++) {
+                outputData[HEADER_SIZE + i] = (byte) ~inputData[i];
+            }
+            System.arraycopy(BitConverter.intToByteArray(Arrays.hashCode(inputData)), 0, outputData, HEADER_SIZE + inputData.length, CHECKSUM_SIZE);
+            return HEADER_SIZE + length;
+        }
+
+        @Override
+        public Integer decryptData(byte[] inputData, byte[] outputData) {
+            if (inputData.length < HEADER_SIZE + CHECKSUM_SIZE || inputData[0] != 23
+                    || (((inputData[3] & 0xFF) << 8) | (inputData[4] & 0xFF)) != inputData.length - HEADER_SIZE) {
+                return null;
+            }
+            int length = inputData.length - HEADER_SIZE - CHECKSUM_SIZE;
+            byte[] plain = new byte[length];
+            for (int i = 0; i < length; i++) {
+                plain[i] = (byte) ~inputData[HEADER_SIZE + i];
+            }
+            if (BitConverter.intFromByteArray(inputData, HEADER_SIZE + length) != Arrays.hashCode(plain)) {
+                return null;
+            }
+            System.arraycopy(plain, 0, outputData, 0, length);
+            return length;
+        }
+
+        @Override
+        public int getMaxEncryptedSize(int length) {
+            int records = (length + TLS_MAX_RECORD_SIZE - 1) / TLS_MAX_RECORD_SIZE;
+            return length + records * (HEADER_SIZE + CHECKSUM_SIZE);
+        }
+
+        @Override
+        public void shutDown() {}
+    }
+
+    static class RecordingTransport implements ISdlProtocol {
+        final List<SdlPacket> packets = new CopyOnWriteArrayList<>();
+        final List<String> errors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onProtocolMessageBytesToSend(SdlPacket packet) {
+            packets.add(packet);
+        }
+
+        @Override
+        public void onProtocolMessageReceived(ProtocolMessage msg) {}
+
+        @Override
+        public void onProtocolSessionStarted(SessionType sessionType, byte sessionID, byte version, String correlationID, int hashID, boolean isEncrypted) {}
+
+        @Override
+        public void onProtocolSessionNACKed(SessionType sessionType, byte sessionID, byte version, String correlationID, List<String> rejectedParams) {}
+
+        @Override
+        public void onProtocolSessionEnded(SessionType sessionType, byte sessionID, String correlationID) {}
+
+        @Override
+        public void onProtocolSessionEndedNACKed(SessionType sessionType, byte sessionID, String correlationID) {}
+
+        @Override
+        public void onProtocolHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolHeartbeatACK(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolServiceDataACK(SessionType sessionType, int dataSize, byte sessionID) {}
+
+        @Override
+        public void onResetOutgoingHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onResetIncomingHeartbeat(SessionType sessionType, byte sessionID) {}
+
+        @Override
+        public void onProtocolError(String info, Exception e) {
+            errors.add(info);
+        }
+
+        @Override
+        public byte getSessionId() {
+            return SESSION_ID;
+        }
+
+        @Override
+        public void shutdown(String info) {}
+
+        @Override
+        public void onTransportDisconnected(String info, boolean altTransportAvailable, BaseTransportConfig transportConfig) {}
+
+        @Override
+        public SdlSecurityBase getSdlSecurity() {
+            return null;
+        }
+
+        @Override
+        public VideoStreamingParameters getDesiredVideoParams() {
+            return null;
+        }
+
+        @Override
+        public void setAcceptedVideoParams(VideoStreamingParameters acceptedVideoParams) {}
+
+        @Override
+        public void stopStream(SessionType serviceType) {}
+
+        @Override
+        public void onAuthTokenReceived(String authToken) {}
+    }
+}
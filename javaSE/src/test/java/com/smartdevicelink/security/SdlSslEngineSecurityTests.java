@@ -0,0 +1,359 @@
+package com.smartdevicelink.security;
+
+import com.smartdevicelink.test.QuietTestCase;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.security.SdlSslEngineSecurity}
+ * <br><br>
+ * The library acts as the TLS server against an in-process {@link SSLEngine} standing in for the
+ * module. Both use a self-signed key pair from sdl_test.p12.
+ */
+public class SdlSslEngineSecurityTests extends QuietTestCase {
+    private static final char[] KEY_STORE_PASSWORD = "sdltest".toCharArray();
+    private static final String APP_ID = "123456";
+    private static final String HEAD_UNIT_ID = "module";
+
+    private SSLContext clientContext;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        SdlSslEngineSecurity.clearSessionCache();
+        clientContext = createContext();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        SdlSslEngineSecurity.clearSessionCache();
+        super.tearDown();
+    }
+
+    public void testHandshake() throws Exception {
+        long handshakeCount = SdlSslEngineSecurity.getHandshakeCount();
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+
+        handshake(security, module);
+
+        assertEquals(SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING, module.engine.getHandshakeStatus());
+        assertTrue(security.getLastHandshakeTime() >= 0);
+        assertFalse(security.isLastHandshakeResumed());
+        assertEquals(handshakeCount + 1, SdlSslEngineSecurity.getHandshakeCount());
+    }
+
+    public void testReconnectResumesSession() throws Exception {
+        long resumedCount = SdlSslEngineSecurity.getResumedHandshakeCount();
+        TestSecurity first = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(first, module);
+        //Round trip app data so the module also takes in any session tickets
+        module.receive(encrypt(first, "ticket".getBytes()));
+        first.shutDown();
+
+        TestSecurity second = createSecurity();
+        handshake(second, new Peer(clientContext));
+
+        //The second connection reuses the cached context, which holds the session
+        assertEquals(0, second.contextsCreated);
+        assertTrue(second.isLastHandshakeResumed());
+        assertEquals(resumedCount + 1, SdlSslEngineSecurity.getResumedHandshakeCount());
+    }
+
+    public void testEncryptRoundTrip() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        byte[] data = randomBytes(1000);
+        byte[] encrypted = encrypt(security, data);
+
+        assertFalse(Arrays.equals(data, Arrays.copyOf(encrypted, data.length)));
+        assertTrue(Arrays.equals(data, module.receive(encrypted)));
+    }
+
+    public void testDecryptRoundTrip() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        byte[] data = randomBytes(1000);
+        byte[] decrypted = new byte[data.length];
+        Integer numBytes = security.decryptData(module.send(data), decrypted);
+
+        assertNotNull(numBytes);
+        assertEquals(data.length, numBytes.intValue());
+        assertTrue(Arrays.equals(data, decrypted));
+    }
+
+    /**
+     * Data larger than a single record is split into as many records as needed, taken from several
+     * input buffers
+     */
+    public void testEncryptSplitsRecords() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        byte[] data = randomBytes(3 * SdlSecurityBase.TLS_MAX_RECORD_SIZE + 100);
+        ByteBuffer[] input = new ByteBuffer[]{
+                ByteBuffer.wrap(data, 0, 10),
+                ByteBuffer.wrap(data, 10, SdlSecurityBase.TLS_MAX_RECORD_SIZE),
+                ByteBuffer.wrap(data, 10 + SdlSecurityBase.TLS_MAX_RECORD_SIZE, data.length - 10 - SdlSecurityBase.TLS_MAX_RECORD_SIZE)
+        };
+        ByteBuffer output = ByteBuffer.allocate(security.getMaxEncryptedSize(data.length));
+        Integer numBytes = security.encryptData(input, output);
+
+        assertNotNull(numBytes);
+        assertEquals(numBytes.intValue(), output.position());
+        byte[] encrypted = Arrays.copyOf(output.array(), numBytes);
+        assertTrue(countRecords(encrypted) >= 4);
+        assertTrue(Arrays.equals(data, module.receive(encrypted)));
+        //The input buffers are left untouched
+        assertEquals(0, input[0].position());
+    }
+
+    /**
+     * Several records received together are all decrypted, and a record that was cut short is
+     * dropped without losing the whole ones before it
+     */
+    public void testDecryptSplitRecords() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        byte[] first = randomBytes(SdlSecurityBase.TLS_MAX_RECORD_SIZE + 500);
+        byte[] second = randomBytes(200);
+        byte[] firstRecords = module.send(first);
+        byte[] secondRecords = module.send(second);
+        assertTrue(countRecords(firstRecords) >= 2);
+
+        ByteBuffer input = ByteBuffer.allocate(firstRecords.length + secondRecords.length);
+        input.put(firstRecords).put(secondRecords, 0, secondRecords.length / 2).flip();
+        ByteBuffer output = ByteBuffer.allocate(first.length + second.length);
+        Integer numBytes = security.decryptData(input, output);
+
+        assertNotNull(numBytes);
+        assertEquals(first.length, numBytes.intValue());
+        assertTrue(Arrays.equals(first, Arrays.copyOf(output.array(), numBytes)));
+        assertEquals(0, input.position());
+    }
+
+    public void testDecryptTamperedRecordFails() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        byte[] encrypted = module.send(randomBytes(100));
+        encrypted[encrypted.length - 1] ^= 1;
+
+        assertNull(security.decryptData(encrypted, new byte[1000]));
+    }
+
+    /**
+     * The engine doesn't take app data until the handshake is done, which must fail rather than
+     * wrap forever
+     */
+    public void testEncryptBeforeHandshakeFails() throws Exception {
+        TestSecurity security = createSecurity();
+
+        ByteBuffer output = ByteBuffer.allocate(1000);
+        assertNull(security.encryptData(new ByteBuffer[]{ByteBuffer.wrap(randomBytes(100))}, output));
+        assertEquals(0, output.position());
+        assertNull(security.encryptData(randomBytes(100), new byte[1000]));
+    }
+
+    public void testShutDown() throws Exception {
+        TestSecurity security = createSecurity();
+        Peer module = new Peer(clientContext);
+        handshake(security, module);
+
+        security.shutDown();
+
+        assertNull(security.encryptData(randomBytes(100), new byte[1000]));
+        assertNull(security.runHandshake(new byte[0], new byte[1000]));
+    }
+
+    private TestSecurity createSecurity() {
+        TestSecurity security = new TestSecurity();
+        security.setAppId(APP_ID);
+        security.setHeadUnitId(HEAD_UNIT_ID);
+        security.initialize();
+        return security;
+    }
+
+    /**
+     * Passes the handshake flights back and forth until neither side has anything left to send
+     */
+    private static void handshake(SdlSslEngineSecurity security, Peer module) throws SSLException {
+        module.engine.beginHandshake();
+        module.process(new byte[0]);
+        for (int flight = 0; flight < 10; flight++) {
+            byte[] toApp = module.takeOutput();
+            byte[] toModule = new byte[64 * 1024];
+            Integer numBytes = security.runHandshake(toApp, toModule);
+            assertNotNull(numBytes);
+            module.process(Arrays.copyOf(toModule, numBytes));
+            if (toApp.length == 0 && numBytes == 0) {
+                return;
+            }
+        }
+        fail("Handshake did not finish");
+    }
+
+    private static byte[] encrypt(SdlSslEngineSecurity security, byte[] data) {
+        byte[] encrypted = new byte[security.getMaxEncryptedSize(data.length)];
+        Integer numBytes = security.encryptData(data, encrypted);
+        assertNotNull(numBytes);
+        return Arrays.copyOf(encrypted, numBytes);
+    }
+
+    private static int countRecords(byte[] data) {
+        int records = 0;
+        int offset = 0;
+        while (offset + 5 <= data.length) {
+            offset += 5 + (((data[offset + 3] & 0xFF) << 8) | (data[offset + 4] & 0xFF));
+            records++;
+        }
+        assertEquals(data.length, offset);
+        return records;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static SSLContext createContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        InputStream stream = SdlSslEngineSecurityTests.class.getResourceAsStream("sdl_test.p12");
+        try {
+            keyStore.load(stream, KEY_STORE_PASSWORD);
+        } finally {
+            stream.close();
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+        return context;
+    }
+
+    private static class TestSecurity extends SdlSslEngineSecurity {
+        int contextsCreated = 0;
+
+        @Override
+        protected SSLContext createSSLContext() {
+            contextsCreated++;
+            try {
+                return createContext();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * The module's side of the connection, acting as the TLS client
+     */
+    private static class Peer {
+        final SSLEngine engine;
+        private ByteBuffer output;
+
+        Peer(SSLContext context) {
+            engine = context.createSSLEngine(HEAD_UNIT_ID, 0);
+            engine.setUseClientMode(true);
+            output = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        }
+
+        /**
+         * Takes in data from the app, writing whatever the engine has to send in return to the output
+         * @return the app data that was decrypted
+         */
+        byte[] process(byte[] data) throws SSLException {
+            ByteBuffer input = ByteBuffer.wrap(data);
+            ByteBuffer appData = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+            while (true) {
+                SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                SSLEngineResult result;
+                if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    continue;
+                } else if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                    result = engine.wrap(ByteBuffer.allocate(0), output);
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        output = grow(output, engine.getSession().getPacketBufferSize());
+                        continue;
+                    }
+                } else if (input.hasRemaining()) {
+                    result = engine.unwrap(input, appData);
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        appData = grow(appData, engine.getSession().getApplicationBufferSize());
+                        continue;
+                    }
+                } else {
+                    break;
+                }
+                assertEquals(SSLEngineResult.Status.OK, result.getStatus());
+            }
+            appData.flip();
+            byte[] decrypted = new byte[appData.remaining()];
+            appData.get(decrypted);
+            return decrypted;
+        }
+
+        byte[] receive(byte[] data) throws SSLException {
+            return process(data);
+        }
+
+        /**
+         * @return the records holding the data
+         */
+        byte[] send(byte[] data) throws SSLException {
+            ByteBuffer input = ByteBuffer.wrap(data);
+            while (input.hasRemaining()) {
+                SSLEngineResult result = engine.wrap(input, output);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    output = grow(output, engine.getSession().getPacketBufferSize());
+                } else {
+                    assertEquals(SSLEngineResult.Status.OK, result.getStatus());
+                }
+            }
+            return takeOutput();
+        }
+
+        byte[] takeOutput() {
+            output.flip();
+            byte[] data = new byte[output.remaining()];
+            output.get(data);
+            output.clear();
+            return data;
+        }
+
+        private static ByteBuffer grow(ByteBuffer buffer, int length) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() + length);
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.smartdevicelink.streaming;
+
+import com.smartdevicelink.SdlConnection.ISdlConnectionListener;
+import com.smartdevicelink.SdlConnection.SdlSession;
+import com.smartdevicelink.protocol.ProtocolMessage;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.test.QuietTestCase;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.streaming.StreamPacketizer}
+ */
+public class StreamPacketizerTests extends QuietTestCase {
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final int RPC_MTU = 1000;
+    private static final int PCM_MTU = 50000;
+    // The largest payload of a TLS record, which caps the chunks of protected services
+    private static final int TLS_RECORD_PAYLOAD = 16384 - 5 - 32 - 256;
+
+    private ChunkRecorder recorder;
+    private StreamPacketizer packetizer;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        recorder = new ChunkRecorder();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (packetizer != null) {
+            packetizer.stop();
+        }
+        super.tearDown();
+    }
+
+    /**
+     * Frames are split into chunks of the MTU the head unit negotiated for the service, not the
+     * RPC service's MTU
+     */
+    public void testChunksSizedFromServiceMtu() throws Exception {
+        packetizer = new StreamPacketizer(recorder, null, SessionType.PCM, (byte) 1, createSession(false));
+        packetizer.start();
+        byte[] data = createData(2 * PCM_MTU + 20000);
+
+        packetizer.sendAudio(data, 0, data.length, 0);
+
+        assertEquals(Arrays.asList(PCM_MTU, PCM_MTU, 20000), recorder.awaitChunks(data.length));
+        assertTrue(Arrays.equals(data, recorder.getData()));
+        assertFalse(recorder.protectedChunks);
+    }
+
+    public void testServiceWithoutMtuUsesRpcMtu() throws Exception {
+        packetizer = new StreamPacketizer(recorder, null, SessionType.NAV, (byte) 1, createSession(false));
+        packetizer.start();
+        byte[] data = createData(2500);
+
+        packetizer.sendFrame(data, 0, data.length, 0);
+
+        assertEquals(Arrays.asList(RPC_MTU, RPC_MTU, 500), recorder.awaitChunks(data.length));
+        assertTrue(Arrays.equals(data, recorder.getData()));
+    }
+
+    /**
+     * Every chunk of a protected service must fit into one TLS record, whatever the MTU
+     */
+    public void testProtectedServiceCappedAtTlsRecord() throws Exception {
+        packetizer = new StreamPacketizer(recorder, null, SessionType.PCM, (byte) 1, createSession(true));
+        packetizer.start();
+        byte[] data = createData(PCM_MTU);
+
+        packetizer.sendAudio(data, 0, data.length, 0);
+
+        List<Integer> chunks = recorder.awaitChunks(data.length);
+        assertEquals(4, chunks.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TLS_RECORD_PAYLOAD, (int) chunks.get(i));
+        }
+        assertTrue(Arrays.equals(data, recorder.getData()));
+        assertTrue(recorder.protectedChunks);
+    }
+
+    /**
+     * @return a session that reports a negotiated MTU for the PCM service only
+     */
+    private static SdlSession createSession(final boolean isProtected) {
+        ISdlConnectionListener listener = (ISdlConnectionListener) Proxy.newProxyInstance(ISdlConnectionListener.class.getClassLoader(), new Class<?>[]{ISdlConnectionListener.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        return new SdlSession(listener, new WebSocketServerConfig(5432, -1)) {
+            @Override
+            public long getMtu(SessionType type) {
+                return SessionType.PCM.equals(type) ? PCM_MTU : RPC_MTU;
+            }
+
+            @Override
+            public boolean isServiceProtected(SessionType sType) {
+                return isProtected;
+            }
+        };
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 13);
+        }
+        return data;
+    }
+
+    private static class ChunkRecorder implements IStreamListener {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final List<Integer> chunks = new ArrayList<>();
+        private boolean protectedChunks = false;
+
+        @Override
+        public synchronized void sendStreamPacket(ProtocolMessage pm) {
+            data.write(pm.getData(), 0, pm.getData().length);
+            chunks.add(pm.getData().length);
+            protectedChunks |= pm.getPayloadProtected();
+            notifyAll();
+        }
+
+        synchronized List<Integer> awaitChunks(int length) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (data.size() < length && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            assertEquals(length, data.size());
+            return new ArrayList<>(chunks);
+        }
+
+        synchronized byte[] getData() {
+            return data.toByteArray();
+        }
+    }
+}
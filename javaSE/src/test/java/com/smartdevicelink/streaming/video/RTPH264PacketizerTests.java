@@ -0,0 +1,296 @@
+package com.smartdevicelink.streaming.video;
+
+import com.smartdevicelink.SdlConnection.ISdlConnectionListener;
+import com.smartdevicelink.SdlConnection.SdlSession;
+import com.smartdevicelink.protocol.ProtocolMessage;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.streaming.IStreamListener;
+import com.smartdevicelink.test.QuietTestCase;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.streaming.video.RTPH264Packetizer}
+ */
+public class RTPH264PacketizerTests extends QuietTestCase {
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final int FRAME_LENGTH_LEN = 2;
+    private static final int RTP_HEADER_LEN = 12;
+    private static final int MAX_RTP_PACKET_SIZE = 65535;
+    // The largest NAL unit that still fits in a Single NAL Unit Packet
+    private static final int MAX_SINGLE_NAL_UNIT = MAX_RTP_PACKET_SIZE - RTP_HEADER_LEN;
+    private static final int MAX_FU_PAYLOAD = MAX_RTP_PACKET_SIZE - RTP_HEADER_LEN - 2;
+    private static final int SSRC = 0x12345678;
+    private static final byte[] START_CODE = {0x00, 0x00, 0x00, 0x01};
+
+    private StreamRecorder recorder;
+    private RTPH264Packetizer packetizer;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        ISdlConnectionListener listener = (ISdlConnectionListener) Proxy.newProxyInstance(ISdlConnectionListener.class.getClassLoader(), new Class<?>[]{ISdlConnectionListener.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        SdlSession session = new SdlSession(listener, new WebSocketServerConfig(5432, -1));
+        recorder = new StreamRecorder();
+        packetizer = new RTPH264Packetizer(recorder, SessionType.NAV, (byte) 1, session);
+        packetizer.setSSRC(SSRC);
+        packetizer.start();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        packetizer.stop();
+        super.tearDown();
+    }
+
+    /**
+     * Each NAL unit that fits in one RTP packet is sent as a Single NAL Unit Packet behind its
+     * RFC 4571 length, and only the last packet of the frame has the marker bit
+     */
+    public void testSingleNALUnitPackets() throws InterruptedException {
+        byte[] sps = createNALUnit(0x67, 20);
+        byte[] pps = createNALUnit(0x68, 8);
+        byte[] idr = createNALUnit(0x65, 3000);
+        sendFrame(1000000, sps, pps, idr);
+
+        List<RTPPacket> packets = recorder.awaitPackets(getStreamSize(sps, pps, idr));
+        assertEquals(3, packets.size());
+        assertSingleNALUnitPacket(packets.get(0), sps, false);
+        assertSingleNALUnitPacket(packets.get(1), pps, false);
+        assertSingleNALUnitPacket(packets.get(2), idr, true);
+        assertConsecutive(packets);
+        for (RTPPacket packet : packets) {
+            assertEquals(packets.get(0).timestamp, packet.timestamp);
+        }
+    }
+
+    /**
+     * A NAL unit that is too large for one RTP packet is split into FU-A packets. The NAL unit
+     * header goes into the FU indicator and header, and only the last fragment of the last NAL unit
+     * of the frame has the marker bit.
+     */
+    public void testFragmentationUnits() throws InterruptedException {
+        byte[] idr = createNALUnit(0x65, 150000);
+        byte[] slice = createNALUnit(0x41, 100);
+        sendFrame(0, idr, slice);
+
+        List<RTPPacket> packets = recorder.awaitPackets(getStreamSize(idr, slice));
+        // The 149999 bytes after the NAL unit header need three fragments
+        assertEquals(4, packets.size());
+        assertEquals(MAX_RTP_PACKET_SIZE, packets.get(0).length);
+        assertEquals(MAX_RTP_PACKET_SIZE, packets.get(1).length);
+        assertEquals(RTP_HEADER_LEN + 2 + idr.length - 1 - 2 * MAX_FU_PAYLOAD, packets.get(2).length);
+        assertEquals(Arrays.asList(false, false, false), Arrays.asList(packets.get(0).marker, packets.get(1).marker, packets.get(2).marker));
+        assertArrayEquals(idr, reassemble(packets.subList(0, 3)));
+        assertSingleNALUnitPacket(packets.get(3), slice, true);
+        assertConsecutive(packets);
+    }
+
+    public void testLastFragmentMarked() throws InterruptedException {
+        byte[] idr = createNALUnit(0x65, 100000);
+        sendFrame(0, idr);
+
+        List<RTPPacket> packets = recorder.awaitPackets(getStreamSize(idr));
+        assertEquals(2, packets.size());
+        assertFalse(packets.get(0).marker);
+        assertTrue(packets.get(1).marker);
+        assertArrayEquals(idr, reassemble(packets));
+    }
+
+    /**
+     * A NAL unit of the largest size that fits in one RTP packet is not fragmented, and one byte
+     * more gives two fragments
+     */
+    public void testFragmentationThreshold() throws InterruptedException {
+        byte[] largest = createNALUnit(0x65, MAX_SINGLE_NAL_UNIT);
+        byte[] fragmented = createNALUnit(0x41, MAX_SINGLE_NAL_UNIT + 1);
+        sendFrame(0, largest);
+        sendFrame(33333, fragmented);
+
+        List<RTPPacket> packets = recorder.awaitPackets(getStreamSize(largest) + getStreamSize(fragmented));
+        assertEquals(3, packets.size());
+        assertEquals(MAX_RTP_PACKET_SIZE, packets.get(0).length);
+        assertSingleNALUnitPacket(packets.get(0), largest, true);
+        assertEquals(MAX_RTP_PACKET_SIZE, packets.get(1).length);
+        assertEquals(RTP_HEADER_LEN + 2 + 2, packets.get(2).length);
+        assertArrayEquals(fragmented, reassemble(packets.subList(1, 3)));
+        assertFalse(packets.get(1).marker);
+        assertTrue(packets.get(2).marker);
+        assertConsecutive(packets);
+    }
+
+    /**
+     * Sequence numbers continue across frames, and the timestamp of each frame follows its
+     * presentation time on the 90 kHz clock
+     */
+    public void testSequenceNumbersAndTimestamps() throws InterruptedException {
+        int frames = 10;
+        int streamSize = 0;
+        List<byte[]> slices = new ArrayList<>();
+        for (int i = 0; i < frames; i++) {
+            byte[] first = createNALUnit(0x41, 500 + i);
+            byte[] second = createNALUnit(0x41, 70000);
+            slices.add(first);
+            slices.add(second);
+            sendFrame(i * 33333L, first, second);
+            streamSize += getStreamSize(first, second);
+        }
+
+        List<RTPPacket> packets = recorder.awaitPackets(streamSize);
+        assertEquals(frames * 3, packets.size());
+        assertConsecutive(packets);
+        int firstTimestamp = packets.get(0).timestamp;
+        for (int i = 0; i < frames; i++) {
+            List<RTPPacket> frame = packets.subList(i * 3, i * 3 + 3);
+            assertSingleNALUnitPacket(frame.get(0), slices.get(i * 2), false);
+            assertArrayEquals(slices.get(i * 2 + 1), reassemble(frame.subList(1, 3)));
+            assertFalse(frame.get(1).marker);
+            assertTrue(frame.get(2).marker);
+            for (RTPPacket packet : frame) {
+                assertEquals((int) (i * 33333L * 9 / 100), packet.timestamp - firstTimestamp);
+            }
+        }
+    }
+
+    private void sendFrame(long presentationTimeUs, byte[]... nalUnits) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] nalUnit : nalUnits) {
+            stream.write(START_CODE, 0, START_CODE.length);
+            stream.write(nalUnit, 0, nalUnit.length);
+        }
+        byte[] data = stream.toByteArray();
+        packetizer.sendFrame(data, 0, data.length, presentationTimeUs);
+    }
+
+    /**
+     * @return a NAL unit of the given type without zero bytes, so that it holds no start codes
+     */
+    private static byte[] createNALUnit(int header, int length) {
+        byte[] nalUnit = new byte[length];
+        nalUnit[0] = (byte) header;
+        for (int i = 1; i < length; i++) {
+            nalUnit[i] = (byte) (1 + (i * 31) % 255);
+        }
+        return nalUnit;
+    }
+
+    private static int getStreamSize(byte[]... nalUnits) {
+        int size = 0;
+        for (byte[] nalUnit : nalUnits) {
+            if (nalUnit.length <= MAX_SINGLE_NAL_UNIT) {
+                size += FRAME_LENGTH_LEN + RTP_HEADER_LEN + nalUnit.length;
+            } else {
+                int fragments = (nalUnit.length - 1 + MAX_FU_PAYLOAD - 1) / MAX_FU_PAYLOAD;
+                size += nalUnit.length - 1 + fragments * (FRAME_LENGTH_LEN + RTP_HEADER_LEN + 2);
+            }
+        }
+        return size;
+    }
+
+    private static void assertSingleNALUnitPacket(RTPPacket packet, byte[] nalUnit, boolean marker) {
+        assertEquals(RTP_HEADER_LEN + nalUnit.length, packet.length);
+        assertEquals(marker, packet.marker);
+        assertArrayEquals(nalUnit, packet.payload);
+    }
+
+    private static void assertConsecutive(List<RTPPacket> packets) {
+        for (int i = 1; i < packets.size(); i++) {
+            assertEquals((packets.get(i - 1).sequenceNumber + 1) & 0xFFFF, packets.get(i).sequenceNumber);
+        }
+    }
+
+    /**
+     * Checks the FU indicator and header of each fragment and puts the NAL unit back together
+     */
+    private static byte[] reassemble(List<RTPPacket> fragments) {
+        ByteArrayOutputStream nalUnit = new ByteArrayOutputStream();
+        for (int i = 0; i < fragments.size(); i++) {
+            byte[] payload = fragments.get(i).payload;
+            byte indicator = payload[0];
+            byte header = payload[1];
+            assertEquals(28, indicator & 0x1F);
+            assertEquals(i == 0, (header & 0x80) != 0);
+            assertEquals(i == fragments.size() - 1, (header & 0x40) != 0);
+            if (i == 0) {
+                nalUnit.write((indicator & 0xE0) | (header & 0x1F));
+            }
+            nalUnit.write(payload, 2, payload.length - 2);
+        }
+        return nalUnit.toByteArray();
+    }
+
+    private static void assertArrayEquals(byte[] expected, byte[] actual) {
+        assertEquals(expected.length, actual.length);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+
+    private static class RTPPacket {
+        final int length;
+        final boolean marker;
+        final int sequenceNumber;
+        final int timestamp;
+        final byte[] payload;
+
+        RTPPacket(ByteBuffer packet, int length) {
+            this.length = length;
+            byte first = packet.get();
+            // Version 2 without padding, extension or CSRCs
+            assertEquals((byte) 0x80, first);
+            byte second = packet.get();
+            marker = (second & 0x80) != 0;
+            assertEquals(96, second & 0x7F);
+            sequenceNumber = packet.getShort() & 0xFFFF;
+            timestamp = packet.getInt();
+            assertEquals(SSRC, packet.getInt());
+            payload = new byte[length - RTP_HEADER_LEN];
+            packet.get(payload);
+        }
+    }
+
+    /**
+     * Joins the data of the SDL messages back into the RTP stream and splits it on the RFC 4571
+     * length prefixes
+     */
+    private static class StreamRecorder implements IStreamListener {
+        private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void sendStreamPacket(ProtocolMessage pm) {
+            assertEquals(SessionType.NAV, pm.getSessionType());
+            stream.write(pm.getData(), 0, pm.getData().length);
+            notifyAll();
+        }
+
+        synchronized List<RTPPacket> awaitPackets(int streamSize) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (stream.size() < streamSize && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            assertEquals(streamSize, stream.size());
+
+            ByteBuffer buffer = ByteBuffer.wrap(stream.toByteArray());
+            List<RTPPacket> packets = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                int length = buffer.getShort() & 0xFFFF;
+                assertTrue(length <= buffer.remaining());
+                packets.add(new RTPPacket(buffer, length));
+            }
+            return packets;
+        }
+    }
+}
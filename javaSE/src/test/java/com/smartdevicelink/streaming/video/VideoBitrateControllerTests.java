@@ -0,0 +1,422 @@
+package com.smartdevicelink.streaming.video;
+
+import com.smartdevicelink.SdlConnection.ISdlConnectionListener;
+import com.smartdevicelink.SdlConnection.SdlSession;
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.proxy.rpc.ImageResolution;
+import com.smartdevicelink.proxy.rpc.VideoStreamingCapability;
+import com.smartdevicelink.proxy.rpc.VideoStreamingFormat;
+import com.smartdevicelink.test.QuietTestCase;
+import com.smartdevicelink.transport.PacketScheduler;
+import com.smartdevicelink.transport.WebSocketServerConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.streaming.video.VideoBitrateController}
+ */
+public class VideoBitrateControllerTests extends QuietTestCase {
+    private static final int MAX_BITRATE = 2000000;
+    private static final int MAX_FRAME_RATE = 30;
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 576;
+    private static final long INTERVAL_MILLIS = 500;
+
+    private FakeClock clock;
+    private List<Integer> bitrates;
+    private List<VideoStreamingParameters> formats;
+    private List<Long> formatTimes;
+    private VideoBitrateController controller;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        clock = new FakeClock();
+        bitrates = new ArrayList<>();
+        formats = new ArrayList<>();
+        formatTimes = new ArrayList<>();
+        controller = createController(MAX_BITRATE);
+    }
+
+    public void testStartsAtMaximum() {
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+        assertEquals(MAX_FRAME_RATE, controller.getFrameRate());
+        VideoStreamingParameters parameters = controller.getVideoStreamingParameters();
+        assertEquals(WIDTH, (int) parameters.getResolution().getResolutionWidth());
+        assertEquals(HEIGHT, (int) parameters.getResolution().getResolutionHeight());
+    }
+
+    /**
+     * Frames are only evaluated once an interval has passed
+     */
+    public void testEvaluatedEveryInterval() {
+        clock.advance(INTERVAL_MILLIS - 1);
+        controller.onFrameSent(1000, TimeUnit.MILLISECONDS.toNanos(300), 0);
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+        assertEquals(0, controller.getDrainRate());
+
+        clock.advance(1);
+        controller.onFrameSent(1000, TimeUnit.MILLISECONDS.toNanos(300), 0);
+        assertEquals(32000, controller.getDrainRate());
+        assertEquals(300, controller.getAverageLatency());
+        assertTrue(controller.getBitrate() < MAX_BITRATE);
+    }
+
+    /**
+     * Frames taking more than 250ms to reach the transport lower the bitrate to 85% of the rate the
+     * transport took data at
+     */
+    public void testHighLatencyBacksOff() {
+        sendInterval(1000000, 250);
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+        assertEquals(1000000, controller.getDrainRate());
+        assertEquals(250, controller.getAverageLatency());
+        assertTrue(bitrates.isEmpty());
+
+        sendInterval(1000000, 300);
+        assertEquals(850000, controller.getBitrate());
+        assertEquals(Arrays.asList(850000), bitrates);
+
+        // The bitrate is already below the drain rate, so the queue is draining
+        sendInterval(1000000, 300);
+        assertEquals(850000, controller.getBitrate());
+        assertEquals(1, bitrates.size());
+    }
+
+    /**
+     * The head unit acknowledging less data than the transport took lowers the drain rate
+     */
+    public void testAckedBytesLimitDrainRate() {
+        controller.onServiceDataAck(500000 / 16);
+        sendInterval(1000000, 300);
+
+        assertEquals(500000, controller.getDrainRate());
+        assertEquals(425000, controller.getBitrate());
+    }
+
+    public void testDroppedFramesBackOff() {
+        sendInterval(1000000, 10, 0);
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+
+        sendInterval(1000000, 10, 3);
+        assertEquals(850000, controller.getBitrate());
+
+        // Only new drops count
+        sendInterval(1000000, 10, 3);
+        assertEquals(850000, controller.getBitrate());
+    }
+
+    /**
+     * The bitrate rises by 8% once four intervals in a row had low latency, and again every
+     * following interval until the latency goes up
+     */
+    public void testStableIntervalsStepUp() {
+        sendInterval(1000000, 300);
+        assertEquals(850000, controller.getBitrate());
+
+        for (int i = 0; i < 3; i++) {
+            sendInterval(850000, 10);
+            assertEquals(850000, controller.getBitrate());
+        }
+        sendInterval(850000, 10);
+        assertEquals(918000, controller.getBitrate());
+        sendInterval(918000, 10);
+        assertEquals(991440, controller.getBitrate());
+
+        // A medium latency starts counting again
+        sendInterval(991440, 150);
+        for (int i = 0; i < 3; i++) {
+            sendInterval(991440, 10);
+        }
+        assertEquals(991440, controller.getBitrate());
+        sendInterval(991440, 10);
+        assertEquals(1070755, controller.getBitrate());
+        assertEquals(Arrays.asList(850000, 918000, 991440, 1070755), bitrates);
+    }
+
+    public void testStepUpAtLeastMinimumIncrease() {
+        controller = createController(300000);
+        sendInterval(200000, 300);
+        assertEquals(170000, controller.getBitrate());
+
+        for (int i = 0; i < 4; i++) {
+            sendInterval(170000, 10);
+        }
+        assertEquals(202000, controller.getBitrate());
+    }
+
+    public void testStepUpLimitedToMaximum() {
+        sendInterval(2000000, 300);
+        assertEquals(1700000, controller.getBitrate());
+
+        for (int i = 0; i < 10; i++) {
+            sendInterval(MAX_BITRATE, 10);
+        }
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+    }
+
+    /**
+     * Too few bits per pixel lower the frame rate by a third down to 10 fps and then the resolution
+     * by a quarter, at most once every four seconds. They are restored in reverse order.
+     */
+    public void testFormatStepsDownAndRestores() {
+        long start = clock.now;
+        // The bitrate stays at its minimum of 10%
+        while (controller.getVideoStreamingParameters().getResolution().getResolutionWidth() == WIDTH) {
+            sendInterval(200000, 300);
+            assertTrue(clock.now - start < TimeUnit.SECONDS.toNanos(30));
+        }
+        assertEquals(200000, controller.getBitrate());
+        assertFormats(Arrays.asList(20, 13, 10, 10), Arrays.asList(WIDTH, WIDTH, WIDTH, 768),
+                Arrays.asList(HEIGHT, HEIGHT, HEIGHT, 432));
+        for (int i = 0; i < formatTimes.size(); i++) {
+            assertEquals(start + TimeUnit.SECONDS.toNanos(4 * (i + 1)), (long) formatTimes.get(i));
+        }
+        assertEquals(Arrays.asList(200000), bitrates);
+        for (VideoStreamingParameters parameters : formats) {
+            assertEquals(200000, parameters.getBitrate());
+        }
+
+        // The lowered format has enough bits per pixel, so it is kept while the link stays slow
+        for (int i = 0; i < 40; i++) {
+            sendInterval(200000, 300);
+        }
+        assertEquals(4, formats.size());
+
+        formats.clear();
+        formatTimes.clear();
+        while (controller.getFrameRate() < MAX_FRAME_RATE) {
+            sendInterval(controller.getBitrate(), 10);
+            assertTrue(clock.now - start < TimeUnit.SECONDS.toNanos(120));
+        }
+        assertFormats(Arrays.asList(10, 15, 23, 30), Arrays.asList(WIDTH, WIDTH, WIDTH, WIDTH),
+                Arrays.asList(HEIGHT, HEIGHT, HEIGHT, HEIGHT));
+        for (int i = 1; i < formatTimes.size(); i++) {
+            assertTrue(formatTimes.get(i) - formatTimes.get(i - 1) >= TimeUnit.SECONDS.toNanos(4));
+        }
+        // Each raised format still gets enough bits per pixel not to be lowered again
+        for (VideoStreamingParameters parameters : formats) {
+            float bitsPerPixel = (float) parameters.getBitrate() / (parameters.getResolution().getResolutionWidth()
+                    * parameters.getResolution().getResolutionHeight() * parameters.getFrameRate());
+            assertTrue(bitsPerPixel >= 0.06f);
+        }
+    }
+
+    public void testMinimumFrameRate() {
+        controller.setMinimumFrameRate(25);
+        for (int i = 0; i < 8; i++) {
+            sendInterval(200000, 300);
+        }
+
+        assertEquals(1, formats.size());
+        assertEquals(25, formats.get(0).getFrameRate());
+    }
+
+    /**
+     * Congestion lowers the bitrate right away, without waiting for the interval to end
+     */
+    public void testCongestionLowersBitrate() {
+        clock.advance(1);
+        controller.onCongestionChanged(true);
+
+        assertEquals(1700000, controller.getBitrate());
+        assertEquals(Arrays.asList(1700000), bitrates);
+
+        // Congestion that hasn't cleared keeps the bitrate below the drain rate even with low latency
+        sendInterval(1000000, 10);
+        assertEquals(850000, controller.getBitrate());
+
+        controller.onCongestionChanged(false);
+        sendInterval(1000000, 10);
+        assertEquals(850000, controller.getBitrate());
+    }
+
+    public void testCongestionWithoutElapsedTimeIgnored() {
+        controller.onCongestionChanged(true);
+
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+    }
+
+    public void testMinimumBitrate() {
+        controller.setMinimumBitrate(1500000);
+        for (int i = 0; i < 10; i++) {
+            clock.advance(1);
+            controller.onCongestionChanged(true);
+        }
+
+        assertEquals(1500000, controller.getBitrate());
+    }
+
+    public void testCapabilityLowersMaximum() {
+        VideoStreamingCapability capability = new VideoStreamingCapability();
+        capability.setMaxBitrate(1000); // kbps
+        capability.setPreferredResolution(new ImageResolution(800, 480));
+        controller.update(capability);
+        controller.reset();
+
+        assertEquals(1000000, controller.getBitrate());
+        VideoStreamingParameters parameters = controller.getVideoStreamingParameters();
+        assertEquals(800, (int) parameters.getResolution().getResolutionWidth());
+        assertEquals(480, (int) parameters.getResolution().getResolutionHeight());
+    }
+
+    public void testResetRestoresMaximum() {
+        for (int i = 0; i < 8; i++) {
+            sendInterval(200000, 300);
+        }
+        assertEquals(20, controller.getFrameRate());
+
+        controller.reset();
+
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+        assertEquals(MAX_FRAME_RATE, controller.getFrameRate());
+        assertEquals(0, controller.getDrainRate());
+    }
+
+    /**
+     * The session only replaces the congestion listener of its previous controller and leaves the
+     * other listeners of the packet scheduler alone
+     */
+    public void testSessionKeepsOtherCongestionListeners() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        SdlSession session = createSession(scheduler);
+        PacketScheduler.CongestionListener other = new PacketScheduler.CongestionListener() {
+            @Override
+            public void onCongestionChanged(SessionType serviceType, boolean congested) {
+            }
+        };
+        scheduler.addCongestionListener(other);
+
+        session.setVideoBitrateController(controller);
+        assertEquals(2, scheduler.listeners.size());
+        assertSame(other, scheduler.listeners.get(0));
+
+        // Only congestion of the video service is passed on
+        clock.advance(1);
+        scheduler.notifyCongestion(SessionType.PCM, true);
+        assertEquals(MAX_BITRATE, controller.getBitrate());
+        scheduler.notifyCongestion(SessionType.NAV, true);
+        assertEquals(1700000, controller.getBitrate());
+
+        VideoBitrateController replacement = createController(MAX_BITRATE);
+        session.setVideoBitrateController(replacement);
+        assertEquals(2, scheduler.listeners.size());
+        assertSame(other, scheduler.listeners.get(0));
+        clock.advance(1);
+        scheduler.notifyCongestion(SessionType.NAV, true);
+        assertEquals(1700000, replacement.getBitrate());
+        assertEquals(1700000, controller.getBitrate());
+
+        session.setVideoBitrateController(null);
+        assertEquals(Arrays.asList(other), scheduler.listeners);
+    }
+
+    private VideoBitrateController createController(int bitrate) {
+        VideoStreamingParameters parameters = new VideoStreamingParameters(240, MAX_FRAME_RATE, bitrate, 5,
+                new ImageResolution(WIDTH, HEIGHT), new VideoStreamingFormat());
+        return new VideoBitrateController(parameters, new VideoBitrateController.Listener() {
+            @Override
+            public void onBitrateChanged(int bitrate) {
+                bitrates.add(bitrate);
+            }
+
+            @Override
+            public void onVideoStreamingParametersChanged(VideoStreamingParameters parameters) {
+                formats.add(parameters);
+                formatTimes.add(clock.now);
+            }
+        }, clock);
+    }
+
+    /**
+     * Sends a single frame at the end of an interval, so the transport took data at the given rate
+     */
+    private void sendInterval(int rate, long latencyMillis) {
+        sendInterval(rate, latencyMillis, 0);
+    }
+
+    private void sendInterval(int rate, long latencyMillis, long droppedFrames) {
+        clock.advance(INTERVAL_MILLIS);
+        controller.onFrameSent(rate / 16, TimeUnit.MILLISECONDS.toNanos(latencyMillis), droppedFrames);
+    }
+
+    private void assertFormats(List<Integer> frameRates, List<Integer> widths, List<Integer> heights) {
+        assertEquals(frameRates.size(), formats.size());
+        for (int i = 0; i < formats.size(); i++) {
+            VideoStreamingParameters parameters = formats.get(i);
+            assertEquals(frameRates.get(i), (Integer) parameters.getFrameRate());
+            assertEquals(widths.get(i), parameters.getResolution().getResolutionWidth());
+            assertEquals(heights.get(i), parameters.getResolution().getResolutionHeight());
+        }
+    }
+
+    private static SdlSession createSession(final PacketScheduler scheduler) {
+        ISdlConnectionListener listener = (ISdlConnectionListener) Proxy.newProxyInstance(ISdlConnectionListener.class.getClassLoader(), new Class<?>[]{ISdlConnectionListener.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        WebSocketServerConfig config = new WebSocketServerConfig(5432, -1);
+        config.setPacketSchedulerFactory(new PacketScheduler.Factory() {
+            @Override
+            public PacketScheduler createPacketScheduler() {
+                return scheduler;
+            }
+        });
+        return new SdlSession(listener, config);
+    }
+
+    private static class FakeClock implements VideoBitrateController.Clock {
+        private long now = TimeUnit.SECONDS.toNanos(1000);
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    private static class RecordingScheduler implements PacketScheduler {
+        private final List<CongestionListener> listeners = new ArrayList<>();
+
+        @Override
+        public void start(PacketWriter writer) {
+        }
+
+        @Override
+        public void schedule(SdlPacket packet) {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void addCongestionListener(CongestionListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeCongestionListener(CongestionListener listener) {
+            listeners.remove(listener);
+        }
+
+        void notifyCongestion(SessionType serviceType, boolean congested) {
+            for (CongestionListener listener : new ArrayList<>(listeners)) {
+                listener.onCongestionChanged(serviceType, congested);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartdevicelink.test;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * Base class for tests that drive code which logs heavily. The android.util.Log shim is turned
+ * off for the duration of each test so its output does not flood System.out.
+ */
+public abstract class QuietTestCase extends TestCase {
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Log.setEnabled(false);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Log.setEnabled(true);
+        super.tearDown();
+    }
+}
@@ -0,0 +1,245 @@
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.test.QuietTestCase;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.transport.MultiplexingWebSocketServer}
+ */
+public class MultiplexingWebSocketServerTests extends QuietTestCase {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private MultiplexingWebSocketServer server;
+    private URI uri;
+    private final LinkedBlockingQueue<CustomTransport> opened = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<CustomTransport> closed = new LinkedBlockingQueue<>();
+    private final List<TestClient> clients = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        int port;
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            port = socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+        uri = URI.create("ws://127.0.0.1:" + port);
+        final CountDownLatch started = new CountDownLatch(1);
+        server = new MultiplexingWebSocketServer(new WebSocketServerConfig(port, -1), 2, new MultiplexingWebSocketServer.ConnectionListener() {
+            @Override
+            public void onConnectionOpened(CustomTransport transport) {
+                opened.add(transport);
+            }
+
+            @Override
+            public void onConnectionClosed(CustomTransport transport) {
+                closed.add(transport);
+            }
+        }) {
+            @Override
+            public void onStart() {
+                super.onStart();
+                started.countDown();
+            }
+        };
+        server.setReuseAddr(true);
+        server.start();
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (TestClient client : clients) {
+            client.closeBlocking();
+        }
+        server.stop();
+        super.tearDown();
+    }
+
+    private TestClient connect() throws InterruptedException {
+        TestClient client = new TestClient(uri);
+        clients.add(client);
+        assertTrue(client.connectBlocking());
+        return client;
+    }
+
+    private static SdlPacket createPacket(int messageId, int payloadSize) {
+        byte[] payload = new byte[payloadSize];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (i + messageId);
+        }
+        return new SdlPacket(5, false, SdlPacket.FRAME_TYPE_SINGLE, SdlPacket.SERVICE_TYPE_RPC,
+                0, 1, payload.length, messageId, payload);
+    }
+
+    public void testConnectionsAreSeparate() throws Exception {
+        TestClient first = connect();
+        CustomTransport firstTransport = opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        TestClient second = connect();
+        CustomTransport secondTransport = opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(firstTransport);
+        assertNotNull(secondTransport);
+        assertNotSame(firstTransport, secondTransport);
+        assertFalse(firstTransport.getTransportRecord().getAddress().equals(secondTransport.getTransportRecord().getAddress()));
+        assertEquals(2, server.getConnectionCount());
+
+        RecordingCallback firstCallback = new RecordingCallback();
+        RecordingCallback secondCallback = new RecordingCallback();
+        firstTransport.setCallback(firstCallback);
+        secondTransport.setCallback(secondCallback);
+
+        //Split a packet across two messages so each connection's state machine has to keep its own state
+        byte[] bytes = createPacket(1, 100).constructPacket();
+        first.send(ByteBuffer.wrap(bytes, 0, 20));
+        second.send(createPacket(2, 50).constructPacket());
+        first.send(ByteBuffer.wrap(bytes, 20, bytes.length - 20));
+
+        SdlPacket firstPacket = firstCallback.packets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        SdlPacket secondPacket = secondCallback.packets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(firstPacket);
+        assertNotNull(secondPacket);
+        assertEquals(1, firstPacket.getMessageId());
+        assertEquals(100, firstPacket.getDataSize());
+        assertEquals(2, secondPacket.getMessageId());
+        assertSame(firstTransport.getTransportRecord(), firstPacket.getTransportRecord());
+        assertTrue(firstCallback.packets.isEmpty());
+        assertTrue(secondCallback.packets.isEmpty());
+    }
+
+    public void testWriteReachesOnlyItsClient() throws Exception {
+        TestClient first = connect();
+        CustomTransport firstTransport = opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        TestClient second = connect();
+        assertNotNull(opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        SdlPacket packet = createPacket(3, 64);
+        firstTransport.write(packet);
+        ByteBuffer received = first.messages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(received);
+        byte[] bytes = new byte[received.remaining()];
+        received.get(bytes);
+        assertTrue(java.util.Arrays.equals(packet.constructPacket(), bytes));
+        assertNull(second.messages.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    public void testSharedWriterConfig() throws Exception {
+        TestClient client = connect();
+        CustomTransport transport = opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        CustomTransportConfig config = server.createTransportConfig(transport);
+        assertSame(transport, config.getTransportInterface());
+        assertSame(config.getPacketSchedulerFactory(), server.createTransportConfig(transport).getPacketSchedulerFactory());
+        PacketScheduler scheduler = config.getPacketSchedulerFactory().createPacketScheduler();
+        assertNotNull(scheduler);
+
+        final GatheringTransportInterface target = transport;
+        scheduler.start(new PacketScheduler.PacketWriter() {
+            @Override
+            public void writePacket(SdlPacket packet) {
+                target.write(packet.constructPacketBuffers());
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            scheduler.schedule(createPacket(i, 10));
+        }
+        for (int i = 0; i < 10; i++) {
+            ByteBuffer received = client.messages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(received);
+            byte[] bytes = new byte[received.remaining()];
+            received.get(bytes);
+            assertTrue(java.util.Arrays.equals(createPacket(i, 10).constructPacket(), bytes));
+        }
+        scheduler.stop();
+    }
+
+    public void testTerminationReportedOnce() throws Exception {
+        TestClient client = connect();
+        CustomTransport transport = opened.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final AtomicInteger terminations = new AtomicInteger();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final CustomTransport stopped = transport;
+        transport.setCallback(new RecordingCallback() {
+            @Override
+            public void onConnectionTerminated(String reason) {
+                terminations.incrementAndGet();
+                //Closing a session stops its transport from inside this callback
+                stopped.stop();
+                terminated.countDown();
+            }
+        });
+
+        client.closeBlocking();
+        assertTrue(terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(transport, closed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        transport.stop();
+        assertEquals(1, terminations.get());
+        assertEquals(0, server.getConnectionCount());
+    }
+
+    static class RecordingCallback implements TransportCallback {
+        final LinkedBlockingQueue<SdlPacket> packets = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onConnectionEstablished() {
+        }
+
+        @Override
+        public void onError() {
+        }
+
+        @Override
+        public void onConnectionTerminated(String reason) {
+        }
+
+        @Override
+        public void onPacketReceived(SdlPacket packet) {
+            packets.add(packet);
+        }
+    }
+
+    static class TestClient extends WebSocketClient {
+        final LinkedBlockingQueue<ByteBuffer> messages = new LinkedBlockingQueue<>();
+
+        TestClient(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake serverHandshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            messages.add(bytes);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    }
+}
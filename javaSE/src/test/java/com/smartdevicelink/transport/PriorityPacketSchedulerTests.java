@@ -0,0 +1,305 @@
+package com.smartdevicelink.transport;
+
+import com.smartdevicelink.protocol.SdlPacket;
+import com.smartdevicelink.protocol.enums.SessionType;
+import com.smartdevicelink.test.QuietTestCase;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a unit test class for the SmartDeviceLink library project class :
+ * {@link com.smartdevicelink.transport.PriorityPacketScheduler}
+ */
+public class PriorityPacketSchedulerTests extends QuietTestCase {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final int SESSION_ID = 1;
+
+    private ManualExecutor executor;
+    private RecordingWriter writer;
+    private PriorityPacketScheduler scheduler;
+    private int messageId;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = new ManualExecutor();
+        writer = new RecordingWriter();
+        scheduler = new PriorityPacketScheduler(1000, 1000, 1000, executor);
+        scheduler.start(writer);
+    }
+
+    public void testWeightedRoundRobin() {
+        List<SdlPacket> rpc = schedule(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 10);
+        List<SdlPacket> pcm = schedule(SdlPacket.SERVICE_TYPE_PCM, SESSION_ID, false, 5);
+        List<SdlPacket> nav = schedule(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 3);
+        List<SdlPacket> bulk = schedule(SdlPacket.SERVICE_TYPE_BULK_DATA, SESSION_ID, false, 2);
+        executor.runAll();
+
+        List<SdlPacket> expected = new ArrayList<>();
+        expected.addAll(rpc.subList(0, 8));
+        expected.addAll(pcm.subList(0, 4));
+        expected.addAll(nav.subList(0, 2));
+        expected.add(bulk.get(0));
+        expected.addAll(rpc.subList(8, 10));
+        expected.add(pcm.get(4));
+        expected.add(nav.get(2));
+        expected.add(bulk.get(1));
+        assertEquals(expected, writer.packets);
+    }
+
+    public void testControlPacketsGoFirst() {
+        List<SdlPacket> bulk = schedule(SdlPacket.SERVICE_TYPE_BULK_DATA, SESSION_ID, false, 2);
+        List<SdlPacket> control = schedule(SdlPacket.SERVICE_TYPE_CONTROL, SESSION_ID + 1, false, 1);
+        executor.runAll();
+
+        assertEquals(control.get(0), writer.packets.get(0));
+        assertEquals(bulk, writer.packets.subList(1, 3));
+    }
+
+    public void testControlPacketWaitsForEarlierPacketsOfSession() {
+        List<SdlPacket> nav = schedule(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 3);
+        List<SdlPacket> endService = schedule(SdlPacket.SERVICE_TYPE_CONTROL, SESSION_ID, false, 1);
+        List<SdlPacket> rpc = schedule(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 2);
+        executor.runAll();
+
+        List<SdlPacket> expected = new ArrayList<>();
+        expected.addAll(nav);
+        expected.addAll(endService);
+        expected.addAll(rpc);
+        assertEquals(expected, writer.packets);
+    }
+
+    public void testEncryptedPacketsKeepScheduleOrder() {
+        List<SdlPacket> encryptedBulk = schedule(SdlPacket.SERVICE_TYPE_BULK_DATA, SESSION_ID, true, 2);
+        List<SdlPacket> encryptedRpc = schedule(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, true, 1);
+        List<SdlPacket> otherSession = schedule(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID + 1, true, 1);
+        executor.runAll();
+
+        //The other session has its own security context, so its video doesn't wait for the bulk data
+        assertEquals(otherSession.get(0), writer.packets.get(0));
+        List<SdlPacket> expected = new ArrayList<>();
+        expected.addAll(encryptedBulk);
+        expected.addAll(encryptedRpc);
+        assertEquals(expected, writer.packets.subList(1, 4));
+    }
+
+    public void testUnencryptedPacketsPassEncryptedOnes() {
+        List<SdlPacket> encryptedNav = schedule(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, true, 1);
+        List<SdlPacket> rpc = schedule(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 1);
+        executor.runAll();
+
+        assertEquals(rpc.get(0), writer.packets.get(0));
+        assertEquals(encryptedNav.get(0), writer.packets.get(1));
+    }
+
+    public void testCongestion() {
+        final List<String> reports = new CopyOnWriteArrayList<>();
+        scheduler.addCongestionListener(new PacketScheduler.CongestionListener() {
+            @Override
+            public void onCongestionChanged(SessionType serviceType, boolean congested) {
+                reports.add(serviceType.getName() + ":" + congested);
+            }
+        });
+        //Each packet is 200 bytes with its header, the high watermark is 750 bytes
+        for (int i = 0; i < 4; i++) {
+            scheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 188));
+        }
+        assertEquals(800, scheduler.getQueuedBytes(SessionType.NAV));
+        assertEquals(1, reports.size());
+        assertEquals(SessionType.NAV.getName() + ":true", reports.get(0));
+
+        executor.runAll();
+        assertEquals(0, scheduler.getQueuedBytes(SessionType.NAV));
+        assertEquals(2, reports.size());
+        assertEquals(SessionType.NAV.getName() + ":false", reports.get(1));
+    }
+
+    public void testMultipleCongestionListeners() {
+        final List<String> reports = new CopyOnWriteArrayList<>();
+        PacketScheduler.CongestionListener first = new PacketScheduler.CongestionListener() {
+            @Override
+            public void onCongestionChanged(SessionType serviceType, boolean congested) {
+                reports.add("first:" + congested);
+            }
+        };
+        PacketScheduler.CongestionListener second = new PacketScheduler.CongestionListener() {
+            @Override
+            public void onCongestionChanged(SessionType serviceType, boolean congested) {
+                reports.add("second:" + congested);
+            }
+        };
+        scheduler.addCongestionListener(first);
+        scheduler.addCongestionListener(second);
+        scheduler.addCongestionListener(first);
+        for (int i = 0; i < 4; i++) {
+            scheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 188));
+        }
+        assertEquals(2, reports.size());
+        assertTrue(reports.contains("first:true"));
+        assertTrue(reports.contains("second:true"));
+
+        scheduler.removeCongestionListener(first);
+        executor.runAll();
+        assertEquals(3, reports.size());
+        assertEquals("second:false", reports.get(2));
+    }
+
+    public void testScheduleBlocksWhenFull() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            scheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 188));
+        }
+        final CountDownLatch scheduled = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_VIDEO, SESSION_ID, false, 188));
+                scheduled.countDown();
+            }
+        });
+        producer.start();
+        assertFalse(scheduled.await(100, TimeUnit.MILLISECONDS));
+
+        executor.runAll();
+        assertTrue(scheduled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.runAll();
+        assertEquals(6, writer.packets.size());
+    }
+
+    public void testStopWritesScheduledPackets() throws InterruptedException {
+        PriorityPacketScheduler threadScheduler = new PriorityPacketScheduler();
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter slowWriter = new RecordingWriter() {
+            @Override
+            public void writePacket(SdlPacket packet) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                super.writePacket(packet);
+            }
+        };
+        threadScheduler.start(slowWriter);
+        List<SdlPacket> scheduled = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SdlPacket packet = createPacket(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 10);
+            threadScheduler.schedule(packet);
+            scheduled.add(packet);
+        }
+        SdlPacket unregister = createPacket(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 10);
+        threadScheduler.schedule(unregister);
+        scheduled.add(unregister);
+
+        release.countDown();
+        threadScheduler.stop();
+        assertEquals(scheduled, slowWriter.packets);
+
+        //Nothing is accepted once stopped
+        threadScheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 10));
+        assertEquals(scheduled.size(), slowWriter.packets.size());
+    }
+
+    public void testStopFromWriterDoesNotWait() throws InterruptedException {
+        final PriorityPacketScheduler threadScheduler = new PriorityPacketScheduler();
+        final CountDownLatch stopped = new CountDownLatch(1);
+        RecordingWriter failingWriter = new RecordingWriter() {
+            @Override
+            public void writePacket(SdlPacket packet) {
+                super.writePacket(packet);
+                //A transport error closes the session from the writer thread
+                threadScheduler.stop();
+                stopped.countDown();
+            }
+        };
+        threadScheduler.start(failingWriter);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            threadScheduler.schedule(createPacket(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 10));
+        }
+        assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(PriorityPacketScheduler.DRAIN_TIMEOUT));
+        assertTrue(failingWriter.packets.size() < 3);
+    }
+
+    public void testStopGivesUpAfterTimeout() {
+        //The executor never runs the write task, like a transport that stopped accepting writes
+        schedule(SdlPacket.SERVICE_TYPE_RPC, SESSION_ID, false, 2);
+        long start = System.nanoTime();
+        scheduler.stop();
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(PriorityPacketScheduler.DRAIN_TIMEOUT));
+        assertEquals(0, scheduler.getQueuedBytes(SessionType.RPC));
+
+        executor.runAll();
+        assertTrue(writer.packets.isEmpty());
+    }
+
+    public void testFactoryCreatesSchedulerPerConnection() {
+        PacketScheduler.Factory factory = new PriorityPacketScheduler.Factory();
+        PacketScheduler first = factory.createPacketScheduler();
+        PacketScheduler second = factory.createPacketScheduler();
+        assertNotNull(first);
+        assertNotSame(first, second);
+
+        //Packets are written directly unless a scheduler is requested
+        assertNull(new CustomTransportConfig(new CustomTransport("test") {
+            @Override
+            public void onWrite(byte[] bytes, int offset, int length) {
+            }
+        }).getPacketSchedulerFactory());
+        assertNull(new WebSocketServerConfig(5432, -1).getPacketSchedulerFactory());
+    }
+
+    private List<SdlPacket> schedule(int serviceType, int sessionId, boolean encrypted, int count) {
+        List<SdlPacket> packets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SdlPacket packet = createPacket(serviceType, sessionId, encrypted, 10);
+            scheduler.schedule(packet);
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    private SdlPacket createPacket(int serviceType, int sessionId, boolean encrypted, int dataSize) {
+        int frameType = serviceType == SdlPacket.SERVICE_TYPE_CONTROL ? SdlPacket.FRAME_TYPE_CONTROL : SdlPacket.FRAME_TYPE_SINGLE;
+        return new SdlPacket(5, encrypted, frameType, serviceType, 0, sessionId, dataSize, ++messageId, new byte[dataSize]);
+    }
+
+    static class RecordingWriter implements PacketScheduler.PacketWriter {
+        final List<SdlPacket> packets = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void writePacket(SdlPacket packet) {
+            packets.add(packet);
+        }
+    }
+
+    /**
+     * Runs the write tasks on the test thread when asked to
+     */
+    static class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = poll()) != null) {
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+}